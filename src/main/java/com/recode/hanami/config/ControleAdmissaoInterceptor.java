@@ -0,0 +1,39 @@
+package com.recode.hanami.config;
+
+import com.recode.hanami.service.ClasseCusto;
+import com.recode.hanami.service.ControleAdmissaoService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Admite a requisição na vaga da sua classe de custo antes do controller e libera a vaga ao
+ * final, inclusive quando o controller lança exceção.
+ */
+public class ControleAdmissaoInterceptor implements HandlerInterceptor {
+
+    private static final String ATRIBUTO_ADMITIDA = ControleAdmissaoInterceptor.class.getName() + ".admitida";
+
+    private final ControleAdmissaoService controleAdmissaoService;
+    private final ClasseCusto classe;
+
+    public ControleAdmissaoInterceptor(ControleAdmissaoService controleAdmissaoService, ClasseCusto classe) {
+        this.controleAdmissaoService = controleAdmissaoService;
+        this.classe = classe;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        controleAdmissaoService.admitir(classe);
+        request.setAttribute(ATRIBUTO_ADMITIDA, classe);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ATRIBUTO_ADMITIDA) == classe) {
+            request.removeAttribute(ATRIBUTO_ADMITIDA);
+            controleAdmissaoService.liberar(classe);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.recode.hanami.config;
+
+import com.recode.hanami.service.ClasseCusto;
+import com.recode.hanami.service.ControleAdmissaoService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Associa os endpoints às classes de custo do controle de admissão. Uploads assíncronos,
+ * partes de upload retomável e consultas de status não entram em nenhuma classe: os jobs
+ * assíncronos já têm seu próprio pool e fila.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ControleAdmissaoService controleAdmissaoService;
+    private final boolean admissaoHabilitada;
+
+    public WebConfig(ControleAdmissaoService controleAdmissaoService,
+                     @Value("${hanami.admissao.habilitada:true}") boolean admissaoHabilitada) {
+        this.controleAdmissaoService = controleAdmissaoService;
+        this.admissaoHabilitada = admissaoHabilitada;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!admissaoHabilitada) {
+            return;
+        }
+
+        registry.addInterceptor(new ControleAdmissaoInterceptor(controleAdmissaoService, ClasseCusto.IMPORTACAO))
+                .addPathPatterns("/hanami/upload-file", "/hanami/upload-archive", "/hanami/uploads/*/finalize");
+        registry.addInterceptor(new ControleAdmissaoInterceptor(controleAdmissaoService, ClasseCusto.IMPORTACAO_NDJSON))
+                .addPathPatterns("/hanami/upload-ndjson");
+        registry.addInterceptor(new ControleAdmissaoInterceptor(controleAdmissaoService, ClasseCusto.RELATORIO_COMPLETO))
+                .addPathPatterns("/hanami/reports/download", "/hanami/export/**");
+        registry.addInterceptor(new ControleAdmissaoInterceptor(controleAdmissaoService, ClasseCusto.METRICAS))
+                .addPathPatterns("/hanami/reports/**")
+                .excludePathPatterns("/hanami/reports/download");
+    }
+}
@@ -1,22 +1,30 @@
 package com.recode.hanami.controller;
 
 import com.recode.hanami.controller.docs.CsvControllerOpenApi;
-import com.recode.hanami.dto.DadosArquivoDTO;
+import com.recode.hanami.dto.ImportacaoArquivoZipDTO;
 import com.recode.hanami.dto.ImportacaoResponseDTO;
-import com.recode.hanami.service.CsvService;
-import com.recode.hanami.service.ProcessamentoVendasService;
+import com.recode.hanami.service.ImportacaoVendasService;
+import com.recode.hanami.service.ImportacaoZipService;
+import com.recode.hanami.service.RejeicoesImportacaoService;
+import com.recode.hanami.util.DownloadArquivoUtil;
 import com.recode.hanami.validation.UploadArquivoValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 
 @RestController
 @RequestMapping("/hanami")
@@ -24,32 +32,75 @@ public class CsvController implements CsvControllerOpenApi {
 
     private static final Logger logger = LoggerFactory.getLogger(CsvController.class);
 
-    private final CsvService csvService;
-    private final ProcessamentoVendasService processamentoVendasService;
+    private final ImportacaoVendasService importacaoVendasService;
+    private final ImportacaoZipService importacaoZipService;
+    private final RejeicoesImportacaoService rejeicoesImportacaoService;
     private final UploadArquivoValidator uploadArquivoValidator;
+    private final boolean modoStreaming;
 
-    public CsvController(CsvService csvService,
-                         ProcessamentoVendasService processamentoVendasService,
-                         UploadArquivoValidator uploadArquivoValidator) {
-        this.csvService = csvService;
-        this.processamentoVendasService = processamentoVendasService;
+    public CsvController(ImportacaoVendasService importacaoVendasService,
+                         ImportacaoZipService importacaoZipService,
+                         RejeicoesImportacaoService rejeicoesImportacaoService,
+                         UploadArquivoValidator uploadArquivoValidator,
+                         @Value("${hanami.importacao.streaming:true}") boolean modoStreaming) {
+        this.importacaoVendasService = importacaoVendasService;
+        this.importacaoZipService = importacaoZipService;
+        this.rejeicoesImportacaoService = rejeicoesImportacaoService;
         this.uploadArquivoValidator = uploadArquivoValidator;
+        this.modoStreaming = modoStreaming;
     }
 
     @PostMapping(value = "/upload-file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Override
-    public ResponseEntity<ImportacaoResponseDTO> uploadCsv(@RequestParam(value = "file") MultipartFile file) {
+    public ResponseEntity<ImportacaoResponseDTO> uploadCsv(@RequestParam(value = "file") MultipartFile file,
+                                                           @RequestParam(value = "force", defaultValue = "false") boolean force) {
         logger.info("Iniciando processamento de upload de arquivo: {}", file.getOriginalFilename());
         uploadArquivoValidator.validate(file);
 
-        List<DadosArquivoDTO> listaProcessada = csvService.conversorCsvParaJson(file);
-        logger.debug("Arquivo convertido com sucesso. Registros: {}", listaProcessada.size());
+        // Arquivos Arrow só têm leitor no caminho em streaming, que os grava em disco e lê pelo rodapé
+        if (modoStreaming || importacaoVendasService.isArrow(file)) {
+            ImportacaoResponseDTO resposta = importacaoVendasService.importarEmStreaming(file, force);
+            logger.info("Dados salvos com sucesso em modo streaming. Total de registros: {}", resposta.linhasProcessadas());
+            return ResponseEntity.ok(resposta);
+        }
 
-        processamentoVendasService.salvarDadosDoArquivo(listaProcessada);
-        logger.info("Dados salvos com sucesso. Total de registros: {}", listaProcessada.size());
+        ImportacaoResponseDTO resposta = importacaoVendasService.importarEmLista(file, force);
+        logger.info("Dados salvos com sucesso. Total de registros: {}", resposta.linhasProcessadas());
+        return ResponseEntity.ok(resposta);
+    }
+
+    @PostMapping(value = "/upload-archive", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Override
+    public ResponseEntity<ImportacaoArquivoZipDTO> uploadZip(@RequestParam(value = "file") MultipartFile file,
+                                                             @RequestParam(value = "force", defaultValue = "false") boolean force) {
+        logger.info("Iniciando importação do arquivo ZIP: {}", file.getOriginalFilename());
+        uploadArquivoValidator.validateZip(file);
 
-        ImportacaoResponseDTO resposta = new ImportacaoResponseDTO("sucesso", listaProcessada.size());
+        ImportacaoArquivoZipDTO resposta = importacaoZipService.importar(file, force);
+        logger.info("Arquivo ZIP {} importado: {} arquivos, {} com erro, {} linhas", file.getOriginalFilename(),
+                resposta.arquivosImportados(), resposta.arquivosComErro(), resposta.linhasProcessadas());
+        return ResponseEntity.ok(resposta);
+    }
+
+    @PostMapping(value = "/upload-ndjson", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Override
+    public ResponseEntity<ImportacaoResponseDTO> uploadNdjson(InputStream corpo) {
+        logger.info("Iniciando importação contínua em NDJSON");
+        ImportacaoResponseDTO resposta = importacaoVendasService.importarNdjson(corpo);
+        logger.info("Importação NDJSON encerrada ({}): {} linhas, {} rejeitadas", resposta.status(),
+                resposta.linhasProcessadas(), resposta.linhasRejeitadas());
         return ResponseEntity.ok(resposta);
     }
-}
 
+    @GetMapping("/import-rejects/{idRejeicoes}")
+    @Override
+    public ResponseEntity<Resource> baixarRejeicoes(@PathVariable String idRejeicoes) {
+        Path arquivo = rejeicoesImportacaoService.localizar(idRejeicoes);
+        try {
+            return DownloadArquivoUtil.buildResponse(arquivo, "rejeicoes-" + idRejeicoes + ".csv",
+                    MediaType.parseMediaType("text/csv"));
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler arquivo de rejeições: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.recode.hanami.controller;
+
+import com.recode.hanami.controller.docs.ExportacaoControllerOpenApi;
+import com.recode.hanami.service.ArrowService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/hanami/export")
+public class ExportacaoController implements ExportacaoControllerOpenApi {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportacaoController.class);
+    private static final String ARROW_ARQUIVO = "application/vnd.apache.arrow.file";
+
+    private final ArrowService arrowService;
+
+    public ExportacaoController(ArrowService arrowService) {
+        this.arrowService = arrowService;
+    }
+
+    @GetMapping("/sales")
+    @Override
+    public void exportarVendas(HttpServletResponse response) throws IOException {
+        logger.info("Exportação das vendas em Arrow solicitada");
+        response.setContentType(ARROW_ARQUIVO);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("vendas.arrow").build().toString());
+
+        long vendas = arrowService.exportarVendas(response.getOutputStream());
+        logger.info("Exportação em Arrow concluída: {} vendas", vendas);
+    }
+}
@@ -0,0 +1,55 @@
+package com.recode.hanami.controller;
+
+import com.recode.hanami.controller.docs.ImportacaoJobControllerOpenApi;
+import com.recode.hanami.dto.ImportacaoJobDTO;
+import com.recode.hanami.service.ImportacaoJobService;
+import com.recode.hanami.validation.UploadArquivoValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping("/hanami")
+public class ImportacaoJobController implements ImportacaoJobControllerOpenApi {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacaoJobController.class);
+
+    private final ImportacaoJobService importacaoJobService;
+    private final UploadArquivoValidator uploadArquivoValidator;
+
+    public ImportacaoJobController(ImportacaoJobService importacaoJobService,
+                                   UploadArquivoValidator uploadArquivoValidator) {
+        this.importacaoJobService = importacaoJobService;
+        this.uploadArquivoValidator = uploadArquivoValidator;
+    }
+
+    @PostMapping(value = "/upload-file/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Override
+    public ResponseEntity<ImportacaoJobDTO> uploadCsvAssincrono(@RequestParam(value = "file") MultipartFile file,
+                                                                @RequestParam(value = "force", defaultValue = "false") boolean force) {
+        logger.info("Recebido arquivo para importação assíncrona: {}", file.getOriginalFilename());
+        uploadArquivoValidator.validate(file);
+
+        ImportacaoJobDTO job = importacaoJobService.submeter(file, force);
+        return ResponseEntity.accepted()
+                .location(URI.create("/hanami/import-jobs/" + job.idJob()))
+                .body(job);
+    }
+
+    @GetMapping("/import-jobs/{idJob}")
+    @Override
+    public ResponseEntity<ImportacaoJobDTO> consultarImportacao(@PathVariable("idJob") String idJob) {
+        logger.debug("Consulta de status da importação {}", idJob);
+        return ResponseEntity.ok(importacaoJobService.consultar(idJob));
+    }
+}
@@ -4,8 +4,6 @@ import com.recode.hanami.controller.docs.ReportsControllerOpenApi;
 import com.recode.hanami.dto.DistribuicaoClientesDTO;
 import com.recode.hanami.dto.MetricasRegiaoDTO;
 import com.recode.hanami.dto.RelatorioCompletoDTO;
-import com.recode.hanami.entities.Venda;
-import com.recode.hanami.repository.VendaRepository;
 import com.recode.hanami.service.CalculosDemografiaRegiao;
 import com.recode.hanami.service.RelatorioService;
 import com.recode.hanami.util.DownloadArquivoUtil;
@@ -30,18 +28,15 @@ public class ReportsController implements ReportsControllerOpenApi {
 
     private static final Logger logger = LoggerFactory.getLogger(ReportsController.class);
 
-    private final VendaRepository vendaRepository;
     private final CalculosDemografiaRegiao calculosDemografiaRegiao;
     private final RelatorioService relatorioService;
     private final FormatoRelatorioValidator formatoRelatorioValidator;
     private final SortByValidator sortByValidator;
 
-    public ReportsController(VendaRepository vendaRepository,
-                             CalculosDemografiaRegiao calculosDemografiaRegiao,
+    public ReportsController(CalculosDemografiaRegiao calculosDemografiaRegiao,
                              RelatorioService relatorioService,
                              FormatoRelatorioValidator formatoRelatorioValidator,
                              SortByValidator sortByValidator) {
-        this.vendaRepository = vendaRepository;
         this.calculosDemografiaRegiao = calculosDemografiaRegiao;
         this.relatorioService = relatorioService;
         this.formatoRelatorioValidator = formatoRelatorioValidator;
@@ -87,17 +82,14 @@ public class ReportsController implements ReportsControllerOpenApi {
             @RequestParam(value = "estado", required = false) String estado) {
         logger.debug("Solicitação de desempenho por região - Estado: {}", estado);
 
-        List<Venda> vendas;
         Map<String, MetricasRegiaoDTO> metricas;
 
         if (estado != null && !estado.trim().isEmpty()) {
-            vendas = vendaRepository.findByClienteEstado(estado.trim());
-            metricas = calculosDemografiaRegiao.calcularMetricasPorEstado(vendas);
+            metricas = calculosDemografiaRegiao.calcularMetricasPorEstado(estado.trim());
             logger.info("Desempenho por estado calculado: {} estado(s) - Filtro: {}",
                         metricas.size(), estado.toUpperCase().trim());
         } else {
-            vendas = vendaRepository.findAll();
-            metricas = calculosDemografiaRegiao.calcularMetricasPorRegiao(vendas);
+            metricas = calculosDemografiaRegiao.calcularMetricasPorRegiao();
             logger.info("Desempenho regional calculado: {} regiões", metricas.size());
         }
 
@@ -108,8 +100,7 @@ public class ReportsController implements ReportsControllerOpenApi {
     @Override
     public ResponseEntity<DistribuicaoClientesDTO> getCustomerProfile() {
         logger.debug("Solicitação de perfil demográfico");
-        List<Venda> vendas = vendaRepository.findAll();
-        DistribuicaoClientesDTO distribuicao = calculosDemografiaRegiao.calcularDistribuicaoClientes(vendas);
+        DistribuicaoClientesDTO distribuicao = calculosDemografiaRegiao.calcularDistribuicaoClientes();
         logger.info("Perfil demográfico calculado");
         return ResponseEntity.ok(distribuicao);
     }
@@ -0,0 +1,87 @@
+package com.recode.hanami.controller;
+
+import com.recode.hanami.controller.docs.UploadRetomavelControllerOpenApi;
+import com.recode.hanami.dto.ImportacaoJobDTO;
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.dto.UploadRetomavelDTO;
+import com.recode.hanami.service.UploadRetomavelService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+import java.net.URI;
+
+@RestController
+@RequestMapping("/hanami")
+public class UploadRetomavelController implements UploadRetomavelControllerOpenApi {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadRetomavelController.class);
+
+    private final UploadRetomavelService uploadRetomavelService;
+
+    public UploadRetomavelController(UploadRetomavelService uploadRetomavelService) {
+        this.uploadRetomavelService = uploadRetomavelService;
+    }
+
+    @PostMapping("/uploads")
+    @Override
+    public ResponseEntity<UploadRetomavelDTO> criarUpload(@RequestParam("arquivo") String arquivo,
+                                                          @RequestParam("tamanho") long tamanho) {
+        logger.info("Criando upload retomável para o arquivo {} ({} bytes)", arquivo, tamanho);
+        UploadRetomavelDTO upload = uploadRetomavelService.criar(arquivo, tamanho);
+        return ResponseEntity.created(URI.create("/hanami/uploads/" + upload.idUpload()))
+                .body(upload);
+    }
+
+    @GetMapping("/uploads/{idUpload}")
+    @Override
+    public ResponseEntity<UploadRetomavelDTO> consultarUpload(@PathVariable("idUpload") String idUpload) {
+        return ResponseEntity.ok(uploadRetomavelService.consultar(idUpload));
+    }
+
+    @PutMapping(value = "/uploads/{idUpload}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Override
+    public ResponseEntity<UploadRetomavelDTO> enviarParte(@PathVariable("idUpload") String idUpload,
+                                                          @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+                                                          InputStream corpo) {
+        return ResponseEntity.ok(uploadRetomavelService.receberParte(idUpload, contentRange, corpo));
+    }
+
+    @PostMapping("/uploads/{idUpload}/finalize")
+    @Override
+    public ResponseEntity<ImportacaoResponseDTO> finalizarUpload(@PathVariable("idUpload") String idUpload,
+                                                                 @RequestParam(value = "force", defaultValue = "false") boolean force) {
+        logger.info("Finalizando upload retomável {}", idUpload);
+        return ResponseEntity.ok(uploadRetomavelService.finalizar(idUpload, force));
+    }
+
+    @PostMapping("/uploads/{idUpload}/finalize/async")
+    @Override
+    public ResponseEntity<ImportacaoJobDTO> finalizarUploadAssincrono(@PathVariable("idUpload") String idUpload,
+                                                                      @RequestParam(value = "force", defaultValue = "false") boolean force) {
+        logger.info("Finalizando upload retomável {} em segundo plano", idUpload);
+        ImportacaoJobDTO job = uploadRetomavelService.finalizarAssincrono(idUpload, force);
+        return ResponseEntity.accepted()
+                .location(URI.create("/hanami/import-jobs/" + job.idJob()))
+                .body(job);
+    }
+
+    @DeleteMapping("/uploads/{idUpload}")
+    @Override
+    public ResponseEntity<Void> cancelarUpload(@PathVariable("idUpload") String idUpload) {
+        uploadRetomavelService.cancelar(idUpload);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.recode.hanami.controller.docs;
 
+import com.recode.hanami.dto.ImportacaoArquivoZipDTO;
 import com.recode.hanami.dto.ImportacaoResponseDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,10 +10,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+
 /**
  * Documentação OpenAPI para o CsvController.
  * Todas as anotações do Swagger estão centralizadas nesta interface.
@@ -24,7 +28,13 @@ public interface CsvControllerOpenApi {
             summary = "Upload de arquivo CSV com dados de vendas",
             description = "Processa um arquivo CSV contendo dados de vendas, clientes, produtos e vendedores. " +
                     "O arquivo deve seguir o formato específico com todas as colunas obrigatórias. " +
-                    "Os dados são validados e persistidos no banco de dados."
+                    "Também são aceitos arquivos compactados em gzip (.csv.gz) ou zstd (.csv.zst), " +
+                    "identificados pelo conteúdo e descompactados durante a leitura. " +
+                    "Arquivos Apache Arrow IPC (.arrow ou .feather, formato de arquivo ou de fluxo) com as mesmas colunas " +
+                    "são lidos coluna a coluna, sem conversão de texto; é o formato gerado por `/hanami/export/sales`. " +
+                    "Os dados são validados e persistidos no banco de dados. " +
+                    "Com `hanami.importacao.modo-transacao=lotes`, cada bloco de linhas é confirmado em sua própria transação " +
+                    "e as linhas inválidas vão para um arquivo de rejeições, informado em `arquivo_rejeicoes`."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -33,15 +43,29 @@ public interface CsvControllerOpenApi {
                     content = @Content(
                             mediaType = "application/json",
                             schema = @Schema(implementation = ImportacaoResponseDTO.class),
-                            examples = @ExampleObject(
-                                    name = "Sucesso",
-                                    value = """
-                                            {
-                                              "status": "sucesso",
-                                              "linhas_processadas": 150
-                                            }
-                                            """
-                            )
+                            examples = {
+                                    @ExampleObject(
+                                            name = "Sucesso",
+                                            value = """
+                                                    {
+                                                      "status": "sucesso",
+                                                      "linhas_processadas": 150
+                                                    }
+                                                    """
+                                    ),
+                                    @ExampleObject(
+                                            name = "Sucesso parcial (commit em lotes)",
+                                            value = """
+                                                    {
+                                                      "status": "sucesso_parcial",
+                                                      "linhas_processadas": 150,
+                                                      "linhas_aceitas": 147,
+                                                      "linhas_rejeitadas": 3,
+                                                      "arquivo_rejeicoes": "/hanami/import-rejects/9b2e4c1a-6f3d-4e8b-a1c7-5d0f2b8e3a94"
+                                                    }
+                                                    """
+                                    )
+                            }
                     )
             ),
             @ApiResponse(
@@ -91,7 +115,9 @@ public interface CsvControllerOpenApi {
                                             """
                             )
                     )
-            )
+            ),
+            @ApiResponse(responseCode = "429", description = "Fila de requisições de importação cheia; tente após `Retry-After` segundos"),
+            @ApiResponse(responseCode = "503", description = "Nenhuma vaga de importação liberada dentro da espera máxima; tente após `Retry-After` segundos")
     })
     ResponseEntity<ImportacaoResponseDTO> uploadCsv(
             @Parameter(
@@ -103,6 +129,131 @@ public interface CsvControllerOpenApi {
                     required = true,
                     content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA_VALUE)
             )
-            MultipartFile file
+            MultipartFile file,
+            @Parameter(
+                    description = "Reimporta o arquivo mesmo que um arquivo idêntico (mesmo SHA-256) já tenha sido importado. " +
+                            "Sem este parâmetro, o reenvio de um arquivo idêntico devolve o resultado da importação anterior.",
+                    example = "false"
+            )
+            boolean force
+    );
+
+    @Operation(
+            summary = "Upload de arquivo ZIP com vários CSVs de vendas",
+            description = "Importa cada CSV contido no ZIP (inclusive `.csv.gz` e `.csv.zst`) como se fosse enviado a `/hanami/upload-file`, " +
+                    "cada um em sua própria transação. As entradas são lidas em sequência e importadas em paralelo por um pool limitado " +
+                    "(`hanami.importacao.zip.threads`); o uso de memória não depende da quantidade de entradas. " +
+                    "A falha de uma entrada não interrompe as demais e aparece em `entradas` com a mensagem de erro. " +
+                    "Entradas com outras extensões são listadas como `ignorada`."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Arquivo processado; o resultado de cada entrada está em `entradas`",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ImportacaoArquivoZipDTO.class),
+                            examples = @ExampleObject(
+                                    name = "Sucesso parcial",
+                                    value = """
+                                            {
+                                              "status": "sucesso_parcial",
+                                              "linhas_processadas": 2300,
+                                              "arquivos_importados": 2,
+                                              "arquivos_com_erro": 1,
+                                              "entradas": [
+                                                {"arquivo": "loja-01.csv", "status": "sucesso", "linhas_processadas": 1200},
+                                                {"arquivo": "loja-02.csv.gz", "status": "sucesso", "linhas_processadas": 1100},
+                                                {"arquivo": "loja-03.csv", "status": "falhou", "erro": "ID do cliente não pode ser nulo ou vazio"},
+                                                {"arquivo": "leia-me.txt", "status": "ignorada", "erro": "Extensão não suportada; são aceitos .csv, .csv.gz, .csv.zst, .arrow e .feather"}
+                                              ]
+                                            }
+                                            """
+                            )
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Nenhum arquivo enviado, extensão diferente de .zip ou ZIP sem arquivos CSV"),
+            @ApiResponse(responseCode = "429", description = "Fila de requisições de importação cheia; tente após `Retry-After` segundos"),
+            @ApiResponse(responseCode = "503", description = "Nenhuma vaga de importação liberada dentro da espera máxima; tente após `Retry-After` segundos")
+    })
+    ResponseEntity<ImportacaoArquivoZipDTO> uploadZip(
+            @Parameter(
+                    description = "Arquivo ZIP contendo CSVs de vendas no formato de `/hanami/upload-file`",
+                    required = true,
+                    content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA_VALUE)
+            )
+            MultipartFile file,
+            @Parameter(
+                    description = "Reimporta as entradas mesmo que arquivos idênticos (mesmo SHA-256) já tenham sido importados",
+                    example = "false"
+            )
+            boolean force
+    );
+
+    @Operation(
+            summary = "Importação contínua de vendas em JSON por linha (NDJSON)",
+            description = "Recebe um objeto JSON por linha, com os mesmos campos das colunas do CSV de `/hanami/upload-file`, " +
+                    "e grava os registros à medida que chegam, sem esperar o fim da requisição. Cada lote de até " +
+                    "`hanami.importacao.tamanho-lote` registros é confirmado em sua própria transação, e um lote incompleto é " +
+                    "confirmado quando o seu primeiro registro já esperou `hanami.importacao.ndjson.espera-ms`, mesmo com o " +
+                    "produtor parado; um produtor pode manter uma única requisição aberta. " +
+                    "Linhas inválidas vão para o arquivo de rejeições sem interromper a importação; linhas em branco são ignoradas. " +
+                    "Um produtor ocioso por mais que `server.tomcat.connection-timeout` tem a conexão encerrada, mas o que já " +
+                    "foi confirmado permanece gravado."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Fluxo encerrado pelo produtor e registros gravados",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ImportacaoResponseDTO.class),
+                            examples = @ExampleObject(
+                                    name = "Sucesso parcial",
+                                    value = """
+                                            {
+                                              "status": "sucesso_parcial",
+                                              "linhas_processadas": 1500,
+                                              "linhas_aceitas": 1498,
+                                              "linhas_rejeitadas": 2,
+                                              "arquivo_rejeicoes": "/hanami/import-rejects/3f2b8c1e-5d4a-4e6f-9a7b-1c2d3e4f5a6b"
+                                            }
+                                            """
+                            )
+                    )
+            ),
+            @ApiResponse(responseCode = "429", description = "Todas as conexões NDJSON em uso; tente após `Retry-After` segundos"),
+            @ApiResponse(responseCode = "503", description = "Com fila configurada, nenhuma conexão NDJSON liberada dentro da espera máxima; tente após `Retry-After` segundos")
+    })
+    ResponseEntity<ImportacaoResponseDTO> uploadNdjson(
+            @Parameter(hidden = true)
+            InputStream corpo
+    );
+
+    @Operation(
+            summary = "Download do arquivo de rejeições de uma importação",
+            description = "Retorna o CSV com as linhas rejeitadas em uma importação com commit em lotes. " +
+                    "Colunas: `linha` (número da linha no arquivo enviado, contando o cabeçalho), `motivo` e `conteudo` (linha original)."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Arquivo de rejeições",
+                    content = @Content(
+                            mediaType = "text/csv",
+                            examples = @ExampleObject(
+                                    name = "Rejeições",
+                                    value = """
+                                            linha,motivo,conteudo
+                                            42,"ID do cliente não pode ser nulo ou vazio","TRX042,2024-03-10,..."
+                                            """
+                            )
+                    )
+            ),
+            @ApiResponse(responseCode = "404", description = "Arquivo de rejeições não encontrado ou expirado")
+    })
+    ResponseEntity<Resource> baixarRejeicoes(
+            @Parameter(description = "Identificador informado em `arquivo_rejeicoes` na resposta da importação", required = true)
+            String idRejeicoes
     );
 }
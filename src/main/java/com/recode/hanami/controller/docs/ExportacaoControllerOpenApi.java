@@ -0,0 +1,39 @@
+package com.recode.hanami.controller.docs;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Documentação OpenAPI para o ExportacaoController.
+ */
+@Tag(name = "Exportação", description = "Exportação dos dados de vendas para outros sistemas")
+public interface ExportacaoControllerOpenApi {
+
+    @Operation(
+            summary = "Exporta as vendas em Apache Arrow",
+            description = "Gera um arquivo Apache Arrow IPC (formato de arquivo, legível como Feather v2) com todas as vendas, " +
+                    "uma linha por venda e as mesmas colunas do CSV de importação, já tipadas: `data_venda` como `date32`, " +
+                    "valores como `float64` e quantidades e idades como `int32`. O arquivo é gerado enquanto é enviado, " +
+                    "em lotes de `hanami.exportacao.arrow.tamanho-lote` linhas, e pode ser reimportado em `/hanami/upload-file`."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Arquivo Arrow com as vendas",
+                    content = @Content(mediaType = "application/vnd.apache.arrow.file")
+            ),
+            @ApiResponse(responseCode = "429", description = "Fila de requisições de relatório completo cheia; tente após `Retry-After` segundos"),
+            @ApiResponse(responseCode = "503", description = "Nenhuma vaga de relatório completo liberada dentro da espera máxima; tente após `Retry-After` segundos")
+    })
+    void exportarVendas(
+            @Parameter(hidden = true)
+            HttpServletResponse response
+    ) throws IOException;
+}
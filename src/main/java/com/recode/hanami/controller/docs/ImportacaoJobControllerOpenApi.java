@@ -0,0 +1,116 @@
+package com.recode.hanami.controller.docs;
+
+import com.recode.hanami.dto.ImportacaoJobDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Documentação OpenAPI para o ImportacaoJobController.
+ */
+@Tag(name = "Importação Assíncrona", description = "Endpoints para importar arquivos CSV em segundo plano e acompanhar o progresso")
+public interface ImportacaoJobControllerOpenApi {
+
+    @Operation(
+            summary = "Upload assíncrono de arquivo CSV",
+            description = "Recebe o arquivo, grava em disco e agenda a importação em segundo plano. " +
+                    "Retorna imediatamente o identificador do job, que pode ser consultado em `/hanami/import-jobs/{idJob}`."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Importação agendada",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ImportacaoJobDTO.class),
+                            examples = @ExampleObject(
+                                    name = "Agendada",
+                                    value = """
+                                            {
+                                              "id_job": "4f1c2a9e-7d4b-4c51-9a57-2f0d3c8e1b6a",
+                                              "status": "aguardando",
+                                              "arquivo": "vendas.csv",
+                                              "linhas_lidas": 0,
+                                              "linhas_persistidas": 0,
+                                              "bytes_lidos": 0,
+                                              "bytes_total": 84226160
+                                            }
+                                            """
+                            )
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Nenhum arquivo enviado, arquivo vazio ou extensão inválida"),
+            @ApiResponse(responseCode = "503", description = "Limite de importações simultâneas atingido")
+    })
+    ResponseEntity<ImportacaoJobDTO> uploadCsvAssincrono(
+            @Parameter(
+                    description = "Arquivo CSV contendo dados de vendas, no mesmo formato de `/hanami/upload-file` (inclusive compactado em gzip ou zstd)",
+                    required = true,
+                    content = @Content(mediaType = MediaType.MULTIPART_FORM_DATA_VALUE)
+            )
+            MultipartFile file,
+            @Parameter(
+                    description = "Reimporta o arquivo mesmo que um arquivo idêntico (mesmo SHA-256) já tenha sido importado. " +
+                            "Sem este parâmetro, o reenvio de um arquivo idêntico devolve o resultado da importação anterior.",
+                    example = "false"
+            )
+            boolean force
+    );
+
+    @Operation(
+            summary = "Status de uma importação assíncrona",
+            description = """
+                    Retorna o andamento da importação.
+                    
+                    **Campos retornados:**
+                    - `status`: `aguardando`, `em_processamento`, `concluida` ou `falhou`
+                    - `linhas_lidas` / `linhas_persistidas`: linhas processadas até o momento
+                    - `linhas_rejeitadas` / `arquivo_rejeicoes`: no modo de commit em lotes, linhas rejeitadas e o endereço do CSV com os motivos
+                    - `percentual_concluido`: proporção do arquivo já lida
+                    - `linhas_por_segundo`: vazão média da importação
+                    - `segundos_restantes_estimados`: estimativa de término
+                    - `erros`: mensagens de erro, quando a importação falha
+                    - `arquivo_ja_importado`: presente quando um arquivo idêntico já havia sido importado e nada foi reprocessado
+                    """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Status da importação",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    name = "Em processamento",
+                                    value = """
+                                            {
+                                              "id_job": "4f1c2a9e-7d4b-4c51-9a57-2f0d3c8e1b6a",
+                                              "status": "em_processamento",
+                                              "arquivo": "vendas.csv",
+                                              "linhas_lidas": 120000,
+                                              "linhas_persistidas": 119000,
+                                              "bytes_lidos": 20250000,
+                                              "bytes_total": 84226160,
+                                              "percentual_concluido": 24.04,
+                                              "linhas_por_segundo": 9850.5,
+                                              "segundos_restantes_estimados": 38,
+                                              "iniciado_em": "2026-01-22T10:30:00"
+                                            }
+                                            """
+                            )
+                    )
+            ),
+            @ApiResponse(responseCode = "404", description = "Importação não encontrada")
+    })
+    ResponseEntity<ImportacaoJobDTO> consultarImportacao(
+            @Parameter(description = "Identificador retornado pelo upload assíncrono", required = true)
+            String idJob
+    );
+}
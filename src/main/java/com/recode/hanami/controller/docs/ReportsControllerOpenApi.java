@@ -217,7 +217,9 @@ public interface ReportsControllerOpenApi {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Relatório gerado com sucesso"),
             @ApiResponse(responseCode = "400", description = "Formato inválido"),
-            @ApiResponse(responseCode = "500", description = "Erro ao gerar relatório")
+            @ApiResponse(responseCode = "429", description = "Fila de requisições de relatório completo cheia; tente após `Retry-After` segundos"),
+            @ApiResponse(responseCode = "500", description = "Erro ao gerar relatório"),
+            @ApiResponse(responseCode = "503", description = "Nenhuma vaga de relatório completo liberada dentro da espera máxima; tente após `Retry-After` segundos")
     })
     ResponseEntity<byte[]> downloadRelatorio(
             @Parameter(
@@ -0,0 +1,157 @@
+package com.recode.hanami.controller.docs;
+
+import com.recode.hanami.dto.ImportacaoJobDTO;
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.dto.UploadRetomavelDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+
+import java.io.InputStream;
+
+/**
+ * Documentação OpenAPI para o UploadRetomavelController.
+ */
+@Tag(name = "Upload Retomável", description = "Envio de arquivos CSV grandes em partes, com retomada após falhas de conexão")
+public interface UploadRetomavelControllerOpenApi {
+
+    @Operation(
+            summary = "Cria um upload retomável",
+            description = """
+                    Abre uma sessão de upload para um arquivo do tamanho informado. Em seguida:
+
+                    1. Envie partes com `PUT /hanami/uploads/{idUpload}` (corpo `application/octet-stream`, cabeçalho `Content-Range`)
+                    2. Após uma falha, consulte `GET /hanami/uploads/{idUpload}` e continue a partir de `bytes_recebidos`
+                    3. Com o arquivo completo, chame `POST /hanami/uploads/{idUpload}/finalize` (ou `/finalize/async`)
+
+                    O upload não passa pelo limite de tamanho do multipart. Sessões sem envio por
+                    `hanami.importacao.uploads.retencao-horas` horas são removidas.
+                    """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Upload criado",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = UploadRetomavelDTO.class),
+                            examples = @ExampleObject(
+                                    name = "Criado",
+                                    value = """
+                                            {
+                                              "id_upload": "0c6f7a52-93d1-4b8e-a2f4-7e51c9d08b3a",
+                                              "arquivo": "vendas-2025.csv",
+                                              "bytes_recebidos": 0,
+                                              "bytes_total": 2147483648,
+                                              "completo": false,
+                                              "expira_em": "2026-01-23T10:30:00"
+                                            }
+                                            """
+                            )
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Extensão inválida ou tamanho fora do limite")
+    })
+    ResponseEntity<UploadRetomavelDTO> criarUpload(
+            @Parameter(description = "Nome do arquivo (.csv, .csv.gz, .csv.zst, .arrow ou .feather)", required = true, example = "vendas-2025.csv")
+            String arquivo,
+            @Parameter(description = "Tamanho total do arquivo em bytes", required = true, example = "2147483648")
+            long tamanho
+    );
+
+    @Operation(
+            summary = "Status de um upload retomável",
+            description = "Retorna quantos bytes já foram recebidos. O próximo envio deve começar em `bytes_recebidos`."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status do upload"),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado")
+    })
+    ResponseEntity<UploadRetomavelDTO> consultarUpload(
+            @Parameter(description = "Identificador retornado na criação do upload", required = true)
+            String idUpload
+    );
+
+    @Operation(
+            summary = "Envia uma parte do arquivo",
+            description = "Grava o corpo da requisição a partir do byte inicial de `Content-Range` (`bytes inicio-fim/total`). " +
+                    "Sem o cabeçalho, a parte continua de onde o envio parou. Uma parte pode reenviar bytes já recebidos, " +
+                    "mas não pode começar depois de `bytes_recebidos`. Se a conexão cair no meio da parte, os bytes que chegaram são mantidos."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Parte gravada; a resposta traz o total recebido"),
+            @ApiResponse(responseCode = "400", description = "Content-Range inválido ou fora do arquivo"),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado"),
+            @ApiResponse(responseCode = "409", description = "A parte deixaria uma lacuna no arquivo, ou outra requisição está em andamento " +
+                    "no mesmo upload. O cabeçalho `Upload-Offset` informa os bytes já recebidos")
+    })
+    ResponseEntity<UploadRetomavelDTO> enviarParte(
+            @Parameter(description = "Identificador do upload", required = true)
+            String idUpload,
+            @Parameter(description = "Intervalo enviado, no formato `bytes inicio-fim/total`", example = "bytes 0-8388607/2147483648")
+            String contentRange,
+            @Parameter(hidden = true)
+            InputStream corpo
+    );
+
+    @Operation(
+            summary = "Finaliza o upload e importa o arquivo",
+            description = "Com todos os bytes recebidos, importa o arquivo da mesma forma que `/hanami/upload-file`. " +
+                    "Com sucesso a sessão é encerrada; com falha ela permanece e a finalização pode ser repetida."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Arquivo importado",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportacaoResponseDTO.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado"),
+            @ApiResponse(responseCode = "409", description = "Upload incompleto; `Upload-Offset` informa os bytes já recebidos"),
+            @ApiResponse(responseCode = "429", description = "Fila de requisições de importação cheia; tente após `Retry-After` segundos"),
+            @ApiResponse(responseCode = "503", description = "Nenhuma vaga de importação liberada dentro da espera máxima; tente após `Retry-After` segundos")
+    })
+    ResponseEntity<ImportacaoResponseDTO> finalizarUpload(
+            @Parameter(description = "Identificador do upload", required = true)
+            String idUpload,
+            @Parameter(description = "Reimporta o arquivo mesmo que um arquivo idêntico (mesmo SHA-256) já tenha sido importado", example = "false")
+            boolean force
+    );
+
+    @Operation(
+            summary = "Finaliza o upload e importa o arquivo em segundo plano",
+            description = "Como `/finalize`, mas agenda a importação e retorna o job, consultável em `/hanami/import-jobs/{idJob}`. " +
+                    "A sessão de upload é encerrada ao agendar."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Importação agendada",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportacaoJobDTO.class))
+            ),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado"),
+            @ApiResponse(responseCode = "409", description = "Upload incompleto; `Upload-Offset` informa os bytes já recebidos"),
+            @ApiResponse(responseCode = "503", description = "Limite de importações simultâneas atingido; a sessão de upload é mantida")
+    })
+    ResponseEntity<ImportacaoJobDTO> finalizarUploadAssincrono(
+            @Parameter(description = "Identificador do upload", required = true)
+            String idUpload,
+            @Parameter(description = "Reimporta o arquivo mesmo que um arquivo idêntico (mesmo SHA-256) já tenha sido importado", example = "false")
+            boolean force
+    );
+
+    @Operation(summary = "Cancela um upload retomável", description = "Remove a sessão e os bytes já recebidos.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload cancelado"),
+            @ApiResponse(responseCode = "404", description = "Upload não encontrado ou expirado")
+    })
+    ResponseEntity<Void> cancelarUpload(
+            @Parameter(description = "Identificador do upload", required = true)
+            String idUpload
+    );
+}
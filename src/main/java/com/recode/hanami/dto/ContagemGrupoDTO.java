@@ -0,0 +1,11 @@
+package com.recode.hanami.dto;
+
+/**
+ * Contagem calculada pelo banco para um valor de coluna (forma de pagamento, canal, gênero, cidade).
+ */
+public record ContagemGrupoDTO(
+        String grupo,
+
+        long contagem
+) {
+}
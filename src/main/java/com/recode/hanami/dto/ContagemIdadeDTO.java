@@ -0,0 +1,11 @@
+package com.recode.hanami.dto;
+
+/**
+ * Clientes com vendas de uma mesma idade, contados pelo banco e agrupados em faixas etárias na aplicação.
+ */
+public record ContagemIdadeDTO(
+        Integer idade,
+
+        long clientes
+) {
+}
@@ -0,0 +1,21 @@
+package com.recode.hanami.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record ImportacaoArquivoZipDTO(
+        String status,
+
+        @JsonProperty("linhas_processadas")
+        Integer linhasProcessadas,
+
+        @JsonProperty("arquivos_importados")
+        Integer arquivosImportados,
+
+        @JsonProperty("arquivos_com_erro")
+        Integer arquivosComErro,
+
+        List<ImportacaoEntradaDTO> entradas
+) {
+}
@@ -0,0 +1,32 @@
+package com.recode.hanami.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportacaoEntradaDTO(
+        String arquivo,
+
+        String status,
+
+        @JsonProperty("linhas_processadas")
+        Integer linhasProcessadas,
+
+        @JsonProperty("linhas_rejeitadas")
+        Integer linhasRejeitadas,
+
+        @JsonProperty("arquivo_rejeicoes")
+        String arquivoRejeicoes,
+
+        String erro
+) {
+
+    public static ImportacaoEntradaDTO importada(String arquivo, ImportacaoResponseDTO resultado) {
+        return new ImportacaoEntradaDTO(arquivo, resultado.status(), resultado.linhasProcessadas(),
+                resultado.linhasRejeitadas(), resultado.arquivoRejeicoes(), null);
+    }
+
+    public static ImportacaoEntradaDTO comErro(String arquivo, String status, String erro) {
+        return new ImportacaoEntradaDTO(arquivo, status, null, null, null, erro);
+    }
+}
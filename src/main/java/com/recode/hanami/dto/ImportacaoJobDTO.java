@@ -0,0 +1,59 @@
+package com.recode.hanami.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportacaoJobDTO(
+        @JsonProperty("id_job")
+        String idJob,
+
+        String status,
+
+        String arquivo,
+
+        @JsonProperty("linhas_lidas")
+        Long linhasLidas,
+
+        @JsonProperty("linhas_persistidas")
+        Long linhasPersistidas,
+
+        @JsonProperty("linhas_rejeitadas")
+        Long linhasRejeitadas,
+
+        @JsonProperty("bytes_lidos")
+        Long bytesLidos,
+
+        @JsonProperty("bytes_total")
+        Long bytesTotal,
+
+        @JsonProperty("percentual_concluido")
+        Double percentualConcluido,
+
+        @JsonProperty("linhas_por_segundo")
+        Double linhasPorSegundo,
+
+        @JsonProperty("segundos_restantes_estimados")
+        Long segundosRestantesEstimados,
+
+        @JsonProperty("iniciado_em")
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+        LocalDateTime iniciadoEm,
+
+        @JsonProperty("finalizado_em")
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+        LocalDateTime finalizadoEm,
+
+        @JsonProperty("arquivo_rejeicoes")
+        String arquivoRejeicoes,
+
+        @JsonProperty("arquivo_ja_importado")
+        Boolean arquivoJaImportado,
+
+        List<String> erros
+) {
+}
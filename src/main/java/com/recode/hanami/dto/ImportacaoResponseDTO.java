@@ -1,11 +1,40 @@
 package com.recode.hanami.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record ImportacaoResponseDTO(
         String status,
 
         @JsonProperty("linhas_processadas")
-        Integer linhasProcessadas
+        Integer linhasProcessadas,
+
+        @JsonProperty("linhas_aceitas")
+        Integer linhasAceitas,
+
+        @JsonProperty("linhas_rejeitadas")
+        Integer linhasRejeitadas,
+
+        @JsonProperty("arquivo_rejeicoes")
+        String arquivoRejeicoes,
+
+        @JsonProperty("vendas_inseridas")
+        Integer vendasInseridas,
+
+        @JsonProperty("vendas_atualizadas")
+        Integer vendasAtualizadas,
+
+        @JsonProperty("vendas_inalteradas")
+        Integer vendasInalteradas
 ) {
-}
\ No newline at end of file
+
+    public ImportacaoResponseDTO(String status, Integer linhasProcessadas) {
+        this(status, linhasProcessadas, null, null, null);
+    }
+
+    public ImportacaoResponseDTO(String status, Integer linhasProcessadas, Integer linhasAceitas,
+                                 Integer linhasRejeitadas, String arquivoRejeicoes) {
+        this(status, linhasProcessadas, linhasAceitas, linhasRejeitadas, arquivoRejeicoes, null, null, null);
+    }
+}
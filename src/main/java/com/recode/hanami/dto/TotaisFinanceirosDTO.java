@@ -0,0 +1,11 @@
+package com.recode.hanami.dto;
+
+/**
+ * Somas de receita e de custo estimado de todas as vendas, calculadas pelo banco e ainda sem arredondamento.
+ */
+public record TotaisFinanceirosDTO(
+        double receita,
+
+        double custo
+) {
+}
@@ -0,0 +1,15 @@
+package com.recode.hanami.dto;
+
+/**
+ * Vendas agrupadas pelo banco (por região, estado ou produto): número de vendas, receita e quantidade vendida.
+ */
+public record TotaisGrupoDTO(
+        String grupo,
+
+        long transacoes,
+
+        double receita,
+
+        long quantidade
+) {
+}
@@ -0,0 +1,26 @@
+package com.recode.hanami.dto;
+
+/**
+ * Vendas de uma combinação de produto, região, forma de pagamento e canal, somadas pelo banco.
+ * {@code produtoId} é nulo para vendas sem produto.
+ */
+public record TotaisRelatorioDTO(
+        String produtoId,
+
+        String nomeProduto,
+
+        String regiao,
+
+        String formaPagamento,
+
+        String canalVenda,
+
+        long transacoes,
+
+        double receita,
+
+        double custo,
+
+        long quantidade
+) {
+}
@@ -0,0 +1,11 @@
+package com.recode.hanami.dto;
+
+/**
+ * Número de vendas e soma de {@code valor_final}, calculados pelo banco.
+ */
+public record TotaisVendasDTO(
+        long transacoes,
+
+        double receita
+) {
+}
@@ -0,0 +1,26 @@
+package com.recode.hanami.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+public record UploadRetomavelDTO(
+        @JsonProperty("id_upload")
+        String idUpload,
+
+        String arquivo,
+
+        @JsonProperty("bytes_recebidos")
+        Long bytesRecebidos,
+
+        @JsonProperty("bytes_total")
+        Long bytesTotal,
+
+        Boolean completo,
+
+        @JsonProperty("expira_em")
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+        LocalDateTime expiraEm
+) {
+}
@@ -0,0 +1,144 @@
+package com.recode.hanami.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "arquivos_importados")
+public class ArquivoImportado {
+
+    @Id
+    @Column(name = "hash_sha256", length = 64)
+    private String hash;
+
+    @Column(name = "nome_arquivo")
+    private String nomeArquivo;
+
+    @Column(name = "tamanho_bytes")
+    private Long tamanhoBytes;
+
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "linhas_processadas")
+    private Integer linhasProcessadas;
+
+    @Column(name = "linhas_aceitas")
+    private Integer linhasAceitas;
+
+    @Column(name = "linhas_rejeitadas")
+    private Integer linhasRejeitadas;
+
+    @Column(name = "arquivo_rejeicoes")
+    private String arquivoRejeicoes;
+
+    @Column(name = "vendas_inseridas")
+    private Integer vendasInseridas;
+
+    @Column(name = "vendas_atualizadas")
+    private Integer vendasAtualizadas;
+
+    @Column(name = "vendas_inalteradas")
+    private Integer vendasInalteradas;
+
+    @Column(name = "importado_em")
+    private LocalDateTime importadoEm;
+
+    public ArquivoImportado() {}
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getNomeArquivo() {
+        return nomeArquivo;
+    }
+
+    public void setNomeArquivo(String nomeArquivo) {
+        this.nomeArquivo = nomeArquivo;
+    }
+
+    public Long getTamanhoBytes() {
+        return tamanhoBytes;
+    }
+
+    public void setTamanhoBytes(Long tamanhoBytes) {
+        this.tamanhoBytes = tamanhoBytes;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getLinhasProcessadas() {
+        return linhasProcessadas;
+    }
+
+    public void setLinhasProcessadas(Integer linhasProcessadas) {
+        this.linhasProcessadas = linhasProcessadas;
+    }
+
+    public Integer getLinhasAceitas() {
+        return linhasAceitas;
+    }
+
+    public void setLinhasAceitas(Integer linhasAceitas) {
+        this.linhasAceitas = linhasAceitas;
+    }
+
+    public Integer getLinhasRejeitadas() {
+        return linhasRejeitadas;
+    }
+
+    public void setLinhasRejeitadas(Integer linhasRejeitadas) {
+        this.linhasRejeitadas = linhasRejeitadas;
+    }
+
+    public String getArquivoRejeicoes() {
+        return arquivoRejeicoes;
+    }
+
+    public void setArquivoRejeicoes(String arquivoRejeicoes) {
+        this.arquivoRejeicoes = arquivoRejeicoes;
+    }
+
+    public Integer getVendasInseridas() {
+        return vendasInseridas;
+    }
+
+    public void setVendasInseridas(Integer vendasInseridas) {
+        this.vendasInseridas = vendasInseridas;
+    }
+
+    public Integer getVendasAtualizadas() {
+        return vendasAtualizadas;
+    }
+
+    public void setVendasAtualizadas(Integer vendasAtualizadas) {
+        this.vendasAtualizadas = vendasAtualizadas;
+    }
+
+    public Integer getVendasInalteradas() {
+        return vendasInalteradas;
+    }
+
+    public void setVendasInalteradas(Integer vendasInalteradas) {
+        this.vendasInalteradas = vendasInalteradas;
+    }
+
+    public LocalDateTime getImportadoEm() {
+        return importadoEm;
+    }
+
+    public void setImportadoEm(LocalDateTime importadoEm) {
+        this.importadoEm = importadoEm;
+    }
+}
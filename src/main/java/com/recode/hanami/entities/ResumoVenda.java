@@ -0,0 +1,116 @@
+package com.recode.hanami.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Totais das vendas de um dia por região, canal, forma de pagamento e produto, mantidos pelas
+ * importações (ver {@code ResumoVendasService}). A chave é derivada dessa combinação, que pode
+ * ter campos nulos e por isso não serve de chave primária.
+ */
+@Entity
+@Table(name = "resumo_vendas", indexes = @Index(name = "idx_resumo_vendas_data", columnList = "data_venda"))
+public class ResumoVenda {
+
+    @Id
+    @Column(name = "chave", length = 36)
+    private String chave;
+
+    @Column(name = "data_venda")
+    private LocalDate dataVenda;
+
+    @Column(name = "regiao")
+    private String regiao;
+
+    @Column(name = "canal_venda")
+    private String canalVenda;
+
+    @Column(name = "forma_pagamento")
+    private String formaPagamento;
+
+    @Column(name = "produto_id")
+    private String produtoId;
+
+    @Column(name = "transacoes", nullable = false)
+    private long transacoes;
+
+    @Column(name = "receita", nullable = false)
+    private double receita;
+
+    @Column(name = "quantidade", nullable = false)
+    private long quantidade;
+
+    public ResumoVenda() {}
+
+    public String getChave() {
+        return chave;
+    }
+
+    public void setChave(String chave) {
+        this.chave = chave;
+    }
+
+    public LocalDate getDataVenda() {
+        return dataVenda;
+    }
+
+    public void setDataVenda(LocalDate dataVenda) {
+        this.dataVenda = dataVenda;
+    }
+
+    public String getRegiao() {
+        return regiao;
+    }
+
+    public void setRegiao(String regiao) {
+        this.regiao = regiao;
+    }
+
+    public String getCanalVenda() {
+        return canalVenda;
+    }
+
+    public void setCanalVenda(String canalVenda) {
+        this.canalVenda = canalVenda;
+    }
+
+    public String getFormaPagamento() {
+        return formaPagamento;
+    }
+
+    public void setFormaPagamento(String formaPagamento) {
+        this.formaPagamento = formaPagamento;
+    }
+
+    public String getProdutoId() {
+        return produtoId;
+    }
+
+    public void setProdutoId(String produtoId) {
+        this.produtoId = produtoId;
+    }
+
+    public long getTransacoes() {
+        return transacoes;
+    }
+
+    public void setTransacoes(long transacoes) {
+        this.transacoes = transacoes;
+    }
+
+    public double getReceita() {
+        return receita;
+    }
+
+    public void setReceita(double receita) {
+        this.receita = receita;
+    }
+
+    public long getQuantidade() {
+        return quantidade;
+    }
+
+    public void setQuantidade(long quantidade) {
+        this.quantidade = quantidade;
+    }
+}
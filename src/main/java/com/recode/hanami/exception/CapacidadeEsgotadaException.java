@@ -0,0 +1,15 @@
+package com.recode.hanami.exception;
+
+public class CapacidadeEsgotadaException extends RuntimeException {
+
+    private final long segundosParaNovaTentativa;
+
+    public CapacidadeEsgotadaException(String mensagem, long segundosParaNovaTentativa) {
+        super(mensagem);
+        this.segundosParaNovaTentativa = segundosParaNovaTentativa;
+    }
+
+    public long getSegundosParaNovaTentativa() {
+        return segundosParaNovaTentativa;
+    }
+}
@@ -0,0 +1,15 @@
+package com.recode.hanami.exception;
+
+public class ConflitoUploadException extends RuntimeException {
+
+    private final long bytesRecebidos;
+
+    public ConflitoUploadException(String mensagem, long bytesRecebidos) {
+        super(mensagem);
+        this.bytesRecebidos = bytesRecebidos;
+    }
+
+    public long getBytesRecebidos() {
+        return bytesRecebidos;
+    }
+}
@@ -0,0 +1,15 @@
+package com.recode.hanami.exception;
+
+public class LimiteRequisicoesException extends RuntimeException {
+
+    private final long segundosParaNovaTentativa;
+
+    public LimiteRequisicoesException(String mensagem, long segundosParaNovaTentativa) {
+        super(mensagem);
+        this.segundosParaNovaTentativa = segundosParaNovaTentativa;
+    }
+
+    public long getSegundosParaNovaTentativa() {
+        return segundosParaNovaTentativa;
+    }
+}
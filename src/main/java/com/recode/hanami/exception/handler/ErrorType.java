@@ -4,6 +4,8 @@ public enum ErrorType {
 
     ERRO("erro"),
     ERRO_PROCESSAMENTO("erro_processamento"),
+    SERVICO_INDISPONIVEL("servico_indisponivel"),
+    LIMITE_REQUISICOES("limite_requisicoes"),
     ERRO_INTERNO("erro_interno");
 
     private final String value;
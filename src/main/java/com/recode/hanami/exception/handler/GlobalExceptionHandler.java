@@ -3,9 +3,14 @@ package com.recode.hanami.exception.handler;
 import com.lowagie.text.DocumentException;
 import com.recode.hanami.dto.ErrorResponseDTO;
 import com.recode.hanami.exception.ArquivoInvalidoException;
+import com.recode.hanami.exception.CapacidadeEsgotadaException;
+import com.recode.hanami.exception.ConflitoUploadException;
 import com.recode.hanami.exception.DadosInvalidosException;
+import com.recode.hanami.exception.LimiteRequisicoesException;
+import com.recode.hanami.exception.RecursoNaoEncontradoException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -18,6 +23,7 @@ import java.io.IOException;
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+    private static final String HEADER_UPLOAD_OFFSET = "Upload-Offset";
 
     @ExceptionHandler(ArquivoInvalidoException.class)
     public ResponseEntity<ErrorResponseDTO> handleArquivoInvalido(ArquivoInvalidoException ex) {
@@ -31,6 +37,39 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.UNPROCESSABLE_ENTITY, ErrorType.ERRO_PROCESSAMENTO, ex.getMessage());
     }
 
+    @ExceptionHandler(RecursoNaoEncontradoException.class)
+    public ResponseEntity<ErrorResponseDTO> handleRecursoNaoEncontrado(RecursoNaoEncontradoException ex) {
+        logger.warn("Recurso não encontrado: {}", ex.getMessage());
+        return buildErrorResponse(HttpStatus.NOT_FOUND, ErrorType.ERRO, ex.getMessage());
+    }
+
+    @ExceptionHandler(CapacidadeEsgotadaException.class)
+    public ResponseEntity<ErrorResponseDTO> handleCapacidadeEsgotada(CapacidadeEsgotadaException ex) {
+        logger.warn("Requisição recusada por falta de capacidade: {}", ex.getMessage());
+        ErrorResponseDTO errorResponse = new ErrorResponseDTO(ErrorType.SERVICO_INDISPONIVEL.getValue(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getSegundosParaNovaTentativa()))
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(LimiteRequisicoesException.class)
+    public ResponseEntity<ErrorResponseDTO> handleLimiteRequisicoes(LimiteRequisicoesException ex) {
+        logger.warn("Requisição recusada por excesso de requisições: {}", ex.getMessage());
+        ErrorResponseDTO errorResponse = new ErrorResponseDTO(ErrorType.LIMITE_REQUISICOES.getValue(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getSegundosParaNovaTentativa()))
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(ConflitoUploadException.class)
+    public ResponseEntity<ErrorResponseDTO> handleConflitoUpload(ConflitoUploadException ex) {
+        logger.warn("Conflito no upload retomável: {}", ex.getMessage());
+        ErrorResponseDTO errorResponse = new ErrorResponseDTO(ErrorType.ERRO.getValue(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HEADER_UPLOAD_OFFSET, String.valueOf(ex.getBytesRecebidos()))
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<ErrorResponseDTO> handleMaxUploadSizeExceeded(MaxUploadSizeExceededException ex) {
         logger.error("Arquivo excede o tamanho máximo permitido: {}", ex.getMessage());
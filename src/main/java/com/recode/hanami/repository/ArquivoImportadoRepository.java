@@ -0,0 +1,9 @@
+package com.recode.hanami.repository;
+
+import com.recode.hanami.entities.ArquivoImportado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArquivoImportadoRepository extends JpaRepository<ArquivoImportado, String> {
+}
@@ -0,0 +1,86 @@
+package com.recode.hanami.repository;
+
+import com.recode.hanami.dto.ContagemGrupoDTO;
+import com.recode.hanami.dto.TotaisFinanceirosDTO;
+import com.recode.hanami.dto.TotaisGrupoDTO;
+import com.recode.hanami.dto.TotaisRelatorioDTO;
+import com.recode.hanami.dto.TotaisVendasDTO;
+import com.recode.hanami.entities.ResumoVenda;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Consultas dos relatórios sobre a tabela de resumo, cujo tamanho depende das combinações de
+ * dia, região, canal, forma de pagamento e produto, e não do número de vendas. O produto é lido
+ * no momento da consulta, de modo que nome, preço e margem refletem o cadastro atual.
+ */
+@Repository
+public interface ResumoVendaRepository extends JpaRepository<ResumoVenda, String> {
+
+    /**
+     * Soma do custo estimado das linhas {@code r} com produto {@code p}:
+     * {@code preco_unitario / (1 + margem_lucro) * quantidade}, zero sem produto ou com margem
+     * de -100%. Preço e margem nulos valem zero.
+     */
+    String SOMA_CUSTO = """
+            COALESCE(SUM(CASE
+                WHEN p.id IS NULL OR COALESCE(p.margemLucro, 0.0) = -1.0 THEN 0.0
+                ELSE COALESCE(p.precoUnitario, 0.0) / (1.0 + COALESCE(p.margemLucro, 0.0)) * r.quantidade
+            END), 0.0)""";
+
+    @Query("SELECT new com.recode.hanami.dto.TotaisFinanceirosDTO(COALESCE(SUM(r.receita), 0.0), "
+            + SOMA_CUSTO + ") FROM ResumoVenda r LEFT JOIN Produto p ON p.id = r.produtoId")
+    TotaisFinanceirosDTO totalizarReceitaECusto();
+
+    /**
+     * Todas as métricas do relatório completo numa única leitura do resumo: uma linha por
+     * combinação de produto, região, forma de pagamento e canal.
+     */
+    @Query("SELECT new com.recode.hanami.dto.TotaisRelatorioDTO(p.id, p.nomeProduto, r.regiao, r.formaPagamento, "
+            + "r.canalVenda, SUM(r.transacoes), SUM(r.receita), " + SOMA_CUSTO + ", SUM(r.quantidade)) "
+            + "FROM ResumoVenda r LEFT JOIN Produto p ON p.id = r.produtoId "
+            + "GROUP BY p.id, p.nomeProduto, r.regiao, r.formaPagamento, r.canalVenda")
+    List<TotaisRelatorioDTO> totalizarParaRelatorio();
+
+    @Query("SELECT new com.recode.hanami.dto.TotaisVendasDTO(COALESCE(SUM(r.transacoes), 0L), COALESCE(SUM(r.receita), 0.0)) FROM ResumoVenda r")
+    TotaisVendasDTO totalizarVendas();
+
+    @Query("""
+            SELECT new com.recode.hanami.dto.TotaisVendasDTO(COALESCE(SUM(r.transacoes), 0L), COALESCE(SUM(r.receita), 0.0))
+            FROM ResumoVenda r WHERE r.dataVenda BETWEEN :startDate AND :endDate""")
+    TotaisVendasDTO totalizarVendasEntre(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT new com.recode.hanami.dto.ContagemGrupoDTO(r.formaPagamento, SUM(r.transacoes)) FROM ResumoVenda r GROUP BY r.formaPagamento")
+    List<ContagemGrupoDTO> contarPorFormaPagamento();
+
+    @Query("""
+            SELECT new com.recode.hanami.dto.ContagemGrupoDTO(r.formaPagamento, SUM(r.transacoes))
+            FROM ResumoVenda r WHERE r.dataVenda BETWEEN :startDate AND :endDate GROUP BY r.formaPagamento""")
+    List<ContagemGrupoDTO> contarPorFormaPagamentoEntre(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT new com.recode.hanami.dto.ContagemGrupoDTO(r.canalVenda, SUM(r.transacoes)) FROM ResumoVenda r GROUP BY r.canalVenda")
+    List<ContagemGrupoDTO> contarPorCanalVenda();
+
+    @Query("""
+            SELECT new com.recode.hanami.dto.ContagemGrupoDTO(r.canalVenda, SUM(r.transacoes))
+            FROM ResumoVenda r WHERE r.dataVenda BETWEEN :startDate AND :endDate GROUP BY r.canalVenda""")
+    List<ContagemGrupoDTO> contarPorCanalVendaEntre(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("""
+            SELECT new com.recode.hanami.dto.TotaisGrupoDTO(p.nomeProduto, SUM(r.transacoes),
+                SUM(r.receita), SUM(r.quantidade))
+            FROM ResumoVenda r JOIN Produto p ON p.id = r.produtoId GROUP BY p.nomeProduto ORDER BY p.nomeProduto""")
+    List<TotaisGrupoDTO> totalizarPorProduto();
+
+    @Query("""
+            SELECT new com.recode.hanami.dto.TotaisGrupoDTO(r.regiao, SUM(r.transacoes),
+                SUM(r.receita), SUM(r.quantidade))
+            FROM ResumoVenda r WHERE r.regiao IS NOT NULL AND TRIM(r.regiao) <> ''
+            GROUP BY r.regiao ORDER BY r.regiao""")
+    List<TotaisGrupoDTO> totalizarPorRegiao();
+}
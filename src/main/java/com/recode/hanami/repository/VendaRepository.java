@@ -1,23 +1,56 @@
 package com.recode.hanami.repository;
 
+import com.recode.hanami.dto.ContagemGrupoDTO;
+import com.recode.hanami.dto.ContagemIdadeDTO;
+import com.recode.hanami.dto.TotaisGrupoDTO;
 import com.recode.hanami.entities.Venda;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * As consultas dos relatórios agregam no banco e trazem só as linhas do resultado, sem carregar as vendas.
+ * Ficam aqui as que dependem do cliente e não cabem no {@link ResumoVendaRepository}.
+ */
 @Repository
 public interface VendaRepository extends JpaRepository<Venda, String> {
-    
-    @Query("SELECT v FROM Venda v LEFT JOIN FETCH v.produto LEFT JOIN FETCH v.cliente LEFT JOIN FETCH v.vendedor")
-    List<Venda> findAllWithRelations();
 
-    @Query("SELECT v FROM Venda v LEFT JOIN FETCH v.produto LEFT JOIN FETCH v.cliente LEFT JOIN FETCH v.vendedor WHERE UPPER(v.cliente.estadoCliente) = UPPER(:estado)")
-    List<Venda> findByClienteEstado(String estado);
+    /**
+     * Busca as vendas com lock de escrita ({@code SELECT ... FOR UPDATE}): os valores lidos são
+     * os últimos confirmados, e não os do snapshot da transação, e ninguém os troca até o commit.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Venda v WHERE v.id IN :ids")
+    List<Venda> buscarParaAtualizacao(@Param("ids") Collection<String> ids);
 
-    @Query("SELECT v FROM Venda v WHERE v.dataVenda BETWEEN :startDate AND :endDate")
-    List<Venda> findByDataVendaBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+    @Query("""
+            SELECT new com.recode.hanami.dto.TotaisGrupoDTO(UPPER(c.estadoCliente), COUNT(v),
+                COALESCE(SUM(v.valorFinal), 0.0), COALESCE(SUM(v.quantidade), 0L))
+            FROM Venda v JOIN v.cliente c WHERE UPPER(c.estadoCliente) = UPPER(:estado)
+            GROUP BY UPPER(c.estadoCliente)""")
+    List<TotaisGrupoDTO> totalizarPorEstado(@Param("estado") String estado);
+
+    @Query("SELECT COUNT(DISTINCT v.cliente.id) FROM Venda v")
+    long contarClientesComVendas();
+
+    @Query("""
+            SELECT new com.recode.hanami.dto.ContagemGrupoDTO(c.generoCliente, COUNT(DISTINCT c.id))
+            FROM Venda v JOIN v.cliente c WHERE c.generoCliente IS NOT NULL GROUP BY c.generoCliente""")
+    List<ContagemGrupoDTO> contarClientesPorGenero();
+
+    @Query("""
+            SELECT new com.recode.hanami.dto.ContagemIdadeDTO(c.idadeCliente, COUNT(DISTINCT c.id))
+            FROM Venda v JOIN v.cliente c WHERE c.idadeCliente IS NOT NULL GROUP BY c.idadeCliente""")
+    List<ContagemIdadeDTO> contarClientesPorIdade();
+
+    @Query("""
+            SELECT new com.recode.hanami.dto.ContagemGrupoDTO(c.cidadeCliente, COUNT(DISTINCT c.id))
+            FROM Venda v JOIN v.cliente c WHERE c.cidadeCliente IS NOT NULL GROUP BY c.cidadeCliente""")
+    List<ContagemGrupoDTO> contarClientesPorCidade();
+}
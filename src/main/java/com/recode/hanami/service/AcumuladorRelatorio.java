@@ -0,0 +1,162 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ContagemGrupoDTO;
+import com.recode.hanami.dto.TotaisFinanceirosDTO;
+import com.recode.hanami.dto.TotaisGrupoDTO;
+import com.recode.hanami.dto.TotaisRelatorioDTO;
+import com.recode.hanami.dto.TotaisVendasDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Totais do relatório completo (receita, custo, número de vendas, contagem por forma de pagamento
+ * e por canal, totais por produto e por região) acumulados numa única passada pelas linhas de
+ * {@link com.recode.hanami.repository.ResumoVendaRepository#totalizarParaRelatorio()}.
+ * <p>
+ * Acumuladores de partes disjuntas da entrada podem ser combinados com {@link #combinar}. Em
+ * {@link #acumularEmBlocos} a entrada é dividida em blocos fixos, acumulados em paralelo ou não,
+ * e combinados sempre na mesma ordem.
+ */
+final class AcumuladorRelatorio {
+
+    private long transacoes;
+    private double receita;
+    private double custo;
+    private final Map<String, Long> contagemFormasPagamento = new HashMap<>();
+    private final Map<String, Long> contagemCanais = new HashMap<>();
+    private final Map<String, Totais> totaisPorProduto = new HashMap<>();
+    private final Map<String, Totais> totaisPorRegiao = new HashMap<>();
+
+    /**
+     * Acumula {@code linhas} em blocos consecutivos de {@code tamanhoBloco} linhas, cada um no seu
+     * acumulador, e combina os parciais na ordem dos blocos. Com {@code pool} os blocos são
+     * acumulados em paralelo; sem ele, um após o outro. As somas de ponto flutuante são feitas na
+     * mesma ordem nos dois casos, então o resultado é idêntico bit a bit e não depende do número
+     * de threads, apenas de {@code tamanhoBloco}.
+     */
+    static AcumuladorRelatorio acumularEmBlocos(List<TotaisRelatorioDTO> linhas, int tamanhoBloco, ForkJoinPool pool) {
+        int blocos = (linhas.size() + tamanhoBloco - 1) / tamanhoBloco;
+        AcumuladorRelatorio total = new AcumuladorRelatorio();
+
+        if (pool == null || blocos < 2) {
+            for (int bloco = 0; bloco < blocos; bloco++) {
+                total.combinar(acumularBloco(linhas, bloco, tamanhoBloco));
+            }
+            return total;
+        }
+
+        List<ForkJoinTask<AcumuladorRelatorio>> parciais = new ArrayList<>(blocos);
+        for (int bloco = 0; bloco < blocos; bloco++) {
+            int indice = bloco;
+            parciais.add(pool.submit(() -> acumularBloco(linhas, indice, tamanhoBloco)));
+        }
+        for (ForkJoinTask<AcumuladorRelatorio> parcial : parciais) {
+            total.combinar(parcial.join());
+        }
+        return total;
+    }
+
+    private static AcumuladorRelatorio acumularBloco(List<TotaisRelatorioDTO> linhas, int bloco, int tamanhoBloco) {
+        AcumuladorRelatorio parcial = new AcumuladorRelatorio();
+        int fim = Math.min(linhas.size(), (bloco + 1) * tamanhoBloco);
+        for (int i = bloco * tamanhoBloco; i < fim; i++) {
+            parcial.acumular(linhas.get(i));
+        }
+        return parcial;
+    }
+
+    void acumular(TotaisRelatorioDTO linha) {
+        transacoes += linha.transacoes();
+        receita += linha.receita();
+        custo += linha.custo();
+        contagemFormasPagamento.merge(linha.formaPagamento(), linha.transacoes(), Long::sum);
+        contagemCanais.merge(linha.canalVenda(), linha.transacoes(), Long::sum);
+
+        if (linha.produtoId() != null) {
+            totaisPorProduto.computeIfAbsent(linha.nomeProduto(), nome -> new Totais())
+                    .somar(linha.transacoes(), linha.receita(), linha.quantidade());
+        }
+        if (linha.regiao() != null && !linha.regiao().trim().isEmpty()) {
+            totaisPorRegiao.computeIfAbsent(linha.regiao(), regiao -> new Totais())
+                    .somar(linha.transacoes(), linha.receita(), linha.quantidade());
+        }
+    }
+
+    AcumuladorRelatorio combinar(AcumuladorRelatorio outro) {
+        transacoes += outro.transacoes;
+        receita += outro.receita;
+        custo += outro.custo;
+        outro.contagemFormasPagamento.forEach((forma, contagem) -> contagemFormasPagamento.merge(forma, contagem, Long::sum));
+        outro.contagemCanais.forEach((canal, contagem) -> contagemCanais.merge(canal, contagem, Long::sum));
+        outro.totaisPorProduto.forEach((nome, totais) -> totaisPorProduto.computeIfAbsent(nome, n -> new Totais()).somar(totais));
+        outro.totaisPorRegiao.forEach((regiao, totais) -> totaisPorRegiao.computeIfAbsent(regiao, r -> new Totais()).somar(totais));
+        return this;
+    }
+
+    TotaisFinanceirosDTO totaisFinanceiros() {
+        return new TotaisFinanceirosDTO(receita, custo);
+    }
+
+    TotaisVendasDTO totaisVendas() {
+        return new TotaisVendasDTO(transacoes, receita);
+    }
+
+    List<ContagemGrupoDTO> contagemFormasPagamento() {
+        return contagens(contagemFormasPagamento);
+    }
+
+    List<ContagemGrupoDTO> contagemCanais() {
+        return contagens(contagemCanais);
+    }
+
+    /**
+     * Produtos por nome, em ordem alfabética; vendas sem produto ficam de fora.
+     */
+    List<TotaisGrupoDTO> totaisPorProduto() {
+        return totaisOrdenados(totaisPorProduto);
+    }
+
+    /**
+     * Regiões em ordem alfabética; vendas sem região ficam de fora.
+     */
+    List<TotaisGrupoDTO> totaisPorRegiao() {
+        return totaisOrdenados(totaisPorRegiao);
+    }
+
+    private static List<ContagemGrupoDTO> contagens(Map<String, Long> contagemPorValor) {
+        List<ContagemGrupoDTO> contagens = new ArrayList<>(contagemPorValor.size());
+        contagemPorValor.forEach((valor, contagem) -> contagens.add(new ContagemGrupoDTO(valor, contagem)));
+        return contagens;
+    }
+
+    private static List<TotaisGrupoDTO> totaisOrdenados(Map<String, Totais> totaisPorGrupo) {
+        return totaisPorGrupo.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.nullsFirst(Comparator.naturalOrder())))
+                .map(entrada -> new TotaisGrupoDTO(entrada.getKey(), entrada.getValue().transacoes,
+                        entrada.getValue().receita, entrada.getValue().quantidade))
+                .toList();
+    }
+
+    private static final class Totais {
+
+        private long transacoes;
+        private double receita;
+        private long quantidade;
+
+        void somar(long transacoes, double receita, long quantidade) {
+            this.transacoes += transacoes;
+            this.receita += receita;
+            this.quantidade += quantidade;
+        }
+
+        void somar(Totais outros) {
+            somar(outros.transacoes, outros.receita, outros.quantidade);
+        }
+    }
+}
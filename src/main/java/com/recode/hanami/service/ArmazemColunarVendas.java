@@ -0,0 +1,562 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ContagemGrupoDTO;
+import com.recode.hanami.dto.ContagemIdadeDTO;
+import com.recode.hanami.dto.TotaisGrupoDTO;
+import com.recode.hanami.entities.Cliente;
+import com.recode.hanami.entities.Venda;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Collator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cópia em memória, por colunas, das vendas e dos atributos dos clientes usados nos relatórios
+ * que não cabem no resumo de vendas: desempenho por estado e perfil dos clientes.
+ * <p>
+ * Cada venda ocupa uma posição em arrays primitivos ({@link ColunasVendas}): valor final,
+ * quantidade, data em dias, tempo de entrega e códigos de dicionário de região, canal, forma de
+ * pagamento e cliente. Estado, cidade, gênero e idade ficam em arrays indexados pelo código do
+ * cliente, de modo que a reimportação de um cliente vale para todas as vendas dele, como no banco.
+ * <p>
+ * É carregada do banco antes de o servidor web aceitar requisições. As importações informam os
+ * IDs das vendas e dos clientes gravados; depois do commit essas linhas são relidas do banco e
+ * entram nas colunas, e um rollback as descarta. Como os {@code afterCommit} de transações
+ * simultâneas não rodam necessariamente na ordem dos commits, os valores vêm sempre da releitura,
+ * e não do que cada transação gravou. Supõe, como o {@link IndiceVendasService}, que esta
+ * instância é a única a gravar vendas.
+ * <p>
+ * Estado, cidade e gênero são agrupados como o banco os agrupa. No H2 a comparação é exata. No
+ * MySQL segue o collation de cada coluna, lido na carga: nos {@code _ci} valores que diferem só
+ * em maiúsculas ficam no mesmo grupo e, fora os {@code _as_ci}, também os que diferem só em
+ * acentos. A equivalência usa o {@link Collator} da raiz do Unicode, que coincide com o
+ * {@code utf8mb4_0900_ai_ci} nos textos usuais, mas não em todos os casos do UCA. O nome do
+ * grupo é o primeiro valor visto; o MySQL devolve um valor qualquer do grupo.
+ */
+@Service
+public class ArmazemColunarVendas implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArmazemColunarVendas.class);
+
+    private static final String SELECAO_CLIENTES =
+            "SELECT cliente_id, idade_cliente, genero_cliente, cidade_cliente, estado_cliente FROM clientes";
+
+    private static final String SELECAO_VENDAS = "SELECT id_transacao, cliente_id, valor_final, quantidade, data_venda,"
+            + " tempo_entrega_dias, regiao, canal_venda, forma_pagamento FROM vendas";
+
+    private static final int IDS_POR_CONSULTA = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private final ReentrantLock travaReleitura = new ReentrantLock();
+    private final Object chaveIdsTransacao = new Object();
+
+    private final Dicionario codigosClientes = new Dicionario();
+    private final Dicionario regioes = new Dicionario();
+    private final Dicionario canais = new Dicionario();
+    private final Dicionario formasPagamento = new Dicionario();
+    private final Dicionario estados = new Dicionario();
+    private final Dicionario cidades = new Dicionario();
+    private final Dicionario generos = new Dicionario();
+    private final ColunasClientes clientes = new ColunasClientes();
+    private final ColunasVendas vendas = new ColunasVendas(1024);
+    private final Map<String, Integer> linhaPorId = new HashMap<>();
+
+    private volatile boolean carregado;
+
+    public ArmazemColunarVendas(JdbcTemplate jdbcTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${hanami.relatorios.armazem-colunar.habilitado:false}") boolean habilitado) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+
+        Gauge.builder("hanami.armazem.colunar.vendas", this, armazem -> armazem.comLeitura(() -> armazem.vendas.tamanho))
+                .description("Vendas no armazém colunar dos relatórios")
+                .register(meterRegistry);
+        Gauge.builder("hanami.armazem.colunar.tamanho", this, armazem -> armazem.comLeitura(armazem::tamanhoBytes))
+                .description("Memória ocupada pelos arrays do armazém colunar, sem dicionários e índice de IDs")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Chamado depois de criados todos os beans e antes de o servidor web aceitar requisições,
+     * para que nenhuma importação grave vendas durante a carga.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!habilitado) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        Banco banco = Banco.detectar(jdbcTemplate);
+        estados.agruparPor(banco.chaveComparacao(jdbcTemplate, "clientes", "estado_cliente"));
+        cidades.agruparPor(banco.chaveComparacao(jdbcTemplate, "clientes", "cidade_cliente"));
+        generos.agruparPor(banco.chaveComparacao(jdbcTemplate, "clientes", "genero_cliente"));
+        aplicar(ler(SELECAO_CLIENTES, SELECAO_VENDAS));
+        carregado = true;
+        logger.info("Armazém colunar carregado: {} vendas, {} clientes, {} KB, em {} ms",
+                vendas.tamanho, codigosClientes.tamanho() - 1, tamanhoBytes() / 1024, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * {@code true} quando habilitado e carregado; caso contrário os relatórios consultam o banco.
+     */
+    public boolean isDisponivel() {
+        return carregado;
+    }
+
+    /**
+     * Registra clientes gravados na transação corrente.
+     */
+    public void registrarClientes(Collection<Cliente> clientesGravados) {
+        if (!habilitado) {
+            return;
+        }
+
+        IdsGravados ids = idsDaTransacao();
+        clientesGravados.forEach(cliente -> ids.clientes.add(cliente.getId()));
+    }
+
+    /**
+     * Registra vendas gravadas na transação corrente, novas ou sobrescritas.
+     */
+    public void registrarVendas(Collection<Venda> vendasGravadas) {
+        if (!habilitado) {
+            return;
+        }
+
+        IdsGravados ids = idsDaTransacao();
+        vendasGravadas.forEach(venda -> ids.vendas.add(venda.getId()));
+    }
+
+    /**
+     * Registra, como gravados na transação corrente, os clientes e as vendas cujos IDs são
+     * devolvidos pelas consultas informadas, com os mesmos {@code parametros}. Chamado depois da
+     * escrita, pelos caminhos que gravam por SQL.
+     */
+    public void registrarGravados(String consultaIdsClientes, String consultaIdsVendas, Object... parametros) {
+        if (!habilitado) {
+            return;
+        }
+
+        IdsGravados ids = idsDaTransacao();
+        ids.clientes.addAll(jdbcTemplate.queryForList(consultaIdsClientes, String.class, parametros));
+        ids.vendas.addAll(jdbcTemplate.queryForList(consultaIdsVendas, String.class, parametros));
+    }
+
+    /**
+     * Mesmo resultado de {@link com.recode.hanami.repository.VendaRepository#totalizarPorEstado}.
+     */
+    public List<TotaisGrupoDTO> totalizarPorEstado(String estado) {
+        trava.readLock().lock();
+        try {
+            Object procurado = estados.chave(estado.toUpperCase(Locale.ROOT));
+            String grupo = null;
+            boolean[] selecionados = new boolean[estados.tamanho()];
+            for (int codigo = 1; codigo < selecionados.length; codigo++) {
+                String valor = estados.valor(codigo).toUpperCase(Locale.ROOT);
+                selecionados[codigo] = procurado.equals(estados.chave(valor));
+                if (selecionados[codigo] && grupo == null) {
+                    grupo = valor;
+                }
+            }
+
+            long transacoes = 0;
+            double receita = 0.0;
+            long quantidade = 0;
+            for (int linha = 0; linha < vendas.tamanho; linha++) {
+                if (!selecionados[clientes.estado(vendas.clientes[linha])]) {
+                    continue;
+                }
+                transacoes++;
+                double valorFinal = vendas.valoresFinais[linha];
+                if (!Double.isNaN(valorFinal)) {
+                    receita += valorFinal;
+                }
+                int quantidadeVenda = vendas.quantidades[linha];
+                if (quantidadeVenda != ColunasVendas.NULO) {
+                    quantidade += quantidadeVenda;
+                }
+            }
+            return transacoes == 0 ? List.of() : List.of(new TotaisGrupoDTO(grupo, transacoes, receita, quantidade));
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    public long contarClientesComVendas() {
+        trava.readLock().lock();
+        try {
+            boolean[] comVendas = clientesComVendas();
+            long total = 0;
+            for (int codigo = 1; codigo < comVendas.length; codigo++) {
+                if (comVendas[codigo]) {
+                    total++;
+                }
+            }
+            return total;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    public List<ContagemGrupoDTO> contarClientesPorGenero() {
+        return contarClientesPor(generos, colunas -> colunas.generos);
+    }
+
+    public List<ContagemGrupoDTO> contarClientesPorCidade() {
+        return contarClientesPor(cidades, colunas -> colunas.cidades);
+    }
+
+    public List<ContagemIdadeDTO> contarClientesPorIdade() {
+        trava.readLock().lock();
+        try {
+            boolean[] comVendas = clientesComVendas();
+            Map<Integer, Long> clientesPorIdade = new LinkedHashMap<>();
+            for (int codigo = 1; codigo < comVendas.length; codigo++) {
+                int idade = clientes.idade(codigo);
+                if (comVendas[codigo] && idade != ColunasVendas.NULO) {
+                    clientesPorIdade.merge(idade, 1L, Long::sum);
+                }
+            }
+
+            List<ContagemIdadeDTO> contagens = new ArrayList<>(clientesPorIdade.size());
+            clientesPorIdade.forEach((idade, total) -> contagens.add(new ContagemIdadeDTO(idade, total)));
+            return contagens;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes com vendas que têm o atributo informado, por grupo de valores; clientes sem o atributo ficam de fora.
+     */
+    private List<ContagemGrupoDTO> contarClientesPor(Dicionario dicionario, Function<ColunasClientes, int[]> atributo) {
+        trava.readLock().lock();
+        try {
+            boolean[] comVendas = clientesComVendas();
+            int[] atributoPorCliente = atributo.apply(clientes);
+            long[] clientesPorCodigo = new long[dicionario.tamanho()];
+            for (int codigo = 1; codigo < comVendas.length; codigo++) {
+                int valor = codigo < atributoPorCliente.length ? atributoPorCliente[codigo] : 0;
+                if (comVendas[codigo] && valor != 0) {
+                    clientesPorCodigo[dicionario.grupo(valor)]++;
+                }
+            }
+
+            List<ContagemGrupoDTO> contagens = new ArrayList<>();
+            for (int codigo = 1; codigo < clientesPorCodigo.length; codigo++) {
+                if (clientesPorCodigo[codigo] > 0) {
+                    contagens.add(new ContagemGrupoDTO(dicionario.valor(codigo), clientesPorCodigo[codigo]));
+                }
+            }
+            return contagens;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private boolean[] clientesComVendas() {
+        boolean[] comVendas = new boolean[codigosClientes.tamanho()];
+        for (int linha = 0; linha < vendas.tamanho; linha++) {
+            comVendas[vendas.clientes[linha]] = true;
+        }
+        return comVendas;
+    }
+
+    private IdsGravados idsDaTransacao() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("O armazém colunar só recebe gravações feitas dentro de uma transação");
+        }
+
+        IdsGravados ids = (IdsGravados) TransactionSynchronizationManager.getResource(chaveIdsTransacao);
+        if (ids != null) {
+            return ids;
+        }
+
+        IdsGravados novos = new IdsGravados();
+        TransactionSynchronizationManager.bindResource(chaveIdsTransacao, novos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reler(novos);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(chaveIdsTransacao);
+            }
+        });
+        return novos;
+    }
+
+    /**
+     * Relê e aplica as linhas gravadas por uma transação confirmada, uma transação por vez. Cada
+     * releitura começa depois do commit da própria transação e enxerga tudo o que foi confirmado
+     * até então, de modo que a última aplicada traz os valores mais recentes do banco, qualquer
+     * que seja a ordem dos {@code afterCommit}. Se a releitura falhar, o armazém deixa de ser
+     * usado e os relatórios voltam a consultar o banco.
+     */
+    private void reler(IdsGravados ids) {
+        travaReleitura.lock();
+        try {
+            Alteracoes lidas = new Alteracoes();
+            for (List<String> bloco : blocos(ids.clientes)) {
+                jdbcTemplate.query(SELECAO_CLIENTES + " WHERE cliente_id IN (" + marcadores(bloco.size()) + ")",
+                        resultado -> {
+                            lerCliente(resultado, lidas);
+                        }, bloco.toArray());
+            }
+            for (List<String> bloco : blocos(ids.vendas)) {
+                jdbcTemplate.query(SELECAO_VENDAS + " WHERE id_transacao IN (" + marcadores(bloco.size()) + ")",
+                        resultado -> {
+                            lerVenda(resultado, lidas);
+                        }, bloco.toArray());
+            }
+            aplicar(lidas);
+        } catch (RuntimeException e) {
+            carregado = false;
+            logger.error("Falha ao reler as vendas gravadas; o armazém colunar foi desativado: {}", e.getMessage(), e);
+        } finally {
+            travaReleitura.unlock();
+        }
+    }
+
+    private static List<List<String>> blocos(Collection<String> ids) {
+        List<String> lista = List.copyOf(ids);
+        List<List<String>> blocos = new ArrayList<>();
+        for (int inicio = 0; inicio < lista.size(); inicio += IDS_POR_CONSULTA) {
+            blocos.add(lista.subList(inicio, Math.min(inicio + IDS_POR_CONSULTA, lista.size())));
+        }
+        return blocos;
+    }
+
+    private static String marcadores(int quantidade) {
+        return String.join(",", Collections.nCopies(quantidade, "?"));
+    }
+
+    private Alteracoes ler(String consultaClientes, String consultaVendas, Object... parametros) {
+        Alteracoes alteracoes = new Alteracoes();
+        jdbcTemplate.query(consultaClientes, resultado -> {
+            lerCliente(resultado, alteracoes);
+        }, parametros);
+        jdbcTemplate.query(consultaVendas, resultado -> {
+            lerVenda(resultado, alteracoes);
+        }, parametros);
+        return alteracoes;
+    }
+
+    private void lerCliente(ResultSet resultado, Alteracoes alteracoes) throws SQLException {
+        String id = resultado.getString(1);
+        Integer idade = resultado.getObject(2, Integer.class);
+        String genero = resultado.getString(3);
+        String cidade = resultado.getString(4);
+        String estado = resultado.getString(5);
+
+        trava.writeLock().lock();
+        try {
+            alteracoes.clientes.put(id, new int[]{valor(idade), generos.codificar(genero), cidades.codificar(cidade),
+                    estados.codificar(estado)});
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private void lerVenda(ResultSet resultado, Alteracoes alteracoes) throws SQLException {
+        String id = resultado.getString(1);
+        String cliente = resultado.getString(2);
+        Double valorFinal = resultado.getObject(3, Double.class);
+        Integer quantidade = resultado.getObject(4, Integer.class);
+        LocalDate dataVenda = resultado.getObject(5, LocalDate.class);
+        Integer tempoEntrega = resultado.getObject(6, Integer.class);
+        String regiao = resultado.getString(7);
+        String canal = resultado.getString(8);
+        String formaPagamento = resultado.getString(9);
+
+        trava.writeLock().lock();
+        try {
+            alteracoes.vendas.adicionar(id, codigosClientes.codificar(cliente),
+                    valorFinal != null ? valorFinal : Double.NaN, valor(quantidade),
+                    dataVenda != null ? (int) dataVenda.toEpochDay() : ColunasVendas.NULO, valor(tempoEntrega),
+                    regioes.codificar(regiao), canais.codificar(canal), formasPagamento.codificar(formaPagamento));
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vendas já presentes são sobrescritas na mesma posição; as demais vão para o fim.
+     */
+    private void aplicar(Alteracoes alteracoes) {
+        trava.writeLock().lock();
+        try {
+            alteracoes.clientes.forEach((id, atributos) ->
+                    clientes.definir(codigosClientes.codificar(id), atributos[0], atributos[1], atributos[2], atributos[3]));
+
+            for (int linha = 0; linha < alteracoes.vendas.tamanho; linha++) {
+                String id = alteracoes.vendas.ids[linha];
+                Integer existente = linhaPorId.get(id);
+                int destino = vendas.copiar(alteracoes.vendas, linha, existente != null ? existente : -1);
+                if (existente == null) {
+                    linhaPorId.put(id, destino);
+                }
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private long tamanhoBytes() {
+        return vendas.tamanhoBytes() + clientes.tamanhoBytes();
+    }
+
+    private <T> T comLeitura(Supplier<T> leitura) {
+        trava.readLock().lock();
+        try {
+            return leitura.get();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private static int valor(Integer numero) {
+        return numero != null ? numero : ColunasVendas.NULO;
+    }
+
+    /**
+     * Vendas e clientes gravados por uma transação, com os textos já codificados.
+     */
+    private static final class Alteracoes {
+        private final ColunasVendas vendas = new ColunasVendas(16);
+        private final Map<String, int[]> clientes = new LinkedHashMap<>();
+    }
+
+    /**
+     * IDs gravados por uma transação, relidos do banco depois do commit.
+     */
+    private static final class IdsGravados {
+        private final Set<String> clientes = new LinkedHashSet<>();
+        private final Set<String> vendas = new LinkedHashSet<>();
+    }
+
+    /**
+     * Código {@code 0} reservado para nulo; os demais na ordem em que os valores aparecem. Cada
+     * código pertence ao grupo do primeiro valor com a mesma chave de agrupamento.
+     */
+    private static final class Dicionario {
+
+        private final Map<String, Integer> codigos = new HashMap<>();
+        private final List<String> valores = new ArrayList<>(List.of(""));
+        private final Map<Object, Integer> gruposPorChave = new HashMap<>();
+        private int[] grupos = new int[16];
+        private Function<String, Object> chaveAgrupamento = valor -> valor;
+
+        /**
+         * Definida antes de o primeiro valor ser codificado.
+         */
+        void agruparPor(Function<String, Object> chaveAgrupamento) {
+            this.chaveAgrupamento = chaveAgrupamento;
+        }
+
+        int codificar(String valor) {
+            if (valor == null) {
+                return 0;
+            }
+            Integer codigo = codigos.get(valor);
+            if (codigo == null) {
+                codigo = valores.size();
+                codigos.put(valor, codigo);
+                valores.add(valor);
+                if (codigo == grupos.length) {
+                    grupos = Arrays.copyOf(grupos, codigo + (codigo >> 1));
+                }
+                grupos[codigo] = gruposPorChave.computeIfAbsent(chave(valor), chave -> valores.size() - 1);
+            }
+            return codigo;
+        }
+
+        String valor(int codigo) {
+            return codigo == 0 ? null : valores.get(codigo);
+        }
+
+        Object chave(String valor) {
+            return chaveAgrupamento.apply(valor);
+        }
+
+        int grupo(int codigo) {
+            return grupos[codigo];
+        }
+
+        int tamanho() {
+            return valores.size();
+        }
+    }
+
+    /**
+     * Atributos dos clientes indexados pelo código do cliente.
+     */
+    private static final class ColunasClientes {
+
+        private int[] idades = new int[0];
+        private int[] generos = new int[0];
+        private int[] cidades = new int[0];
+        private int[] estados = new int[0];
+
+        void definir(int codigo, int idade, int genero, int cidade, int estado) {
+            if (codigo >= idades.length) {
+                int capacidade = Math.max(codigo + 1, idades.length + (idades.length >> 1));
+                int anterior = idades.length;
+                idades = Arrays.copyOf(idades, capacidade);
+                Arrays.fill(idades, anterior, capacidade, ColunasVendas.NULO);
+                generos = Arrays.copyOf(generos, capacidade);
+                cidades = Arrays.copyOf(cidades, capacidade);
+                estados = Arrays.copyOf(estados, capacidade);
+            }
+            idades[codigo] = idade;
+            generos[codigo] = genero;
+            cidades[codigo] = cidade;
+            estados[codigo] = estado;
+        }
+
+        int estado(int codigo) {
+            return codigo < estados.length ? estados[codigo] : 0;
+        }
+
+        int idade(int codigo) {
+            return codigo < idades.length ? idades[codigo] : ColunasVendas.NULO;
+        }
+
+        long tamanhoBytes() {
+            return (long) idades.length * Integer.BYTES * 4;
+        }
+    }
+}
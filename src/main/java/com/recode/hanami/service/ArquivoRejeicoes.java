@@ -0,0 +1,70 @@
+package com.recode.hanami.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * CSV com as linhas rejeitadas de uma importação: número da linha, motivo e conteúdo original.
+ * O arquivo só é criado na primeira rejeição.
+ */
+public class ArquivoRejeicoes implements Closeable {
+
+    private static final String CABECALHO = "linha,motivo,conteudo";
+
+    private final String id;
+    private final Path arquivo;
+    private BufferedWriter writer;
+    private int quantidade;
+
+    ArquivoRejeicoes(String id, Path arquivo) {
+        this.id = id;
+        this.arquivo = arquivo;
+    }
+
+    public void rejeitar(long linha, String conteudo, String motivo) {
+        try {
+            if (writer == null) {
+                Files.createDirectories(arquivo.getParent());
+                writer = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8);
+                writer.write(CABECALHO);
+                writer.newLine();
+            }
+            writer.write(Long.toString(linha));
+            writer.write(',');
+            writer.write(escapar(motivo));
+            writer.write(',');
+            writer.write(escapar(conteudo));
+            writer.newLine();
+            quantidade++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar arquivo de rejeições: " + e.getMessage(), e);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private String escapar(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        return "\"" + valor.replace("\"", "\"\"") + "\"";
+    }
+}
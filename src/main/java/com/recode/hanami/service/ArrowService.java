@@ -0,0 +1,511 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+import com.recode.hanami.exception.ArquivoInvalidoException;
+import com.recode.hanami.exception.DadosInvalidosException;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseIntVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.FloatingPointVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.ipc.InvalidArrowFileException;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Leitura e escrita das vendas no formato colunar Apache Arrow (IPC).
+ * <p>
+ * Na importação, cada lote de registros do arquivo é convertido coluna a coluna: o vetor de cada
+ * coluna é localizado uma única vez por lote, e as linhas são montadas a partir dele, sem
+ * nenhuma conversão de texto para números ou datas. As colunas têm os mesmos nomes do CSV;
+ * colunas de texto podem vir codificadas em dicionário, e as numéricas e de data aceitam os
+ * tipos inteiros, de ponto flutuante, decimais, {@code date32}, {@code date64} e timestamp.
+ * São aceitos tanto o formato de arquivo ({@code .arrow}/{@code .feather}) quanto o de fluxo,
+ * sem compressão ou com zstd.
+ * <p>
+ * Na exportação, as vendas com seus clientes e produtos são lidas por uma única consulta e
+ * gravadas no formato de arquivo em lotes de {@code tamanhoLoteExportacao} linhas, com as
+ * mesmas colunas do CSV de importação e os buffers compactados em zstd (ver
+ * {@link CodecZstdArrow}); o arquivo exportado pode ser reimportado.
+ */
+@Service
+public class ArrowService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArrowService.class);
+
+    private static final byte[] ASSINATURA_ARQUIVO = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INICIO_FLUXO = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+    public static final int TAMANHO_ASSINATURA = ASSINATURA_ARQUIVO.length;
+
+    private static final String CONSULTA_EXPORTACAO = """
+            SELECT v.id_transacao, v.data_venda, v.valor_final, v.subtotal, v.desconto_percent, v.canal_venda,
+                   v.forma_pagamento, c.cliente_id, c.nome_cliente, c.idade_cliente, c.genero_cliente,
+                   c.cidade_cliente, c.estado_cliente, c.renda_estimada, p.produto_id, p.nome_produto,
+                   p.categoria, p.marca, p.preco_unitario, v.quantidade, p.margem_lucro, v.regiao,
+                   v.status_entrega, v.tempo_entrega_dias, v.vendedor_id
+            FROM vendas v
+            LEFT JOIN clientes c ON c.cliente_id = v.cliente_id
+            LEFT JOIN produtos p ON p.produto_id = v.produto_id
+            """;
+
+    private static final Schema ESQUEMA_VENDAS = new Schema(List.of(
+            texto("id_transacao"), data("data_venda"), decimal("valor_final"), decimal("subtotal"),
+            decimal("desconto_percent"), texto("canal_venda"), texto("forma_pagamento"), texto("cliente_id"),
+            texto("nome_cliente"), inteiro("idade_cliente"), texto("genero_cliente"), texto("cidade_cliente"),
+            texto("estado_cliente"), decimal("renda_estimada"), texto("produto_id"), texto("nome_produto"),
+            texto("categoria"), texto("marca"), decimal("preco_unitario"), inteiro("quantidade"),
+            decimal("margem_lucro"), texto("regiao"), texto("status_entrega"), inteiro("tempo_entrega_dias"),
+            texto("vendedor_id")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanhoLoteExportacao;
+    private final CompressionUtil.CodecType compressaoExportacao;
+
+    public ArrowService(JdbcTemplate jdbcTemplate,
+                        @Value("${hanami.exportacao.arrow.tamanho-lote:65536}") int tamanhoLoteExportacao,
+                        @Value("${hanami.exportacao.arrow.compressao:zstd}") String compressaoExportacao) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanhoLoteExportacao = tamanhoLoteExportacao;
+        this.compressaoExportacao = switch (compressaoExportacao) {
+            case "zstd" -> CompressionUtil.CodecType.ZSTD;
+            case "nenhuma" -> CompressionUtil.CodecType.NO_COMPRESSION;
+            default -> throw new IllegalArgumentException("Compressão da exportação Arrow desconhecida: " + compressaoExportacao);
+        };
+    }
+
+    /**
+     * Identifica o formato pelos primeiros bytes: a assinatura {@code ARROW1} do formato de
+     * arquivo, ou o marcador de continuação que abre cada mensagem do formato de fluxo.
+     */
+    public static boolean isArrow(byte[] inicio, int tamanho) {
+        return comecaCom(inicio, tamanho, ASSINATURA_ARQUIVO) || comecaCom(inicio, tamanho, INICIO_FLUXO);
+    }
+
+    public boolean isArrow(Path arquivo) {
+        try (InputStream inputStream = Files.newInputStream(arquivo)) {
+            byte[] inicio = inputStream.readNBytes(TAMANHO_ASSINATURA);
+            return isArrow(inicio, inicio.length);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Converte os registros do arquivo em lotes de até {@code tamanhoLote} registros; um lote do
+     * arquivo maior que isso é entregue em partes.
+     *
+     * @return total de registros lidos
+     */
+    public int processarEmLotes(Path arquivo, int tamanhoLote, Consumer<List<DadosArquivoDTO>> consumidorLote) {
+        try (BufferAllocator alocador = new RootAllocator();
+             FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+             ArrowReader leitor = abrirLeitor(canal, alocador)) {
+            int totalLinhas = 0;
+
+            while (leitor.loadNextBatch()) {
+                VectorSchemaRoot lote = leitor.getVectorSchemaRoot();
+                List<ValueVector> decodificados = new ArrayList<>();
+                try {
+                    ColunasVendas colunas = new ColunasVendas(lote, leitor.getDictionaryVectors(), decodificados);
+                    for (int inicio = 0; inicio < lote.getRowCount(); inicio += tamanhoLote) {
+                        int fim = Math.min(inicio + tamanhoLote, lote.getRowCount());
+                        List<DadosArquivoDTO> registros = new ArrayList<>(fim - inicio);
+                        for (int linha = inicio; linha < fim; linha++) {
+                            registros.add(colunas.registro(linha));
+                        }
+                        consumidorLote.accept(registros);
+                        totalLinhas += registros.size();
+                    }
+                } finally {
+                    decodificados.forEach(ValueVector::close);
+                }
+            }
+            return totalLinhas;
+        } catch (IOException | InvalidArrowFileException e) {
+            throw new ArquivoInvalidoException("Arquivo Arrow inválido: " + e.getMessage());
+        }
+    }
+
+    private ArrowReader abrirLeitor(FileChannel canal, BufferAllocator alocador) throws IOException {
+        byte[] inicio = new byte[TAMANHO_ASSINATURA];
+        int lidos = canal.read(ByteBuffer.wrap(inicio), 0);
+        if (comecaCom(inicio, lidos, ASSINATURA_ARQUIVO)) {
+            return new ArrowFileReader(canal, alocador, CodecZstdArrow.FABRICA);
+        }
+        return new ArrowStreamReader(Channels.newInputStream(canal), alocador, CodecZstdArrow.FABRICA);
+    }
+
+    /**
+     * Grava todas as vendas no formato de arquivo Arrow. O fluxo não é fechado.
+     *
+     * @return quantidade de vendas exportadas
+     */
+    public long exportarVendas(OutputStream saida) throws IOException {
+        try (BufferAllocator alocador = new RootAllocator();
+             VectorSchemaRoot lote = VectorSchemaRoot.create(ESQUEMA_VENDAS, alocador);
+             ArrowFileWriter escritor = new ArrowFileWriter(lote, null, Channels.newChannel(saida), Map.of(),
+                     IpcOption.DEFAULT, CodecZstdArrow.FABRICA, compressaoExportacao)) {
+            escritor.start();
+            EscritaVendas escrita = new EscritaVendas(lote, escritor);
+
+            jdbcTemplate.query(conexao -> {
+                PreparedStatement consulta = conexao.prepareStatement(CONSULTA_EXPORTACAO,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                consulta.setFetchSize(tamanhoBuscaExportacao(conexao));
+                return consulta;
+            }, escrita::adicionar);
+
+            escrita.gravarLote();
+            escritor.end();
+            logger.info("{} vendas exportadas em Arrow", escrita.total);
+            return escrita.total;
+        }
+    }
+
+    /**
+     * Sem {@code useCursorFetch} o driver do MySQL ignora fetch sizes positivos e carrega o
+     * resultado inteiro na memória; {@link Integer#MIN_VALUE} faz o driver entregar as linhas
+     * uma a uma conforme chegam. Nos demais bancos o fetch size é o próprio tamanho do lote.
+     */
+    private int tamanhoBuscaExportacao(Connection conexao) throws SQLException {
+        return "MySQL".equals(conexao.getMetaData().getDatabaseProductName())
+                ? Integer.MIN_VALUE
+                : tamanhoLoteExportacao;
+    }
+
+    /**
+     * Acumula as linhas da consulta nos vetores e grava um lote a cada
+     * {@code tamanhoLoteExportacao} linhas.
+     */
+    private final class EscritaVendas {
+
+        private final VectorSchemaRoot lote;
+        private final ArrowFileWriter escritor;
+        private final List<FieldVector> vetores;
+        private int linhasNoLote;
+        private long total;
+
+        EscritaVendas(VectorSchemaRoot lote, ArrowFileWriter escritor) {
+            this.lote = lote;
+            this.escritor = escritor;
+            this.vetores = lote.getFieldVectors();
+            lote.allocateNew();
+        }
+
+        void adicionar(ResultSet resultado) throws SQLException {
+            int linha = linhasNoLote;
+            for (int coluna = 0; coluna < vetores.size(); coluna++) {
+                FieldVector vetor = vetores.get(coluna);
+                int indice = coluna + 1;
+                switch (vetor) {
+                    case VarCharVector texto -> {
+                        String valor = resultado.getString(indice);
+                        if (valor == null) {
+                            texto.setNull(linha);
+                        } else {
+                            texto.setSafe(linha, valor.getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                    case Float8Vector decimal -> {
+                        double valor = resultado.getDouble(indice);
+                        if (resultado.wasNull()) {
+                            decimal.setNull(linha);
+                        } else {
+                            decimal.setSafe(linha, valor);
+                        }
+                    }
+                    case IntVector inteiro -> {
+                        int valor = resultado.getInt(indice);
+                        if (resultado.wasNull()) {
+                            inteiro.setNull(linha);
+                        } else {
+                            inteiro.setSafe(linha, valor);
+                        }
+                    }
+                    case DateDayVector data -> {
+                        Date valor = resultado.getDate(indice);
+                        if (valor == null) {
+                            data.setNull(linha);
+                        } else {
+                            data.setSafe(linha, (int) valor.toLocalDate().toEpochDay());
+                        }
+                    }
+                    default -> throw new IllegalStateException("Tipo de coluna não suportado: " + vetor.getField());
+                }
+            }
+
+            linhasNoLote++;
+            if (linhasNoLote == tamanhoLoteExportacao) {
+                gravarLote();
+                lote.allocateNew();
+            }
+        }
+
+        void gravarLote() {
+            if (linhasNoLote == 0) {
+                return;
+            }
+            lote.setRowCount(linhasNoLote);
+            try {
+                escritor.writeBatch();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            total += linhasNoLote;
+            linhasNoLote = 0;
+        }
+    }
+
+    /**
+     * Leitores das colunas de um lote, resolvidos uma vez pelo nome. Uma coluna ausente é lida
+     * como nula em todas as linhas, como uma coluna vazia no CSV.
+     */
+    private static final class ColunasVendas {
+
+        private final IntFunction<String> idTransacao;
+        private final IntFunction<LocalDate> dataVenda;
+        private final IntFunction<Double> valorFinal;
+        private final IntFunction<Double> subtotal;
+        private final IntFunction<Double> descontoPercent;
+        private final IntFunction<String> canalVenda;
+        private final IntFunction<String> formaPagamento;
+        private final IntFunction<String> clienteId;
+        private final IntFunction<String> nomeCliente;
+        private final IntFunction<Integer> idadeCliente;
+        private final IntFunction<String> generoCliente;
+        private final IntFunction<String> cidadeCliente;
+        private final IntFunction<String> estadoCliente;
+        private final IntFunction<Double> rendaEstimada;
+        private final IntFunction<String> produtoId;
+        private final IntFunction<String> nomeProduto;
+        private final IntFunction<String> categoria;
+        private final IntFunction<String> marca;
+        private final IntFunction<Double> precoUnitario;
+        private final IntFunction<Integer> quantidade;
+        private final IntFunction<Double> margemLucro;
+        private final IntFunction<String> regiao;
+        private final IntFunction<String> statusEntrega;
+        private final IntFunction<Integer> tempoEntregaDias;
+        private final IntFunction<String> vendedorId;
+
+        private final VectorSchemaRoot lote;
+        private final Map<Long, Dictionary> dicionarios;
+        private final List<ValueVector> decodificados;
+
+        ColunasVendas(VectorSchemaRoot lote, Map<Long, Dictionary> dicionarios, List<ValueVector> decodificados) {
+            this.lote = lote;
+            this.dicionarios = dicionarios;
+            this.decodificados = decodificados;
+
+            idTransacao = texto("id_transacao");
+            dataVenda = data("data_venda");
+            valorFinal = decimal("valor_final");
+            subtotal = decimal("subtotal");
+            descontoPercent = decimal("desconto_percent");
+            canalVenda = texto("canal_venda");
+            formaPagamento = texto("forma_pagamento");
+            clienteId = texto("cliente_id");
+            nomeCliente = texto("nome_cliente");
+            idadeCliente = inteiro("idade_cliente");
+            generoCliente = texto("genero_cliente");
+            cidadeCliente = texto("cidade_cliente");
+            estadoCliente = texto("estado_cliente");
+            rendaEstimada = decimal("renda_estimada");
+            produtoId = texto("produto_id");
+            nomeProduto = texto("nome_produto");
+            categoria = texto("categoria");
+            marca = texto("marca");
+            precoUnitario = decimal("preco_unitario");
+            quantidade = inteiro("quantidade");
+            margemLucro = decimal("margem_lucro");
+            regiao = texto("regiao");
+            statusEntrega = texto("status_entrega");
+            tempoEntregaDias = inteiro("tempo_entrega_dias");
+            vendedorId = texto("vendedor_id");
+        }
+
+        DadosArquivoDTO registro(int linha) {
+            return new DadosArquivoDTO(
+                    idTransacao.apply(linha), dataVenda.apply(linha), valorFinal.apply(linha), subtotal.apply(linha),
+                    descontoPercent.apply(linha), canalVenda.apply(linha), formaPagamento.apply(linha),
+                    clienteId.apply(linha), nomeCliente.apply(linha), idadeCliente.apply(linha),
+                    generoCliente.apply(linha), cidadeCliente.apply(linha), estadoCliente.apply(linha),
+                    rendaEstimada.apply(linha), produtoId.apply(linha), nomeProduto.apply(linha),
+                    categoria.apply(linha), marca.apply(linha), precoUnitario.apply(linha), quantidade.apply(linha),
+                    margemLucro.apply(linha), regiao.apply(linha), statusEntrega.apply(linha),
+                    tempoEntregaDias.apply(linha), vendedorId.apply(linha));
+        }
+
+        /**
+         * Vetor da coluna, já decodificado se estiver codificado em dicionário.
+         */
+        private ValueVector vetor(String nome) {
+            FieldVector vetor = lote.getVector(nome);
+            if (vetor == null || vetor.getField().getDictionary() == null) {
+                return vetor;
+            }
+            Dictionary dicionario = dicionarios.get(vetor.getField().getDictionary().getId());
+            ValueVector decodificado = DictionaryEncoder.decode(vetor, dicionario);
+            decodificados.add(decodificado);
+            return decodificado;
+        }
+
+        private IntFunction<String> texto(String nome) {
+            ValueVector vetor = vetor(nome);
+            if (vetor == null) {
+                return linha -> null;
+            }
+            if (vetor instanceof VarCharVector texto) {
+                return linha -> texto.isNull(linha) ? null : new String(texto.get(linha), StandardCharsets.UTF_8);
+            }
+            return linha -> {
+                Object valor = vetor.getObject(linha);
+                return valor == null ? null : valor.toString();
+            };
+        }
+
+        private IntFunction<Double> decimal(String nome) {
+            ValueVector vetor = vetor(nome);
+            if (vetor == null) {
+                return linha -> null;
+            }
+            if (vetor instanceof FloatingPointVector pontoFlutuante) {
+                return linha -> vetor.isNull(linha) ? null : pontoFlutuante.getValueAsDouble(linha);
+            }
+            if (vetor instanceof BaseIntVector inteiro) {
+                return linha -> vetor.isNull(linha) ? null : (double) inteiro.getValueAsLong(linha);
+            }
+            return linha -> {
+                Object valor = vetor.getObject(linha);
+                return switch (valor) {
+                    case null -> null;
+                    case BigDecimal numero -> numero.doubleValue();
+                    case Number numero -> numero.doubleValue();
+                    case Text texto -> converterTexto(nome, texto, Double::valueOf);
+                    default -> throw tipoInvalido(nome, vetor);
+                };
+            };
+        }
+
+        private IntFunction<Integer> inteiro(String nome) {
+            ValueVector vetor = vetor(nome);
+            if (vetor == null) {
+                return linha -> null;
+            }
+            if (vetor instanceof BaseIntVector inteiro) {
+                return linha -> vetor.isNull(linha) ? null : Math.toIntExact(inteiro.getValueAsLong(linha));
+            }
+            return linha -> {
+                Object valor = vetor.getObject(linha);
+                return switch (valor) {
+                    case null -> null;
+                    case Number numero -> numero.intValue();
+                    case Text texto -> converterTexto(nome, texto, Integer::valueOf);
+                    default -> throw tipoInvalido(nome, vetor);
+                };
+            };
+        }
+
+        private IntFunction<LocalDate> data(String nome) {
+            ValueVector vetor = vetor(nome);
+            if (vetor == null) {
+                return linha -> null;
+            }
+            if (vetor instanceof DateDayVector dias) {
+                return linha -> dias.isNull(linha) ? null : LocalDate.ofEpochDay(dias.get(linha));
+            }
+            return linha -> {
+                Object valor = vetor.getObject(linha);
+                return switch (valor) {
+                    case null -> null;
+                    case LocalDateTime dataHora -> dataHora.toLocalDate();
+                    case Text texto -> converterTexto(nome, texto, LocalDate::parse);
+                    default -> throw tipoInvalido(nome, vetor);
+                };
+            };
+        }
+
+        private static <T> T converterTexto(String nome, Text texto, Function<String, T> conversor) {
+            try {
+                return conversor.apply(texto.toString().trim());
+            } catch (RuntimeException e) {
+                throw new DadosInvalidosException("Valor inválido na coluna " + nome + ": " + texto);
+            }
+        }
+
+        private static DadosInvalidosException tipoInvalido(String nome, ValueVector vetor) {
+            return new DadosInvalidosException("Tipo não suportado na coluna " + nome + ": " + vetor.getField().getType());
+        }
+    }
+
+    private static Field texto(String nome) {
+        return new Field(nome, FieldType.nullable(ArrowType.Utf8.INSTANCE), null);
+    }
+
+    private static Field decimal(String nome) {
+        return new Field(nome, FieldType.nullable(new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)), null);
+    }
+
+    private static Field inteiro(String nome) {
+        return new Field(nome, FieldType.nullable(new ArrowType.Int(32, true)), null);
+    }
+
+    private static Field data(String nome) {
+        return new Field(nome, FieldType.nullable(new ArrowType.Date(DateUnit.DAY)), null);
+    }
+
+    private static boolean comecaCom(byte[] dados, int tamanho, byte[] prefixo) {
+        return tamanho >= prefixo.length && Arrays.equals(dados, 0, prefixo.length, prefixo, 0, prefixo.length);
+    }
+}
@@ -0,0 +1,55 @@
+package com.recode.hanami.service;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.text.Collator;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Bancos suportados pelos serviços que gravam com SQL específico de cada um.
+ */
+enum Banco {
+    MYSQL, H2;
+
+    private static final String COLLATION_COLUNA = "SELECT collation_name FROM information_schema.columns"
+            + " WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
+
+    static Banco detectar(JdbcTemplate jdbcTemplate) {
+        String produto = jdbcTemplate.execute((ConnectionCallback<String>) conexao -> conexao.getMetaData().getDatabaseProductName());
+        if ("MySQL".equalsIgnoreCase(produto)) {
+            return MYSQL;
+        }
+        if ("H2".equalsIgnoreCase(produto)) {
+            return H2;
+        }
+        throw new IllegalStateException("SQL nativo não suportado para o banco " + produto);
+    }
+
+    /**
+     * Chave que iguala os valores que a coluna considera iguais em comparações e chaves únicas.
+     * No H2 a comparação é exata; no MySQL segue o collation da coluna.
+     */
+    Function<String, Object> chaveComparacao(JdbcTemplate jdbcTemplate, String tabela, String coluna) {
+        if (this == H2) {
+            return valor -> valor;
+        }
+        return chaveComparacao(jdbcTemplate.queryForObject(COLLATION_COLUNA, String.class, tabela, coluna));
+    }
+
+    /**
+     * Chave que iguala os valores que o collation do MySQL informado considera iguais: nos
+     * {@code _ci} os que diferem só em maiúsculas e, fora os {@code _as_ci}, também os que
+     * diferem só em acentos.
+     */
+    static Function<String, Object> chaveComparacao(String collation) {
+        if (collation == null || collation.endsWith("_bin") || collation.endsWith("_cs")) {
+            return valor -> valor;
+        }
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        collator.setStrength(collation.endsWith("_as_ci") ? Collator.SECONDARY : Collator.PRIMARY);
+        return collator::getCollationKey;
+    }
+}
@@ -0,0 +1,57 @@
+package com.recode.hanami.service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro, válido durante uma importação, dos clientes, produtos e vendedores já gravados
+ * e da assinatura (valores dos atributos) com que foram gravados. Uma dimensão que reaparece
+ * com a mesma assinatura não precisa ser consultada nem gravada de novo.
+ * <p>
+ * Também indica se as dimensões da importação são gravadas em transação própria. Nesse modo
+ * outras importações confirmam as mesmas dimensões enquanto esta está em andamento, e o
+ * {@link CacheDimensoesCompartilhado} descarta daqui as entradas que elas sobrescreveram.
+ */
+public class CacheDimensoes {
+
+    private final Map<Class<?>, Map<String, Object>> assinaturasPorTipo = new ConcurrentHashMap<>();
+    private final boolean dimensoesSeparadas;
+
+    public CacheDimensoes() {
+        this(false);
+    }
+
+    public CacheDimensoes(boolean dimensoesSeparadas) {
+        this.dimensoesSeparadas = dimensoesSeparadas;
+    }
+
+    public boolean isDimensoesSeparadas() {
+        return dimensoesSeparadas;
+    }
+
+    public boolean contem(Class<?> tipo, String id, Object assinatura) {
+        Map<String, Object> assinaturas = assinaturasPorTipo.get(tipo);
+        return assinaturas != null
+                && assinaturas.containsKey(id)
+                && Objects.equals(assinaturas.get(id), assinatura);
+    }
+
+    public void registrar(Class<?> tipo, String id, Object assinatura) {
+        assinaturasPorTipo.computeIfAbsent(tipo, t -> new ConcurrentHashMap<>()).put(id, assinatura);
+    }
+
+    /**
+     * Descarta o registro da dimensão se ele tiver outra assinatura que a informada.
+     */
+    void descartarSeDiferente(Class<?> tipo, String id, Object assinatura) {
+        Map<String, Object> assinaturas = assinaturasPorTipo.get(tipo);
+        if (assinaturas != null) {
+            assinaturas.computeIfPresent(id, (chave, registrada) -> registrada.equals(assinatura) ? registrada : null);
+        }
+    }
+
+    Map<Class<?>, Map<String, Object>> getAssinaturasPorTipo() {
+        return assinaturasPorTipo;
+    }
+}
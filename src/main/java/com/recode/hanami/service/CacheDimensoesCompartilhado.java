@@ -0,0 +1,167 @@
+package com.recode.hanami.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache de dimensões compartilhado entre importações, limitado a {@code tamanhoMaximo}
+ * entradas por tipo e com descarte da entrada usada há mais tempo.
+ * <p>
+ * Só recebe o conteúdo de um {@link CacheDimensoes} depois que a transação da importação
+ * é confirmada, para nunca anunciar registros que sofreram rollback. Caminhos que alteram
+ * as tabelas de dimensão por fora do ORM devem chamar {@link #limpar()}.
+ * <p>
+ * Importações com dimensões separadas confirmam as dimensões de cada lote em uma transação
+ * curta, uma importação por vez. Cada lote é publicado no commit dessa transação, ainda sob a
+ * trava que as serializa, de modo que o cache segue a ordem dos commits. O cache dessas
+ * importações em andamento perde as entradas que outra importação sobrescreveu com outros
+ * atributos, para que o próximo lote que as traga volte a gravá-las.
+ * <p>
+ * Consultado a cada linha por todas as importações em andamento; a trava é um
+ * {@link ReentrantLock} e não {@code synchronized}, que prende a thread virtual à thread de
+ * plataforma enquanto espera pelo monitor.
+ */
+@Component
+public class CacheDimensoesCompartilhado {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheDimensoesCompartilhado.class);
+
+    private final int tamanhoMaximo;
+    private final Map<Class<?>, Map<String, Object>> assinaturasPorTipo = new HashMap<>();
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Set<CacheDimensoes> importacoesSeparadas = ConcurrentHashMap.newKeySet();
+
+    public CacheDimensoesCompartilhado(@Value("${hanami.importacao.cache-dimensoes.tamanho-maximo:50000}") int tamanhoMaximo) {
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+
+    public boolean contem(Class<?> tipo, String id, Object assinatura) {
+        trava.lock();
+        try {
+            Map<String, Object> assinaturas = assinaturasPorTipo.get(tipo);
+            return assinaturas != null
+                    && assinaturas.containsKey(id)
+                    && Objects.equals(assinaturas.get(id), assinatura);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Agenda a incorporação do cache da importação para depois do commit da transação
+     * corrente. Fora de uma transação a incorporação é imediata.
+     */
+    public void publicarAposCommit(CacheDimensoes cacheImportacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            incorporar(cacheImportacao, cacheImportacao);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                incorporar(cacheImportacao, cacheImportacao);
+            }
+        });
+    }
+
+    /**
+     * Acompanha o cache de uma importação com dimensões separadas até o fim da transação
+     * corrente, descartando dele as dimensões que outras importações sobrescreverem.
+     */
+    public void acompanhar(CacheDimensoes cacheImportacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Importações com dimensões separadas devem iniciar dentro de uma transação");
+        }
+
+        importacoesSeparadas.add(cacheImportacao);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                importacoesSeparadas.remove(cacheImportacao);
+            }
+        });
+    }
+
+    /**
+     * Publica, depois do commit da transação curta corrente, as dimensões gravadas por um lote
+     * de {@code cacheImportacao}. Deve ser chamado sob a trava que serializa essas transações.
+     */
+    public void publicarLoteAposCommit(CacheDimensoes cacheImportacao, CacheDimensoes gravadasNoLote) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                incorporar(gravadasNoLote, cacheImportacao);
+            }
+        });
+    }
+
+    /**
+     * Descarta o cache depois do commit da transação corrente, ou imediatamente fora de uma transação.
+     */
+    public void limparAposCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            limpar();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                limpar();
+            }
+        });
+    }
+
+    public void limpar() {
+        trava.lock();
+        try {
+            assinaturasPorTipo.clear();
+        } finally {
+            trava.unlock();
+        }
+        logger.debug("Cache compartilhado de dimensões descartado");
+    }
+
+    /**
+     * @param origem importação que gravou as dimensões, cujo cache não é alterado
+     */
+    private void incorporar(CacheDimensoes gravadas, CacheDimensoes origem) {
+        trava.lock();
+        try {
+            gravadas.getAssinaturasPorTipo().forEach((tipo, assinaturas) -> {
+                if (tamanhoMaximo > 0) {
+                    assinaturasPorTipo.computeIfAbsent(tipo, t -> criarMapaLru()).putAll(assinaturas);
+                }
+                for (CacheDimensoes importacao : importacoesSeparadas) {
+                    if (importacao != origem) {
+                        assinaturas.forEach((id, assinatura) -> importacao.descartarSeDiferente(tipo, id, assinatura));
+                    }
+                }
+            });
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private Map<String, Object> criarMapaLru() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> maisAntiga) {
+                return size() > tamanhoMaximo;
+            }
+        };
+    }
+}
@@ -0,0 +1,273 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.validation.UploadArquivoValidator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importa os CSVs deixados em um diretório de entrada, sem passar pelo HTTP. Cada arquivo
+ * passa pelo mesmo caminho de {@link ImportacaoVendasService#importarArquivo}, lido direto do
+ * diretório, e depois é movido para {@code processados/} ou, em caso de falha, para
+ * {@code falhas/} junto de um {@code .erro.txt} com o motivo. Vários arquivos são importados
+ * em paralelo por um pool limitado, com as dimensões em transações à parte, como nas entradas
+ * de um ZIP.
+ * <p>
+ * Um arquivo só é considerado completo quando tamanho e data de modificação ficam inalterados
+ * por {@code estabilidadeMs}; quem grava deve preferir criar o arquivo com outro nome (por
+ * exemplo {@code .part}) e renomeá-lo ao final. Além dos eventos do {@link WatchService}, o
+ * diretório é varrido a cada {@code varreduraSegundos}, o que cobre volumes de rede em que os
+ * eventos não chegam.
+ */
+@Service
+public class CaixaEntradaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaixaEntradaService.class);
+    private static final String DIRETORIO_PROCESSADOS = "processados";
+    private static final String DIRETORIO_FALHAS = "falhas";
+    private static final DateTimeFormatter FORMATO_SUFIXO = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final ImportacaoVendasService importacaoVendasService;
+    private final UploadArquivoValidator uploadArquivoValidator;
+    private final boolean habilitada;
+    private final Path diretorio;
+    private final int threads;
+    private final long estabilidadeMs;
+    private final long varreduraSegundos;
+    private final boolean threadsVirtuais;
+    private final Map<Path, Observacao> candidatos = new HashMap<>();
+    private final Set<Path> emProcessamento = ConcurrentHashMap.newKeySet();
+
+    private volatile ExecutorService executor;
+    private volatile WatchService watchService;
+    private volatile Thread observador;
+
+    public CaixaEntradaService(ImportacaoVendasService importacaoVendasService,
+                               UploadArquivoValidator uploadArquivoValidator,
+                               @Value("${hanami.importacao.caixa-entrada.habilitada:false}") boolean habilitada,
+                               @Value("${hanami.importacao.caixa-entrada.diretorio:${java.io.tmpdir}/hanami-caixa-entrada}") Path diretorio,
+                               @Value("${hanami.importacao.caixa-entrada.threads:2}") int threads,
+                               @Value("${hanami.importacao.caixa-entrada.estabilidade-ms:2000}") long estabilidadeMs,
+                               @Value("${hanami.importacao.caixa-entrada.varredura-segundos:30}") long varreduraSegundos,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.importacaoVendasService = importacaoVendasService;
+        this.uploadArquivoValidator = uploadArquivoValidator;
+        this.habilitada = habilitada;
+        this.diretorio = diretorio;
+        this.threads = threads;
+        this.estabilidadeMs = estabilidadeMs;
+        this.varreduraSegundos = varreduraSegundos;
+        this.threadsVirtuais = threadsVirtuais;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(diretorio.resolve(DIRETORIO_PROCESSADOS));
+            Files.createDirectories(diretorio.resolve(DIRETORIO_FALHAS));
+            watchService = diretorio.getFileSystem().newWatchService();
+            diretorio.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.error("Não foi possível observar o diretório de entrada {}: {}", diretorio, e.getMessage(), e);
+            return;
+        }
+
+        executor = Executors.newFixedThreadPool(threads, FabricaThreads.criar("caixa-entrada", threadsVirtuais));
+        observador = FabricaThreads.iniciar("caixa-entrada-observador", threadsVirtuais, this::observar);
+        logger.info("Observando o diretório de entrada {} com {} threads", diretorio, threads);
+    }
+
+    /**
+     * Laço da thread observadora: registra candidatos a partir dos eventos e das varreduras e
+     * entrega ao pool os que ficaram estáveis.
+     */
+    private void observar() {
+        long intervaloVarreduraNanos = TimeUnit.SECONDS.toNanos(varreduraSegundos);
+        long proximaVarredura = 0;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (System.nanoTime() - proximaVarredura >= 0) {
+                    varrer();
+                    proximaVarredura = System.nanoTime() + intervaloVarreduraNanos;
+                }
+
+                WatchKey chave = watchService.poll(Math.max(100, estabilidadeMs / 2), TimeUnit.MILLISECONDS);
+                if (chave != null) {
+                    for (WatchEvent<?> evento : chave.pollEvents()) {
+                        if (evento.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            varrer();
+                        } else {
+                            observarArquivo(diretorio.resolve((Path) evento.context()));
+                        }
+                    }
+                    chave.reset();
+                }
+
+                entregarEstaveis();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Observação do diretório de entrada interrompida: {}", e.getMessage(), e);
+        }
+    }
+
+    private void varrer() {
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio)) {
+            for (Path arquivo : arquivos) {
+                observarArquivo(arquivo);
+            }
+        } catch (IOException e) {
+            logger.warn("Não foi possível listar o diretório de entrada {}: {}", diretorio, e.getMessage());
+        }
+    }
+
+    private void observarArquivo(Path arquivo) {
+        if (!uploadArquivoValidator.isNomeCsvValido(arquivo.getFileName().toString())
+                || !Files.isRegularFile(arquivo)
+                || emProcessamento.contains(arquivo)) {
+            return;
+        }
+        candidatos.computeIfAbsent(arquivo, caminho -> new Observacao());
+    }
+
+    private void entregarEstaveis() {
+        Iterator<Map.Entry<Path, Observacao>> iterador = candidatos.entrySet().iterator();
+        while (iterador.hasNext()) {
+            Map.Entry<Path, Observacao> candidato = iterador.next();
+            Path arquivo = candidato.getKey();
+
+            BasicFileAttributes atributos;
+            try {
+                atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+            } catch (IOException e) {
+                iterador.remove();
+                continue;
+            }
+
+            if (candidato.getValue().estavel(atributos.size(), atributos.lastModifiedTime().toMillis(), estabilidadeMs)) {
+                iterador.remove();
+                emProcessamento.add(arquivo);
+                executor.execute(() -> processar(arquivo));
+            }
+        }
+    }
+
+    private void processar(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        try {
+            logger.info("Importando {} do diretório de entrada", nome);
+            ImportacaoResponseDTO resultado = importacaoVendasService.importarArquivo(arquivo, nome, false,
+                    ProgressoImportacao.NENHUM, true);
+            mover(arquivo, DIRETORIO_PROCESSADOS);
+            logger.info("Arquivo {} do diretório de entrada importado ({}): {} linhas",
+                    nome, resultado.status(), resultado.linhasProcessadas());
+        } catch (Exception e) {
+            logger.error("Falha ao importar {} do diretório de entrada: {}", nome, e.getMessage(), e);
+            Path destino = mover(arquivo, DIRETORIO_FALHAS);
+            if (destino != null) {
+                registrarErro(destino, e);
+            }
+        } finally {
+            emProcessamento.remove(arquivo);
+        }
+    }
+
+    /**
+     * Um arquivo de mesmo nome já presente no destino não é sobrescrito; o novo recebe a data
+     * e hora como sufixo.
+     */
+    private Path mover(Path arquivo, String subdiretorio) {
+        Path destino = diretorio.resolve(subdiretorio).resolve(arquivo.getFileName());
+        if (Files.exists(destino)) {
+            destino = destino.resolveSibling(arquivo.getFileName() + "." + LocalDateTime.now().format(FORMATO_SUFIXO));
+        }
+
+        try {
+            return Files.move(arquivo, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Não foi possível mover {} para {}: {}", arquivo, destino, e.getMessage());
+            return null;
+        }
+    }
+
+    private void registrarErro(Path arquivo, Exception erro) {
+        try {
+            Files.writeString(arquivo.resolveSibling(arquivo.getFileName() + ".erro.txt"),
+                    String.valueOf(erro.getMessage()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Não foi possível gravar o motivo da falha de {}: {}", arquivo, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (observador != null) {
+            observador.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Erro ao encerrar a observação do diretório de entrada: {}", e.getMessage());
+            }
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Último tamanho e data de modificação vistos de um arquivo, e desde quando estão iguais.
+     */
+    private static final class Observacao {
+
+        private long tamanho = -1;
+        private long modificadoEm = -1;
+        private long inalteradoDesde;
+
+        boolean estavel(long tamanhoAtual, long modificadoEmAtual, long estabilidadeMs) {
+            long agora = System.currentTimeMillis();
+            if (tamanhoAtual != tamanho || modificadoEmAtual != modificadoEm) {
+                tamanho = tamanhoAtual;
+                modificadoEm = modificadoEmAtual;
+                inalteradoDesde = agora;
+                return false;
+            }
+            return agora - inalteradoDesde >= estabilidadeMs;
+        }
+    }
+}
@@ -1,65 +1,36 @@
 package com.recode.hanami.service;
 
-import com.recode.hanami.entities.Produto;
-import com.recode.hanami.entities.Venda;
+import com.recode.hanami.dto.ContagemGrupoDTO;
+import com.recode.hanami.dto.TotaisFinanceirosDTO;
+import com.recode.hanami.dto.TotaisVendasDTO;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Métricas calculadas sobre os totais agregados pelo banco
+ * ({@link com.recode.hanami.repository.ResumoVendaRepository}).
+ */
 @Service
 public class CalculadoraMetricasService {
 
-    public Double calcularCustoTotalVenda(Venda venda) {
-        Produto produto = venda.getProduto();
-
-        if (produto == null || venda.getQuantidade() == null) {
-            return 0.0;
-        }
-
-        double precoUnitario = produto.getPrecoUnitario() != null ? produto.getPrecoUnitario() : 0.0;
-        double margem = produto.getMargemLucro() != null ? produto.getMargemLucro() : 0.0;
-        int quantidade = venda.getQuantidade();
-
-        if (margem == -1.0) return 0.0;
-
-        double custoUnitarioEstimado = precoUnitario / (1 + margem);
-
-        return custoUnitarioEstimado * quantidade;
-    }
-
-    public Double calcularTotalVendas(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
-            return 0.0;
-        }
-        double soma = vendas.stream()
-                .mapToDouble(v -> v.getValorFinal() != null ? v.getValorFinal() : 0.0)
-                .sum();
-
-        return arredondar(soma);
+    public Double calcularTotalVendas(TotaisVendasDTO totais) {
+        return arredondar(totais.receita());
     }
 
-    public Integer calcularNumeroTransacoes(List<Venda> vendas) {
-        if (vendas == null) {
-            return 0;
-        }
-        return vendas.size();
+    public Integer calcularNumeroTransacoes(TotaisVendasDTO totais) {
+        return Math.toIntExact(totais.transacoes());
     }
 
-    public Double calcularMediaPorTransacao(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
+    public Double calcularMediaPorTransacao(TotaisVendasDTO totais) {
+        if (totais.transacoes() == 0) {
             return 0.0;
         }
-
-        Double total = calcularTotalVendas(vendas);
-        Integer quantidade = calcularNumeroTransacoes(vendas);
-
-        if (quantidade == 0) return 0.0;
-
-        return arredondar(total / quantidade);
+        return arredondar(calcularTotalVendas(totais) / totais.transacoes());
     }
 
     public Double arredondar(Double valor) {
@@ -69,95 +40,38 @@ public class CalculadoraMetricasService {
         return bd.doubleValue();
     }
 
-    public Double calcularCustoTotalGeral(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) return 0.0;
-
-        double somaCustos = vendas.stream()
-                .mapToDouble(this::calcularCustoTotalVenda) // Reusa a lógica unitária
-                .sum();
-
-        return arredondar(somaCustos);
+    public Double calcularCustoTotalGeral(TotaisFinanceirosDTO totais) {
+        return arredondar(totais.custo());
     }
 
-    public Double calcularLucroBrutoGeral(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) return 0.0;
-
-        double receitaTotal = vendas.stream()
-                .mapToDouble(v -> v.getValorFinal() != null ? v.getValorFinal() : 0.0)
-                .sum();
-
-        double custoTotal = vendas.stream()
-                .mapToDouble(this::calcularCustoTotalVenda)
-                .sum();
-
-        return arredondar(receitaTotal - custoTotal);
+    public Double calcularLucroBrutoGeral(TotaisFinanceirosDTO totais) {
+        return arredondar(totais.receita() - totais.custo());
     }
 
-    public String calcularFormaPagamentoMaisUtilizada(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
-            return "N/A";
-        }
-
-        Map<String, Long> contagemFormasPagamento = vendas.stream()
-                .collect(Collectors.groupingBy(
-                        v -> v.getFormaPagamento() != null ? v.getFormaPagamento() : "Não informado",
-                        Collectors.counting()
-                ));
-
-        return contagemFormasPagamento.entrySet().stream()
+    /**
+     * Valor mais frequente entre as contagens de forma de pagamento ou de canal; nulos contam como
+     * "Não informado". Em caso de empate vale o primeiro na ordem do {@link HashMap}.
+     */
+    public String calcularMaisUtilizado(List<ContagemGrupoDTO> contagens) {
+        return contarPorValor(contagens).entrySet().stream()
                 .max(Map.Entry.comparingByValue())
                 .map(Map.Entry::getKey)
                 .orElse("N/A");
     }
 
-    public String calcularFormaPagamentoMenosUtilizada(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
-            return "N/A";
-        }
-
-        Map<String, Long> contagemFormasPagamento = vendas.stream()
-                .collect(Collectors.groupingBy(
-                        v -> v.getFormaPagamento() != null ? v.getFormaPagamento() : "Não informado",
-                        Collectors.counting()
-                ));
-
-        return contagemFormasPagamento.entrySet().stream()
+    public String calcularMenosUtilizado(List<ContagemGrupoDTO> contagens) {
+        return contarPorValor(contagens).entrySet().stream()
                 .min(Map.Entry.comparingByValue())
                 .map(Map.Entry::getKey)
                 .orElse("N/A");
     }
 
-    public String calcularCanalVendasMaisUtilizado(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
-            return "N/A";
-        }
-
-        Map<String, Long> contagemCanais = vendas.stream()
-                .collect(Collectors.groupingBy(
-                        v -> v.getCanalVenda() != null ? v.getCanalVenda() : "Não informado",
-                        Collectors.counting()
-                ));
-
-        return contagemCanais.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("N/A");
-    }
-
-    public String calcularCanalVendasMenosUtilizado(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
-            return "N/A";
+    private Map<String, Long> contarPorValor(List<ContagemGrupoDTO> contagens) {
+        Map<String, Long> contagemPorValor = new HashMap<>();
+        for (ContagemGrupoDTO contagem : contagens) {
+            String valor = contagem.grupo() != null ? contagem.grupo() : "Não informado";
+            contagemPorValor.merge(valor, contagem.contagem(), Long::sum);
         }
-
-        Map<String, Long> contagemCanais = vendas.stream()
-                .collect(Collectors.groupingBy(
-                        v -> v.getCanalVenda() != null ? v.getCanalVenda() : "Não informado",
-                        Collectors.counting()
-                ));
-
-        return contagemCanais.entrySet().stream()
-                .min(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("N/A");
+        return contagemPorValor;
     }
-}
\ No newline at end of file
+}
@@ -1,79 +1,94 @@
 package com.recode.hanami.service;
 
+import com.recode.hanami.dto.ContagemGrupoDTO;
+import com.recode.hanami.dto.ContagemIdadeDTO;
 import com.recode.hanami.dto.DistribuicaoClientesDTO;
 import com.recode.hanami.dto.ItemDistribuicaoDTO;
 import com.recode.hanami.dto.MetricasRegiaoDTO;
-import com.recode.hanami.entities.Venda;
+import com.recode.hanami.dto.TotaisGrupoDTO;
+import com.recode.hanami.repository.ResumoVendaRepository;
+import com.recode.hanami.repository.VendaRepository;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Desempenho por região ou estado e perfil dos clientes, a partir de contagens e somas agrupadas
+ * pelo banco. Só as regiões vêm do resumo de vendas; estado e perfil dependem do cliente e são
+ * agrupados a partir das vendas, no banco ou no {@link ArmazemColunarVendas} quando habilitado.
+ */
 @Service
 public class CalculosDemografiaRegiao {
 
-    public Map<String, MetricasRegiaoDTO> calcularMetricasPorRegiao(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
-            return new LinkedHashMap<>();
-        }
+    private final VendaRepository vendaRepository;
+    private final ResumoVendaRepository resumoVendaRepository;
+    private final ArmazemColunarVendas armazemColunarVendas;
 
-        return vendas.stream()
-                .filter(venda -> venda.getRegiao() != null && !venda.getRegiao().trim().isEmpty())
-                .collect(Collectors.groupingBy(
-                        Venda::getRegiao,
-                        LinkedHashMap::new,
-                        Collectors.collectingAndThen(
-                                Collectors.toList(),
-                                this::calcularMetricas
-                        )
-                ));
+    public CalculosDemografiaRegiao(VendaRepository vendaRepository,
+                                    ResumoVendaRepository resumoVendaRepository,
+                                    ArmazemColunarVendas armazemColunarVendas) {
+        this.vendaRepository = vendaRepository;
+        this.resumoVendaRepository = resumoVendaRepository;
+        this.armazemColunarVendas = armazemColunarVendas;
     }
 
-    public Map<String, MetricasRegiaoDTO> calcularMetricasPorEstado(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
-            return new LinkedHashMap<>();
-        }
-
-        return vendas.stream()
-                .filter(venda -> venda.getCliente() != null
-                        && venda.getCliente().getEstadoCliente() != null
-                        && !venda.getCliente().getEstadoCliente().trim().isEmpty())
-                .collect(Collectors.groupingBy(
-                        venda -> venda.getCliente().getEstadoCliente().toUpperCase(),
-                        LinkedHashMap::new,
-                        Collectors.collectingAndThen(
-                                Collectors.toList(),
-                                this::calcularMetricas
-                        )
-                ));
+    /**
+     * Regiões em ordem alfabética; vendas sem região são ignoradas.
+     */
+    public Map<String, MetricasRegiaoDTO> calcularMetricasPorRegiao() {
+        return calcularMetricasPorRegiao(resumoVendaRepository.totalizarPorRegiao());
     }
 
-    private MetricasRegiaoDTO calcularMetricas(List<Venda> vendasRegiao) {
-        long totalTransacoes = vendasRegiao.size();
+    /**
+     * Métricas a partir de totais por região já calculados, mantida a ordem recebida.
+     */
+    public Map<String, MetricasRegiaoDTO> calcularMetricasPorRegiao(List<TotaisGrupoDTO> totaisPorRegiao) {
+        return calcularMetricas(totaisPorRegiao);
+    }
 
-        double receitaTotal = vendasRegiao.stream()
-                .mapToDouble(v -> v.getValorFinal() != null ? v.getValorFinal() : 0.0)
-                .sum();
+    /**
+     * Métricas das vendas a clientes do estado informado, sem diferenciar maiúsculas de minúsculas.
+     */
+    public Map<String, MetricasRegiaoDTO> calcularMetricasPorEstado(String estado) {
+        return calcularMetricas(armazemColunarVendas.isDisponivel()
+                ? armazemColunarVendas.totalizarPorEstado(estado)
+                : vendaRepository.totalizarPorEstado(estado));
+    }
 
-        int quantidadeVendida = vendasRegiao.stream()
-                .mapToInt(v -> v.getQuantidade() != null ? v.getQuantidade() : 0)
-                .sum();
+    private Map<String, MetricasRegiaoDTO> calcularMetricas(List<TotaisGrupoDTO> totaisPorGrupo) {
+        Map<String, MetricasRegiaoDTO> metricas = new LinkedHashMap<>();
+        for (TotaisGrupoDTO totais : totaisPorGrupo) {
+            metricas.put(totais.grupo(), calcularMetricas(totais));
+        }
+        return metricas;
+    }
 
+    private MetricasRegiaoDTO calcularMetricas(TotaisGrupoDTO totais) {
+        long totalTransacoes = totais.transacoes();
+        double receitaTotal = totais.receita();
         double mediaValorTransacao = totalTransacoes > 0 ? receitaTotal / totalTransacoes : 0.0;
 
         return new MetricasRegiaoDTO(
                 totalTransacoes,
                 arredondar(receitaTotal),
-                quantidadeVendida,
+                (int) totais.quantidade(),
                 arredondar(mediaValorTransacao)
         );
     }
 
 
-    public DistribuicaoClientesDTO calcularDistribuicaoClientes(List<Venda> vendas) {
-        if (vendas == null || vendas.isEmpty()) {
+    /**
+     * Clientes distintos com ao menos uma venda, por gênero, faixa etária e cidade. Os percentuais
+     * são sobre o total de clientes com vendas; as cidades vêm da maior para a menor contagem.
+     */
+    public DistribuicaoClientesDTO calcularDistribuicaoClientes() {
+        boolean colunar = armazemColunarVendas.isDisponivel();
+        long totalClientes = colunar ? armazemColunarVendas.contarClientesComVendas() : vendaRepository.contarClientesComVendas();
+        if (totalClientes == 0) {
             return new DistribuicaoClientesDTO(
                     new LinkedHashMap<>(),
                     new LinkedHashMap<>(),
@@ -81,103 +96,54 @@ public class CalculosDemografiaRegiao {
             );
         }
 
-        long totalClientes = vendas.stream()
-                .map(v -> v.getCliente() != null ? v.getCliente().getId() : null)
-                .filter(Objects::nonNull)
-                .distinct()
-                .count();
-
-        // Distribuição por gênero (contando clientes únicos)
-        Map<String, Long> contagemGenero = vendas.stream()
-                .filter(v -> v.getCliente() != null && v.getCliente().getGeneroCliente() != null)
-                .collect(Collectors.groupingBy(
-                        v -> v.getCliente().getGeneroCliente(),
-                        Collectors.mapping(
-                                v -> v.getCliente().getId(),
-                                Collectors.collectingAndThen(Collectors.toSet(), Set::size)
-                        )
-                ))
-                .entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> Long.valueOf(e.getValue()),
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
-
-        Map<String, ItemDistribuicaoDTO> distribuicaoGenero = contagemGenero.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> new ItemDistribuicaoDTO(
-                                entry.getValue(),
-                                calcularPercentual(entry.getValue(), totalClientes)
-                        ),
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
-
-        // Distribuição por faixa etária (contando clientes únicos)
-        Map<String, Long> contagemFaixaEtaria = vendas.stream()
-                .filter(v -> v.getCliente() != null && v.getCliente().getIdadeCliente() != null)
-                .collect(Collectors.groupingBy(
-                        v -> classificarFaixaEtaria(v.getCliente().getIdadeCliente()),
-                        Collectors.mapping(
-                                v -> v.getCliente().getId(),
-                                Collectors.collectingAndThen(Collectors.toSet(), Set::size)
-                        )
-                ))
-                .entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> Long.valueOf(e.getValue()),
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
-
-        Map<String, ItemDistribuicaoDTO> distribuicaoFaixaEtaria = contagemFaixaEtaria.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> new ItemDistribuicaoDTO(
-                                entry.getValue(),
-                                calcularPercentual(entry.getValue(), totalClientes)
-                        ),
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
-
-        // Distribuição por cidade (contando clientes únicos)
-        Map<String, Long> contagemCidade = vendas.stream()
-                .filter(v -> v.getCliente() != null && v.getCliente().getCidadeCliente() != null)
-                .collect(Collectors.groupingBy(
-                        v -> v.getCliente().getCidadeCliente(),
-                        Collectors.mapping(
-                                v -> v.getCliente().getId(),
-                                Collectors.collectingAndThen(Collectors.toSet(), Set::size)
-                        )
-                ))
-                .entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> Long.valueOf(e.getValue()),
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
-
-        Map<String, ItemDistribuicaoDTO> distribuicaoCidade = contagemCidade.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> new ItemDistribuicaoDTO(
-                                entry.getValue(),
-                                calcularPercentual(entry.getValue(), totalClientes)
-                        ),
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
+        // Cada cliente tem uma única idade, então somar as idades de uma faixa não conta ninguém duas vezes
+        Map<String, Long> contagemFaixaEtaria = new HashMap<>();
+        List<ContagemIdadeDTO> contagensIdade =
+                colunar ? armazemColunarVendas.contarClientesPorIdade() : vendaRepository.contarClientesPorIdade();
+        for (ContagemIdadeDTO contagem : contagensIdade) {
+            contagemFaixaEtaria.merge(classificarFaixaEtaria(contagem.idade()), contagem.clientes(), Long::sum);
+        }
+
+        List<ContagemGrupoDTO> contagensGenero =
+                colunar ? armazemColunarVendas.contarClientesPorGenero() : vendaRepository.contarClientesPorGenero();
+        List<ContagemGrupoDTO> contagensCidade =
+                colunar ? armazemColunarVendas.contarClientesPorCidade() : vendaRepository.contarClientesPorCidade();
+
+        Map<String, ItemDistribuicaoDTO> distribuicaoGenero =
+                calcularDistribuicao(contarPorValor(contagensGenero), totalClientes, false);
+        Map<String, ItemDistribuicaoDTO> distribuicaoFaixaEtaria =
+                calcularDistribuicao(contagemFaixaEtaria, totalClientes, false);
+        Map<String, ItemDistribuicaoDTO> distribuicaoCidade =
+                calcularDistribuicao(contarPorValor(contagensCidade), totalClientes, true);
 
         return new DistribuicaoClientesDTO(distribuicaoGenero, distribuicaoFaixaEtaria, distribuicaoCidade);
     }
 
+    private Map<String, Long> contarPorValor(List<ContagemGrupoDTO> contagens) {
+        Map<String, Long> contagemPorValor = new HashMap<>();
+        for (ContagemGrupoDTO contagem : contagens) {
+            contagemPorValor.put(contagem.grupo(), contagem.contagem());
+        }
+        return contagemPorValor;
+    }
+
+    private Map<String, ItemDistribuicaoDTO> calcularDistribuicao(Map<String, Long> contagens, long totalClientes,
+                                                                  boolean ordenarPorContagem) {
+        Stream<Map.Entry<String, Long>> entradas = contagens.entrySet().stream();
+        if (ordenarPorContagem) {
+            entradas = entradas.sorted(Map.Entry.<String, Long>comparingByValue().reversed());
+        }
+        return entradas.collect(Collectors.toMap(
+                Map.Entry::getKey,
+                entry -> new ItemDistribuicaoDTO(
+                        entry.getValue(),
+                        calcularPercentual(entry.getValue(), totalClientes)
+                ),
+                (a, b) -> a,
+                LinkedHashMap::new
+        ));
+    }
+
 
     private String classificarFaixaEtaria(Integer idade) {
         if (idade == null) return "Não informado";
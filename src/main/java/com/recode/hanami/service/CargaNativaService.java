@@ -0,0 +1,392 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.exception.DadosInvalidosException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Importação por carga nativa do banco, para arquivos muito grandes.
+ * <p>
+ * O CSV é lido e normalizado pelo {@link CsvService} como em qualquer importação e gravado em
+ * um arquivo intermediário, que é carregado na tabela {@code importacao_staging} pelo carregador
+ * do banco ({@code LOAD DATA LOCAL INFILE} no MySQL, {@code CSVREAD} no H2). Em seguida clientes,
+ * produtos, vendedores e vendas são atualizados com um comando por tabela, mantendo para cada ID
+ * a última ocorrência do arquivo, como na importação pelo ORM. Linhas idênticas às já gravadas
+ * não são reescritas, e a resposta informa quantas vendas foram inseridas, atualizadas ou
+ * mantidas sem alteração. O resumo dos relatórios ({@link ResumoVendasService}) recebe os
+ * valores anteriores e os novos das vendas da carga, e o {@link ArmazemColunarVendas} os
+ * clientes e as vendas gravados.
+ * <p>
+ * É usada para arquivos a partir de {@code tamanhoMinimo} quando habilitada, ou para todos os
+ * arquivos no modo de gravação {@code upsert}: uploads com e sem streaming, entradas de ZIP e
+ * pasta de entrada. Não é usada no modo de commit em lotes, que depende do ORM para isolar as
+ * linhas rejeitadas, nem na importação NDJSON, gravada em lotes pelo ORM.
+ * <p>
+ * Deve ser chamada dentro de uma transação: a carga, a mesclagem e a limpeza da staging são
+ * confirmadas ou desfeitas juntas. No MySQL a URL de conexão precisa de
+ * {@code allowLoadLocalInfileInPath} apontando para o diretório de spool e o servidor de
+ * {@code local_infile=ON}.
+ */
+@Service
+public class CargaNativaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CargaNativaService.class);
+
+    private static final String TABELA_STAGING = "importacao_staging";
+
+    private static final List<String> COLUNAS_ARQUIVO = List.of(
+            "id_transacao", "data_venda", "valor_final", "subtotal", "desconto_percent", "canal_venda",
+            "forma_pagamento", "cliente_id", "nome_cliente", "idade_cliente", "genero_cliente", "cidade_cliente",
+            "estado_cliente", "renda_estimada", "produto_id", "nome_produto", "categoria", "marca",
+            "preco_unitario", "quantidade", "margem_lucro", "regiao", "status_entrega", "tempo_entrega_dias",
+            "vendedor_id");
+
+    private static final List<String> COLUNAS_CLIENTES = List.of(
+            "cliente_id", "nome_cliente", "idade_cliente", "genero_cliente", "cidade_cliente", "estado_cliente",
+            "renda_estimada");
+
+    private static final List<String> COLUNAS_PRODUTOS = List.of(
+            "produto_id", "nome_produto", "categoria", "marca", "preco_unitario", "margem_lucro");
+
+    private static final List<String> COLUNAS_VENDEDORES = List.of("vendedor_id");
+
+    private static final List<String> COLUNAS_VENDAS = List.of(
+            "id_transacao", "data_venda", "valor_final", "subtotal", "desconto_percent", "quantidade",
+            "canal_venda", "forma_pagamento", "regiao", "status_entrega", "tempo_entrega_dias",
+            "cliente_id", "produto_id", "vendedor_id");
+
+    private static final String VALOR_NULO = "NULL";
+
+    public static final String MODO_ORM = "orm";
+    public static final String MODO_UPSERT = "upsert";
+
+    private final CsvService csvService;
+    private final SpoolImportacao spoolImportacao;
+    private final CacheDimensoesCompartilhado cacheCompartilhado;
+    private final IndiceVendasService indiceVendasService;
+    private final ResumoVendasService resumoVendasService;
+    private final ArmazemColunarVendas armazemColunarVendas;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitada;
+    private final boolean modoUpsert;
+    private final long tamanhoMinimo;
+    private final int tamanhoLote;
+    private volatile Banco banco;
+
+    public CargaNativaService(CsvService csvService,
+                              SpoolImportacao spoolImportacao,
+                              CacheDimensoesCompartilhado cacheCompartilhado,
+                              IndiceVendasService indiceVendasService,
+                              ResumoVendasService resumoVendasService,
+                              ArmazemColunarVendas armazemColunarVendas,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${hanami.importacao.carga-nativa.habilitada:false}") boolean habilitada,
+                              @Value("${hanami.importacao.carga-nativa.tamanho-minimo:67108864}") long tamanhoMinimo,
+                              @Value("${hanami.importacao.modo-gravacao:" + MODO_ORM + "}") String modoGravacao,
+                              @Value("${hanami.importacao.tamanho-lote:1000}") int tamanhoLote) {
+        this.csvService = csvService;
+        this.spoolImportacao = spoolImportacao;
+        this.cacheCompartilhado = cacheCompartilhado;
+        this.indiceVendasService = indiceVendasService;
+        this.resumoVendasService = resumoVendasService;
+        this.armazemColunarVendas = armazemColunarVendas;
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitada = habilitada;
+        this.tamanhoMinimo = tamanhoMinimo;
+        this.tamanhoLote = tamanhoLote;
+
+        if (!MODO_ORM.equals(modoGravacao) && !MODO_UPSERT.equals(modoGravacao)) {
+            throw new IllegalArgumentException("Modo de gravação da importação desconhecido: " + modoGravacao);
+        }
+        this.modoUpsert = MODO_UPSERT.equals(modoGravacao);
+    }
+
+    public boolean deveUsar(long tamanhoArquivo) {
+        return modoUpsert || (habilitada && tamanhoArquivo >= tamanhoMinimo);
+    }
+
+    /**
+     * A staging é criada na inicialização, fora de transação, porque DDL confirma a transação
+     * corrente tanto no MySQL quanto no H2.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void criarTabelaStaging() {
+        if (!habilitada && !modoUpsert) {
+            return;
+        }
+
+        String colunas = COLUNAS_ARQUIVO.stream()
+                .map(coluna -> coluna + " " + tipoColuna(coluna))
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABELA_STAGING
+                + " (id_carga VARCHAR(36) NOT NULL, seq BIGINT NOT NULL, " + colunas
+                + ", PRIMARY KEY (id_carga, seq))");
+        logger.info("Carga nativa habilitada para {} ({})",
+                modoUpsert ? "todos os arquivos" : "arquivos a partir de " + tamanhoMinimo + " bytes", detectarBanco());
+    }
+
+    /**
+     * Importa o CSV lido do fluxo. O fluxo não é fechado por este método. As contagens de
+     * inseridas, atualizadas e inalteradas consideram uma vez cada {@code id_transacao}.
+     */
+    public ImportacaoResponseDTO carregar(InputStream conteudo, ProgressoImportacao progresso) {
+        String idCarga = UUID.randomUUID().toString();
+        Path arquivoStaging = spoolImportacao.criarArquivo("staging-");
+
+        try {
+            int totalLinhas = gravarArquivoStaging(conteudo, arquivoStaging, progresso);
+            long inicio = System.nanoTime();
+
+            carregarStaging(arquivoStaging, idCarga);
+            ContagemVendas contagem = contarVendas(idCarga);
+            mesclar("clientes", COLUNAS_CLIENTES, idCarga);
+            mesclar("produtos", COLUNAS_PRODUTOS, idCarga);
+            mesclar("vendedores", COLUNAS_VENDEDORES, idCarga);
+            String idsCarga = "SELECT id_transacao FROM " + TABELA_STAGING + " WHERE id_carga = ?";
+            resumoVendasService.registrarRemocao(idsCarga, idCarga);
+            mesclar("vendas", COLUNAS_VENDAS, idCarga);
+            resumoVendasService.registrarInclusao(idsCarga, idCarga);
+            armazemColunarVendas.registrarGravados("SELECT cliente_id FROM " + TABELA_STAGING + " WHERE id_carga = ?",
+                    idsCarga, idCarga);
+            indiceVendasService.registrar(jdbcTemplate.queryForList(
+                    "SELECT id_transacao FROM " + TABELA_STAGING + " WHERE id_carga = ?", String.class, idCarga));
+            jdbcTemplate.update("DELETE FROM " + TABELA_STAGING + " WHERE id_carga = ?", idCarga);
+
+            cacheCompartilhado.limparAposCommit();
+            progresso.linhasPersistidas(totalLinhas);
+            logger.info("Carga nativa de {} linhas concluída em {} ms: {} vendas inseridas, {} atualizadas, {} inalteradas",
+                    totalLinhas, (System.nanoTime() - inicio) / 1_000_000,
+                    contagem.inseridas(), contagem.atualizadas(), contagem.inalteradas());
+            return new ImportacaoResponseDTO("sucesso", totalLinhas, null, null, null,
+                    contagem.inseridas(), contagem.atualizadas(), contagem.inalteradas());
+        } finally {
+            spoolImportacao.excluir(arquivoStaging);
+        }
+    }
+
+    private int gravarArquivoStaging(InputStream conteudo, Path arquivoStaging, ProgressoImportacao progresso) {
+        try (BufferedWriter writer = Files.newBufferedWriter(arquivoStaging, StandardCharsets.UTF_8)) {
+            writer.write("seq," + String.join(",", COLUNAS_ARQUIVO));
+            writer.write('\n');
+
+            long[] seq = {0};
+            return csvService.processarEmLotes(conteudo, tamanhoLote, lote -> {
+                try {
+                    for (DadosArquivoDTO dto : lote) {
+                        validar(dto);
+                        escreverLinha(writer, ++seq[0], dto);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                progresso.linhasLidas(lote.size());
+            });
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Erro ao gravar arquivo de carga: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mesmas validações da conversão para entidades em {@link ProcessamentoVendasService}.
+     */
+    private void validar(DadosArquivoDTO dto) {
+        if (vazio(dto.clienteId())) {
+            throw new DadosInvalidosException("ID do cliente não pode ser nulo ou vazio");
+        }
+        if (vazio(dto.produtoId())) {
+            throw new DadosInvalidosException("ID do produto não pode ser nulo ou vazio");
+        }
+        if (vazio(dto.vendedorId())) {
+            throw new DadosInvalidosException("ID do vendedor não pode ser nulo ou vazio");
+        }
+        if (vazio(dto.idTransacao())) {
+            throw new DadosInvalidosException("ID da transação não pode ser nulo ou vazio");
+        }
+    }
+
+    private boolean vazio(String valor) {
+        return valor == null || valor.trim().isEmpty();
+    }
+
+    private void escreverLinha(BufferedWriter writer, long seq, DadosArquivoDTO dto) throws IOException {
+        writer.write(Long.toString(seq));
+        escreverTexto(writer, dto.idTransacao());
+        escreverValor(writer, dto.dataVenda());
+        escreverValor(writer, dto.valorFinal());
+        escreverValor(writer, dto.subtotal());
+        escreverValor(writer, dto.descontoPercent());
+        escreverTexto(writer, dto.canalVenda());
+        escreverTexto(writer, dto.formaPagamento());
+        escreverTexto(writer, dto.clienteId());
+        escreverTexto(writer, dto.nomeCliente());
+        escreverValor(writer, dto.idadeCliente());
+        escreverTexto(writer, dto.generoCliente());
+        escreverTexto(writer, dto.cidadeCliente());
+        escreverTexto(writer, dto.estadoCliente());
+        escreverValor(writer, dto.rendaEstimada());
+        escreverTexto(writer, dto.produtoId());
+        escreverTexto(writer, dto.nomeProduto());
+        escreverTexto(writer, dto.categoria());
+        escreverTexto(writer, dto.marca());
+        escreverValor(writer, dto.precoUnitario());
+        escreverValor(writer, dto.quantidade());
+        escreverValor(writer, dto.margemLucro());
+        escreverTexto(writer, dto.regiao());
+        escreverTexto(writer, dto.statusEntrega());
+        escreverValor(writer, dto.tempoEntregaDias());
+        escreverTexto(writer, dto.vendedorId());
+        writer.write('\n');
+    }
+
+    /**
+     * Textos vão sempre entre aspas, para que só o {@code NULL} sem aspas seja lido como nulo.
+     */
+    private void escreverTexto(BufferedWriter writer, String valor) throws IOException {
+        writer.write(',');
+        if (valor == null) {
+            writer.write(VALOR_NULO);
+            return;
+        }
+        writer.write('"');
+        writer.write(valor.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Números usam {@link Double#toString}, que preserva o valor exato do double lido.
+     */
+    private void escreverValor(BufferedWriter writer, Object valor) throws IOException {
+        writer.write(',');
+        writer.write(valor == null ? VALOR_NULO : valor.toString());
+    }
+
+    private void carregarStaging(Path arquivoStaging, String idCarga) {
+        String colunas = String.join(", ", COLUNAS_ARQUIVO);
+
+        String caminho = arquivoStaging.toAbsolutePath().toString().replace("'", "''");
+
+        if (detectarBanco() == Banco.MYSQL) {
+            caminho = caminho.replace("\\", "\\\\");
+            jdbcTemplate.execute("LOAD DATA LOCAL INFILE '" + caminho + "' INTO TABLE " + TABELA_STAGING
+                    + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''"
+                    + " LINES TERMINATED BY '\\n' IGNORE 1 LINES (seq, " + colunas + ")"
+                    + " SET id_carga = '" + idCarga + "'");
+            return;
+        }
+
+        // CSVREAD precisa do nome do arquivo como literal, não aceita parâmetro
+        jdbcTemplate.update("INSERT INTO " + TABELA_STAGING + " (id_carga, seq, " + colunas + ")"
+                + " SELECT ?, seq, " + colunas + " FROM CSVREAD('" + caminho + "', NULL, 'charset=UTF-8 null=" + VALOR_NULO + "')",
+                idCarga);
+    }
+
+    private record ContagemVendas(int inseridas, int atualizadas, int inalteradas) { }
+
+    /**
+     * Classifica as vendas da carga em relação ao que já está gravado, antes da mesclagem.
+     */
+    private ContagemVendas contarVendas(String idCarga) {
+        String chave = COLUNAS_VENDAS.get(0);
+        String sql = "SELECT COUNT(*) AS total,"
+                + " SUM(CASE WHEN t." + chave + " IS NULL THEN 1 ELSE 0 END) AS inseridas,"
+                + " SUM(CASE WHEN " + iguais(COLUNAS_VENDAS, "t", "n") + " THEN 1 ELSE 0 END) AS inalteradas"
+                + " FROM (" + ultimaOcorrencia(COLUNAS_VENDAS) + ") n"
+                + " LEFT JOIN vendas t ON t." + chave + " = n." + chave;
+
+        return jdbcTemplate.queryForObject(sql, (rs, linha) -> {
+            int total = rs.getInt("total");
+            int inseridas = rs.getInt("inseridas");
+            int inalteradas = rs.getInt("inalteradas");
+            return new ContagemVendas(inseridas, total - inseridas - inalteradas, inalteradas);
+        }, idCarga, idCarga);
+    }
+
+    /**
+     * Insere ou atualiza a tabela com a última ocorrência de cada ID na staging. Linhas iguais
+     * às já gravadas ficam de fora, para não gerar escrita.
+     */
+    private void mesclar(String tabela, List<String> colunas, String idCarga) {
+        String chave = colunas.get(0);
+        String alteradas = ultimaOcorrencia(colunas)
+                + " AND NOT EXISTS (SELECT 1 FROM " + tabela + " t WHERE t." + chave + " = s." + chave
+                + " AND " + iguais(colunas, "t", "s") + ")";
+
+        String sql;
+        if (detectarBanco() == Banco.MYSQL) {
+            String atualizacao = colunas.stream()
+                    .map(coluna -> coluna + " = novo." + coluna)
+                    .collect(Collectors.joining(", "));
+            sql = "INSERT INTO " + tabela + " (" + String.join(", ", colunas) + ")"
+                    + " SELECT * FROM (" + alteradas + ") AS novo"
+                    + " ON DUPLICATE KEY UPDATE " + atualizacao;
+        } else {
+            sql = "MERGE INTO " + tabela + " (" + String.join(", ", colunas) + ") KEY (" + chave + ") " + alteradas;
+        }
+
+        long inicio = System.nanoTime();
+        int linhas = jdbcTemplate.update(sql, idCarga, idCarga);
+        logger.debug("Carga nativa: {} linhas mescladas em {} ({} ms)", linhas, tabela, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Última ocorrência de cada ID na staging, com os parâmetros {@code id_carga} duas vezes.
+     */
+    private String ultimaOcorrencia(List<String> colunas) {
+        String chave = colunas.get(0);
+        String selecao = colunas.stream().map(coluna -> "s." + coluna).collect(Collectors.joining(", "));
+        return "SELECT " + selecao + " FROM " + TABELA_STAGING + " s"
+                + " JOIN (SELECT MAX(seq) AS seq FROM " + TABELA_STAGING + " WHERE id_carga = ? GROUP BY " + chave + ") u"
+                + " ON u.seq = s.seq WHERE s.id_carga = ?";
+    }
+
+    /**
+     * Igualdade que trata nulos como iguais. No MySQL os textos são comparados byte a byte,
+     * porque a collation padrão ignora maiúsculas e acentos.
+     */
+    private String iguais(List<String> colunas, String atual, String novo) {
+        boolean mysql = detectarBanco() == Banco.MYSQL;
+        return colunas.stream()
+                .map(coluna -> {
+                    if (!mysql) {
+                        return atual + "." + coluna + " IS NOT DISTINCT FROM " + novo + "." + coluna;
+                    }
+                    String binario = tipoColuna(coluna).startsWith("VARCHAR") ? "BINARY " : "";
+                    return binario + atual + "." + coluna + " <=> " + binario + novo + "." + coluna;
+                })
+                .collect(Collectors.joining(" AND "));
+    }
+
+    private Banco detectarBanco() {
+        if (banco == null) {
+            banco = Banco.detectar(jdbcTemplate);
+        }
+        return banco;
+    }
+
+    private String tipoColuna(String coluna) {
+        return switch (coluna) {
+            case "data_venda" -> "DATE";
+            case "valor_final", "subtotal", "desconto_percent", "renda_estimada", "preco_unitario", "margem_lucro" -> "DOUBLE";
+            case "idade_cliente", "quantidade", "tempo_entrega_dias" -> "INT";
+            default -> "VARCHAR(1024)";
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.recode.hanami.service;
+
+/**
+ * Classes de custo das requisições HTTP, cada uma com seu próprio limite de concorrência e fila
+ * (ver {@link ControleAdmissaoService}). Os valores são os padrões de
+ * {@code hanami.admissao.<chave>.*}.
+ */
+public enum ClasseCusto {
+
+    /** Importações síncronas: upload de CSV, Arrow e ZIP, e finalização de upload retomável. */
+    IMPORTACAO("importacao", 2, 4, 30_000, 30),
+
+    /**
+     * Conexões de importação NDJSON. Ficam abertas enquanto o produtor envia e só usam o banco
+     * para confirmar cada lote; sem fila, pois uma vaga só vaga quando um produtor desconecta.
+     */
+    IMPORTACAO_NDJSON("importacao-ndjson", 4, 0, 0, 60),
+
+    /** Relatório completo (JSON ou PDF) e exportação das vendas. */
+    RELATORIO_COMPLETO("relatorio-completo", 2, 4, 10_000, 10),
+
+    /** Demais relatórios e métricas. */
+    METRICAS("metricas", 6, 24, 2_000, 2);
+
+    private final String chave;
+    private final int limitePadrao;
+    private final int filaPadrao;
+    private final long esperaMaximaMsPadrao;
+    private final long segundosParaNovaTentativaPadrao;
+
+    ClasseCusto(String chave, int limitePadrao, int filaPadrao, long esperaMaximaMsPadrao,
+                long segundosParaNovaTentativaPadrao) {
+        this.chave = chave;
+        this.limitePadrao = limitePadrao;
+        this.filaPadrao = filaPadrao;
+        this.esperaMaximaMsPadrao = esperaMaximaMsPadrao;
+        this.segundosParaNovaTentativaPadrao = segundosParaNovaTentativaPadrao;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    int getLimitePadrao() {
+        return limitePadrao;
+    }
+
+    int getFilaPadrao() {
+        return filaPadrao;
+    }
+
+    long getEsperaMaximaMsPadrao() {
+        return esperaMaximaMsPadrao;
+    }
+
+    long getSegundosParaNovaTentativaPadrao() {
+        return segundosParaNovaTentativaPadrao;
+    }
+}
@@ -0,0 +1,73 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.exception.ArquivoInvalidoException;
+import io.airlift.compress.zstd.ZstdCompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.compression.AbstractCompressionCodec;
+import org.apache.arrow.vector.compression.CompressionCodec;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compressão zstd dos buffers do Arrow com o aircompressor, já usado nos uploads {@code .csv.zst},
+ * em vez do módulo {@code arrow-compression}, que depende da biblioteca nativa do zstd.
+ * Arquivos com LZ4 não são suportados.
+ */
+final class CodecZstdArrow extends AbstractCompressionCodec {
+
+    static final CompressionCodec.Factory FABRICA = new CompressionCodec.Factory() {
+        @Override
+        public CompressionCodec createCodec(CompressionUtil.CodecType tipo) {
+            return switch (tipo) {
+                case NO_COMPRESSION -> NoCompressionCodec.INSTANCE;
+                case ZSTD -> new CodecZstdArrow();
+                default -> throw new ArquivoInvalidoException("Compressão não suportada em arquivos Arrow: " + tipo);
+            };
+        }
+
+        @Override
+        public CompressionCodec createCodec(CompressionUtil.CodecType tipo, int nivel) {
+            return createCodec(tipo);
+        }
+    };
+
+    private final ZstdCompressor compressor = new ZstdCompressor();
+    private final ZstdDecompressor descompressor = new ZstdDecompressor();
+
+    @Override
+    protected ArrowBuf doCompress(BufferAllocator alocador, ArrowBuf descompactado) {
+        int tamanho = Math.toIntExact(descompactado.writerIndex());
+        int tamanhoMaximo = compressor.maxCompressedLength(tamanho);
+        ArrowBuf compactado = alocador.buffer(CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH + tamanhoMaximo);
+
+        ByteBuffer saida = compactado.nioBuffer(CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH, tamanhoMaximo);
+        compressor.compress(descompactado.nioBuffer(0, tamanho), saida);
+        compactado.writerIndex(CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH + saida.position());
+        return compactado;
+    }
+
+    @Override
+    protected ArrowBuf doDecompress(BufferAllocator alocador, ArrowBuf compactado) {
+        long tamanhoDescompactado = readUncompressedLength(compactado);
+        ArrowBuf descompactado = alocador.buffer(tamanhoDescompactado);
+
+        ByteBuffer saida = descompactado.nioBuffer(0, Math.toIntExact(tamanhoDescompactado));
+        descompressor.decompress(compactado.nioBuffer(CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH,
+                Math.toIntExact(compactado.writerIndex() - CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH)), saida);
+        if (saida.position() != tamanhoDescompactado) {
+            descompactado.close();
+            throw new ArquivoInvalidoException("Buffer zstd do arquivo Arrow corrompido");
+        }
+        descompactado.writerIndex(tamanhoDescompactado);
+        return descompactado;
+    }
+
+    @Override
+    public CompressionUtil.CodecType getCodecType() {
+        return CompressionUtil.CodecType.ZSTD;
+    }
+}
@@ -0,0 +1,94 @@
+package com.recode.hanami.service;
+
+import java.util.Arrays;
+
+/**
+ * Colunas das vendas em arrays primitivos, que crescem conforme as linhas são adicionadas. Textos
+ * e clientes são códigos de dicionário ({@code 0} para nulo), datas são dias desde 1970-01-01 e
+ * números nulos são {@link #NULO} ou {@code NaN}.
+ */
+final class ColunasVendas {
+
+    static final int NULO = Integer.MIN_VALUE;
+
+    int tamanho;
+    String[] ids;
+    int[] clientes;
+    double[] valoresFinais;
+    int[] quantidades;
+    int[] datasVenda;
+    int[] temposEntrega;
+    int[] regioes;
+    int[] canais;
+    int[] formasPagamento;
+
+    ColunasVendas(int capacidade) {
+        ids = new String[capacidade];
+        clientes = new int[capacidade];
+        valoresFinais = new double[capacidade];
+        quantidades = new int[capacidade];
+        datasVenda = new int[capacidade];
+        temposEntrega = new int[capacidade];
+        regioes = new int[capacidade];
+        canais = new int[capacidade];
+        formasPagamento = new int[capacidade];
+    }
+
+    int adicionar(String id, int cliente, double valorFinal, int quantidade, int dataVenda, int tempoEntrega,
+                  int regiao, int canal, int formaPagamento) {
+        if (tamanho == ids.length) {
+            crescer();
+        }
+        int linha = tamanho++;
+        ids[linha] = id;
+        definir(linha, cliente, valorFinal, quantidade, dataVenda, tempoEntrega, regiao, canal, formaPagamento);
+        return linha;
+    }
+
+    /**
+     * Copia a linha {@code linhaOrigem} de {@code origem} para a linha {@code linha}, ou para o fim quando {@code -1}.
+     */
+    int copiar(ColunasVendas origem, int linhaOrigem, int linha) {
+        if (linha < 0) {
+            return adicionar(origem.ids[linhaOrigem], origem.clientes[linhaOrigem], origem.valoresFinais[linhaOrigem],
+                    origem.quantidades[linhaOrigem], origem.datasVenda[linhaOrigem], origem.temposEntrega[linhaOrigem],
+                    origem.regioes[linhaOrigem], origem.canais[linhaOrigem], origem.formasPagamento[linhaOrigem]);
+        }
+        definir(linha, origem.clientes[linhaOrigem], origem.valoresFinais[linhaOrigem], origem.quantidades[linhaOrigem],
+                origem.datasVenda[linhaOrigem], origem.temposEntrega[linhaOrigem], origem.regioes[linhaOrigem],
+                origem.canais[linhaOrigem], origem.formasPagamento[linhaOrigem]);
+        return linha;
+    }
+
+    /**
+     * Bytes ocupados pelos arrays, sem contar os IDs, que são referências a strings já existentes.
+     */
+    long tamanhoBytes() {
+        return (long) ids.length * (Integer.BYTES * 7 + Double.BYTES);
+    }
+
+    private void definir(int linha, int cliente, double valorFinal, int quantidade, int dataVenda, int tempoEntrega,
+                         int regiao, int canal, int formaPagamento) {
+        clientes[linha] = cliente;
+        valoresFinais[linha] = valorFinal;
+        quantidades[linha] = quantidade;
+        datasVenda[linha] = dataVenda;
+        temposEntrega[linha] = tempoEntrega;
+        regioes[linha] = regiao;
+        canais[linha] = canal;
+        formasPagamento[linha] = formaPagamento;
+    }
+
+    private void crescer() {
+        int capacidade = Math.max(16, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacidade);
+        clientes = Arrays.copyOf(clientes, capacidade);
+        valoresFinais = Arrays.copyOf(valoresFinais, capacidade);
+        quantidades = Arrays.copyOf(quantidades, capacidade);
+        datasVenda = Arrays.copyOf(datasVenda, capacidade);
+        temposEntrega = Arrays.copyOf(temposEntrega, capacidade);
+        regioes = Arrays.copyOf(regioes, capacidade);
+        canais = Arrays.copyOf(canais, capacidade);
+        formasPagamento = Arrays.copyOf(formasPagamento, capacidade);
+    }
+}
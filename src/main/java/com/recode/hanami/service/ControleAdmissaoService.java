@@ -0,0 +1,165 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.exception.CapacidadeEsgotadaException;
+import com.recode.hanami.exception.LimiteRequisicoesException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limita quantas requisições de cada {@link ClasseCusto} são atendidas ao mesmo tempo, para que
+ * importações e relatórios pesados simultâneos não esgotem a memória nem o pool de conexões.
+ * <p>
+ * Cada classe tem {@code limite} vagas e uma fila de até {@code fila} requisições, atendida em
+ * ordem de chegada. Com a fila cheia a requisição é recusada na hora com 429; na fila, se não
+ * conseguir uma vaga em {@code espera-maxima-ms}, é recusada com 503. As duas respostas trazem
+ * {@code Retry-After}. Ocupação, fila, tempo de espera e recusas são publicados em
+ * {@code hanami.admissao.*}, com a tag {@code classe}.
+ */
+@Service
+public class ControleAdmissaoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ControleAdmissaoService.class);
+    private static final String PREFIXO_PROPRIEDADES = "hanami.admissao.";
+
+    private final Map<ClasseCusto, Compartimento> compartimentos = new EnumMap<>(ClasseCusto.class);
+
+    public ControleAdmissaoService(Environment environment, MeterRegistry meterRegistry) {
+        for (ClasseCusto classe : ClasseCusto.values()) {
+            String prefixo = PREFIXO_PROPRIEDADES + classe.getChave() + ".";
+            int limite = environment.getProperty(prefixo + "limite", Integer.class, classe.getLimitePadrao());
+            int fila = environment.getProperty(prefixo + "fila", Integer.class, classe.getFilaPadrao());
+            long esperaMaximaMs = environment.getProperty(prefixo + "espera-maxima-ms", Long.class,
+                    classe.getEsperaMaximaMsPadrao());
+            long segundosParaNovaTentativa = environment.getProperty(prefixo + "retry-after-segundos", Long.class,
+                    classe.getSegundosParaNovaTentativaPadrao());
+
+            if (limite < 1 || fila < 0) {
+                throw new IllegalArgumentException("Limite e fila de " + prefixo + "* devem ser positivos");
+            }
+            compartimentos.put(classe, new Compartimento(classe, limite, fila, esperaMaximaMs,
+                    segundosParaNovaTentativa, meterRegistry));
+        }
+    }
+
+    /**
+     * Ocupa uma vaga da classe, esperando na fila se preciso. Cada chamada bem-sucedida deve
+     * ser seguida de {@link #liberar}.
+     *
+     * @throws LimiteRequisicoesException se a fila da classe estiver cheia
+     * @throws CapacidadeEsgotadaException se a espera passar de {@code espera-maxima-ms}
+     */
+    public void admitir(ClasseCusto classe) {
+        compartimentos.get(classe).admitir();
+    }
+
+    public void liberar(ClasseCusto classe) {
+        compartimentos.get(classe).semaforo.release();
+    }
+
+    private static final class Compartimento {
+
+        private final ClasseCusto classe;
+        private final int limite;
+        private final int fila;
+        private final long esperaMaximaMs;
+        private final long segundosParaNovaTentativa;
+        private final Semaphore semaforo;
+        private final AtomicInteger aguardando = new AtomicInteger();
+        private final Timer espera;
+        private final Counter recusadasFilaCheia;
+        private final Counter recusadasTempoEsgotado;
+
+        Compartimento(ClasseCusto classe, int limite, int fila, long esperaMaximaMs, long segundosParaNovaTentativa,
+                      MeterRegistry meterRegistry) {
+            this.classe = classe;
+            this.limite = limite;
+            this.fila = fila;
+            this.esperaMaximaMs = esperaMaximaMs;
+            this.segundosParaNovaTentativa = segundosParaNovaTentativa;
+            this.semaforo = new Semaphore(limite, true);
+
+            String tag = classe.getChave();
+            Gauge.builder("hanami.admissao.em.uso", this, compartimento -> compartimento.emUso())
+                    .description("Requisições sendo atendidas")
+                    .tag("classe", tag)
+                    .register(meterRegistry);
+            Gauge.builder("hanami.admissao.limite", this, compartimento -> compartimento.limite)
+                    .description("Requisições atendidas ao mesmo tempo, no máximo")
+                    .tag("classe", tag)
+                    .register(meterRegistry);
+            Gauge.builder("hanami.admissao.saturacao", this, compartimento -> (double) compartimento.emUso() / compartimento.limite)
+                    .description("Fração das vagas ocupadas")
+                    .tag("classe", tag)
+                    .register(meterRegistry);
+            Gauge.builder("hanami.admissao.aguardando", aguardando, AtomicInteger::get)
+                    .description("Requisições na fila esperando uma vaga")
+                    .tag("classe", tag)
+                    .register(meterRegistry);
+            this.espera = Timer.builder("hanami.admissao.espera")
+                    .description("Tempo na fila até a requisição ser admitida")
+                    .tag("classe", tag)
+                    .register(meterRegistry);
+            this.recusadasFilaCheia = Counter.builder("hanami.admissao.recusadas")
+                    .description("Requisições recusadas por falta de capacidade")
+                    .tag("classe", tag)
+                    .tag("motivo", "fila_cheia")
+                    .register(meterRegistry);
+            this.recusadasTempoEsgotado = Counter.builder("hanami.admissao.recusadas")
+                    .description("Requisições recusadas por falta de capacidade")
+                    .tag("classe", tag)
+                    .tag("motivo", "tempo_esgotado")
+                    .register(meterRegistry);
+        }
+
+        private int emUso() {
+            return limite - semaforo.availablePermits();
+        }
+
+        void admitir() {
+            long inicio = System.nanoTime();
+            try {
+                // tryAcquire sem tempo ignoraria a ordem de chegada de quem já está na fila
+                if (semaforo.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                    espera.record(0, TimeUnit.NANOSECONDS);
+                    return;
+                }
+
+                if (aguardando.incrementAndGet() > fila) {
+                    aguardando.decrementAndGet();
+                    recusadasFilaCheia.increment();
+                    logger.warn("Requisição de {} recusada: {} em andamento e fila cheia", classe.getChave(), limite);
+                    throw new LimiteRequisicoesException("Muitas requisições de " + classe.getChave()
+                            + " em andamento. Tente novamente mais tarde.", segundosParaNovaTentativa);
+                }
+
+                try {
+                    if (!semaforo.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                        recusadasTempoEsgotado.increment();
+                        logger.warn("Requisição de {} recusada após {} ms na fila", classe.getChave(), esperaMaximaMs);
+                        throw new CapacidadeEsgotadaException("Capacidade para " + classe.getChave()
+                                + " esgotada. Tente novamente mais tarde.", segundosParaNovaTentativa);
+                    }
+                } finally {
+                    aguardando.decrementAndGet();
+                }
+                espera.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CapacidadeEsgotadaException("Requisição interrompida enquanto aguardava na fila.",
+                        segundosParaNovaTentativa);
+            }
+        }
+    }
+}
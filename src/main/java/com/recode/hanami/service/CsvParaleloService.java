@@ -0,0 +1,157 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Leitura de CSV em paralelo. O arquivo é dividido em blocos de bytes que sempre terminam em
+ * uma quebra de linha fora de aspas, de modo que campos entre aspas com quebras de linha nunca
+ * são partidos. Cada bloco é convertido em uma thread do pool com o motor de leitura configurado
+ * em {@link CsvService}, e os resultados são entregues ao consumidor na ordem original do arquivo.
+ * <p>
+ * No máximo {@code 2 * paralelismo} blocos ficam em memória ao mesmo tempo.
+ */
+@Service
+public class CsvParaleloService {
+
+    private final CsvService csvService;
+    private final ExecutorService executor;
+    private final int paralelismo;
+    private final int tamanhoBloco;
+
+    public CsvParaleloService(CsvService csvService,
+                              @Value("${hanami.importacao.leitura-paralela.threads:0}") int threads,
+                              @Value("${hanami.importacao.leitura-paralela.tamanho-bloco:4194304}") int tamanhoBloco) {
+        this.csvService = csvService;
+        this.paralelismo = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.tamanhoBloco = tamanhoBloco;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(paralelismo, runnable -> {
+            Thread thread = new Thread(runnable, "leitura-csv-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Mesmo contrato de {@link CsvService#processarEmLotes}: os registros chegam ao consumidor
+     * em lotes de no máximo {@code tamanhoLote}, na ordem do arquivo.
+     *
+     * @return total de linhas lidas
+     */
+    public int processarEmLotes(InputStream inputStream, int tamanhoLote, Consumer<List<DadosArquivoDTO>> consumidorLote) {
+        Deque<Future<List<DadosArquivoDTO>>> pendentes = new ArrayDeque<>();
+
+        try {
+            DivisorBlocosCsv divisor = new DivisorBlocosCsv(inputStream, tamanhoBloco);
+
+            byte[] cabecalho = divisor.proximoBloco(true);
+            if (cabecalho == null) {
+                return 0;
+            }
+            CsvService.ConversorBlocos conversor = csvService.criarConversorBlocos(cabecalho);
+
+            AcumuladorLotes acumulador = new AcumuladorLotes(tamanhoLote, consumidorLote);
+            byte[] bloco;
+
+            while ((bloco = divisor.proximoBloco(false)) != null) {
+                byte[] conteudo = bloco;
+                pendentes.addLast(executor.submit(() -> conversor.converter(conteudo)));
+
+                if (pendentes.size() >= paralelismo * 2) {
+                    acumulador.adicionar(aguardar(pendentes.removeFirst()));
+                }
+            }
+
+            while (!pendentes.isEmpty()) {
+                acumulador.adicionar(aguardar(pendentes.removeFirst()));
+            }
+
+            return acumulador.finalizar();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            throw csvService.traduzirErroLayout(e);
+        } finally {
+            pendentes.forEach(pendente -> pendente.cancel(true));
+        }
+    }
+
+    private List<DadosArquivoDTO> aguardar(Future<List<DadosArquivoDTO>> pendente) throws IOException {
+        try {
+            return pendente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Leitura do arquivo interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reagrupa os registros dos blocos em lotes de tamanho fixo para o consumidor.
+     */
+    private static final class AcumuladorLotes {
+
+        private final int tamanhoLote;
+        private final Consumer<List<DadosArquivoDTO>> consumidorLote;
+        private List<DadosArquivoDTO> lote;
+        private int totalLinhas;
+
+        AcumuladorLotes(int tamanhoLote, Consumer<List<DadosArquivoDTO>> consumidorLote) {
+            this.tamanhoLote = tamanhoLote;
+            this.consumidorLote = consumidorLote;
+            this.lote = new ArrayList<>(tamanhoLote);
+        }
+
+        void adicionar(List<DadosArquivoDTO> registros) {
+            for (DadosArquivoDTO registro : registros) {
+                lote.add(registro);
+
+                if (lote.size() >= tamanhoLote) {
+                    entregar();
+                }
+            }
+        }
+
+        int finalizar() {
+            if (!lote.isEmpty()) {
+                entregar();
+            }
+            return totalLinhas;
+        }
+
+        private void entregar() {
+            consumidorLote.accept(lote);
+            totalLinhas += lote.size();
+            lote = new ArrayList<>(tamanhoLote);
+        }
+    }
+}
@@ -1,47 +1,283 @@
 package com.recode.hanami.service;
 
 import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.recode.hanami.dto.DadosArquivoDTO;
 import com.recode.hanami.exception.ArquivoInvalidoException;
+import com.recode.hanami.util.DescompressaoUtil;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class CsvService {
+
+    public static final String MOTOR_JACKSON = "jackson";
+    public static final String MOTOR_TOKENIZADOR = "tokenizador";
+
+    private static final int TAMANHO_BLOCO_REJEICAO = 1024 * 1024;
+
+    private final ObjectReader leitor = criarLeitor();
+    private final boolean usarTokenizador;
+
+    public CsvService(@Value("${hanami.importacao.motor-csv:" + MOTOR_JACKSON + "}") String motorCsv) {
+        if (!MOTOR_JACKSON.equals(motorCsv) && !MOTOR_TOKENIZADOR.equals(motorCsv)) {
+            throw new IllegalArgumentException("Motor de leitura de CSV desconhecido: " + motorCsv);
+        }
+        this.usarTokenizador = MOTOR_TOKENIZADOR.equals(motorCsv);
+    }
+
     public List<DadosArquivoDTO> conversorCsvParaJson(MultipartFile file) {
-        try (InputStream inputStream = file.getInputStream()) {
-            CsvMapper csvMapper = new CsvMapper();
+        try (InputStream inputStream = DescompressaoUtil.descompactarSeNecessario(file.getInputStream());
+             MappingIterator<DadosArquivoDTO> it = abrirLeitor(inputStream)) {
 
-            csvMapper.registerModule(new JavaTimeModule());
+            return it.readAll();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            throw traduzirErroLayout(e);
+        }
+    }
 
-            CsvSchema schema = csvMapper.schemaFor(DadosArquivoDTO.class)
-                    .withHeader()
-                    .withColumnReordering(true)
-                    .withStrictHeaders(true);
+    /**
+     * Lê o CSV linha a linha e entrega os registros ao consumidor em lotes de no máximo
+     * {@code tamanhoLote}, sem manter o arquivo inteiro em memória.
+     *
+     * @return total de linhas lidas
+     */
+    public int processarEmLotes(InputStream inputStream, int tamanhoLote, Consumer<List<DadosArquivoDTO>> consumidorLote) {
+        if (usarTokenizador) {
+            return processarComTokenizador(inputStream, tamanhoLote, consumidorLote);
+        }
 
-            try (MappingIterator<DadosArquivoDTO> it = csvMapper
-                    .readerFor(DadosArquivoDTO.class)
-                    .with(schema)
-                    .readValues(inputStream)) {
+        try (MappingIterator<DadosArquivoDTO> it = abrirLeitor(inputStream)) {
+            int totalLinhas = 0;
+            List<DadosArquivoDTO> lote = new ArrayList<>(tamanhoLote);
 
-                return it.readAll();
+            while (it.hasNextValue()) {
+                lote.add(it.nextValue());
+
+                if (lote.size() >= tamanhoLote) {
+                    consumidorLote.accept(lote);
+                    totalLinhas += lote.size();
+                    lote = new ArrayList<>(tamanhoLote);
+                }
+            }
+
+            if (!lote.isEmpty()) {
+                consumidorLote.accept(lote);
+                totalLinhas += lote.size();
+            }
+
+            return totalLinhas;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            throw traduzirErroLayout(e);
+        }
+    }
+
+    private int processarComTokenizador(InputStream inputStream, int tamanhoLote, Consumer<List<DadosArquivoDTO>> consumidorLote) {
+        try {
+            TokenizadorCsvVendas tokenizador = TokenizadorCsvVendas.comCabecalho(inputStream);
+            int totalLinhas = 0;
+            List<DadosArquivoDTO> lote = new ArrayList<>(tamanhoLote);
+            DadosArquivoDTO registro;
+
+            while ((registro = tokenizador.proximo()) != null) {
+                lote.add(registro);
+
+                if (lote.size() >= tamanhoLote) {
+                    consumidorLote.accept(lote);
+                    totalLinhas += lote.size();
+                    lote = new ArrayList<>(tamanhoLote);
+                }
+            }
+
+            if (!lote.isEmpty()) {
+                consumidorLote.accept(lote);
+                totalLinhas += lote.size();
+            }
+
+            return totalLinhas;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            throw traduzirErroLayout(e);
+        }
+    }
+
+    /**
+     * Variante de {@link #processarEmLotes} que não interrompe a importação por causa de uma
+     * linha mal formatada: o arquivo é lido em blocos e, quando um bloco falha, cada registro
+     * dele é convertido isoladamente e os que falharem vão para {@code rejeicoes}. Erros de
+     * cabeçalho continuam interrompendo a leitura.
+     *
+     * @return total de linhas lidas, incluindo as rejeitadas
+     */
+    int processarEmLotesComRejeicao(InputStream inputStream, int tamanhoLote,
+                                    Consumer<List<RegistroCsv>> consumidorLote, ArquivoRejeicoes rejeicoes) {
+        try {
+            DivisorBlocosCsv divisor = new DivisorBlocosCsv(inputStream, TAMANHO_BLOCO_REJEICAO);
+
+            byte[] cabecalho = divisor.proximoBloco(true);
+            if (cabecalho == null) {
+                return 0;
+            }
+            ConversorBlocos conversor = criarConversorBlocos(cabecalho);
+
+            long linha = 2;
+            int totalLinhas = 0;
+            List<RegistroCsv> lote = new ArrayList<>(tamanhoLote);
+            byte[] bloco;
+
+            while ((bloco = divisor.proximoBloco(false)) != null) {
+                int[] limites = DivisorBlocosCsv.limitesRegistros(bloco);
+                int quantidade = limites.length - 1;
+                List<DadosArquivoDTO> registros = converterBloco(conversor, bloco, quantidade);
+
+                for (int i = 0; i < quantidade; i++, linha++) {
+                    DadosArquivoDTO dados;
+                    if (registros != null) {
+                        dados = registros.get(i);
+                    } else {
+                        dados = converterRegistro(conversor, bloco, limites[i], limites[i + 1], linha, rejeicoes);
+                        if (dados == null) {
+                            totalLinhas++;
+                            continue;
+                        }
+                    }
+
+                    lote.add(new RegistroCsv(linha, dados, bloco, limites[i], limites[i + 1]));
+                    if (lote.size() >= tamanhoLote) {
+                        consumidorLote.accept(lote);
+                        totalLinhas += lote.size();
+                        lote = new ArrayList<>(tamanhoLote);
+                    }
+                }
+            }
+
+            if (!lote.isEmpty()) {
+                consumidorLote.accept(lote);
+                totalLinhas += lote.size();
             }
+
+            return totalLinhas;
         } catch (IOException e) {
             throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
         } catch (RuntimeException e) {
+            throw traduzirErroLayout(e);
+        }
+    }
 
-            if (e.getMessage() != null && (e.getMessage().contains("Missing header") || e.getMessage().contains("Too many entries"))) {
+    /**
+     * Converte o bloco inteiro de uma vez; devolve {@code null} quando alguma linha falha ou
+     * quando a quantidade de registros não corresponde às linhas do bloco.
+     */
+    private List<DadosArquivoDTO> converterBloco(ConversorBlocos conversor, byte[] bloco, int quantidade) {
+        try {
+            List<DadosArquivoDTO> registros = conversor.converter(bloco);
+            return registros.size() == quantidade ? registros : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
 
-                throw new ArquivoInvalidoException("Layout do arquivo inválido. Verifique se todas as colunas obrigatórias estão presentes. Detalhe técnico: " + e.getMessage());
+    private DadosArquivoDTO converterRegistro(ConversorBlocos conversor, byte[] bloco, int inicio, int fim,
+                                              long linha, ArquivoRejeicoes rejeicoes) {
+        try {
+            List<DadosArquivoDTO> registros = conversor.converter(Arrays.copyOfRange(bloco, inicio, fim));
+            if (registros.size() == 1) {
+                return registros.get(0);
             }
-            throw e;
+            rejeicoes.rejeitar(linha, RegistroCsv.textoRegistro(bloco, inicio, fim), "Linha sem registro válido");
+        } catch (IOException | RuntimeException e) {
+            rejeicoes.rejeitar(linha, RegistroCsv.textoRegistro(bloco, inicio, fim), motivoRejeicao(e));
+        }
+        return null;
+    }
+
+    /**
+     * Primeira linha da mensagem do erro, sem a posição relativa ao trecho convertido.
+     */
+    static String motivoRejeicao(Exception e) {
+        String mensagem = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        int quebra = mensagem.indexOf('\n');
+        if (quebra >= 0) {
+            mensagem = mensagem.substring(0, quebra);
+        }
+        return mensagem.replaceFirst(" \\[linha \\d+]$", "").trim();
+    }
+
+    /**
+     * Valida o cabeçalho com as regras do motor configurado e devolve um conversor para trechos
+     * sem cabeçalho, com as colunas na ordem encontrada no arquivo. O conversor pode ser usado
+     * por várias threads ao mesmo tempo.
+     */
+    ConversorBlocos criarConversorBlocos(byte[] cabecalho) throws IOException {
+        if (usarTokenizador) {
+            int[] campoPorPosicao = TokenizadorCsvVendas.comCabecalho(new ByteArrayInputStream(cabecalho)).getCampoPorPosicao();
+            return bloco -> TokenizadorCsvVendas.semCabecalho(new ByteArrayInputStream(bloco), campoPorPosicao).lerTodos();
+        }
+
+        ObjectReader leitorLinhas;
+        try (MappingIterator<DadosArquivoDTO> it = leitor.readValues(cabecalho)) {
+            it.hasNextValue();
+            CsvSchema colunas = (CsvSchema) it.getParser().getSchema();
+            leitorLinhas = leitor.with(colunas.withoutHeader());
+        }
+
+        return bloco -> {
+            try (MappingIterator<DadosArquivoDTO> it = leitorLinhas.readValues(bloco)) {
+                return it.readAll();
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface ConversorBlocos {
+        List<DadosArquivoDTO> converter(byte[] bloco) throws IOException;
+    }
+
+    private MappingIterator<DadosArquivoDTO> abrirLeitor(InputStream inputStream) throws IOException {
+        return leitor.readValues(inputStream);
+    }
+
+    /**
+     * Leitor de {@link DadosArquivoDTO} com validação estrita do cabeçalho e colunas em qualquer ordem.
+     * O {@link ObjectReader} é imutável e seguro entre threads, por isso é criado uma única vez.
+     */
+    private static ObjectReader criarLeitor() {
+        CsvMapper csvMapper = new CsvMapper();
+
+        csvMapper.registerModule(new JavaTimeModule());
+
+        CsvSchema schema = csvMapper.schemaFor(DadosArquivoDTO.class)
+                .withHeader()
+                .withColumnReordering(true)
+                .withStrictHeaders(true);
+
+        return csvMapper
+                .readerFor(DadosArquivoDTO.class)
+                .with(schema);
+    }
+
+    RuntimeException traduzirErroLayout(RuntimeException e) {
+        if (e.getMessage() != null && (e.getMessage().contains("Missing header") || e.getMessage().contains("Too many entries"))) {
+
+            return new ArquivoInvalidoException("Layout do arquivo inválido. Verifique se todas as colunas obrigatórias estão presentes. Detalhe técnico: " + e.getMessage());
         }
+        return e;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package com.recode.hanami.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acompanha pelo JFR os momentos em que uma thread virtual fica presa à thread de plataforma
+ * ({@code jdk.VirtualThreadPinned}): bloqueio dentro de {@code synchronized} ou de código nativo
+ * por mais de {@code limiarMs}. Enquanto presa, a thread de plataforma não atende outras threads
+ * virtuais, e poucas delas presas ao mesmo tempo param todas as requisições.
+ * <p>
+ * Cada ocorrência é contada no timer {@code hanami.threads.virtuais.pinning}, com a tag
+ * {@code origem}: {@code jdbc} quando a pilha passa pelo driver ou pelo pool de conexões,
+ * {@code aplicacao} quando passa pelo código da aplicação e {@code outra} nos demais casos.
+ * A pilha é registrada em log na primeira vez em que aparece; as repetições só são contadas.
+ * Só é ativado com {@code spring.threads.virtual.enabled}.
+ */
+@Service
+public class DiagnosticoPinningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticoPinningService.class);
+    private static final String EVENTO_PINNING = "jdk.VirtualThreadPinned";
+    private static final List<String> PACOTES_JDBC = List.of("com.mysql.", "org.h2.", "com.zaxxer.hikari.", "java.sql.");
+    private static final String PACOTE_APLICACAO = "com.recode.hanami.";
+    private static final int MAXIMO_PILHAS_REGISTRADAS = 500;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean habilitado;
+    private final Duration limiar;
+    private final int quadrosPilha;
+    private final Set<String> pilhasRegistradas = ConcurrentHashMap.newKeySet();
+
+    private volatile RecordingStream gravacao;
+
+    public DiagnosticoPinningService(MeterRegistry meterRegistry,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais,
+                                     @Value("${hanami.threads-virtuais.diagnostico-pinning.habilitado:true}") boolean habilitado,
+                                     @Value("${hanami.threads-virtuais.diagnostico-pinning.limiar-ms:20}") long limiarMs,
+                                     @Value("${hanami.threads-virtuais.diagnostico-pinning.quadros-pilha:16}") int quadrosPilha) {
+        this.meterRegistry = meterRegistry;
+        this.habilitado = threadsVirtuais && habilitado;
+        this.limiar = Duration.ofMillis(limiarMs);
+        this.quadrosPilha = quadrosPilha;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.enable(EVENTO_PINNING).withThreshold(limiar).withStackTrace();
+            stream.onEvent(EVENTO_PINNING, this::registrar);
+            stream.startAsync();
+            gravacao = stream;
+            logger.info("Diagnóstico de pinning de threads virtuais ativo (limiar de {} ms)", limiar.toMillis());
+        } catch (RuntimeException e) {
+            // JVM sem JFR ou com gravação bloqueada por política de segurança
+            logger.warn("Não foi possível iniciar o diagnóstico de pinning pelo JFR: {}", e.getMessage());
+        }
+    }
+
+    private void registrar(RecordedEvent evento) {
+        List<RecordedFrame> quadros = quadros(evento.getStackTrace());
+        Timer.builder("hanami.threads.virtuais.pinning")
+                .description("Tempo em que threads virtuais ficaram presas à thread de plataforma")
+                .tag("origem", origem(quadros))
+                .register(meterRegistry)
+                .record(evento.getDuration());
+
+        StringBuilder pilha = new StringBuilder();
+        for (int i = 0; i < Math.min(quadrosPilha, quadros.size()); i++) {
+            RecordedFrame quadro = quadros.get(i);
+            pilha.append("\n\tat ").append(quadro.getMethod().getType().getName())
+                    .append('.').append(quadro.getMethod().getName())
+                    .append(':').append(quadro.getLineNumber());
+        }
+
+        String thread = evento.getThread() != null ? evento.getThread().getJavaName() : "?";
+        if (pilhasRegistradas.size() < MAXIMO_PILHAS_REGISTRADAS && pilhasRegistradas.add(pilha.toString())) {
+            logger.warn("Thread virtual {} presa à thread de plataforma por {} ms:{}",
+                    thread, evento.getDuration().toMillis(), pilha);
+        } else {
+            logger.debug("Thread virtual {} presa à thread de plataforma por {} ms (pilha já registrada)",
+                    thread, evento.getDuration().toMillis());
+        }
+    }
+
+    private static List<RecordedFrame> quadros(RecordedStackTrace pilha) {
+        return pilha != null ? pilha.getFrames() : List.of();
+    }
+
+    private static String origem(List<RecordedFrame> quadros) {
+        boolean aplicacao = false;
+        for (RecordedFrame quadro : quadros) {
+            String classe = quadro.getMethod().getType().getName();
+            if (PACOTES_JDBC.stream().anyMatch(classe::startsWith)) {
+                return "jdbc";
+            }
+            aplicacao |= classe.startsWith(PACOTE_APLICACAO);
+        }
+        return aplicacao ? "aplicacao" : "outra";
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (gravacao != null) {
+            gravacao.close();
+        }
+    }
+}
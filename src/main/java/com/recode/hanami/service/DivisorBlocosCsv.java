@@ -0,0 +1,133 @@
+package com.recode.hanami.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Lê o fluxo em blocos de aproximadamente {@code tamanhoBloco} bytes, cortando cada bloco
+ * após a última quebra de linha que não esteja dentro de um campo entre aspas. Como todo
+ * corte acontece fora de aspas, cada bloco começa fora de aspas e o estado pode ser
+ * reconstruído a partir do início do bloco. Aspas escapadas ({@code ""}) alternam o estado
+ * duas vezes e não alteram o resultado.
+ */
+final class DivisorBlocosCsv {
+
+    private static final byte ASPAS = '"';
+    private static final byte QUEBRA_LINHA = '\n';
+
+    private final InputStream inputStream;
+    private final int tamanhoBloco;
+    private byte[] buffer;
+    private int inicio;
+    private int fim;
+    private boolean fimArquivo;
+
+    DivisorBlocosCsv(InputStream inputStream, int tamanhoBloco) {
+        this.inputStream = inputStream;
+        this.tamanhoBloco = tamanhoBloco;
+        this.buffer = new byte[tamanhoBloco];
+    }
+
+    /**
+     * @param apenasPrimeiraLinha devolve somente a primeira linha completa (o cabeçalho)
+     * @return o próximo bloco, ou {@code null} quando o fluxo termina
+     */
+    byte[] proximoBloco(boolean apenasPrimeiraLinha) throws IOException {
+        int limiteLeitura = tamanhoBloco;
+
+        while (true) {
+            preencher(limiteLeitura);
+
+            int corte = localizarCorte(apenasPrimeiraLinha);
+            if (corte < 0 && fimArquivo) {
+                corte = fim;
+            }
+
+            if (corte > inicio) {
+                byte[] bloco = Arrays.copyOfRange(buffer, inicio, corte);
+                inicio = corte;
+                return bloco;
+            }
+
+            if (fimArquivo) {
+                return null;
+            }
+
+            // Nenhuma quebra de linha segura no bloco: registro maior que o bloco
+            limiteLeitura = (fim - inicio) * 2;
+        }
+    }
+
+    private int localizarCorte(boolean apenasPrimeiraLinha) {
+        boolean dentroAspas = false;
+        int corte = -1;
+
+        for (int i = inicio; i < fim; i++) {
+            byte atual = buffer[i];
+
+            if (atual == ASPAS) {
+                dentroAspas = !dentroAspas;
+            } else if (atual == QUEBRA_LINHA && !dentroAspas) {
+                corte = i + 1;
+                if (apenasPrimeiraLinha) {
+                    break;
+                }
+            }
+        }
+        return corte;
+    }
+
+    private void preencher(int bytesDesejados) throws IOException {
+        if (inicio > 0) {
+            System.arraycopy(buffer, inicio, buffer, 0, fim - inicio);
+            fim -= inicio;
+            inicio = 0;
+        }
+
+        if (buffer.length < bytesDesejados) {
+            buffer = Arrays.copyOf(buffer, bytesDesejados);
+        }
+
+        while (!fimArquivo && fim < bytesDesejados) {
+            int lidos = inputStream.read(buffer, fim, bytesDesejados - fim);
+            if (lidos < 0) {
+                fimArquivo = true;
+            } else {
+                fim += lidos;
+            }
+        }
+    }
+
+    /**
+     * Posições de início de cada registro de um bloco, seguindo a mesma regra de corte: um
+     * registro termina na quebra de linha fora de aspas. O último elemento é o fim do bloco.
+     */
+    static int[] limitesRegistros(byte[] bloco) {
+        int[] limites = new int[16];
+        int quantidade = 0;
+        boolean dentroAspas = false;
+        int inicioRegistro = 0;
+
+        for (int i = 0; i < bloco.length; i++) {
+            if (bloco[i] == ASPAS) {
+                dentroAspas = !dentroAspas;
+            } else if (bloco[i] == QUEBRA_LINHA && !dentroAspas) {
+                if (quantidade + 2 > limites.length) {
+                    limites = Arrays.copyOf(limites, limites.length * 2);
+                }
+                limites[quantidade++] = inicioRegistro;
+                inicioRegistro = i + 1;
+            }
+        }
+
+        if (inicioRegistro < bloco.length) {
+            if (quantidade + 2 > limites.length) {
+                limites = Arrays.copyOf(limites, limites.length + 2);
+            }
+            limites[quantidade++] = inicioRegistro;
+        }
+        limites[quantidade] = bloco.length;
+        return Arrays.copyOf(limites, quantidade + 1);
+    }
+}
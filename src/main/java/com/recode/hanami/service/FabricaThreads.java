@@ -0,0 +1,30 @@
+package com.recode.hanami.service;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads dos workers de importação e de índice. Com {@code spring.threads.virtual.enabled}
+ * são threads virtuais, que liberam a thread de plataforma enquanto esperam pelo banco ou pelo
+ * disco; os pools continuam com o mesmo número de threads, que é o que limita as importações
+ * simultâneas e as conexões que elas ocupam.
+ * <p>
+ * Trabalho só de CPU, como a leitura paralela do CSV, deve continuar em threads de plataforma.
+ */
+final class FabricaThreads {
+
+    private FabricaThreads() {
+    }
+
+    /**
+     * Threads nomeadas {@code prefixo-1}, {@code prefixo-2}, ...; as de plataforma são daemon.
+     */
+    static ThreadFactory criar(String prefixo, boolean virtuais) {
+        Thread.Builder construtor = virtuais ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        return construtor.name(prefixo + "-", 1).factory();
+    }
+
+    static Thread iniciar(String nome, boolean virtuais, Runnable tarefa) {
+        Thread.Builder construtor = virtuais ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        return construtor.name(nome).start(tarefa);
+    }
+}
@@ -0,0 +1,167 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoJobDTO;
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Estado de uma importação assíncrona. Atualizado pela thread que executa a importação e
+ * lido pelas requisições de consulta de status.
+ */
+public class ImportacaoJob implements ProgressoImportacao {
+
+    private final String id;
+    private final String nomeArquivo;
+    private final long bytesTotal;
+    private final AtomicLong linhasLidas = new AtomicLong();
+    private final AtomicLong linhasPersistidas = new AtomicLong();
+    private final AtomicLong linhasRejeitadas = new AtomicLong();
+    private final List<String> erros = new CopyOnWriteArrayList<>();
+
+    private volatile StatusImportacao status = StatusImportacao.AGUARDANDO;
+    private volatile boolean arquivoJaImportado;
+    private volatile boolean confirmacaoEmLotes;
+    private volatile String arquivoRejeicoes;
+    private volatile LongSupplier contadorBytes = () -> 0L;
+    private volatile long inicioNanos;
+    private volatile long fimNanos;
+    private volatile LocalDateTime iniciadoEm;
+    private volatile LocalDateTime finalizadoEm;
+
+    public ImportacaoJob(String id, String nomeArquivo, long bytesTotal) {
+        this.id = id;
+        this.nomeArquivo = nomeArquivo;
+        this.bytesTotal = bytesTotal;
+    }
+
+    public void iniciar() {
+        this.inicioNanos = System.nanoTime();
+        this.iniciadoEm = LocalDateTime.now();
+        this.status = StatusImportacao.EM_PROCESSAMENTO;
+    }
+
+    public void concluir(ImportacaoResponseDTO resultado) {
+        this.arquivoRejeicoes = resultado.arquivoRejeicoes();
+        finalizar(StatusImportacao.CONCLUIDA);
+    }
+
+    /**
+     * Com uma única transação, nada do que foi gravado permanece em caso de falha e as linhas
+     * persistidas voltam a zero. Com commit em lotes, os lotes já confirmados continuam gravados.
+     */
+    public void falhar(String erro) {
+        erros.add(erro);
+        if (!confirmacaoEmLotes) {
+            linhasPersistidas.set(0);
+        }
+        finalizar(StatusImportacao.FALHOU);
+    }
+
+    private void finalizar(StatusImportacao statusFinal) {
+        this.fimNanos = System.nanoTime();
+        this.finalizadoEm = LocalDateTime.now();
+        this.status = statusFinal;
+    }
+
+    @Override
+    public void linhasLidas(int quantidade) {
+        linhasLidas.addAndGet(quantidade);
+    }
+
+    @Override
+    public void linhasPersistidas(int quantidade) {
+        linhasPersistidas.addAndGet(quantidade);
+    }
+
+    @Override
+    public void linhasRejeitadas(int quantidade) {
+        linhasRejeitadas.addAndGet(quantidade);
+    }
+
+    @Override
+    public void confirmacaoEmLotes() {
+        this.confirmacaoEmLotes = true;
+    }
+
+    @Override
+    public void monitorarLeitura(LongSupplier bytesLidos) {
+        this.contadorBytes = bytesLidos;
+    }
+
+    /**
+     * Nada é lido nem gravado; as contagens refletem a importação anterior do mesmo arquivo.
+     */
+    @Override
+    public void arquivoJaImportado(ImportacaoResponseDTO resultadoAnterior) {
+        this.arquivoJaImportado = true;
+        this.contadorBytes = () -> bytesTotal;
+        linhasLidas.set(resultadoAnterior.linhasProcessadas());
+        linhasPersistidas.set(resultadoAnterior.linhasProcessadas());
+        this.arquivoRejeicoes = resultadoAnterior.arquivoRejeicoes();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public StatusImportacao getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getFinalizadoEm() {
+        return finalizadoEm;
+    }
+
+    public ImportacaoJobDTO toDTO() {
+        StatusImportacao statusAtual = status;
+        long persistidas = linhasPersistidas.get();
+        long bytesLidos = statusAtual == StatusImportacao.AGUARDANDO ? 0L : Math.min(contadorBytes.getAsLong(), bytesTotal);
+
+        Double percentual = null;
+        Double linhasPorSegundo = null;
+        Long segundosRestantes = null;
+
+        if (statusAtual != StatusImportacao.AGUARDANDO) {
+            long fim = statusAtual.isFinalizada() ? fimNanos : System.nanoTime();
+            double segundosDecorridos = (fim - inicioNanos) / 1_000_000_000.0;
+            double fracao = bytesTotal > 0 ? (double) bytesLidos / bytesTotal : 1.0;
+
+            percentual = arredondar(statusAtual == StatusImportacao.CONCLUIDA ? 100.0 : fracao * 100.0);
+            if (!arquivoJaImportado) {
+                linhasPorSegundo = segundosDecorridos > 0 ? arredondar(persistidas / segundosDecorridos) : 0.0;
+            }
+
+            if (statusAtual == StatusImportacao.EM_PROCESSAMENTO && fracao > 0) {
+                segundosRestantes = Math.round(segundosDecorridos * (1 - fracao) / fracao);
+            }
+        }
+
+        return new ImportacaoJobDTO(
+                id,
+                statusAtual.getValue(),
+                nomeArquivo,
+                linhasLidas.get(),
+                persistidas,
+                confirmacaoEmLotes ? linhasRejeitadas.get() : null,
+                bytesLidos,
+                bytesTotal,
+                percentual,
+                linhasPorSegundo,
+                segundosRestantes,
+                iniciadoEm,
+                finalizadoEm,
+                arquivoRejeicoes,
+                arquivoJaImportado ? Boolean.TRUE : null,
+                erros.isEmpty() ? null : List.copyOf(erros)
+        );
+    }
+
+    private double arredondar(double valor) {
+        return Math.round(valor * 100.0) / 100.0;
+    }
+}
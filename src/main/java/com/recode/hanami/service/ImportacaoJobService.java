@@ -0,0 +1,137 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoJobDTO;
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.exception.CapacidadeEsgotadaException;
+import com.recode.hanami.exception.RecursoNaoEncontradoException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executa importações em segundo plano. O arquivo enviado é gravado em disco e processado
+ * por um pool de threads limitado, enquanto o estado de cada job fica disponível para consulta
+ * até {@code retencaoMinutos} após o término.
+ */
+@Service
+public class ImportacaoJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacaoJobService.class);
+    private static final long SEGUNDOS_PARA_NOVA_TENTATIVA = 30;
+
+    private final ImportacaoVendasService importacaoVendasService;
+    private final SpoolImportacao spoolImportacao;
+    private final ThreadPoolExecutor executor;
+    private final long retencaoMinutos;
+    private final Map<String, ImportacaoJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportacaoJobService(ImportacaoVendasService importacaoVendasService,
+                                SpoolImportacao spoolImportacao,
+                                @Value("${hanami.importacao.jobs.threads:2}") int threads,
+                                @Value("${hanami.importacao.jobs.fila:10}") int tamanhoFila,
+                                @Value("${hanami.importacao.jobs.retencao-minutos:60}") long retencaoMinutos,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.importacaoVendasService = importacaoVendasService;
+        this.spoolImportacao = spoolImportacao;
+        this.retencaoMinutos = retencaoMinutos;
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tamanhoFila),
+                FabricaThreads.criar("importacao-job", threadsVirtuais));
+    }
+
+    public ImportacaoJobDTO submeter(MultipartFile file, boolean forcar) {
+        verificarCapacidade();
+
+        Path arquivo = spoolImportacao.gravar(file);
+        try {
+            return agendar(arquivo, file.getOriginalFilename(), file.getSize(), forcar);
+        } catch (CapacidadeEsgotadaException e) {
+            spoolImportacao.excluir(arquivo);
+            throw e;
+        }
+    }
+
+    /**
+     * Agenda a importação de um arquivo já gravado em disco, que passa a pertencer ao job e é
+     * excluído ao final. Se a fila estiver cheia, o arquivo não é alterado.
+     */
+    public ImportacaoJobDTO submeter(Path arquivo, String nomeArquivo, long tamanhoArquivo, boolean forcar) {
+        verificarCapacidade();
+        return agendar(arquivo, nomeArquivo, tamanhoArquivo, forcar);
+    }
+
+    private void verificarCapacidade() {
+        removerJobsExpirados();
+
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new CapacidadeEsgotadaException(
+                    "Limite de importações simultâneas atingido. Tente novamente mais tarde.",
+                    SEGUNDOS_PARA_NOVA_TENTATIVA);
+        }
+    }
+
+    private ImportacaoJobDTO agendar(Path arquivo, String nomeArquivo, long tamanhoArquivo, boolean forcar) {
+        ImportacaoJob job = new ImportacaoJob(UUID.randomUUID().toString(), nomeArquivo, tamanhoArquivo);
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> executar(job, arquivo, nomeArquivo, forcar));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new CapacidadeEsgotadaException(
+                    "Limite de importações simultâneas atingido. Tente novamente mais tarde.",
+                    SEGUNDOS_PARA_NOVA_TENTATIVA);
+        }
+
+        logger.info("Importação assíncrona {} agendada para o arquivo {}", job.getId(), nomeArquivo);
+        return job.toDTO();
+    }
+
+    public ImportacaoJobDTO consultar(String idJob) {
+        ImportacaoJob job = jobs.get(idJob);
+        if (job == null) {
+            throw new RecursoNaoEncontradoException("Importação não encontrada: " + idJob);
+        }
+        return job.toDTO();
+    }
+
+    private void executar(ImportacaoJob job, Path arquivo, String nomeArquivo, boolean forcar) {
+        try {
+            job.iniciar();
+            ImportacaoResponseDTO resultado = importacaoVendasService.importarArquivo(arquivo, nomeArquivo, forcar, job);
+            job.concluir(resultado);
+            logger.info("Importação assíncrona {} concluída", job.getId());
+        } catch (Exception e) {
+            logger.error("Importação assíncrona {} falhou: {}", job.getId(), e.getMessage(), e);
+            job.falhar(e.getMessage());
+        } finally {
+            spoolImportacao.excluir(arquivo);
+        }
+    }
+
+    private void removerJobsExpirados() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(retencaoMinutos);
+        jobs.values().removeIf(job -> job.getStatus().isFinalizada()
+                && job.getFinalizadoEm() != null
+                && job.getFinalizadoEm().isBefore(limite));
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+}
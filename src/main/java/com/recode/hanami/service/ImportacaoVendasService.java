@@ -0,0 +1,496 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.exception.DadosInvalidosException;
+import com.recode.hanami.util.ContadorBytesInputStream;
+import com.recode.hanami.util.DescompressaoUtil;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Service
+public class ImportacaoVendasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacaoVendasService.class);
+
+    public static final String MODO_ARQUIVO = "arquivo";
+    public static final String MODO_LOTES = "lotes";
+    private static final String URL_REJEICOES = "/hanami/import-rejects/";
+
+    private final CsvService csvService;
+    private final CsvParaleloService csvParaleloService;
+    private final SpoolImportacao spoolImportacao;
+    private final RegistroImportacoesService registroImportacoesService;
+    private final ProcessamentoVendasService processamentoVendasService;
+    private final RejeicoesImportacaoService rejeicoesImportacaoService;
+    private final CargaNativaService cargaNativaService;
+    private final NdjsonService ndjsonService;
+    private final ArrowService arrowService;
+    private final TransactionTemplate transacao;
+    private final int tamanhoLote;
+    private final boolean commitEmLotes;
+    private final int tamanhoCommit;
+    private final boolean leituraParalela;
+    private final long tamanhoMinimoLeituraParalela;
+
+    public ImportacaoVendasService(CsvService csvService,
+                                   CsvParaleloService csvParaleloService,
+                                   SpoolImportacao spoolImportacao,
+                                   RegistroImportacoesService registroImportacoesService,
+                                   ProcessamentoVendasService processamentoVendasService,
+                                   RejeicoesImportacaoService rejeicoesImportacaoService,
+                                   CargaNativaService cargaNativaService,
+                                   NdjsonService ndjsonService,
+                                   ArrowService arrowService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${hanami.importacao.tamanho-lote:1000}") int tamanhoLote,
+                                   @Value("${hanami.importacao.modo-transacao:" + MODO_ARQUIVO + "}") String modoTransacao,
+                                   @Value("${hanami.importacao.lotes.tamanho-commit:10000}") int tamanhoCommit,
+                                   @Value("${hanami.importacao.leitura-paralela.habilitada:true}") boolean leituraParalela,
+                                   @Value("${hanami.importacao.leitura-paralela.tamanho-minimo:16777216}") long tamanhoMinimoLeituraParalela) {
+        this.csvService = csvService;
+        this.csvParaleloService = csvParaleloService;
+        this.spoolImportacao = spoolImportacao;
+        this.registroImportacoesService = registroImportacoesService;
+        this.processamentoVendasService = processamentoVendasService;
+        this.rejeicoesImportacaoService = rejeicoesImportacaoService;
+        this.cargaNativaService = cargaNativaService;
+        this.ndjsonService = ndjsonService;
+        this.arrowService = arrowService;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.tamanhoLote = tamanhoLote;
+        this.tamanhoCommit = tamanhoCommit;
+        this.leituraParalela = leituraParalela;
+        this.tamanhoMinimoLeituraParalela = tamanhoMinimoLeituraParalela;
+
+        if (!MODO_ARQUIVO.equals(modoTransacao) && !MODO_LOTES.equals(modoTransacao)) {
+            throw new IllegalArgumentException("Modo de transação da importação desconhecido: " + modoTransacao);
+        }
+        this.commitEmLotes = MODO_LOTES.equals(modoTransacao);
+    }
+
+    /**
+     * Uploads grandes são gravados uma vez em disco e lidos por mapeamento em memória; os
+     * menores são lidos direto do multipart. Arquivos Arrow são sempre gravados em disco, pois
+     * o formato de arquivo é lido a partir do rodapé. Um arquivo idêntico a outro já importado devolve
+     * o resultado anterior, a menos que {@code forcar} seja verdadeiro.
+     */
+    public ImportacaoResponseDTO importarEmStreaming(MultipartFile file, boolean forcar) {
+        if (spoolImportacao.deveMapear(file.getSize()) || isArrow(file)) {
+            Path arquivo = spoolImportacao.gravar(file);
+            try {
+                return importarArquivo(arquivo, file.getOriginalFilename(), forcar, ProgressoImportacao.NENHUM);
+            } finally {
+                spoolImportacao.excluir(arquivo);
+            }
+        }
+
+        return importarMultipart(file, forcar, () -> {
+            try (InputStream inputStream = file.getInputStream()) {
+                if (usarCargaNativa(file.getSize())) {
+                    return cargaNativaService.carregar(abrirConteudo(inputStream), ProgressoImportacao.NENHUM);
+                }
+                return importar(inputStream, ProgressoImportacao.NENHUM, false, false);
+            }
+        });
+    }
+
+    /**
+     * Importação sem streaming ({@code hanami.importacao.streaming=false}): o CSV é convertido
+     * inteiro em uma lista antes de ser gravado pelo ORM. Como no streaming, o arquivo é
+     * identificado pelo hash e registrado, e {@code forcar} reimporta um arquivo idêntico a outro
+     * já importado. Quando a carga nativa se aplica (sempre, no modo de gravação {@code upsert}),
+     * o arquivo vai para ela como no streaming, com as contagens de vendas inseridas, atualizadas
+     * e inalteradas.
+     */
+    public ImportacaoResponseDTO importarEmLista(MultipartFile file, boolean forcar) {
+        return importarMultipart(file, forcar, () -> {
+            if (usarCargaNativa(file.getSize())) {
+                try (InputStream inputStream = file.getInputStream()) {
+                    return cargaNativaService.carregar(abrirConteudo(inputStream), ProgressoImportacao.NENHUM);
+                }
+            }
+            List<DadosArquivoDTO> registros = csvService.conversorCsvParaJson(file);
+            logger.debug("Arquivo convertido com sucesso. Registros: {}", registros.size());
+            processamentoVendasService.salvarDadosDoArquivo(registros);
+            return new ImportacaoResponseDTO("sucesso", registros.size());
+        });
+    }
+
+    private ImportacaoResponseDTO importarMultipart(MultipartFile file, boolean forcar, Importacao importacao) {
+        try {
+            String hash;
+            try (InputStream inputStream = file.getInputStream()) {
+                hash = registroImportacoesService.calcularHash(inputStream);
+            }
+
+            Optional<ImportacaoResponseDTO> anterior = buscarImportacaoAnterior(hash, forcar, file.getOriginalFilename());
+            if (anterior.isPresent()) {
+                return anterior.get();
+            }
+
+            return executarImportacao(hash, file.getOriginalFilename(), file.getSize(), importacao);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Importa um arquivo já gravado em disco. A partir de {@code tamanhoMinimoLeituraParalela}
+     * bytes a conversão do CSV é distribuída entre várias threads, mantendo a persistência
+     * sequencial e na ordem do arquivo. Arquivos Apache Arrow, identificados pelo conteúdo, são
+     * lidos coluna a coluna pelo {@link ArrowService}. Com a carga nativa habilitada, arquivos a partir do
+     * tamanho mínimo dela, ou qualquer arquivo no modo de gravação {@code upsert}, são gravados
+     * pelo carregador do banco em vez do ORM, exceto no modo de commit em lotes. O progresso
+     * recebe o contador de bytes lidos.
+     */
+    public ImportacaoResponseDTO importarArquivo(Path arquivo, String nomeArquivo, boolean forcar, ProgressoImportacao progresso) {
+        return importarArquivo(arquivo, nomeArquivo, forcar, progresso, false);
+    }
+
+    /**
+     * Com {@code dimensoesSeparadas}, os clientes, produtos e vendedores de cada lote são
+     * confirmados em uma transação curta própria antes das vendas (ver
+     * {@link PersistenciaEmLoteService#gravar}), para que importações simultâneas com dimensões em
+     * comum não fiquem presas aos locks umas das outras até o fim do arquivo.
+     */
+    public ImportacaoResponseDTO importarArquivo(Path arquivo, String nomeArquivo, boolean forcar, ProgressoImportacao progresso,
+                                                 boolean dimensoesSeparadas) {
+        try {
+            long tamanhoArquivo = Files.size(arquivo);
+            String hash;
+            try (InputStream inputStream = spoolImportacao.abrir(arquivo)) {
+                hash = registroImportacoesService.calcularHash(inputStream);
+            }
+
+            Optional<ImportacaoResponseDTO> anterior = buscarImportacaoAnterior(hash, forcar, nomeArquivo);
+            if (anterior.isPresent()) {
+                progresso.arquivoJaImportado(anterior.get());
+                return anterior.get();
+            }
+
+            return executarImportacao(hash, nomeArquivo, tamanhoArquivo, () -> {
+                if (arrowService.isArrow(arquivo)) {
+                    return importarArrow(arquivo, progresso, dimensoesSeparadas);
+                }
+                try (ContadorBytesInputStream inputStream = new ContadorBytesInputStream(spoolImportacao.abrir(arquivo))) {
+                    progresso.monitorarLeitura(inputStream::getBytesLidos);
+                    if (usarCargaNativa(tamanhoArquivo)) {
+                        return cargaNativaService.carregar(abrirConteudo(inputStream), progresso);
+                    }
+                    boolean paralela = leituraParalela && tamanhoArquivo >= tamanhoMinimoLeituraParalela;
+                    return importar(inputStream, progresso, paralela, dimensoesSeparadas);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * No modo {@code arquivo} a importação e o registro do hash acontecem em uma única
+     * transação. No modo {@code lotes} cada lote tem a sua própria transação, e o registro
+     * é gravado ao final, só se a importação não tiver sido interrompida.
+     */
+    private ImportacaoResponseDTO executarImportacao(String hash, String nomeArquivo, long tamanhoArquivo,
+                                                     Importacao importacao) throws IOException {
+        if (commitEmLotes) {
+            ImportacaoResponseDTO resultado = importacao.executar();
+            registroImportacoesService.registrar(hash, nomeArquivo, tamanhoArquivo, resultado);
+            return resultado;
+        }
+
+        try {
+            return transacao.execute(status -> {
+                try {
+                    ImportacaoResponseDTO resultado = importacao.executar();
+                    registroImportacoesService.registrar(hash, nomeArquivo, tamanhoArquivo, resultado);
+                    return resultado;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Importacao {
+        ImportacaoResponseDTO executar() throws IOException;
+    }
+
+    /**
+     * O commit em lotes depende da gravação pelo ORM para isolar as linhas rejeitadas.
+     */
+    private boolean usarCargaNativa(long tamanhoArquivo) {
+        return !commitEmLotes && cargaNativaService.deveUsar(tamanhoArquivo);
+    }
+
+    private Optional<ImportacaoResponseDTO> buscarImportacaoAnterior(String hash, boolean forcar, String nomeArquivo) {
+        if (forcar) {
+            return Optional.empty();
+        }
+
+        Optional<ImportacaoResponseDTO> anterior = registroImportacoesService.buscarImportacao(hash);
+        anterior.ifPresent(resultado ->
+                logger.info("Arquivo {} já importado anteriormente (sha256 {}); importação ignorada", nomeArquivo, hash));
+        return anterior;
+    }
+
+    /**
+     * Importa o CSV lido do fluxo no modo de transação configurado, notificando o progresso a
+     * cada lote. Conteúdo compactado em gzip ou zstd é descompactado durante a leitura. O fluxo
+     * não é fechado por este método.
+     */
+    public ImportacaoResponseDTO importar(InputStream inputStream, ProgressoImportacao progresso) {
+        if (commitEmLotes) {
+            return importar(inputStream, progresso, false, false);
+        }
+        return transacao.execute(status -> importar(inputStream, progresso, false, false));
+    }
+
+    private ImportacaoResponseDTO importar(InputStream inputStream, ProgressoImportacao progresso, boolean paralela,
+                                           boolean dimensoesSeparadas) {
+        InputStream conteudo = abrirConteudo(inputStream);
+        if (commitEmLotes) {
+            return importarComCommitEmLotes(conteudo, progresso, dimensoesSeparadas);
+        }
+
+        CacheDimensoes cache = processamentoVendasService.iniciarCacheDimensoes(dimensoesSeparadas);
+
+        Consumer<List<DadosArquivoDTO>> persistirLote = lote -> {
+            progresso.linhasLidas(lote.size());
+            processamentoVendasService.salvarLote(lote, cache);
+            progresso.linhasPersistidas(lote.size());
+            logger.debug("Lote de {} registros persistido", lote.size());
+        };
+
+        int totalLinhas = paralela
+                ? csvParaleloService.processarEmLotes(conteudo, tamanhoLote, persistirLote)
+                : csvService.processarEmLotes(conteudo, tamanhoLote, persistirLote);
+
+        return new ImportacaoResponseDTO("sucesso", totalLinhas);
+    }
+
+    /**
+     * Cada bloco de {@code tamanhoCommit} linhas é gravado e confirmado em sua própria
+     * transação. Linhas que não puderem ser convertidas ou gravadas vão para o arquivo de
+     * rejeições com o motivo, sem interromper a importação. A leitura é sempre sequencial.
+     */
+    private ImportacaoResponseDTO importarComCommitEmLotes(InputStream conteudo, ProgressoImportacao progresso,
+                                                           boolean dimensoesSeparadas) {
+        return importarComCommitEmLotes(progresso, dimensoesSeparadas, (confirmarBloco, rejeicoes) ->
+                csvService.processarEmLotesComRejeicao(conteudo, tamanhoCommit, confirmarBloco, rejeicoes));
+    }
+
+    private ImportacaoResponseDTO importarComCommitEmLotes(ProgressoImportacao progresso, boolean dimensoesSeparadas,
+                                                           LeituraEmBlocos leitura) {
+        progresso.confirmacaoEmLotes();
+
+        try (ArquivoRejeicoes rejeicoes = rejeicoesImportacaoService.criar()) {
+            int[] aceitas = {0};
+            int[] rejeitadasNotificadas = {0};
+
+            Consumer<List<RegistroCsv>> confirmarBloco = bloco -> {
+                progresso.linhasLidas(bloco.size() + rejeicoes.getQuantidade() - rejeitadasNotificadas[0]);
+                int gravadas = gravarIsolandoFalhas(bloco, rejeicoes, dimensoesSeparadas);
+                aceitas[0] += gravadas;
+                progresso.linhasPersistidas(gravadas);
+
+                progresso.linhasRejeitadas(rejeicoes.getQuantidade() - rejeitadasNotificadas[0]);
+                rejeitadasNotificadas[0] = rejeicoes.getQuantidade();
+                logger.debug("Bloco de {} registros confirmado ({} gravados)", bloco.size(), gravadas);
+            };
+
+            int totalLinhas;
+            try {
+                totalLinhas = leitura.ler(confirmarBloco, rejeicoes);
+            } catch (RuntimeException e) {
+                logger.error("Importação interrompida após {} linhas confirmadas: {}", aceitas[0], e.getMessage());
+                throw e;
+            }
+
+            int rejeitadas = rejeicoes.getQuantidade();
+            progresso.linhasLidas(rejeitadas - rejeitadasNotificadas[0]);
+            progresso.linhasRejeitadas(rejeitadas - rejeitadasNotificadas[0]);
+
+            if (rejeitadas == 0) {
+                return new ImportacaoResponseDTO("sucesso", totalLinhas, aceitas[0], 0, null);
+            }
+            logger.warn("{} linhas rejeitadas na importação; detalhes em {}", rejeitadas, rejeicoes.getId());
+            return new ImportacaoResponseDTO("sucesso_parcial", totalLinhas, aceitas[0], rejeitadas,
+                    URL_REJEICOES + rejeicoes.getId());
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao gravar arquivo de rejeições: " + e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface LeituraEmBlocos {
+        int ler(Consumer<List<RegistroCsv>> confirmarBloco, ArquivoRejeicoes rejeicoes);
+    }
+
+    /**
+     * Lê o arquivo Arrow em lotes já convertidos. No modo {@code lotes} cada bloco de
+     * {@code tamanhoCommit} registros tem sua própria transação, e um registro que não puder ser
+     * gravado vai para as rejeições identificado pela posição no arquivo, a partir de 1.
+     */
+    private ImportacaoResponseDTO importarArrow(Path arquivo, ProgressoImportacao progresso, boolean dimensoesSeparadas) {
+        if (commitEmLotes) {
+            return importarComCommitEmLotes(progresso, dimensoesSeparadas, (confirmarBloco, rejeicoes) -> {
+                long[] posicao = {0};
+                return arrowService.processarEmLotes(arquivo, tamanhoCommit, lote -> confirmarBloco.accept(
+                        lote.stream().map(dados -> new RegistroCsv(++posicao[0], dados, null, 0, 0)).toList()));
+            });
+        }
+
+        CacheDimensoes cache = processamentoVendasService.iniciarCacheDimensoes(dimensoesSeparadas);
+        int totalLinhas = arrowService.processarEmLotes(arquivo, tamanhoLote, lote -> {
+            progresso.linhasLidas(lote.size());
+            processamentoVendasService.salvarLote(lote, cache);
+            progresso.linhasPersistidas(lote.size());
+        });
+        return new ImportacaoResponseDTO("sucesso", totalLinhas);
+    }
+
+    /**
+     * Identifica um arquivo Apache Arrow pela assinatura no início do conteúdo, qualquer que seja a extensão.
+     */
+    public boolean isArrow(MultipartFile file) {
+        try (InputStream inputStream = file.getInputStream()) {
+            byte[] inicio = inputStream.readNBytes(ArrowService.TAMANHO_ASSINATURA);
+            return ArrowService.isArrow(inicio, inicio.length);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Importa registros em JSON por linha à medida que chegam, sem gravar o corpo em disco. Cada
+     * lote de até {@code tamanhoLote} registros é confirmado em sua própria transação, qualquer
+     * que seja o modo de transação configurado, e um lote incompleto é confirmado quando o seu
+     * primeiro registro já esperou {@code hanami.importacao.ndjson.espera-ms}; assim uma conexão
+     * longa não segura uma transação aberta. As
+     * dimensões são gravadas à parte, como nas importações simultâneas, e linhas inválidas vão
+     * para o arquivo de rejeições. Não há verificação de arquivo já importado.
+     */
+    public ImportacaoResponseDTO importarNdjson(InputStream inputStream) {
+        try (ArquivoRejeicoes rejeicoes = rejeicoesImportacaoService.criar()) {
+            int[] aceitas = {0};
+
+            Consumer<List<RegistroCsv>> confirmarLote = lote -> {
+                aceitas[0] += gravarIsolandoFalhas(lote, rejeicoes, true);
+                logger.debug("Lote NDJSON de {} registros confirmado", lote.size());
+            };
+
+            int totalLinhas = ndjsonService.processarEmLotes(abrirConteudo(inputStream), tamanhoLote, confirmarLote, rejeicoes);
+
+            int rejeitadas = rejeicoes.getQuantidade();
+            if (rejeitadas == 0) {
+                return new ImportacaoResponseDTO("sucesso", totalLinhas, aceitas[0], 0, null);
+            }
+            logger.warn("{} linhas rejeitadas na importação NDJSON; detalhes em {}", rejeitadas, rejeicoes.getId());
+            return new ImportacaoResponseDTO("sucesso_parcial", totalLinhas, aceitas[0], rejeitadas,
+                    URL_REJEICOES + rejeicoes.getId());
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao gravar arquivo de rejeições: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava os registros em uma transação. Se ela falhar por causa dos dados, o bloco é dividido
+     * ao meio e cada metade é tentada de novo, até que o registro responsável fique isolado e seja
+     * rejeitado. O registro isolado é tentado mais uma vez antes da rejeição, pois a falha pode ter
+     * vindo de outra importação simultânea gravando o mesmo cliente ou produto. Outras falhas
+     * (conexão, pool esgotado, deadlock, espera de lock) não são culpa de um registro e
+     * interrompem a importação.
+     *
+     * @return quantidade de registros gravados
+     */
+    private int gravarIsolandoFalhas(List<RegistroCsv> registros, ArquivoRejeicoes rejeicoes, boolean dimensoesSeparadas) {
+        try {
+            gravarEmTransacao(registros, dimensoesSeparadas);
+            return registros.size();
+        } catch (RuntimeException e) {
+            if (!erroDeDados(e)) {
+                throw e;
+            }
+            if (registros.size() == 1) {
+                RegistroCsv registro = registros.get(0);
+                try {
+                    gravarEmTransacao(registros, dimensoesSeparadas);
+                    return 1;
+                } catch (RuntimeException novaFalha) {
+                    if (!erroDeDados(novaFalha)) {
+                        throw novaFalha;
+                    }
+                    rejeicoes.rejeitar(registro.linha(), registro.conteudo(), CsvService.motivoRejeicao(novaFalha));
+                    return 0;
+                }
+            }
+
+            int meio = registros.size() / 2;
+            return gravarIsolandoFalhas(registros.subList(0, meio), rejeicoes, dimensoesSeparadas)
+                    + gravarIsolandoFalhas(registros.subList(meio, registros.size()), rejeicoes, dimensoesSeparadas);
+        }
+    }
+
+    /**
+     * Registro inválido ou violação de restrição do banco (chave, nulo, tamanho ou tipo do valor).
+     * Erros de lote JDBC chegam sem a exceção específica; o SQLState indica a classe do erro.
+     */
+    private static boolean erroDeDados(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof DadosInvalidosException
+                    || causa instanceof DataIntegrityViolationException
+                    || causa instanceof ConstraintViolationException
+                    || causa instanceof SQLIntegrityConstraintViolationException
+                    || causa instanceof SQLDataException) {
+                return true;
+            }
+            if (causa instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("22") || sql.getSQLState().startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void gravarEmTransacao(List<RegistroCsv> registros, boolean dimensoesSeparadas) {
+        transacao.executeWithoutResult(status -> {
+            CacheDimensoes cache = processamentoVendasService.iniciarCacheDimensoes(dimensoesSeparadas);
+            for (int inicio = 0; inicio < registros.size(); inicio += tamanhoLote) {
+                List<RegistroCsv> lote = registros.subList(inicio, Math.min(inicio + tamanhoLote, registros.size()));
+                processamentoVendasService.salvarLote(lote.stream().map(RegistroCsv::dados).toList(), cache);
+            }
+        });
+    }
+
+    private InputStream abrirConteudo(InputStream inputStream) {
+        try {
+            return DescompressaoUtil.descompactarSeNecessario(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        }
+    }
+}
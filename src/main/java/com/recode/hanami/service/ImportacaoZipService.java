@@ -0,0 +1,310 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoArquivoZipDTO;
+import com.recode.hanami.dto.ImportacaoEntradaDTO;
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.exception.ArquivoInvalidoException;
+import com.recode.hanami.validation.UploadArquivoValidator;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Importa os CSVs contidos em um arquivo ZIP. As entradas são lidas em sequência do fluxo do
+ * upload, gravadas uma a uma no diretório de spool e importadas em paralelo por um pool
+ * limitado, cada uma em sua própria transação e com o mesmo tratamento de
+ * {@link ImportacaoVendasService#importarArquivo}. Clientes, produtos e vendedores são confirmados
+ * em transações curtas à parte, já que lojas diferentes costumam compartilhar produtos.
+ * <p>
+ * A leitura do ZIP só avança quando há uma thread livre, de modo que no máximo {@code threads}
+ * entradas ficam no spool ao mesmo tempo, qualquer que seja o número de entradas. Uma entrada que
+ * falha por conflito com outra gravando os mesmos clientes ou produtos ao mesmo tempo é importada
+ * de novo na mesma thread, até {@code tentativas-conflito} vezes com espera crescente, antes de
+ * liberar a vaga e o arquivo do spool; esgotadas as tentativas, aparece como {@code falhou}.
+ */
+@Service
+public class ImportacaoZipService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacaoZipService.class);
+
+    private static final String STATUS_SUCESSO = "sucesso";
+    private static final String STATUS_SUCESSO_PARCIAL = "sucesso_parcial";
+    private static final String STATUS_FALHOU = "falhou";
+    private static final String STATUS_IGNORADA = "ignorada";
+
+    private final ImportacaoVendasService importacaoVendasService;
+    private final SpoolImportacao spoolImportacao;
+    private final UploadArquivoValidator uploadArquivoValidator;
+    private final ExecutorService executor;
+    private final int threads;
+    private final long tamanhoMaximoEntrada;
+    private final int tentativasConflito;
+    private final long esperaConflitoMs;
+
+    public ImportacaoZipService(ImportacaoVendasService importacaoVendasService,
+                                SpoolImportacao spoolImportacao,
+                                UploadArquivoValidator uploadArquivoValidator,
+                                @Value("${hanami.importacao.zip.threads:2}") int threads,
+                                @Value("${hanami.importacao.zip.tamanho-maximo-entrada:4294967296}") long tamanhoMaximoEntrada,
+                                @Value("${hanami.importacao.zip.tentativas-conflito:5}") int tentativasConflito,
+                                @Value("${hanami.importacao.zip.espera-conflito-ms:100}") long esperaConflitoMs,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.importacaoVendasService = importacaoVendasService;
+        this.spoolImportacao = spoolImportacao;
+        this.uploadArquivoValidator = uploadArquivoValidator;
+        this.threads = threads;
+        this.tamanhoMaximoEntrada = tamanhoMaximoEntrada;
+        this.tentativasConflito = Math.max(1, tentativasConflito);
+        this.esperaConflitoMs = esperaConflitoMs;
+
+        // A fila é limitada pelo semáforo de cada requisição
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                FabricaThreads.criar("importacao-zip", threadsVirtuais));
+    }
+
+    /**
+     * Diretórios, arquivos ocultos e metadados do macOS são ignorados sem aparecer na resposta;
+     * entradas com outras extensões aparecem como {@code ignorada}. Um ZIP corrompido interrompe
+     * a leitura, mas as entradas já lidas continuam sendo importadas e são informadas.
+     */
+    public ImportacaoArquivoZipDTO importar(MultipartFile file, boolean forcar) {
+        Semaphore vagas = new Semaphore(threads);
+        List<Future<ImportacaoEntradaDTO>> pendentes = new ArrayList<>();
+
+        try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+            ZipEntry entrada;
+            while ((entrada = zip.getNextEntry()) != null) {
+                String nome = entrada.getName();
+                if (entrada.isDirectory() || deveIgnorar(nome)) {
+                    continue;
+                }
+                if (!uploadArquivoValidator.isNomeCsvValido(nome)) {
+                    pendentes.add(concluida(ImportacaoEntradaDTO.comErro(nome, STATUS_IGNORADA,
+                            "Extensão não suportada; são aceitos .csv, .csv.gz, .csv.zst, .arrow e .feather")));
+                    continue;
+                }
+
+                aguardarVaga(vagas);
+                Path arquivo = spoolImportacao.criarArquivo("zip-");
+                try {
+                    if (!copiarEntrada(zip, arquivo)) {
+                        spoolImportacao.excluir(arquivo);
+                        vagas.release();
+                        pendentes.add(concluida(ImportacaoEntradaDTO.comErro(nome, STATUS_FALHOU,
+                                "A entrada excede o tamanho máximo de " + tamanhoMaximoEntrada + " bytes descompactada")));
+                        continue;
+                    }
+                    pendentes.add(executor.submit(() -> importarEntrada(nome, arquivo, forcar, vagas)));
+                } catch (IOException | RuntimeException e) {
+                    spoolImportacao.excluir(arquivo);
+                    vagas.release();
+                    throw e;
+                }
+            }
+        } catch (ZipException e) {
+            logger.warn("Arquivo ZIP {} corrompido: {}", file.getOriginalFilename(), e.getMessage());
+            pendentes.add(concluida(ImportacaoEntradaDTO.comErro(file.getOriginalFilename(), STATUS_FALHOU,
+                    "Arquivo ZIP corrompido; as entradas seguintes não foram lidas: " + e.getMessage())));
+        } catch (IOException e) {
+            // As entradas em andamento excluem seus arquivos do spool ao terminar
+            aguardarTodas(pendentes);
+            throw new RuntimeException("Erro de leitura do arquivo: " + e.getMessage());
+        }
+
+        if (pendentes.isEmpty()) {
+            throw new ArquivoInvalidoException("O arquivo ZIP não contém arquivos CSV");
+        }
+
+        return consolidar(aguardarTodas(pendentes));
+    }
+
+    /**
+     * A vaga e o arquivo do spool só são liberados quando a entrada termina, inclusive as novas
+     * tentativas depois de um conflito, para que o spool nunca guarde mais que {@code threads}
+     * entradas.
+     */
+    private ImportacaoEntradaDTO importarEntrada(String nome, Path arquivo, boolean forcar, Semaphore vagas) {
+        try {
+            for (int tentativa = 1; ; tentativa++) {
+                try {
+                    ImportacaoResponseDTO resultado = importacaoVendasService.importarArquivo(arquivo, nome, forcar,
+                            ProgressoImportacao.NENHUM, true);
+                    logger.info("Entrada {} do ZIP importada: {} linhas", nome, resultado.linhasProcessadas());
+                    return ImportacaoEntradaDTO.importada(nome, resultado);
+                } catch (RuntimeException e) {
+                    if (!conflitoEntreImportacoes(e) || tentativa >= tentativasConflito) {
+                        logger.warn("Falha ao importar a entrada {} do ZIP: {}", nome, e.getMessage());
+                        return ImportacaoEntradaDTO.comErro(nome, STATUS_FALHOU, e.getMessage());
+                    }
+                    long espera = esperaConflito(tentativa);
+                    logger.info("Entrada {} do ZIP em conflito com outra importação simultânea; nova tentativa em {} ms",
+                            nome, espera);
+                    if (!aguardar(espera)) {
+                        return ImportacaoEntradaDTO.comErro(nome, STATUS_FALHOU, "Importação do arquivo ZIP interrompida");
+                    }
+                }
+            }
+        } finally {
+            spoolImportacao.excluir(arquivo);
+            vagas.release();
+        }
+    }
+
+    /**
+     * Dobra a cada tentativa, com uma parte aleatória para que duas entradas em conflito não
+     * tentem de novo ao mesmo tempo.
+     */
+    private long esperaConflito(int tentativa) {
+        long base = esperaConflitoMs << Math.min(tentativa - 1, 10);
+        return base + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    private static boolean aguardar(long milissegundos) {
+        try {
+            Thread.sleep(milissegundos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Violação de chave, deadlock ou espera de lock esgotada causados por outra transação:
+     * repetir a importação depois que a outra transação terminar resolve.
+     */
+    private static boolean conflitoEntreImportacoes(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof DataIntegrityViolationException
+                    || causa instanceof ConcurrencyFailureException
+                    || causa instanceof ConstraintViolationException
+                    || causa instanceof LockAcquisitionException
+                    || causa instanceof SQLIntegrityConstraintViolationException
+                    || causa instanceof SQLTransientException) {
+                return true;
+            }
+            // Erros de batch chegam sem a exceção específica; o SQLState indica a classe do erro
+            if (causa instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("23") || sql.getSQLState().startsWith("40")
+                    || sql.getSQLState().startsWith("HYT"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code false} se a entrada ultrapassar o tamanho máximo
+     */
+    private boolean copiarEntrada(ZipInputStream zip, Path arquivo) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long copiados = 0;
+
+        try (OutputStream saida = Files.newOutputStream(arquivo)) {
+            int lidos;
+            while ((lidos = zip.read(buffer)) != -1) {
+                copiados += lidos;
+                if (copiados > tamanhoMaximoEntrada) {
+                    return false;
+                }
+                saida.write(buffer, 0, lidos);
+            }
+        }
+        return true;
+    }
+
+    private static boolean deveIgnorar(String nome) {
+        String nomeBase = nome.substring(nome.lastIndexOf('/') + 1);
+        return nome.startsWith("__MACOSX/") || nomeBase.startsWith(".");
+    }
+
+    private static void aguardarVaga(Semaphore vagas) {
+        try {
+            vagas.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Importação do arquivo ZIP interrompida", e);
+        }
+    }
+
+    private static List<ImportacaoEntradaDTO> aguardarTodas(List<Future<ImportacaoEntradaDTO>> pendentes) {
+        List<ImportacaoEntradaDTO> resultados = new ArrayList<>(pendentes.size());
+        for (Future<ImportacaoEntradaDTO> pendente : pendentes) {
+            try {
+                resultados.add(pendente.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Importação do arquivo ZIP interrompida", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return resultados;
+    }
+
+    private static Future<ImportacaoEntradaDTO> concluida(ImportacaoEntradaDTO entrada) {
+        return CompletableFuture.completedFuture(entrada);
+    }
+
+    private static ImportacaoArquivoZipDTO consolidar(List<ImportacaoEntradaDTO> entradas) {
+        int linhas = 0;
+        int importadas = 0;
+        int comErro = 0;
+        boolean parcial = false;
+
+        for (ImportacaoEntradaDTO entrada : entradas) {
+            if (STATUS_FALHOU.equals(entrada.status())) {
+                comErro++;
+            } else if (!STATUS_IGNORADA.equals(entrada.status())) {
+                importadas++;
+                linhas += entrada.linhasProcessadas() != null ? entrada.linhasProcessadas() : 0;
+                parcial |= !STATUS_SUCESSO.equals(entrada.status());
+            }
+        }
+
+        String status;
+        if (importadas == 0) {
+            status = STATUS_FALHOU;
+        } else if (comErro > 0 || parcial) {
+            status = STATUS_SUCESSO_PARCIAL;
+        } else {
+            status = STATUS_SUCESSO;
+        }
+        return new ImportacaoArquivoZipDTO(status, linhas, importadas, comErro, entradas);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,278 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.util.FiltroBloom;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.text.CollationKey;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Índice probabilístico dos IDs de vendas já gravados, consultado pela importação antes de
+ * buscar as vendas existentes no banco: um ID ausente do filtro é certamente novo e dispensa a
+ * consulta. Um ID presente pode ou não existir (falso positivo) e segue para o banco.
+ * <p>
+ * O filtro é reconstruído a partir da tabela {@code vendas} na inicialização e sempre que o
+ * número de IDs ultrapassa a capacidade. Até a primeira reconstrução terminar, todo ID é
+ * tratado como possivelmente existente. Os IDs gravados entram no filtro assim que são enviados
+ * ao banco, para que lotes seguintes da mesma transação e outras importações os enxerguem; um
+ * rollback deixa apenas falsos positivos. Os IDs de cada transação aberta também são guardados
+ * até ela terminar e copiados para o filtro reconstruído, porque a leitura da tabela não enxerga
+ * o que ainda não foi confirmado.
+ * <p>
+ * Os IDs entram no filtro e são consultados pela chave de comparação da coluna
+ * {@code id_transacao}: no MySQL com collation {@code _ci}, IDs que diferem só em maiúsculas ou
+ * acentos são a mesma venda, e um deles não pode ser dado como certamente novo porque o outro
+ * foi gravado. No H2 a comparação é exata.
+ * <p>
+ * Supõe que esta instância é a única a inserir vendas; com várias instâncias, deve ser desabilitado.
+ */
+@Service
+public class IndiceVendasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceVendasService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+    private final long capacidadeMinima;
+    private final double taxaFalsosPositivos;
+    private final boolean threadsVirtuais;
+    private final AtomicBoolean reconstruindo = new AtomicBoolean();
+    private final Set<Queue<String>> idsTransacoesAbertas = ConcurrentHashMap.newKeySet();
+    private final Counter consultasAusentes;
+    private final Counter consultasPresentes;
+    private final Counter falsosPositivos;
+
+    private final Object chaveIdsTransacao = new Object();
+
+    private volatile FiltroBloom filtro;
+    private volatile FiltroBloom filtroEmConstrucao;
+    private volatile Function<String, String> normalizacao;
+
+    public IndiceVendasService(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${hanami.importacao.indice-vendas.habilitado:true}") boolean habilitado,
+                               @Value("${hanami.importacao.indice-vendas.capacidade-minima:1000000}") long capacidadeMinima,
+                               @Value("${hanami.importacao.indice-vendas.taxa-falsos-positivos:0.01}") double taxaFalsosPositivos,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+        this.capacidadeMinima = capacidadeMinima;
+        this.taxaFalsosPositivos = taxaFalsosPositivos;
+        this.threadsVirtuais = threadsVirtuais;
+
+        Gauge.builder("hanami.indice.vendas.tamanho", this, indice -> valorFiltro(FiltroBloom::getTamanhoBytes))
+                .description("Memória ocupada pelo filtro de Bloom dos IDs de vendas")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("hanami.indice.vendas.elementos", this, indice -> valorFiltro(FiltroBloom::getElementos))
+                .description("IDs de vendas adicionados ao filtro")
+                .register(meterRegistry);
+        Gauge.builder("hanami.indice.vendas.capacidade", this, indice -> valorFiltro(FiltroBloom::getCapacidade))
+                .description("IDs suportados pelo filtro antes de ser reconstruído")
+                .register(meterRegistry);
+        Gauge.builder("hanami.indice.vendas.falsos.positivos.estimados", this,
+                        indice -> valorFiltro(FiltroBloom::getTaxaFalsosPositivosEstimada))
+                .description("Taxa de falsos positivos esperada para a ocupação atual do filtro")
+                .register(meterRegistry);
+        Gauge.builder("hanami.indice.vendas.pronto", this, indice -> indice.filtro != null ? 1 : 0)
+                .description("1 quando o filtro está carregado e em uso")
+                .register(meterRegistry);
+
+        this.consultasAusentes = Counter.builder("hanami.indice.vendas.consultas")
+                .description("IDs consultados no filtro durante importações")
+                .tag("resultado", "ausente")
+                .register(meterRegistry);
+        this.consultasPresentes = Counter.builder("hanami.indice.vendas.consultas")
+                .description("IDs consultados no filtro durante importações")
+                .tag("resultado", "presente")
+                .register(meterRegistry);
+        this.falsosPositivos = Counter.builder("hanami.indice.vendas.falsos.positivos")
+                .description("IDs presentes no filtro que não existiam no banco")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (habilitado) {
+            reconstruirEmSegundoPlano();
+        }
+    }
+
+    /**
+     * {@code false} somente quando o ID certamente não está gravado.
+     */
+    public boolean podeExistir(String idTransacao) {
+        FiltroBloom atual = filtro;
+        boolean presente = atual == null || atual.podeConter(normalizacao.apply(idTransacao));
+        (presente ? consultasPresentes : consultasAusentes).increment();
+        return presente;
+    }
+
+    /**
+     * Informa quantos dos IDs apontados pelo filtro como possivelmente existentes não estavam no banco.
+     */
+    public void registrarFalsosPositivos(int quantidade) {
+        if (filtro != null && quantidade > 0) {
+            falsosPositivos.increment(quantidade);
+        }
+    }
+
+    /**
+     * Adiciona os IDs de vendas gravadas na transação corrente. Eles são guardados antes de
+     * chegar aos filtros: uma reconstrução que começar depois disso os copia, e uma que já tenha
+     * começado os recebe em {@link #adicionar}.
+     */
+    public void registrar(Collection<String> idsTransacao) {
+        if (!habilitado || idsTransacao.isEmpty()) {
+            return;
+        }
+
+        Queue<String> idsAbertos = idsDaTransacao();
+        if (idsAbertos != null) {
+            idsAbertos.addAll(idsTransacao);
+        }
+        adicionar(idsTransacao);
+    }
+
+    /**
+     * IDs registrados pela transação corrente, descartados quando ela termina; {@code null} fora
+     * de transação.
+     */
+    @SuppressWarnings("unchecked")
+    private Queue<String> idsDaTransacao() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        Queue<String> ids = (Queue<String>) TransactionSynchronizationManager.getResource(chaveIdsTransacao);
+        if (ids != null) {
+            return ids;
+        }
+
+        Queue<String> novos = new ConcurrentLinkedQueue<>();
+        idsTransacoesAbertas.add(novos);
+        TransactionSynchronizationManager.bindResource(chaveIdsTransacao, novos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                idsTransacoesAbertas.remove(novos);
+                TransactionSynchronizationManager.unbindResourceIfPossible(chaveIdsTransacao);
+            }
+        });
+        return novos;
+    }
+
+    /**
+     * O filtro em construção é lido antes do atual: se a reconstrução terminar entre as duas
+     * leituras, o filtro atual lido já é o novo. A normalização é definida antes de existir
+     * qualquer filtro.
+     */
+    private void adicionar(Collection<String> idsTransacao) {
+        FiltroBloom emConstrucao = filtroEmConstrucao;
+        FiltroBloom atual = filtro;
+        if (atual == null && emConstrucao == null) {
+            return;
+        }
+
+        Function<String, String> normalizar = normalizacao;
+        for (String idTransacao : idsTransacao) {
+            String id = normalizar.apply(idTransacao);
+            if (atual != null) {
+                atual.adicionar(id);
+            }
+            if (emConstrucao != null && emConstrucao != atual) {
+                emConstrucao.adicionar(id);
+            }
+        }
+
+        if (atual != null && atual.getElementos() > atual.getCapacidade()) {
+            reconstruirEmSegundoPlano();
+        }
+    }
+
+    private void reconstruirEmSegundoPlano() {
+        if (!reconstruindo.compareAndSet(false, true)) {
+            return;
+        }
+
+        FabricaThreads.iniciar("indice-vendas", threadsVirtuais, this::reconstruir);
+    }
+
+    /**
+     * O filtro novo passa a receber os IDs registrados antes da leitura da tabela começar, e em
+     * seguida recebe os já registrados pelas transações abertas. Assim cada venda chega ao filtro
+     * novo pela leitura, se confirmada antes dela, ou pelo registro, sem intervalo em que outra
+     * importação veja como novo um ID gravado por uma transação ainda aberta. Se os registros
+     * feitos durante a reconstrução passarem da capacidade, outra reconstrução começa ao fim desta.
+     */
+    private void reconstruir() {
+        FiltroBloom carregado = null;
+        try {
+            long inicio = System.nanoTime();
+            // Vendas de transações ainda abertas não aparecem na contagem, mas já estão no filtro atual
+            Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vendas", Long.class);
+            if (normalizacao == null) {
+                normalizacao = normalizacaoIds();
+            }
+            Function<String, String> normalizar = normalizacao;
+            FiltroBloom atual = filtro;
+            long ocupacao = Math.max(total != null ? total : 0, atual != null ? atual.getElementos() : 0);
+            long capacidade = Math.max(capacidadeMinima, 2 * ocupacao);
+
+            FiltroBloom novo = new FiltroBloom(capacidade, taxaFalsosPositivos);
+            filtroEmConstrucao = novo;
+            idsTransacoesAbertas.forEach(ids -> ids.forEach(id -> novo.adicionar(normalizar.apply(id))));
+            jdbcTemplate.query("SELECT id_transacao FROM vendas", resultado -> {
+                novo.adicionar(normalizar.apply(resultado.getString(1)));
+            });
+
+            filtro = novo;
+            carregado = novo;
+            logger.info("Índice de vendas carregado: {} IDs, capacidade {}, {} KB, em {} ms",
+                    novo.getElementos(), capacidade, novo.getTamanhoBytes() / 1024, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.error("Falha ao carregar o índice de vendas; IDs serão consultados no banco: {}", e.getMessage(), e);
+        } finally {
+            filtroEmConstrucao = null;
+            reconstruindo.set(false);
+        }
+
+        if (carregado != null && carregado.getElementos() > carregado.getCapacidade()) {
+            reconstruirEmSegundoPlano();
+        }
+    }
+
+    /**
+     * Texto igual para os IDs que a coluna {@code id_transacao} considera iguais.
+     */
+    private Function<String, String> normalizacaoIds() {
+        Function<String, Object> chave = Banco.detectar(jdbcTemplate).chaveComparacao(jdbcTemplate, "vendas", "id_transacao");
+        return id -> chave.apply(id) instanceof CollationKey chaveCollation
+                ? new String(chaveCollation.toByteArray(), StandardCharsets.ISO_8859_1)
+                : id;
+    }
+
+    private double valorFiltro(ToDoubleFunction<FiltroBloom> extrator) {
+        FiltroBloom atual = filtro;
+        return atual != null ? extrator.applyAsDouble(atual) : 0;
+    }
+}
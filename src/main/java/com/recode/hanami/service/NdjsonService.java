@@ -0,0 +1,130 @@
+package com.recode.hanami.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.recode.hanami.dto.DadosArquivoDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Leitura de JSON por linha (NDJSON): cada linha é um objeto com os mesmos campos das colunas
+ * do CSV de vendas. Os registros são entregues em lotes à medida que chegam: um lote é entregue
+ * quando enche ou quando o seu primeiro registro já esperou {@code esperaMs}, mesmo que o
+ * produtor esteja parado. Assim um produtor constante não gera lotes de poucos registros, cada
+ * um com a sua transação, e um produtor ocioso não deixa registros esperando indefinidamente.
+ */
+@Service
+public class NdjsonService {
+
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final long INTERVALO_VERIFICACAO_MS = 5;
+
+    private final ObjectReader leitor = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .build()
+            .readerFor(DadosArquivoDTO.class);
+
+    private final long esperaNanos;
+
+    public NdjsonService(@Value("${hanami.importacao.ndjson.espera-ms:200}") long esperaMs) {
+        if (esperaMs < 0) {
+            throw new IllegalArgumentException("Espera dos lotes NDJSON não pode ser negativa: " + esperaMs);
+        }
+        this.esperaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+    }
+
+    /**
+     * Linhas em branco são ignoradas; linhas que não são um objeto válido vão para
+     * {@code rejeicoes} e não interrompem a leitura.
+     *
+     * @return total de linhas com conteúdo, incluindo as rejeitadas
+     */
+    public int processarEmLotes(InputStream inputStream, int tamanhoLote,
+                                Consumer<List<RegistroCsv>> consumidorLote, ArquivoRejeicoes rejeicoes) {
+        try {
+            BufferedReader linhas = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), TAMANHO_BUFFER);
+            List<RegistroCsv> lote = new ArrayList<>(tamanhoLote);
+            int totalLinhas = 0;
+            long numeroLinha = 0;
+            long inicioLote = 0;
+
+            while (true) {
+                // Produtor ocioso até o prazo do lote: o que já chegou é gravado antes de bloquear na leitura
+                if (!lote.isEmpty() && !aguardarDados(linhas, inicioLote + esperaNanos)) {
+                    consumidorLote.accept(lote);
+                    totalLinhas += lote.size();
+                    lote = new ArrayList<>(tamanhoLote);
+                }
+
+                String linha = linhas.readLine();
+                if (linha == null) {
+                    break;
+                }
+                numeroLinha++;
+                if (linha.isBlank()) {
+                    continue;
+                }
+
+                DadosArquivoDTO dados;
+                try {
+                    dados = leitor.readValue(linha);
+                } catch (JsonProcessingException e) {
+                    rejeicoes.rejeitar(numeroLinha, linha, CsvService.motivoRejeicao(e));
+                    totalLinhas++;
+                    continue;
+                }
+
+                byte[] conteudo = linha.getBytes(StandardCharsets.UTF_8);
+                if (lote.isEmpty()) {
+                    inicioLote = System.nanoTime();
+                }
+                lote.add(new RegistroCsv(numeroLinha, dados, conteudo, 0, conteudo.length));
+                if (lote.size() >= tamanhoLote || System.nanoTime() - inicioLote >= esperaNanos) {
+                    consumidorLote.accept(lote);
+                    totalLinhas += lote.size();
+                    lote = new ArrayList<>(tamanhoLote);
+                }
+            }
+
+            if (!lote.isEmpty()) {
+                consumidorLote.accept(lote);
+                totalLinhas += lote.size();
+            }
+            return totalLinhas;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro de leitura do fluxo: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Leitura do fluxo interrompida");
+        }
+    }
+
+    /**
+     * O fluxo do servlet não tem leitura com tempo limite; a chegada de dados é verificada em
+     * intervalos curtos até o prazo.
+     *
+     * @return {@code false} se nada chegou até {@code prazoNanos}
+     */
+    private static boolean aguardarDados(BufferedReader linhas, long prazoNanos) throws IOException, InterruptedException {
+        while (!linhas.ready()) {
+            long restante = prazoNanos - System.nanoTime();
+            if (restante <= 0) {
+                return false;
+            }
+            Thread.sleep(Math.min(INTERVALO_VERIFICACAO_MS, TimeUnit.NANOSECONDS.toMillis(restante) + 1));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,295 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.entities.Cliente;
+import com.recode.hanami.entities.Produto;
+import com.recode.hanami.entities.Venda;
+import com.recode.hanami.entities.Vendedor;
+import com.recode.hanami.repository.ClienteRepository;
+import com.recode.hanami.repository.ProdutoRepository;
+import com.recode.hanami.repository.VendaRepository;
+import com.recode.hanami.repository.VendedorRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Grava lotes de clientes, produtos, vendedores e vendas sem passar por {@code save()}.
+ * <p>
+ * Como todas as entidades usam IDs atribuídos, o {@code save()} do Spring Data cai sempre em
+ * {@code merge()} e faz um SELECT por linha. Aqui os registros já existentes são buscados com
+ * uma única consulta por entidade e atualizados via dirty checking; os demais são inseridos com
+ * {@code persist()}, o que permite ao Hibernate agrupar os INSERTs em batches JDBC ordenados.
+ * Vendas cujo ID está ausente do {@link IndiceVendasService} são certamente novas e nem entram
+ * na consulta. Cada linha devolvida pela consulta é casada com o ID pedido que o banco considera
+ * igual: no MySQL, com collation {@code _ci}, um ID que difere só em maiúsculas ou acentos
+ * atualiza a linha existente em vez de violar a chave primária.
+ * <p>
+ * Quando o cache da importação pede dimensões separadas, clientes, produtos e vendedores do lote
+ * são confirmados antes das vendas em uma transação própria, uma importação por vez. Os locks
+ * dessas linhas duram só essa transação curta, e não a importação inteira; em troca, se a
+ * importação falhar, as dimensões já confirmadas permanecem. As dimensões gravadas pelo lote
+ * vão para o {@link CacheDimensoesCompartilhado} no commit dessa transação, ainda sob a trava.
+ * <p>
+ * As vendas existentes são lidas com lock de escrita, de modo que duas importações que
+ * sobrescrevem a mesma venda se alternam, e cada uma vê os valores gravados pela outra.
+ * Cada venda gravada, e os valores anteriores de cada venda sobrescrita, são informados ao
+ * {@link ResumoVendasService}, que atualiza o resumo dos relatórios na mesma transação, e ao
+ * {@link ArmazemColunarVendas}, que as recebe após o commit.
+ */
+@Service
+public class PersistenciaEmLoteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistenciaEmLoteService.class);
+
+    private final ClienteRepository clienteRepository;
+    private final ProdutoRepository produtoRepository;
+    private final VendedorRepository vendedorRepository;
+    private final VendaRepository vendaRepository;
+    private final CacheDimensoesCompartilhado cacheCompartilhado;
+    private final IndiceVendasService indiceVendasService;
+    private final ResumoVendasService resumoVendasService;
+    private final ArmazemColunarVendas armazemColunarVendas;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transacaoDimensoes;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Function<String, Object>> chavesId = new ConcurrentHashMap<>();
+    private final ReentrantLock travaDimensoes = new ReentrantLock();
+
+    public PersistenciaEmLoteService(ClienteRepository clienteRepository,
+                                     ProdutoRepository produtoRepository,
+                                     VendedorRepository vendedorRepository,
+                                     VendaRepository vendaRepository,
+                                     CacheDimensoesCompartilhado cacheCompartilhado,
+                                     IndiceVendasService indiceVendasService,
+                                     ResumoVendasService resumoVendasService,
+                                     ArmazemColunarVendas armazemColunarVendas,
+                                     EntityManager entityManager,
+                                     PlatformTransactionManager transactionManager,
+                                     JdbcTemplate jdbcTemplate) {
+        this.clienteRepository = clienteRepository;
+        this.produtoRepository = produtoRepository;
+        this.vendedorRepository = vendedorRepository;
+        this.vendaRepository = vendaRepository;
+        this.cacheCompartilhado = cacheCompartilhado;
+        this.indiceVendasService = indiceVendasService;
+        this.resumoVendasService = resumoVendasService;
+        this.armazemColunarVendas = armazemColunarVendas;
+        this.entityManager = entityManager;
+        this.transacaoDimensoes = new TransactionTemplate(transactionManager);
+        this.transacaoDimensoes.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Os IDs de cada coleção devem ser únicos, também na comparação do banco. Clientes, produtos e vendedores já registrados
+     * com os mesmos atributos no cache da importação ou no cache compartilhado não são
+     * consultados nem gravados; as vendas apenas referenciam a chave deles. Ao final o contexto
+     * de persistência é sincronizado e limpo, liberando as entidades do lote.
+     */
+    @Transactional
+    public void gravar(Collection<Cliente> clientes,
+                       Collection<Produto> produtos,
+                       Collection<Vendedor> vendedores,
+                       Collection<Venda> vendas,
+                       CacheDimensoes cache) {
+
+        if (cache.isDimensoesSeparadas()) {
+            travaDimensoes.lock();
+            try {
+                transacaoDimensoes.executeWithoutResult(status -> cacheCompartilhado.publicarLoteAposCommit(cache,
+                        gravarDimensoes(clientes, produtos, vendedores, cache)));
+            } finally {
+                travaDimensoes.unlock();
+            }
+        } else {
+            gravarDimensoes(clientes, produtos, vendedores, cache);
+        }
+
+        for (Venda venda : vendas) {
+            venda.setCliente(entityManager.getReference(Cliente.class, venda.getCliente().getId()));
+            venda.setProduto(entityManager.getReference(Produto.class, venda.getProduto().getId()));
+            venda.setVendedor(entityManager.getReference(Vendedor.class, venda.getVendedor().getId()));
+        }
+        int possiveisExistentes = gravarEntidades(vendas, Venda::getId, chaveId("vendas", "id_transacao"),
+                vendaRepository::buscarParaAtualizacao, this::substituirVenda, indiceVendasService::podeExistir);
+        indiceVendasService.registrarFalsosPositivos(possiveisExistentes);
+        vendas.forEach(resumoVendasService::registrarInclusao);
+        armazemColunarVendas.registrarVendas(vendas);
+
+        entityManager.flush();
+        entityManager.clear();
+        indiceVendasService.registrar(vendas.stream().map(Venda::getId).toList());
+    }
+
+    /**
+     * @return as dimensões gravadas por este lote
+     */
+    private CacheDimensoes gravarDimensoes(Collection<Cliente> clientes,
+                                           Collection<Produto> produtos,
+                                           Collection<Vendedor> vendedores,
+                                           CacheDimensoes cache) {
+        CacheDimensoes gravadas = new CacheDimensoes();
+        gravarDimensoes(Cliente.class, clientes, Cliente::getId, chaveId("clientes", "cliente_id"), this::assinaturaCliente,
+                clienteRepository, this::copiarCliente, cache, gravadas);
+        armazemColunarVendas.registrarClientes(clientes);
+        gravarDimensoes(Produto.class, produtos, Produto::getId, chaveId("produtos", "produto_id"), this::assinaturaProduto,
+                produtoRepository, this::copiarProduto, cache, gravadas);
+        gravarDimensoes(Vendedor.class, vendedores, Vendedor::getId, chaveId("vendedores", "vendedor_id"), vendedor -> List.of(),
+                vendedorRepository, (origem, destino) -> { }, cache, gravadas);
+        return gravadas;
+    }
+
+    private <T> void gravarDimensoes(Class<T> tipo,
+                                     Collection<T> entidades,
+                                     Function<T, String> extratorId,
+                                     Function<String, Object> chaveId,
+                                     Function<T, Object> extratorAssinatura,
+                                     JpaRepository<T, String> repository,
+                                     BiConsumer<T, T> copiarAtributos,
+                                     CacheDimensoes cache,
+                                     CacheDimensoes gravadas) {
+
+        List<T> pendentes = entidades.stream()
+                .filter(entidade -> {
+                    String id = extratorId.apply(entidade);
+                    Object assinatura = extratorAssinatura.apply(entidade);
+                    return !cache.contem(tipo, id, assinatura) && !cacheCompartilhado.contem(tipo, id, assinatura);
+                })
+                .toList();
+
+        gravarEntidades(pendentes, extratorId, chaveId, repository::findAllById, copiarAtributos, id -> true);
+
+        for (T entidade : pendentes) {
+            String id = extratorId.apply(entidade);
+            Object assinatura = extratorAssinatura.apply(entidade);
+            cache.registrar(tipo, id, assinatura);
+            gravadas.registrar(tipo, id, assinatura);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}: {} de {} registros gravados, demais reaproveitados do cache",
+                    tipo.getSimpleName(), pendentes.size(), entidades.size());
+        }
+    }
+
+    /**
+     * Só os IDs aceitos por {@code podeExistir} são buscados no banco; os demais são inseridos direto.
+     *
+     * @return quantidade de IDs buscados que não existiam
+     */
+    private <T> int gravarEntidades(Collection<T> entidades,
+                                    Function<T, String> extratorId,
+                                    Function<String, Object> chaveId,
+                                    Function<Collection<String>, List<T>> buscarExistentes,
+                                    BiConsumer<T, T> copiarAtributos,
+                                    Predicate<String> podeExistir) {
+        if (entidades.isEmpty()) {
+            return 0;
+        }
+
+        List<String> ids = entidades.stream().map(extratorId).filter(podeExistir).toList();
+        Map<Object, T> existentes = ids.isEmpty() ? Map.of() : buscarExistentes.apply(ids).stream()
+                .collect(Collectors.toMap(extratorId.andThen(chaveId), Function.identity()));
+
+        for (T entidade : entidades) {
+            T existente = existentes.get(chaveId.apply(extratorId.apply(entidade)));
+
+            if (existente != null) {
+                copiarAtributos.accept(entidade, existente);
+            } else {
+                entityManager.persist(entidade);
+            }
+        }
+        return ids.size() - existentes.size();
+    }
+
+    /**
+     * Chave de comparação dos IDs da tabela, conforme o collation da coluna no banco.
+     */
+    private Function<String, Object> chaveId(String tabela, String coluna) {
+        return chavesId.computeIfAbsent(tabela,
+                chave -> Banco.detectar(jdbcTemplate).chaveComparacao(jdbcTemplate, tabela, coluna));
+    }
+
+    private Object assinaturaCliente(Cliente cliente) {
+        return Arrays.asList(
+                cliente.getNomeCliente(),
+                cliente.getIdadeCliente(),
+                cliente.getGeneroCliente(),
+                cliente.getCidadeCliente(),
+                cliente.getEstadoCliente(),
+                cliente.getRendaEstimada()
+        );
+    }
+
+    private Object assinaturaProduto(Produto produto) {
+        return Arrays.asList(
+                produto.getNomeProduto(),
+                produto.getCategoria(),
+                produto.getMarca(),
+                produto.getMargemLucro(),
+                produto.getPrecoUnitario(),
+                produto.getQuantidade()
+        );
+    }
+
+    private void copiarCliente(Cliente origem, Cliente destino) {
+        destino.setNomeCliente(origem.getNomeCliente());
+        destino.setIdadeCliente(origem.getIdadeCliente());
+        destino.setGeneroCliente(origem.getGeneroCliente());
+        destino.setCidadeCliente(origem.getCidadeCliente());
+        destino.setEstadoCliente(origem.getEstadoCliente());
+        destino.setRendaEstimada(origem.getRendaEstimada());
+    }
+
+    private void copiarProduto(Produto origem, Produto destino) {
+        destino.setNomeProduto(origem.getNomeProduto());
+        destino.setCategoria(origem.getCategoria());
+        destino.setMarca(origem.getMarca());
+        destino.setMargemLucro(origem.getMargemLucro());
+        destino.setPrecoUnitario(origem.getPrecoUnitario());
+        destino.setQuantidade(origem.getQuantidade());
+    }
+
+    /**
+     * Os valores anteriores da venda saem do resumo antes de serem sobrescritos.
+     */
+    private void substituirVenda(Venda origem, Venda destino) {
+        resumoVendasService.registrarRemocao(destino);
+        copiarVenda(origem, destino);
+    }
+
+    private void copiarVenda(Venda origem, Venda destino) {
+        destino.setDataVenda(origem.getDataVenda());
+        destino.setValorFinal(origem.getValorFinal());
+        destino.setSubtotal(origem.getSubtotal());
+        destino.setDescontoPercent(origem.getDescontoPercent());
+        destino.setQuantidade(origem.getQuantidade());
+        destino.setCanalVenda(origem.getCanalVenda());
+        destino.setFormaPagamento(origem.getFormaPagamento());
+        destino.setRegiao(origem.getRegiao());
+        destino.setStatusEntrega(origem.getStatusEntrega());
+        destino.setTempoEntregaDias(origem.getTempoEntregaDias());
+        destino.setCliente(origem.getCliente());
+        destino.setProduto(origem.getProduto());
+        destino.setVendedor(origem.getVendedor());
+    }
+}
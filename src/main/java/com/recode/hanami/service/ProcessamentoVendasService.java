@@ -6,50 +6,87 @@ import com.recode.hanami.entities.Produto;
 import com.recode.hanami.entities.Venda;
 import com.recode.hanami.entities.Vendedor;
 import com.recode.hanami.exception.DadosInvalidosException;
-import com.recode.hanami.repository.ClienteRepository;
-import com.recode.hanami.repository.ProdutoRepository;
-import com.recode.hanami.repository.VendaRepository;
-import com.recode.hanami.repository.VendedorRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ProcessamentoVendasService {
 
-    private final ClienteRepository clienteRepository;
-    private final ProdutoRepository produtoRepository;
-    private final VendedorRepository vendedorRepository;
-    private final VendaRepository vendaRepository;
-
-    public ProcessamentoVendasService(ClienteRepository clienteRepository,
-                                      ProdutoRepository produtoRepository,
-                                      VendedorRepository vendedorRepository,
-                                      VendaRepository vendaRepository) {
-        this.clienteRepository = clienteRepository;
-        this.produtoRepository = produtoRepository;
-        this.vendedorRepository = vendedorRepository;
-        this.vendaRepository = vendaRepository;
+    private final PersistenciaEmLoteService persistenciaEmLoteService;
+    private final CacheDimensoesCompartilhado cacheCompartilhado;
+    private final int tamanhoLote;
+
+    public ProcessamentoVendasService(PersistenciaEmLoteService persistenciaEmLoteService,
+                                      CacheDimensoesCompartilhado cacheCompartilhado,
+                                      @Value("${hanami.importacao.tamanho-lote:1000}") int tamanhoLote) {
+        this.persistenciaEmLoteService = persistenciaEmLoteService;
+        this.cacheCompartilhado = cacheCompartilhado;
+        this.tamanhoLote = tamanhoLote;
     }
 
     @Transactional
     public void salvarDadosDoArquivo(List<DadosArquivoDTO> listaDtos) {
+        CacheDimensoes cache = iniciarCacheDimensoes();
+
+        for (int inicio = 0; inicio < listaDtos.size(); inicio += tamanhoLote) {
+            salvarLote(listaDtos.subList(inicio, Math.min(inicio + tamanhoLote, listaDtos.size())), cache);
+        }
+    }
 
-        for (DadosArquivoDTO dto : listaDtos) {
+    /**
+     * Cria o cache de dimensões de uma importação. Chamado dentro da transação da importação,
+     * para que o conteúdo só seja compartilhado com as próximas importações após o commit.
+     */
+    public CacheDimensoes iniciarCacheDimensoes() {
+        return iniciarCacheDimensoes(false);
+    }
 
+    /**
+     * @param dimensoesSeparadas grava as dimensões de cada lote em transação própria; o cache
+     *                           compartilhado as recebe a cada lote, e não no fim da importação
+     */
+    public CacheDimensoes iniciarCacheDimensoes(boolean dimensoesSeparadas) {
+        CacheDimensoes cache = new CacheDimensoes(dimensoesSeparadas);
+        if (dimensoesSeparadas) {
+            cacheCompartilhado.acompanhar(cache);
+        } else {
+            cacheCompartilhado.publicarAposCommit(cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Persiste um lote e descarta o contexto de persistência em seguida, para que o
+     * consumo de memória não cresça com o tamanho do arquivo quando chamado em sequência
+     * dentro de uma mesma transação. Linhas repetidas no lote prevalecem pela última ocorrência.
+     */
+    @Transactional
+    public void salvarLote(List<DadosArquivoDTO> lote, CacheDimensoes cache) {
+        Map<String, Cliente> clientes = new LinkedHashMap<>();
+        Map<String, Produto> produtos = new LinkedHashMap<>();
+        Map<String, Vendedor> vendedores = new LinkedHashMap<>();
+        Map<String, Venda> vendas = new LinkedHashMap<>();
+
+        for (DadosArquivoDTO dto : lote) {
             Cliente cliente = converterParaCliente(dto);
-            clienteRepository.save(cliente);
+            clientes.put(cliente.getId(), cliente);
 
             Produto produto = converterParaProduto(dto);
-            produtoRepository.save(produto);
+            produtos.put(produto.getId(), produto);
 
             Vendedor vendedor = converterParaVendedor(dto);
-            vendedorRepository.save(vendedor);
+            vendedores.put(vendedor.getId(), vendedor);
 
             Venda venda = converterParaVenda(dto, cliente, produto, vendedor);
-            vendaRepository.save(venda);
+            vendas.put(venda.getId(), venda);
         }
+
+        persistenciaEmLoteService.gravar(clientes.values(), produtos.values(), vendedores.values(), vendas.values(), cache);
     }
 
     private Cliente converterParaCliente(DadosArquivoDTO dto) {
@@ -0,0 +1,42 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Recebe o avanço de uma importação em andamento. As implementações podem ser chamadas
+ * de outra thread que não a de quem acompanha o progresso.
+ */
+public interface ProgressoImportacao {
+
+    ProgressoImportacao NENHUM = new ProgressoImportacao() { };
+
+    default void linhasLidas(int quantidade) {
+    }
+
+    default void linhasPersistidas(int quantidade) {
+    }
+
+    default void linhasRejeitadas(int quantidade) {
+    }
+
+    /**
+     * A importação confirma o banco em lotes; as linhas já persistidas permanecem mesmo se
+     * a importação falhar depois.
+     */
+    default void confirmacaoEmLotes() {
+    }
+
+    /**
+     * Recebe o contador de bytes já lidos do arquivo em importação.
+     */
+    default void monitorarLeitura(LongSupplier bytesLidos) {
+    }
+
+    /**
+     * O arquivo é idêntico a um já importado e não será processado de novo.
+     */
+    default void arquivoJaImportado(ImportacaoResponseDTO resultadoAnterior) {
+    }
+}
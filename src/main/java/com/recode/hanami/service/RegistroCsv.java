@@ -0,0 +1,31 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Registro convertido junto com sua posição no arquivo, para que a linha original possa ser
+ * recuperada caso o registro seja rejeitado mais adiante. Registros lidos de formatos sem texto
+ * de origem, como o Arrow, não têm {@code bloco}, e o conteúdo rejeitado são os campos convertidos.
+ *
+ * @param linha número do registro no arquivo, contando o cabeçalho como linha 1 (no NDJSON, que
+ *              não tem cabeçalho, a primeira linha é a 1)
+ */
+record RegistroCsv(long linha, DadosArquivoDTO dados, byte[] bloco, int inicio, int fim) {
+
+    String conteudo() {
+        if (bloco == null) {
+            return String.valueOf(dados);
+        }
+        return textoRegistro(bloco, inicio, fim);
+    }
+
+    static String textoRegistro(byte[] bloco, int inicio, int fim) {
+        int fimConteudo = fim;
+        while (fimConteudo > inicio && (bloco[fimConteudo - 1] == '\n' || bloco[fimConteudo - 1] == '\r')) {
+            fimConteudo--;
+        }
+        return new String(bloco, inicio, fimConteudo - inicio, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,116 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.repository.ArquivoImportadoRepository;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Registro dos arquivos já importados, identificados pelo SHA-256 dos bytes enviados. Permite
+ * devolver o resultado anterior quando o mesmo arquivo é reenviado, sem processá-lo de novo.
+ * <p>
+ * No modo de transação por arquivo o registro é gravado na mesma transação da importação,
+ * então só existe para importações confirmadas; no modo por lotes é gravado ao final. O resultado
+ * devolvido de novo inclui as contagens do modo {@code upsert} e o endereço do arquivo de
+ * rejeições, que deixa de existir após {@code hanami.importacao.rejeicoes.retencao-horas}.
+ */
+@Service
+public class RegistroImportacoesService {
+
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private static final List<String> COLUNAS = List.of(
+            "hash_sha256", "nome_arquivo", "tamanho_bytes", "status", "linhas_processadas", "linhas_aceitas",
+            "linhas_rejeitadas", "arquivo_rejeicoes", "vendas_inseridas", "vendas_atualizadas", "vendas_inalteradas",
+            "importado_em");
+
+    private final ArquivoImportadoRepository arquivoImportadoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Banco banco;
+
+    public RegistroImportacoesService(ArquivoImportadoRepository arquivoImportadoRepository, JdbcTemplate jdbcTemplate) {
+        this.arquivoImportadoRepository = arquivoImportadoRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Calcula o hash lendo o fluxo até o fim, sem manter o conteúdo em memória. O fluxo não é fechado.
+     */
+    public String calcularHash(InputStream inputStream) throws IOException {
+        MessageDigest digest = criarDigest();
+        byte[] buffer = new byte[TAMANHO_BUFFER];
+        int lidos;
+
+        while ((lidos = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, lidos);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ImportacaoResponseDTO> buscarImportacao(String hash) {
+        return arquivoImportadoRepository.findById(hash)
+                .map(arquivo -> new ImportacaoResponseDTO(arquivo.getStatus(), arquivo.getLinhasProcessadas(),
+                        arquivo.getLinhasAceitas(), arquivo.getLinhasRejeitadas(), arquivo.getArquivoRejeicoes(),
+                        arquivo.getVendasInseridas(), arquivo.getVendasAtualizadas(), arquivo.getVendasInalteradas()));
+    }
+
+    /**
+     * Grava o registro do hash com um único comando de inserção ou atualização, sem consulta
+     * prévia: duas importações simultâneas do mesmo arquivo não falham por violação de chave, e
+     * a última a terminar deixa o seu resultado. Reimportações forçadas substituem o registro
+     * anterior do mesmo hash.
+     */
+    @Transactional
+    public void registrar(String hash, String nomeArquivo, long tamanhoBytes, ImportacaoResponseDTO resultado) {
+        Object[] valores = {hash, nomeArquivo, tamanhoBytes, resultado.status(), resultado.linhasProcessadas(),
+                resultado.linhasAceitas(), resultado.linhasRejeitadas(), resultado.arquivoRejeicoes(),
+                resultado.vendasInseridas(), resultado.vendasAtualizadas(), resultado.vendasInalteradas(),
+                LocalDateTime.now()};
+        try {
+            jdbcTemplate.update(sqlRegistrar(), valores);
+        } catch (DuplicateKeyException e) {
+            // O MERGE do H2 pode perder a corrida para a inserção de outra transação; repetido, encontra a linha e a atualiza
+            jdbcTemplate.update(sqlRegistrar(), valores);
+        }
+    }
+
+    private String sqlRegistrar() {
+        if (banco == null) {
+            banco = Banco.detectar(jdbcTemplate);
+        }
+
+        String colunas = String.join(", ", COLUNAS);
+        String parametros = String.join(", ", Collections.nCopies(COLUNAS.size(), "?"));
+        if (banco == Banco.MYSQL) {
+            String atualizacao = COLUNAS.stream()
+                    .skip(1)
+                    .map(coluna -> coluna + " = VALUES(" + coluna + ")")
+                    .collect(Collectors.joining(", "));
+            return "INSERT INTO arquivos_importados (" + colunas + ") VALUES (" + parametros + ")"
+                    + " ON DUPLICATE KEY UPDATE " + atualizacao;
+        }
+        return "MERGE INTO arquivos_importados (" + colunas + ") KEY (hash_sha256) VALUES (" + parametros + ")";
+    }
+
+    private MessageDigest criarDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Algoritmo SHA-256 indisponível", e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.exception.RecursoNaoEncontradoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Guarda os arquivos de rejeições das importações com commit em lotes, disponíveis para
+ * download por {@code retencaoHoras} horas.
+ */
+@Service
+public class RejeicoesImportacaoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RejeicoesImportacaoService.class);
+
+    private final Path diretorio;
+    private final long retencaoHoras;
+
+    public RejeicoesImportacaoService(@Value("${hanami.importacao.diretorio-spool:${java.io.tmpdir}/hanami-spool}") Path diretorioSpool,
+                                      @Value("${hanami.importacao.rejeicoes.retencao-horas:24}") long retencaoHoras) {
+        this.diretorio = diretorioSpool.resolve("rejeicoes");
+        this.retencaoHoras = retencaoHoras;
+    }
+
+    public ArquivoRejeicoes criar() {
+        removerExpirados();
+        String id = UUID.randomUUID().toString();
+        return new ArquivoRejeicoes(id, caminho(id));
+    }
+
+    public Path localizar(String idRejeicoes) {
+        Path arquivo = idValido(idRejeicoes) ? caminho(idRejeicoes) : null;
+        if (arquivo == null || !Files.exists(arquivo)) {
+            throw new RecursoNaoEncontradoException("Arquivo de rejeições não encontrado: " + idRejeicoes);
+        }
+        return arquivo;
+    }
+
+    private Path caminho(String id) {
+        return diretorio.resolve("rejeicoes-" + id + ".csv");
+    }
+
+    private boolean idValido(String id) {
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void removerExpirados() {
+        if (!Files.isDirectory(diretorio)) {
+            return;
+        }
+
+        FileTime limite = FileTime.from(Instant.now().minus(retencaoHoras, ChronoUnit.HOURS));
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "rejeicoes-*.csv")) {
+            for (Path arquivo : arquivos) {
+                if (Files.getLastModifiedTime(arquivo).compareTo(limite) < 0) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Não foi possível remover arquivos de rejeições expirados: {}", e.getMessage());
+        }
+    }
+}
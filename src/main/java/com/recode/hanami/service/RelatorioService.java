@@ -3,37 +3,61 @@ package com.recode.hanami.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.recode.hanami.dto.*;
-import com.recode.hanami.entities.Venda;
-import com.recode.hanami.repository.VendaRepository;
+import com.recode.hanami.repository.ResumoVendaRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.stream.Collectors;
 
+/**
+ * Relatórios de vendas. As somas e contagens são feitas pelo banco sobre o resumo mantido pelas
+ * importações ({@link ResumoVendaRepository}), que devolve só as linhas agregadas; nenhuma venda é
+ * carregada como entidade.
+ */
 @Service
 public class RelatorioService {
 
     private static final Logger logger = LoggerFactory.getLogger(RelatorioService.class);
 
-    private final VendaRepository vendaRepository;
+    private final ResumoVendaRepository resumoVendaRepository;
     private final CalculadoraMetricasService calculadoraService;
     private final CalculosDemografiaRegiao calculosDemografiaRegiao;
     private final PdfService pdfService;
     private final ObjectMapper objectMapper;
+    private final int tamanhoBlocoAgregacao;
+    private final ForkJoinPool poolAgregacao;
 
-    public RelatorioService(VendaRepository vendaRepository,
+    public RelatorioService(ResumoVendaRepository resumoVendaRepository,
                             CalculadoraMetricasService calculadoraService,
                             CalculosDemografiaRegiao calculosDemografiaRegiao,
-                            PdfService pdfService) {
-        this.vendaRepository = vendaRepository;
+                            PdfService pdfService,
+                            @Value("${hanami.relatorios.agregacao-paralela.habilitada:false}") boolean agregacaoParalela,
+                            @Value("${hanami.relatorios.agregacao-paralela.threads:0}") int threadsAgregacao,
+                            @Value("${hanami.relatorios.agregacao-paralela.tamanho-bloco:4096}") int tamanhoBlocoAgregacao) {
+        this.resumoVendaRepository = resumoVendaRepository;
         this.calculadoraService = calculadoraService;
         this.calculosDemografiaRegiao = calculosDemografiaRegiao;
         this.pdfService = pdfService;
         this.objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        this.tamanhoBlocoAgregacao = tamanhoBlocoAgregacao;
+
+        // Pool próprio, para não disputar o pool comum com streams paralelos de outras partes da aplicação
+        int paralelismo = threadsAgregacao > 0 ? threadsAgregacao : Runtime.getRuntime().availableProcessors();
+        this.poolAgregacao = agregacaoParalela
+                ? new ForkJoinPool(paralelismo, pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("relatorio-agregacao-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false)
+                : null;
     }
 
     public byte[] gerarRelatorioJsonBytes(RelatorioCompletoDTO relatorio) {
@@ -56,24 +80,30 @@ public class RelatorioService {
         }
     }
 
+    /**
+     * Todas as seções saem de uma única consulta, agrupada por produto, região, forma de pagamento
+     * e canal, lida uma vez por {@link AcumuladorRelatorio}. Com a agregação paralela os blocos de
+     * linhas são acumulados no pool próprio, com resultado idêntico ao da agregação sequencial.
+     */
     public RelatorioCompletoDTO gerarRelatorioCompleto() {
         logger.info("Gerando relatório completo");
 
-        List<Venda> todasVendas = vendaRepository.findAll();
-        List<Venda> vendasComRelacoes = vendaRepository.findAllWithRelations();
+        AcumuladorRelatorio totais = AcumuladorRelatorio.acumularEmBlocos(resumoVendaRepository.totalizarParaRelatorio(),
+                tamanhoBlocoAgregacao, poolAgregacao);
 
+        List<AnaliseProdutoDTO> analiseProdutos = gerarAnaliseProdutos(totais.totaisPorProduto());
 
-        List<AnaliseProdutoDTO> analiseProdutos = gerarAnaliseProdutos(vendasComRelacoes);
 
+        ResumoVendasDTO resumoVendas = gerarResumoVendas(totais.totaisVendas(),
+                totais.contagemFormasPagamento(), totais.contagemCanais());
 
-        ResumoVendasDTO resumoVendas = gerarResumoVendas(todasVendas);
 
-
-        Map<String, MetricasRegiaoDTO> desempenhoRegional = calculosDemografiaRegiao.calcularMetricasPorRegiao(todasVendas);
+        Map<String, MetricasRegiaoDTO> desempenhoRegional =
+                calculosDemografiaRegiao.calcularMetricasPorRegiao(totais.totaisPorRegiao());
 
         return new RelatorioCompletoDTO(
                 LocalDateTime.now(),
-                gerarMetricasFinanceiras(todasVendas),
+                gerarMetricasFinanceiras(totais.totaisFinanceiros()),
                 analiseProdutos,
                 resumoVendas,
                 desempenhoRegional
@@ -82,49 +112,28 @@ public class RelatorioService {
 
     public Map<String, Double> gerarMetricasFinanceirasMap() {
         logger.debug("Gerando métricas financeiras");
-        List<Venda> vendas = vendaRepository.findAll();
-
-        Double receitaLiquida = calculadoraService.calcularTotalVendas(vendas);
-        Double custoTotal = calculadoraService.calcularCustoTotalGeral(vendas);
-        Double lucroBruto = calculadoraService.calcularLucroBrutoGeral(vendas);
+        MetricasFinanceirasDTO metricas = gerarMetricasFinanceiras(resumoVendaRepository.totalizarReceitaECusto());
 
         Map<String, Double> metrics = new LinkedHashMap<>();
-        metrics.put("receita_liquida", receitaLiquida);
-        metrics.put("custo_total", custoTotal);
-        metrics.put("lucro_bruto", lucroBruto);
+        metrics.put("receita_liquida", metricas.receitaLiquida());
+        metrics.put("custo_total", metricas.custoTotal());
+        metrics.put("lucro_bruto", metricas.lucroBruto());
 
         return metrics;
     }
 
     public List<Map<String, Object>> gerarAnaliseProdutosOrdenada(String sortBy) {
         logger.debug("Gerando análise de produtos ordenada por: {}", sortBy);
-        List<Venda> vendasComRelacoes = vendaRepository.findAllWithRelations();
-
-        Map<String, Map<String, Object>> produtosMap = new LinkedHashMap<>();
-
-        for (Venda venda : vendasComRelacoes) {
-            String nomeProduto = venda.getProduto().getNomeProduto();
-            Integer quantidade = venda.getQuantidade() != null ? venda.getQuantidade() : 0;
-            Double receita = venda.getValorFinal() != null ? venda.getValorFinal() : 0.0;
-
-            if (produtosMap.containsKey(nomeProduto)) {
-                Map<String, Object> produtoExistente = produtosMap.get(nomeProduto);
-                Integer qtdAtual = (Integer) produtoExistente.get("quantidade_vendida");
-                Double totalAtual = (Double) produtoExistente.get("total_arrecadado");
-
-                produtoExistente.put("quantidade_vendida", qtdAtual + quantidade);
-                produtoExistente.put("total_arrecadado", calculadoraService.arredondar(totalAtual + receita));
-            } else {
-                Map<String, Object> novoProduto = new LinkedHashMap<>();
-                novoProduto.put("nome_produto", nomeProduto);
-                novoProduto.put("quantidade_vendida", quantidade);
-                novoProduto.put("total_arrecadado", calculadoraService.arredondar(receita));
-
-                produtosMap.put(nomeProduto, novoProduto);
-            }
+
+        List<Map<String, Object>> relatorio = new ArrayList<>();
+        for (TotaisGrupoDTO totais : resumoVendaRepository.totalizarPorProduto()) {
+            Map<String, Object> produto = new LinkedHashMap<>();
+            produto.put("nome_produto", totais.grupo());
+            produto.put("quantidade_vendida", (int) totais.quantidade());
+            produto.put("total_arrecadado", calculadoraService.arredondar(totais.receita()));
+            relatorio.add(produto);
         }
 
-        List<Map<String, Object>> relatorio = new ArrayList<>(produtosMap.values());
         aplicarOrdenacao(relatorio, sortBy);
 
         return relatorio;
@@ -137,28 +146,24 @@ public class RelatorioService {
     public Map<String, Object> gerarResumoVendasMap(LocalDate startDate, LocalDate endDate) {
         logger.debug("Gerando resumo de vendas - Período: {} a {}", startDate, endDate);
 
-        List<Venda> vendas;
+        ResumoVendasDTO resumoVendas;
         if (startDate != null && endDate != null) {
-            vendas = vendaRepository.findByDataVendaBetween(startDate, endDate);
-            logger.info("Filtrando vendas por período: {} transações encontradas", vendas.size());
+            resumoVendas = gerarResumoVendas(resumoVendaRepository.totalizarVendasEntre(startDate, endDate),
+                    resumoVendaRepository.contarPorFormaPagamentoEntre(startDate, endDate),
+                    resumoVendaRepository.contarPorCanalVendaEntre(startDate, endDate));
+            logger.info("Filtrando vendas por período: {} transações encontradas", resumoVendas.numeroTotalVendas());
         } else {
-            vendas = vendaRepository.findAll();
+            resumoVendas = gerarResumoVendas(resumoVendaRepository.totalizarVendas(),
+                    resumoVendaRepository.contarPorFormaPagamento(), resumoVendaRepository.contarPorCanalVenda());
         }
 
-        Integer numeroTotalVendas = calculadoraService.calcularNumeroTransacoes(vendas);
-        Double valorMedioPorTransacao = calculadoraService.calcularMediaPorTransacao(vendas);
-        String formaPagamentoMaisUtilizada = calculadoraService.calcularFormaPagamentoMaisUtilizada(vendas);
-        String formaPagamentoMenosUtilizada = calculadoraService.calcularFormaPagamentoMenosUtilizada(vendas);
-        String canalVendasMaisUtilizado = calculadoraService.calcularCanalVendasMaisUtilizado(vendas);
-        String canalVendasMenosUtilizado = calculadoraService.calcularCanalVendasMenosUtilizado(vendas);
-
         Map<String, Object> resumo = new LinkedHashMap<>();
-        resumo.put("numero_total_vendas", numeroTotalVendas);
-        resumo.put("valor_medio_por_transacao", valorMedioPorTransacao);
-        resumo.put("forma_pagamento_mais_utilizada", formaPagamentoMaisUtilizada);
-        resumo.put("forma_pagamento_menos_utilizada", formaPagamentoMenosUtilizada);
-        resumo.put("canal_vendas_mais_utilizado", canalVendasMaisUtilizado);
-        resumo.put("canal_vendas_menos_utilizado", canalVendasMenosUtilizado);
+        resumo.put("numero_total_vendas", resumoVendas.numeroTotalVendas());
+        resumo.put("valor_medio_por_transacao", resumoVendas.valorMedioPorTransacao());
+        resumo.put("forma_pagamento_mais_utilizada", resumoVendas.formaPagamentoMaisUtilizada());
+        resumo.put("forma_pagamento_menos_utilizada", resumoVendas.formaPagamentoMenosUtilizada());
+        resumo.put("canal_vendas_mais_utilizado", resumoVendas.canalVendasMaisUtilizado());
+        resumo.put("canal_vendas_menos_utilizado", resumoVendas.canalVendasMenosUtilizado());
 
         return resumo;
     }
@@ -179,56 +184,33 @@ public class RelatorioService {
         }
     }
 
-    private MetricasFinanceirasDTO gerarMetricasFinanceiras(List<Venda> vendas) {
-        Double receitaLiquida = calculadoraService.calcularTotalVendas(vendas);
-        Double custoTotal = calculadoraService.calcularCustoTotalGeral(vendas);
-        Double lucroBruto = calculadoraService.calcularLucroBrutoGeral(vendas);
+    private MetricasFinanceirasDTO gerarMetricasFinanceiras(TotaisFinanceirosDTO totais) {
+        Double receitaLiquida = calculadoraService.arredondar(totais.receita());
+        Double custoTotal = calculadoraService.calcularCustoTotalGeral(totais);
+        Double lucroBruto = calculadoraService.calcularLucroBrutoGeral(totais);
 
         return new MetricasFinanceirasDTO(receitaLiquida, custoTotal, lucroBruto);
     }
 
-    private List<AnaliseProdutoDTO> gerarAnaliseProdutos(List<Venda> vendasComRelacoes) {
-        Map<String, Map<String, Object>> produtosMap = new LinkedHashMap<>();
-
-        for (Venda venda : vendasComRelacoes) {
-            String nomeProduto = venda.getProduto().getNomeProduto();
-            Integer quantidade = venda.getQuantidade() != null ? venda.getQuantidade() : 0;
-            Double receita = venda.getValorFinal() != null ? venda.getValorFinal() : 0.0;
-
-            if (produtosMap.containsKey(nomeProduto)) {
-                Map<String, Object> produtoExistente = produtosMap.get(nomeProduto);
-                Integer qtdAtual = (Integer) produtoExistente.get("quantidade_vendida");
-                Double totalAtual = (Double) produtoExistente.get("total_arrecadado");
-
-                produtoExistente.put("quantidade_vendida", qtdAtual + quantidade);
-                produtoExistente.put("total_arrecadado", calculadoraService.arredondar(totalAtual + receita));
-            } else {
-                Map<String, Object> novoProduto = new LinkedHashMap<>();
-                novoProduto.put("nome_produto", nomeProduto);
-                novoProduto.put("quantidade_vendida", quantidade);
-                novoProduto.put("total_arrecadado", calculadoraService.arredondar(receita));
-
-                produtosMap.put(nomeProduto, novoProduto);
-            }
-        }
-
-        return produtosMap.values().stream()
-                .map(map -> new AnaliseProdutoDTO(
-                        (String) map.get("nome_produto"),
-                        (Integer) map.get("quantidade_vendida"),
-                        (Double) map.get("total_arrecadado")
+    private List<AnaliseProdutoDTO> gerarAnaliseProdutos(List<TotaisGrupoDTO> totaisPorProduto) {
+        return totaisPorProduto.stream()
+                .map(totais -> new AnaliseProdutoDTO(
+                        totais.grupo(),
+                        (int) totais.quantidade(),
+                        calculadoraService.arredondar(totais.receita())
                 ))
                 .sorted((a, b) -> b.totalArrecadado().compareTo(a.totalArrecadado()))
                 .collect(Collectors.toList());
     }
 
-    private ResumoVendasDTO gerarResumoVendas(List<Venda> vendas) {
-        Integer numeroTotalVendas = calculadoraService.calcularNumeroTransacoes(vendas);
-        Double valorMedioPorTransacao = calculadoraService.calcularMediaPorTransacao(vendas);
-        String formaPagamentoMaisUtilizada = calculadoraService.calcularFormaPagamentoMaisUtilizada(vendas);
-        String formaPagamentoMenosUtilizada = calculadoraService.calcularFormaPagamentoMenosUtilizada(vendas);
-        String canalVendasMaisUtilizado = calculadoraService.calcularCanalVendasMaisUtilizado(vendas);
-        String canalVendasMenosUtilizado = calculadoraService.calcularCanalVendasMenosUtilizado(vendas);
+    private ResumoVendasDTO gerarResumoVendas(TotaisVendasDTO totais, List<ContagemGrupoDTO> formasPagamento,
+                                              List<ContagemGrupoDTO> canaisVenda) {
+        Integer numeroTotalVendas = calculadoraService.calcularNumeroTransacoes(totais);
+        Double valorMedioPorTransacao = calculadoraService.calcularMediaPorTransacao(totais);
+        String formaPagamentoMaisUtilizada = calculadoraService.calcularMaisUtilizado(formasPagamento);
+        String formaPagamentoMenosUtilizada = calculadoraService.calcularMenosUtilizado(formasPagamento);
+        String canalVendasMaisUtilizado = calculadoraService.calcularMaisUtilizado(canaisVenda);
+        String canalVendasMenosUtilizado = calculadoraService.calcularMenosUtilizado(canaisVenda);
 
         return new ResumoVendasDTO(
                 numeroTotalVendas,
@@ -239,4 +221,11 @@ public class RelatorioService {
                 canalVendasMenosUtilizado
         );
     }
+
+    @PreDestroy
+    public void encerrar() {
+        if (poolAgregacao != null) {
+            poolAgregacao.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,275 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.entities.Venda;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Mantém a tabela {@code resumo_vendas} ({@link com.recode.hanami.entities.ResumoVenda}), com
+ * transações, receita e quantidade por dia, região, canal, forma de pagamento e produto.
+ * <p>
+ * As importações informam cada venda gravada e, antes de sobrescrever uma venda existente, os
+ * valores anteriores dela, lidos com lock de escrita: uma leitura comum devolveria, no MySQL, o
+ * snapshot da transação, e duas importações sobrescrevendo a mesma venda subtrairiam o mesmo
+ * valor anterior. As variações são acumuladas em memória durante a transação e aplicadas
+ * de uma vez no {@code beforeCommit}, com soma no próprio banco ({@code ON DUPLICATE KEY UPDATE}
+ * no MySQL, {@code MERGE} no H2) e as linhas em ordem de chave: importações simultâneas não perdem
+ * atualizações uma da outra, e os locks do resumo são tomados só no fim e sempre na mesma ordem.
+ * Um rollback descarta as variações junto com as vendas.
+ * <p>
+ * O custo não é guardado: depende do preço e da margem atuais do produto, que mudam quando o
+ * produto é reimportado, e é calculado na consulta a partir da quantidade.
+ * <p>
+ * O resumo é reconstruído a partir de {@code vendas} na inicialização quando está vazio e há
+ * vendas gravadas, ou sempre com {@code reconstruirNaInicializacao}. Vendas gravadas por fora das
+ * importações exigem a reconstrução.
+ */
+@Service
+public class ResumoVendasService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumoVendasService.class);
+
+    private static final String SELECAO_VENDAS =
+            "SELECT data_venda, regiao, canal_venda, forma_pagamento, produto_id, valor_final, quantidade FROM vendas";
+
+    private static final String COLUNAS_RESUMO =
+            "chave, data_venda, regiao, canal_venda, forma_pagamento, produto_id, transacoes, receita, quantidade";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final boolean reconstruirNaInicializacao;
+    private final Object chaveVariacoesTransacao = new Object();
+    private volatile Banco banco;
+
+    public ResumoVendasService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${hanami.relatorios.resumo.reconstruir-na-inicializacao:false}") boolean reconstruirNaInicializacao) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.reconstruirNaInicializacao = reconstruirNaInicializacao;
+    }
+
+    /**
+     * Chamado depois de criados todos os beans e antes de o servidor web aceitar requisições,
+     * para que nenhuma importação grave vendas durante a reconstrução.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        boolean resumoVazio = jdbcTemplate.queryForList("SELECT chave FROM resumo_vendas LIMIT 1", String.class).isEmpty();
+        boolean vendasVazias = jdbcTemplate.queryForList("SELECT id_transacao FROM vendas LIMIT 1", String.class).isEmpty();
+
+        if (reconstruirNaInicializacao || (resumoVazio && !vendasVazias)) {
+            reconstruir();
+        }
+    }
+
+    public void reconstruir() {
+        transacao.executeWithoutResult(status -> {
+            long inicio = System.nanoTime();
+            Variacoes variacoes = new Variacoes();
+            jdbcTemplate.query(SELECAO_VENDAS, resultado -> {
+                variacoes.somar(resultado, 1);
+            });
+
+            jdbcTemplate.update("DELETE FROM resumo_vendas");
+            aplicar(variacoes);
+            logger.info("Resumo de vendas reconstruído: {} combinações em {} ms",
+                    variacoes.totais.size(), (System.nanoTime() - inicio) / 1_000_000);
+        });
+    }
+
+    /**
+     * Registra a venda gravada na transação corrente.
+     */
+    public void registrarInclusao(Venda venda) {
+        variacoesDaTransacao().somar(venda, 1);
+    }
+
+    /**
+     * Registra os valores de uma venda existente antes de ela ser sobrescrita na transação corrente.
+     * A venda deve ter sido lida com lock de escrita nesta transação.
+     */
+    public void registrarRemocao(Venda venda) {
+        variacoesDaTransacao().somar(venda, -1);
+    }
+
+    /**
+     * Registra, como gravadas na transação corrente, as vendas cujos IDs são devolvidos por
+     * {@code consultaIds}, um {@code SELECT id_transacao} com os {@code parametros} dados.
+     */
+    public void registrarInclusao(String consultaIds, Object... parametros) {
+        registrarVendas(consultaIds, 1, parametros);
+    }
+
+    /**
+     * Como {@link #registrarInclusao(String, Object...)}, para vendas que serão sobrescritas.
+     * Deve ser chamado antes da escrita; as vendas são lidas com {@code FOR UPDATE} e ficam
+     * travadas até o fim da transação.
+     */
+    public void registrarRemocao(String consultaIds, Object... parametros) {
+        registrarVendas(consultaIds, -1, parametros);
+    }
+
+    private void registrarVendas(String consultaIds, int sinal, Object... parametros) {
+        Variacoes variacoes = variacoesDaTransacao();
+        String sql = SELECAO_VENDAS + " WHERE id_transacao IN (" + consultaIds + ")" + (sinal < 0 ? " FOR UPDATE" : "");
+        jdbcTemplate.query(sql, resultado -> {
+            variacoes.somar(resultado, sinal);
+        }, parametros);
+    }
+
+    private Variacoes variacoesDaTransacao() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("O resumo de vendas só é atualizado dentro de uma transação");
+        }
+
+        Variacoes variacoes = (Variacoes) TransactionSynchronizationManager.getResource(chaveVariacoesTransacao);
+        if (variacoes != null) {
+            return variacoes;
+        }
+
+        Variacoes novas = new Variacoes();
+        TransactionSynchronizationManager.bindResource(chaveVariacoesTransacao, novas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                aplicar(novas);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(chaveVariacoesTransacao);
+            }
+        });
+        return novas;
+    }
+
+    /**
+     * Linhas que ficam sem transações são excluídas; variações que se anulam não geram escrita.
+     */
+    private void aplicar(Variacoes variacoes) {
+        long inicio = System.nanoTime();
+        Map<String, Object[]> linhasPorChave = new TreeMap<>();
+        List<Object[]> possivelmenteVazias = new ArrayList<>();
+
+        variacoes.totais.forEach((chave, totais) -> {
+            if (totais.transacoes == 0 && totais.receita == 0.0 && totais.quantidade == 0) {
+                return;
+            }
+            String codigo = chave.codigo();
+            linhasPorChave.put(codigo, new Object[]{codigo, chave.dataVenda(), chave.regiao(), chave.canalVenda(),
+                    chave.formaPagamento(), chave.produtoId(), totais.transacoes, totais.receita, totais.quantidade});
+            if (totais.transacoes < 0) {
+                possivelmenteVazias.add(new Object[]{codigo});
+            }
+        });
+
+        if (linhasPorChave.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sqlSomar(), new ArrayList<>(linhasPorChave.values()));
+        if (!possivelmenteVazias.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM resumo_vendas WHERE chave = ? AND transacoes = 0", possivelmenteVazias);
+        }
+        logger.debug("Resumo de vendas: {} combinações atualizadas em {} ms",
+                linhasPorChave.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private String sqlSomar() {
+        if (banco == null) {
+            banco = Banco.detectar(jdbcTemplate);
+        }
+
+        if (banco == Banco.MYSQL) {
+            return "INSERT INTO resumo_vendas (" + COLUNAS_RESUMO + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                    + " ON DUPLICATE KEY UPDATE transacoes = transacoes + VALUES(transacoes),"
+                    + " receita = receita + VALUES(receita), quantidade = quantidade + VALUES(quantidade)";
+        }
+
+        return "MERGE INTO resumo_vendas r USING (VALUES (CAST(? AS VARCHAR), CAST(? AS DATE), CAST(? AS VARCHAR),"
+                + " CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS BIGINT),"
+                + " CAST(? AS DOUBLE PRECISION), CAST(? AS BIGINT))) AS s (" + COLUNAS_RESUMO + ")"
+                + " ON r.chave = s.chave"
+                + " WHEN MATCHED THEN UPDATE SET transacoes = r.transacoes + s.transacoes,"
+                + " receita = r.receita + s.receita, quantidade = r.quantidade + s.quantidade"
+                + " WHEN NOT MATCHED THEN INSERT (" + COLUNAS_RESUMO + ") VALUES (s.chave, s.data_venda, s.regiao,"
+                + " s.canal_venda, s.forma_pagamento, s.produto_id, s.transacoes, s.receita, s.quantidade)";
+    }
+
+    private record Chave(LocalDate dataVenda, String regiao, String canalVenda, String formaPagamento, String produtoId) {
+
+        /**
+         * Identificador da combinação: cada parte entra com o seu tamanho, ou {@code -} quando
+         * nula, para que combinações diferentes nunca gerem o mesmo texto.
+         */
+        String codigo() {
+            StringBuilder texto = new StringBuilder();
+            for (Object parte : Arrays.asList(dataVenda, regiao, canalVenda, formaPagamento, produtoId)) {
+                if (parte == null) {
+                    texto.append('-');
+                } else {
+                    String valor = parte.toString();
+                    texto.append(valor.length()).append(':').append(valor);
+                }
+            }
+            return UUID.nameUUIDFromBytes(texto.toString().getBytes(StandardCharsets.UTF_8)).toString();
+        }
+    }
+
+    private static final class Totais {
+        private long transacoes;
+        private double receita;
+        private long quantidade;
+    }
+
+    private static final class Variacoes {
+
+        private final Map<Chave, Totais> totais = new HashMap<>();
+
+        void somar(Venda venda, int sinal) {
+            Chave chave = new Chave(venda.getDataVenda(), venda.getRegiao(), venda.getCanalVenda(),
+                    venda.getFormaPagamento(), venda.getProduto() != null ? venda.getProduto().getId() : null);
+            somar(chave, sinal, venda.getValorFinal(), venda.getQuantidade());
+        }
+
+        /**
+         * Linha lida com {@code SELECAO_VENDAS}.
+         */
+        void somar(ResultSet resultado, int sinal) throws SQLException {
+            Chave chave = new Chave(resultado.getObject(1, LocalDate.class), resultado.getString(2),
+                    resultado.getString(3), resultado.getString(4), resultado.getString(5));
+            somar(chave, sinal, resultado.getObject(6, Double.class), resultado.getObject(7, Integer.class));
+        }
+
+        private void somar(Chave chave, int sinal, Double valorFinal, Integer quantidade) {
+            Totais totaisChave = totais.computeIfAbsent(chave, c -> new Totais());
+            totaisChave.transacoes += sinal;
+            if (valorFinal != null) {
+                totaisChave.receita += sinal * valorFinal;
+            }
+            if (quantidade != null) {
+                totaisChave.quantidade += (long) sinal * quantidade;
+            }
+        }
+    }
+}
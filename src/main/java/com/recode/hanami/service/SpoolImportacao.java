@@ -0,0 +1,78 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.util.ArquivoMapeadoInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Grava uploads em disco para processamento e os reabre para leitura. Arquivos a partir de
+ * {@code tamanhoMinimoMapeamento} bytes são lidos por mapeamento em memória.
+ */
+@Component
+public class SpoolImportacao {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpoolImportacao.class);
+
+    private final Path diretorioSpool;
+    private final long tamanhoMinimoMapeamento;
+
+    public SpoolImportacao(@Value("${hanami.importacao.diretorio-spool:${java.io.tmpdir}/hanami-spool}") Path diretorioSpool,
+                           @Value("${hanami.importacao.mapeamento-memoria.tamanho-minimo:8388608}") long tamanhoMinimoMapeamento) {
+        this.diretorioSpool = diretorioSpool;
+        this.tamanhoMinimoMapeamento = tamanhoMinimoMapeamento;
+    }
+
+    public boolean deveMapear(long tamanhoArquivo) {
+        return tamanhoMinimoMapeamento > 0 && tamanhoArquivo >= tamanhoMinimoMapeamento;
+    }
+
+    /**
+     * Quando o container já gravou a parte do multipart em disco, {@link MultipartFile#transferTo}
+     * apenas a move para o diretório de spool.
+     */
+    public Path gravar(MultipartFile file) {
+        try {
+            Files.createDirectories(diretorioSpool);
+            Path arquivo = Files.createTempFile(diretorioSpool, "importacao-", ".csv");
+            file.transferTo(arquivo);
+            return arquivo;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao gravar arquivo para processamento: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Arquivo vazio no diretório de spool, para dados intermediários de uma importação.
+     */
+    public Path criarArquivo(String prefixo) {
+        try {
+            Files.createDirectories(diretorioSpool);
+            return Files.createTempFile(diretorioSpool, prefixo, ".csv");
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao criar arquivo temporário: " + e.getMessage(), e);
+        }
+    }
+
+    public InputStream abrir(Path arquivo) throws IOException {
+        if (deveMapear(Files.size(arquivo))) {
+            return new ArquivoMapeadoInputStream(arquivo);
+        }
+        return Files.newInputStream(arquivo);
+    }
+
+    public void excluir(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.warn("Não foi possível excluir o arquivo temporário {}: {}", arquivo, e.getMessage());
+        }
+    }
+}
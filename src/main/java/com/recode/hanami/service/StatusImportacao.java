@@ -0,0 +1,28 @@
+package com.recode.hanami.service;
+
+public enum StatusImportacao {
+
+    AGUARDANDO("aguardando"),
+    EM_PROCESSAMENTO("em_processamento"),
+    CONCLUIDA("concluida"),
+    FALHOU("falhou");
+
+    private final String value;
+
+    StatusImportacao(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isFinalizada() {
+        return this == CONCLUIDA || this == FALHOU;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
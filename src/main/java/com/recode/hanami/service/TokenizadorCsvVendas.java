@@ -0,0 +1,586 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Leitor de CSV dedicado ao layout de {@link DadosArquivoDTO}. Trabalha direto sobre os bytes
+ * do arquivo: números e datas ISO são convertidos sem criar Strings intermediárias, e valores
+ * repetidos das colunas de texto são reaproveitados entre linhas.
+ * <p>
+ * Aceita o mesmo que a leitura via Jackson: colunas em qualquer ordem, colunas desconhecidas
+ * ignoradas, BOM UTF-8, fim de linha CRLF, campos entre aspas com {@code ""} e quebras de linha,
+ * linhas curtas (campos ausentes ficam nulos) e uma vírgula sobrando no fim da linha. A falta
+ * de qualquer coluna do layout no cabeçalho é erro, assim como uma coluna do layout repetida.
+ */
+final class TokenizadorCsvVendas {
+
+    static final String[] COLUNAS = {
+            "id_transacao", "data_venda", "valor_final", "subtotal", "desconto_percent",
+            "canal_venda", "forma_pagamento", "cliente_id", "nome_cliente", "idade_cliente",
+            "genero_cliente", "cidade_cliente", "estado_cliente", "renda_estimada", "produto_id",
+            "nome_produto", "categoria", "marca", "preco_unitario", "quantidade", "margem_lucro",
+            "regiao", "status_entrega", "tempo_entrega_dias", "vendedor_id"
+    };
+
+    private static final int ID_TRANSACAO = 0;
+    private static final int DATA_VENDA = 1;
+    private static final int VALOR_FINAL = 2;
+    private static final int SUBTOTAL = 3;
+    private static final int DESCONTO_PERCENT = 4;
+    private static final int CANAL_VENDA = 5;
+    private static final int FORMA_PAGAMENTO = 6;
+    private static final int CLIENTE_ID = 7;
+    private static final int NOME_CLIENTE = 8;
+    private static final int IDADE_CLIENTE = 9;
+    private static final int GENERO_CLIENTE = 10;
+    private static final int CIDADE_CLIENTE = 11;
+    private static final int ESTADO_CLIENTE = 12;
+    private static final int RENDA_ESTIMADA = 13;
+    private static final int PRODUTO_ID = 14;
+    private static final int NOME_PRODUTO = 15;
+    private static final int CATEGORIA = 16;
+    private static final int MARCA = 17;
+    private static final int PRECO_UNITARIO = 18;
+    private static final int QUANTIDADE = 19;
+    private static final int MARGEM_LUCRO = 20;
+    private static final int REGIAO = 21;
+    private static final int STATUS_ENTREGA = 22;
+    private static final int TEMPO_ENTREGA_DIAS = 23;
+    private static final int VENDEDOR_ID = 24;
+
+    private static final int IGNORADA = -1;
+    private static final byte ASPAS = '"';
+    private static final byte SEPARADOR = ',';
+    private static final byte QUEBRA_LINHA = '\n';
+    private static final byte RETORNO = '\r';
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final int TAMANHO_CACHE_TEXTOS = 256;
+    private static final int TAMANHO_MAXIMO_TEXTO_CACHEADO = 48;
+    private static final long MAIOR_MANTISSA_EXATA = 1L << 53;
+    private static final double[] POTENCIAS_DE_DEZ = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final InputStream inputStream;
+    private int[] campoPorPosicao;
+
+    private byte[] buffer = new byte[TAMANHO_BUFFER];
+    private int posicao;
+    private int limite;
+    private boolean fimArquivo;
+    private long linha;
+
+    // Limites do valor de cada campo do layout no registro corrente; inicio < 0 indica campo ausente
+    private final int[] inicioCampo = new int[COLUNAS.length];
+    private final int[] fimCampo = new int[COLUNAS.length];
+    private final boolean[] campoComAspasEscapadas = new boolean[COLUNAS.length];
+    private final String[][] textosRecentes = new String[COLUNAS.length][];
+
+    private TokenizadorCsvVendas(InputStream inputStream, int[] campoPorPosicao) {
+        this.inputStream = inputStream;
+        this.campoPorPosicao = campoPorPosicao;
+    }
+
+    /**
+     * Lê e valida o cabeçalho do fluxo, deixando o tokenizador posicionado na primeira linha de dados.
+     */
+    static TokenizadorCsvVendas comCabecalho(InputStream inputStream) throws IOException {
+        TokenizadorCsvVendas tokenizador = new TokenizadorCsvVendas(inputStream, null);
+        tokenizador.campoPorPosicao = tokenizador.lerCabecalho();
+        tokenizador.linha = 1;
+        return tokenizador;
+    }
+
+    /**
+     * Tokenizador para um trecho sem cabeçalho, com as colunas na ordem de {@code campoPorPosicao}
+     * obtida de {@link #getCampoPorPosicao()}.
+     */
+    static TokenizadorCsvVendas semCabecalho(InputStream inputStream, int[] campoPorPosicao) {
+        return new TokenizadorCsvVendas(inputStream, campoPorPosicao);
+    }
+
+    int[] getCampoPorPosicao() {
+        return campoPorPosicao;
+    }
+
+    /**
+     * @return o próximo registro, ou {@code null} no fim do fluxo
+     */
+    DadosArquivoDTO proximo() throws IOException {
+        int fimRegistro = localizarFimRegistro();
+        if (fimRegistro < 0) {
+            return null;
+        }
+
+        linha++;
+        separarCampos(fimRegistro);
+        DadosArquivoDTO registro = montarRegistro();
+        posicao = fimRegistro < limite ? fimRegistro + 1 : fimRegistro;
+        return registro;
+    }
+
+    List<DadosArquivoDTO> lerTodos() throws IOException {
+        List<DadosArquivoDTO> registros = new ArrayList<>();
+        DadosArquivoDTO registro;
+        while ((registro = proximo()) != null) {
+            registros.add(registro);
+        }
+        return registros;
+    }
+
+    private int[] lerCabecalho() throws IOException {
+        int fimRegistro = localizarFimRegistro();
+        if (fimRegistro >= 0 && fimRegistro - posicao >= 3
+                && buffer[posicao] == (byte) 0xEF && buffer[posicao + 1] == (byte) 0xBB && buffer[posicao + 2] == (byte) 0xBF) {
+            posicao += 3;
+        }
+
+        int fimConteudo = fimRegistro < 0 ? posicao : removerRetorno(posicao, fimRegistro);
+        if (fimConteudo == posicao) {
+            throw new IOException("Empty header line: can not bind data");
+        }
+
+        List<String> nomes = new ArrayList<>();
+        int inicio = posicao;
+        for (int i = posicao; i <= fimConteudo; i++) {
+            if (i == fimConteudo || buffer[i] == SEPARADOR) {
+                nomes.add(removerAspas(new String(buffer, inicio, i - inicio, StandardCharsets.UTF_8)));
+                inicio = i + 1;
+            }
+        }
+        posicao = fimRegistro < limite ? fimRegistro + 1 : fimRegistro;
+
+        int[] mapeamento = new int[nomes.size()];
+        boolean[] encontrada = new boolean[COLUNAS.length];
+        for (int i = 0; i < nomes.size(); i++) {
+            int campo = Arrays.asList(COLUNAS).indexOf(nomes.get(i));
+            if (campo >= 0 && encontrada[campo]) {
+                throw new IOException("Duplicate header column: \"" + COLUNAS[campo] + "\"");
+            }
+            mapeamento[i] = campo >= 0 ? campo : IGNORADA;
+            if (campo >= 0) {
+                encontrada[campo] = true;
+            }
+        }
+
+        List<String> ausentes = new ArrayList<>();
+        for (int campo = 0; campo < COLUNAS.length; campo++) {
+            if (!encontrada[campo]) {
+                ausentes.add(COLUNAS[campo]);
+            }
+        }
+        if (!ausentes.isEmpty()) {
+            throw new IOException("Missing " + ausentes.size() + " header column" + (ausentes.size() > 1 ? "s" : "")
+                    + ": [" + ausentes.stream().map(nome -> "\"" + nome + "\"").collect(Collectors.joining(",")) + "]");
+        }
+
+        return mapeamento;
+    }
+
+    private String removerAspas(String nome) {
+        return nome.length() >= 2 && nome.startsWith("\"") && nome.endsWith("\"")
+                ? nome.substring(1, nome.length() - 1).replace("\"\"", "\"")
+                : nome;
+    }
+
+    /**
+     * Garante que o próximo registro completo esteja no buffer e devolve o índice da quebra de
+     * linha que o encerra (ou {@code limite} no último registro sem quebra de linha).
+     */
+    private int localizarFimRegistro() throws IOException {
+        int inicioBusca = posicao;
+        boolean dentroAspas = false;
+
+        while (true) {
+            for (int i = inicioBusca; i < limite; i++) {
+                byte atual = buffer[i];
+                if (atual == ASPAS) {
+                    dentroAspas = !dentroAspas;
+                } else if (atual == QUEBRA_LINHA && !dentroAspas) {
+                    return i;
+                }
+            }
+
+            if (fimArquivo) {
+                return limite > posicao ? limite : -1;
+            }
+
+            int verificados = limite - posicao;
+            carregarMais();
+            inicioBusca = posicao + verificados;
+        }
+    }
+
+    private void carregarMais() throws IOException {
+        int pendente = limite - posicao;
+        if (posicao > 0) {
+            System.arraycopy(buffer, posicao, buffer, 0, pendente);
+            posicao = 0;
+            limite = pendente;
+        }
+        if (limite == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int lidos = inputStream.read(buffer, limite, buffer.length - limite);
+        if (lidos < 0) {
+            fimArquivo = true;
+        } else {
+            limite += lidos;
+        }
+    }
+
+    private void separarCampos(int fimRegistro) throws IOException {
+        Arrays.fill(inicioCampo, -1);
+        int fimConteudo = removerRetorno(posicao, fimRegistro);
+        int i = posicao;
+        int coluna = 0;
+
+        while (true) {
+            int inicio;
+            int fim;
+            boolean escapadas = false;
+
+            if (i < fimConteudo && buffer[i] == ASPAS) {
+                inicio = i + 1;
+                int j = inicio;
+                while (true) {
+                    if (j >= fimConteudo) {
+                        throw erroLinha("aspas não fechadas");
+                    }
+                    if (buffer[j] == ASPAS) {
+                        if (j + 1 < fimConteudo && buffer[j + 1] == ASPAS) {
+                            escapadas = true;
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                fim = j;
+                i = j + 1;
+                if (i < fimConteudo && buffer[i] != SEPARADOR) {
+                    throw erroLinha("caractere inesperado após aspas: '" + (char) buffer[i]
+                            + "', esperado separador de coluna ou fim de linha");
+                }
+            } else {
+                inicio = i;
+                while (i < fimConteudo && buffer[i] != SEPARADOR) {
+                    i++;
+                }
+                fim = i;
+            }
+
+            if (coluna < campoPorPosicao.length) {
+                int campo = campoPorPosicao[coluna];
+                if (campo != IGNORADA) {
+                    inicioCampo[campo] = inicio;
+                    fimCampo[campo] = fim;
+                    campoComAspasEscapadas[campo] = escapadas;
+                }
+            } else if (coluna > campoPorPosicao.length || fim > inicio || i < fimConteudo) {
+                // Apenas uma vírgula sobrando no fim da linha é tolerada
+                throw erroLinha("Too many entries: expected at most " + campoPorPosicao.length);
+            }
+
+            if (i >= fimConteudo) {
+                return;
+            }
+            i++;
+            coluna++;
+        }
+    }
+
+    private int removerRetorno(int inicio, int fim) {
+        return fim > inicio && buffer[fim - 1] == RETORNO ? fim - 1 : fim;
+    }
+
+    private DadosArquivoDTO montarRegistro() throws IOException {
+        return new DadosArquivoDTO(
+                texto(ID_TRANSACAO, false),
+                data(DATA_VENDA),
+                decimal(VALOR_FINAL),
+                decimal(SUBTOTAL),
+                decimal(DESCONTO_PERCENT),
+                texto(CANAL_VENDA, true),
+                texto(FORMA_PAGAMENTO, true),
+                texto(CLIENTE_ID, true),
+                texto(NOME_CLIENTE, true),
+                inteiro(IDADE_CLIENTE),
+                texto(GENERO_CLIENTE, true),
+                texto(CIDADE_CLIENTE, true),
+                texto(ESTADO_CLIENTE, true),
+                decimal(RENDA_ESTIMADA),
+                texto(PRODUTO_ID, true),
+                texto(NOME_PRODUTO, true),
+                texto(CATEGORIA, true),
+                texto(MARCA, true),
+                decimal(PRECO_UNITARIO),
+                inteiro(QUANTIDADE),
+                decimal(MARGEM_LUCRO),
+                texto(REGIAO, true),
+                texto(STATUS_ENTREGA, true),
+                inteiro(TEMPO_ENTREGA_DIAS),
+                texto(VENDEDOR_ID, true)
+        );
+    }
+
+    private String texto(int campo, boolean reaproveitar) {
+        int inicio = inicioCampo[campo];
+        if (inicio < 0) {
+            return null;
+        }
+        int tamanho = fimCampo[campo] - inicio;
+
+        if (campoComAspasEscapadas[campo]) {
+            return new String(buffer, inicio, tamanho, StandardCharsets.UTF_8).replace("\"\"", "\"");
+        }
+        if (!reaproveitar || tamanho > TAMANHO_MAXIMO_TEXTO_CACHEADO || !ascii(inicio, tamanho)) {
+            return new String(buffer, inicio, tamanho, StandardCharsets.UTF_8);
+        }
+
+        int hash = 0;
+        for (int i = inicio; i < inicio + tamanho; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        String[] recentes = textosRecentes[campo];
+        if (recentes == null) {
+            recentes = textosRecentes[campo] = new String[TAMANHO_CACHE_TEXTOS];
+        }
+        int indice = (hash ^ (hash >>> 16)) & (TAMANHO_CACHE_TEXTOS - 1);
+        String candidato = recentes[indice];
+        if (candidato != null && candidato.hashCode() == hash && mesmoTexto(candidato, inicio, tamanho)) {
+            return candidato;
+        }
+
+        String valor = new String(buffer, inicio, tamanho, StandardCharsets.ISO_8859_1);
+        recentes[indice] = valor;
+        return valor;
+    }
+
+    private boolean ascii(int inicio, int tamanho) {
+        for (int i = inicio; i < inicio + tamanho; i++) {
+            if (buffer[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean mesmoTexto(String texto, int inicio, int tamanho) {
+        if (texto.length() != tamanho) {
+            return false;
+        }
+        for (int i = 0; i < tamanho; i++) {
+            if (texto.charAt(i) != buffer[inicio + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inteiros sem sinal ou com sinal e até nove dígitos são lidos direto dos bytes; o restante
+     * segue as regras de {@link Integer#parseInt}.
+     */
+    private Integer inteiro(int campo) throws IOException {
+        int inicio = inicioCampo[campo];
+        if (inicio < 0) {
+            return null;
+        }
+        int fim = fimCampo[campo];
+        while (inicio < fim && buffer[inicio] == ' ') {
+            inicio++;
+        }
+        while (fim > inicio && buffer[fim - 1] == ' ') {
+            fim--;
+        }
+        if (inicio == fim) {
+            return null;
+        }
+
+        boolean negativo = buffer[inicio] == '-';
+        int i = buffer[inicio] == '-' || buffer[inicio] == '+' ? inicio + 1 : inicio;
+        if (i < fim && fim - i <= 9) {
+            int valor = 0;
+            for (; i < fim; i++) {
+                int digito = buffer[i] - '0';
+                if (digito < 0 || digito > 9) {
+                    break;
+                }
+                valor = valor * 10 + digito;
+            }
+            if (i == fim) {
+                return negativo ? -valor : valor;
+            }
+        }
+
+        String valor = textoCampo(campo).trim();
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw erroValor(campo, valor, "Integer");
+        }
+    }
+
+    /**
+     * Decimais simples (sem expoente, até 15 dígitos significativos) são montados como
+     * {@code mantissa / 10^casas}. Mantissa e potência são exatas em double e a divisão IEEE é
+     * arredondada corretamente, então o resultado é idêntico ao de {@link Double#parseDouble}.
+     * Os demais formatos passam pelas mesmas regras da conversão do Jackson.
+     */
+    private Double decimal(int campo) throws IOException {
+        int inicio = inicioCampo[campo];
+        if (inicio < 0) {
+            return null;
+        }
+        int fim = fimCampo[campo];
+        while (inicio < fim && buffer[inicio] == ' ') {
+            inicio++;
+        }
+        while (fim > inicio && buffer[fim - 1] == ' ') {
+            fim--;
+        }
+        if (inicio == fim) {
+            return null;
+        }
+
+        boolean negativo = buffer[inicio] == '-';
+        int i = buffer[inicio] == '-' || buffer[inicio] == '+' ? inicio + 1 : inicio;
+        long mantissa = 0;
+        int digitos = 0;
+        int casas = -1;
+        boolean simples = i < fim;
+
+        for (; i < fim && simples; i++) {
+            byte atual = buffer[i];
+            if (atual == '.' && casas < 0) {
+                casas = 0;
+                continue;
+            }
+            int digito = atual - '0';
+            if (digito < 0 || digito > 9) {
+                simples = false;
+                break;
+            }
+            if (mantissa > 0 || digito > 0) {
+                digitos++;
+            }
+            mantissa = mantissa * 10 + digito;
+            if (casas >= 0) {
+                casas++;
+            }
+            simples = digitos <= 15;
+        }
+
+        if (simples && mantissa <= MAIOR_MANTISSA_EXATA && casas < POTENCIAS_DE_DEZ.length
+                && (casas != 0 || fim - inicio > 1)) {
+            double valor = casas > 0 ? mantissa / POTENCIAS_DE_DEZ[casas] : mantissa;
+            return negativo ? -valor : valor;
+        }
+
+        return decimalLento(campo, textoCampo(campo).trim());
+    }
+
+    private Double decimalLento(int campo, String valor) throws IOException {
+        switch (valor) {
+            case "NaN":
+                return Double.NaN;
+            case "INF", "Infinity":
+                return Double.POSITIVE_INFINITY;
+            case "-INF", "-Infinity":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                break;
+        }
+
+        for (int i = 0; i < valor.length(); i++) {
+            char atual = valor.charAt(i);
+            boolean permitido = (atual >= '0' && atual <= '9')
+                    || atual == '.' || atual == 'e' || atual == 'E' || atual == '+' || atual == '-';
+            if (!permitido) {
+                throw erroValor(campo, valor, "Double");
+            }
+        }
+
+        try {
+            return Double.parseDouble(valor);
+        } catch (NumberFormatException e) {
+            throw erroValor(campo, valor, "Double");
+        }
+    }
+
+    private LocalDate data(int campo) throws IOException {
+        int inicio = inicioCampo[campo];
+        if (inicio < 0) {
+            return null;
+        }
+        int fim = fimCampo[campo];
+        while (inicio < fim && buffer[inicio] == ' ') {
+            inicio++;
+        }
+        while (fim > inicio && buffer[fim - 1] == ' ') {
+            fim--;
+        }
+        if (inicio == fim) {
+            return null;
+        }
+
+        // Dias acima de 28 ficam com o formatter, que ajusta datas como 30/02 para o fim do mês
+        if (fim - inicio == 10 && buffer[inicio + 4] == '-' && buffer[inicio + 7] == '-') {
+            int ano = digitos(inicio, 4);
+            int mes = digitos(inicio + 5, 2);
+            int dia = digitos(inicio + 8, 2);
+            if (ano >= 0 && mes >= 1 && mes <= 12 && dia >= 1 && dia <= 28) {
+                return LocalDate.of(ano, mes, dia);
+            }
+        }
+
+        String valor = textoCampo(campo).trim();
+        try {
+            return LocalDate.parse(valor, FORMATO_DATA);
+        } catch (DateTimeParseException e) {
+            throw erroValor(campo, valor, "LocalDate");
+        }
+    }
+
+    private int digitos(int inicio, int quantidade) {
+        int valor = 0;
+        for (int i = inicio; i < inicio + quantidade; i++) {
+            int digito = buffer[i] - '0';
+            if (digito < 0 || digito > 9) {
+                return -1;
+            }
+            valor = valor * 10 + digito;
+        }
+        return valor;
+    }
+
+    private String textoCampo(int campo) {
+        return new String(buffer, inicioCampo[campo], fimCampo[campo] - inicioCampo[campo], StandardCharsets.UTF_8);
+    }
+
+    private IOException erroValor(int campo, String valor, String tipo) {
+        return erroLinha("Cannot deserialize value of type `" + tipo + "` from String \"" + valor
+                + "\" (coluna \"" + COLUNAS[campo] + "\")");
+    }
+
+    private IOException erroLinha(String mensagem) {
+        return new IOException(mensagem + " [linha " + linha + "]");
+    }
+}
@@ -0,0 +1,374 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoJobDTO;
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import com.recode.hanami.dto.UploadRetomavelDTO;
+import com.recode.hanami.exception.ArquivoInvalidoException;
+import com.recode.hanami.exception.ConflitoUploadException;
+import com.recode.hanami.exception.RecursoNaoEncontradoException;
+import com.recode.hanami.validation.UploadArquivoValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Uploads retomáveis: o cliente abre uma sessão informando o tamanho do arquivo, envia partes
+ * com {@code Content-Range} e, com o arquivo completo, pede a importação. As partes são
+ * gravadas direto no arquivo da sessão, no diretório de spool, sem passar pelo multipart.
+ * <p>
+ * Os bytes recebidos formam sempre um prefixo contínuo do arquivo, então o tamanho do arquivo
+ * em disco é a posição a partir da qual o envio deve continuar. Uma parte pode repetir bytes já
+ * recebidos, mas não pode deixar lacunas. O nome e o tamanho esperado ficam em um arquivo ao
+ * lado, e a sessão sobrevive a um reinício da aplicação. Sessões sem envio há mais de
+ * {@code retencaoHoras} horas são removidas.
+ */
+@Service
+public class UploadRetomavelService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadRetomavelService.class);
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private final ImportacaoVendasService importacaoVendasService;
+    private final ImportacaoJobService importacaoJobService;
+    private final UploadArquivoValidator uploadArquivoValidator;
+    private final Path diretorio;
+    private final long tamanhoMaximo;
+    private final long retencaoHoras;
+    private final Map<String, ReentrantLock> travas = new ConcurrentHashMap<>();
+
+    public UploadRetomavelService(ImportacaoVendasService importacaoVendasService,
+                                  ImportacaoJobService importacaoJobService,
+                                  UploadArquivoValidator uploadArquivoValidator,
+                                  @Value("${hanami.importacao.diretorio-spool:${java.io.tmpdir}/hanami-spool}") Path diretorioSpool,
+                                  @Value("${hanami.importacao.uploads.tamanho-maximo:53687091200}") long tamanhoMaximo,
+                                  @Value("${hanami.importacao.uploads.retencao-horas:24}") long retencaoHoras) {
+        this.importacaoVendasService = importacaoVendasService;
+        this.importacaoJobService = importacaoJobService;
+        this.uploadArquivoValidator = uploadArquivoValidator;
+        this.diretorio = diretorioSpool.resolve("uploads");
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.retencaoHoras = retencaoHoras;
+    }
+
+    public UploadRetomavelDTO criar(String nomeArquivo, long tamanho) {
+        if (!uploadArquivoValidator.isNomeCsvValido(nomeArquivo)) {
+            throw new ArquivoInvalidoException("O arquivo deve ter a extensão .csv, .csv.gz, .csv.zst, .arrow ou .feather");
+        }
+        if (tamanho <= 0 || tamanho > tamanhoMaximo) {
+            throw new ArquivoInvalidoException("O tamanho do arquivo deve estar entre 1 e " + tamanhoMaximo + " bytes");
+        }
+
+        removerExpiradas();
+        String id = UUID.randomUUID().toString();
+        Properties metadados = new Properties();
+        metadados.setProperty("arquivo", nomeArquivo);
+        metadados.setProperty("tamanho", Long.toString(tamanho));
+
+        try {
+            Files.createDirectories(diretorio);
+            Files.createFile(parte(id));
+            try (Writer writer = Files.newBufferedWriter(metadados(id), StandardCharsets.UTF_8)) {
+                metadados.store(writer, null);
+            }
+        } catch (IOException e) {
+            excluir(id);
+            throw new RuntimeException("Erro ao criar upload: " + e.getMessage(), e);
+        }
+
+        logger.info("Upload retomável {} criado para o arquivo {} ({} bytes)", id, nomeArquivo, tamanho);
+        return consultar(id);
+    }
+
+    public UploadRetomavelDTO consultar(String idUpload) {
+        Sessao sessao = carregar(idUpload);
+        return paraDTO(sessao);
+    }
+
+    /**
+     * Grava a parte a partir do início indicado em {@code Content-Range}; sem o cabeçalho, a
+     * parte continua de onde o envio parou. Se a conexão cair no meio da parte, o que chegou
+     * permanece gravado.
+     */
+    public UploadRetomavelDTO receberParte(String idUpload, String contentRange, InputStream corpo) {
+        Sessao sessao = carregar(idUpload);
+        ReentrantLock trava = travar(sessao);
+        try {
+            long recebidos = bytesRecebidos(sessao);
+            long inicio = recebidos;
+            long fim = sessao.tamanho() - 1;
+
+            if (contentRange != null && !contentRange.isBlank()) {
+                Matcher intervalo = CONTENT_RANGE.matcher(contentRange.trim());
+                if (!intervalo.matches()) {
+                    throw new ArquivoInvalidoException("Content-Range inválido; formato esperado: bytes inicio-fim/total");
+                }
+                inicio = Long.parseLong(intervalo.group(1));
+                fim = Long.parseLong(intervalo.group(2));
+                if (!"*".equals(intervalo.group(3)) && Long.parseLong(intervalo.group(3)) != sessao.tamanho()) {
+                    throw new ArquivoInvalidoException("O total do Content-Range difere do tamanho informado na criação do upload");
+                }
+                if (fim < inicio || fim >= sessao.tamanho()) {
+                    throw new ArquivoInvalidoException("Intervalo fora do arquivo: " + contentRange);
+                }
+            }
+
+            if (inicio > recebidos) {
+                throw new ConflitoUploadException(
+                        "A parte começa no byte " + inicio + ", mas apenas " + recebidos + " bytes foram recebidos", recebidos);
+            }
+
+            long gravados = gravar(sessao, inicio, fim - inicio + 1, corpo);
+            logger.debug("Upload {}: {} bytes gravados a partir do byte {}", idUpload, gravados, inicio);
+            return paraDTO(sessao);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Importa o arquivo completo pelo mesmo caminho do upload em streaming. Com sucesso a sessão
+     * é encerrada; com falha ela permanece, e a finalização pode ser repetida.
+     */
+    public ImportacaoResponseDTO finalizar(String idUpload, boolean forcar) {
+        Sessao sessao = carregar(idUpload);
+        ReentrantLock trava = travar(sessao);
+        try {
+            verificarCompleto(sessao);
+            ImportacaoResponseDTO resultado = importacaoVendasService.importarArquivo(parte(idUpload), sessao.arquivo(),
+                    forcar, ProgressoImportacao.NENHUM);
+            excluir(idUpload);
+            logger.info("Upload retomável {} importado: {} linhas", idUpload, resultado.linhasProcessadas());
+            return resultado;
+        } finally {
+            liberar(idUpload, trava);
+        }
+    }
+
+    /**
+     * Entrega o arquivo completo a uma importação assíncrona, que passa a ser dona dele. Se a
+     * fila de importações estiver cheia, a sessão permanece.
+     */
+    public ImportacaoJobDTO finalizarAssincrono(String idUpload, boolean forcar) {
+        Sessao sessao = carregar(idUpload);
+        ReentrantLock trava = travar(sessao);
+        try {
+            verificarCompleto(sessao);
+            ImportacaoJobDTO job = importacaoJobService.submeter(parte(idUpload), sessao.arquivo(), sessao.tamanho(), forcar);
+            excluirMetadados(idUpload);
+            logger.info("Upload retomável {} entregue à importação assíncrona {}", idUpload, job.idJob());
+            return job;
+        } finally {
+            liberar(idUpload, trava);
+        }
+    }
+
+    public void cancelar(String idUpload) {
+        Sessao sessao = carregar(idUpload);
+        ReentrantLock trava = travar(sessao);
+        try {
+            excluir(idUpload);
+            logger.info("Upload retomável {} cancelado", idUpload);
+        } finally {
+            liberar(idUpload, trava);
+        }
+    }
+
+    private long gravar(Sessao sessao, long inicio, long quantidade, InputStream corpo) {
+        byte[] buffer = new byte[TAMANHO_BUFFER];
+        long posicao = inicio;
+
+        try (FileChannel canal = FileChannel.open(parte(sessao.id()), StandardOpenOption.WRITE)) {
+            long restante = quantidade;
+            int lidos;
+            while (restante > 0 && (lidos = corpo.read(buffer, 0, (int) Math.min(buffer.length, restante))) != -1) {
+                ByteBuffer conteudo = ByteBuffer.wrap(buffer, 0, lidos);
+                while (conteudo.hasRemaining()) {
+                    posicao += canal.write(conteudo, posicao);
+                }
+                restante -= lidos;
+            }
+            return posicao - inicio;
+        } catch (IOException e) {
+            logger.warn("Envio interrompido no upload {} após o byte {}: {}", sessao.id(), posicao, e.getMessage());
+            throw new RuntimeException("Erro ao receber parte do upload: " + e.getMessage(), e);
+        }
+    }
+
+    private void verificarCompleto(Sessao sessao) {
+        long recebidos = bytesRecebidos(sessao);
+        if (recebidos < sessao.tamanho()) {
+            throw new ConflitoUploadException(
+                    "Upload incompleto: " + recebidos + " de " + sessao.tamanho() + " bytes recebidos", recebidos);
+        }
+    }
+
+    /**
+     * Requisições simultâneas na mesma sessão são recusadas em vez de esperar.
+     */
+    private ReentrantLock travar(Sessao sessao) {
+        ReentrantLock trava = travas.computeIfAbsent(sessao.id(), id -> new ReentrantLock());
+        if (!trava.tryLock()) {
+            throw new ConflitoUploadException("Outra requisição está em andamento neste upload", bytesRecebidos(sessao));
+        }
+        if (!Files.exists(metadados(sessao.id()))) {
+            trava.unlock();
+            throw new RecursoNaoEncontradoException("Upload não encontrado: " + sessao.id());
+        }
+        return trava;
+    }
+
+    /**
+     * A trava só é descartada com a sessão encerrada; quem obtiver a mesma trava depois disso
+     * encontra a sessão removida.
+     */
+    private void liberar(String idUpload, ReentrantLock trava) {
+        trava.unlock();
+        if (!Files.exists(metadados(idUpload))) {
+            travas.remove(idUpload, trava);
+        }
+    }
+
+    private Sessao carregar(String idUpload) {
+        Path metadados = idValido(idUpload) ? metadados(idUpload) : null;
+        if (metadados == null || !Files.exists(metadados)) {
+            throw new RecursoNaoEncontradoException("Upload não encontrado: " + idUpload);
+        }
+
+        Properties propriedades = new Properties();
+        try (Reader reader = Files.newBufferedReader(metadados, StandardCharsets.UTF_8)) {
+            propriedades.load(reader);
+        } catch (IOException e) {
+            throw new RecursoNaoEncontradoException("Upload não encontrado: " + idUpload);
+        }
+        return new Sessao(idUpload, propriedades.getProperty("arquivo"), Long.parseLong(propriedades.getProperty("tamanho")));
+    }
+
+    private long bytesRecebidos(Sessao sessao) {
+        try {
+            return Files.size(parte(sessao.id()));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private LocalDateTime expiracao(String idUpload) {
+        try {
+            Instant ultimoEnvio = Files.getLastModifiedTime(parte(idUpload)).toInstant();
+            return LocalDateTime.ofInstant(ultimoEnvio.plus(retencaoHoras, ChronoUnit.HOURS), ZoneId.systemDefault());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path parte(String id) {
+        return diretorio.resolve("upload-" + id + ".parte");
+    }
+
+    private Path metadados(String id) {
+        return diretorio.resolve("upload-" + id + ".properties");
+    }
+
+    private boolean idValido(String id) {
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void excluir(String id) {
+        excluirMetadados(id);
+        try {
+            Files.deleteIfExists(parte(id));
+        } catch (IOException e) {
+            logger.warn("Não foi possível excluir o arquivo do upload {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void excluirMetadados(String id) {
+        try {
+            Files.deleteIfExists(metadados(id));
+        } catch (IOException e) {
+            logger.warn("Não foi possível excluir os metadados do upload {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void removerExpiradas() {
+        if (!Files.isDirectory(diretorio)) {
+            return;
+        }
+
+        FileTime limite = FileTime.from(Instant.now().minus(retencaoHoras, ChronoUnit.HOURS));
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "upload-*.properties")) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                String id = nome.substring("upload-".length(), nome.length() - ".properties".length());
+                if (ultimoEnvio(id).compareTo(limite) < 0) {
+                    removerSeExpirada(id, limite);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Não foi possível remover uploads expirados: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sessões com uma requisição em andamento ficam para a próxima limpeza. Com a trava obtida,
+     * o último envio é conferido de novo, porque uma parte pode ter chegado depois da listagem.
+     */
+    private void removerSeExpirada(String id, FileTime limite) throws IOException {
+        ReentrantLock trava = travas.computeIfAbsent(id, chave -> new ReentrantLock());
+        if (!trava.tryLock()) {
+            return;
+        }
+        try {
+            if (Files.exists(metadados(id)) && ultimoEnvio(id).compareTo(limite) < 0) {
+                excluir(id);
+                logger.info("Upload retomável {} expirado e removido", id);
+            }
+        } finally {
+            liberar(id, trava);
+        }
+    }
+
+    private FileTime ultimoEnvio(String id) throws IOException {
+        Path parte = parte(id);
+        return Files.exists(parte) ? Files.getLastModifiedTime(parte) : Files.getLastModifiedTime(metadados(id));
+    }
+
+    private UploadRetomavelDTO paraDTO(Sessao sessao) {
+        long recebidos = bytesRecebidos(sessao);
+        return new UploadRetomavelDTO(sessao.id(), sessao.arquivo(), recebidos, sessao.tamanho(),
+                recebidos >= sessao.tamanho(), expiracao(sessao.id()));
+    }
+
+    private record Sessao(String id, String arquivo, long tamanho) {
+    }
+}
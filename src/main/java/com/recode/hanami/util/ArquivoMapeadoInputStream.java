@@ -0,0 +1,94 @@
+package com.recode.hanami.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lê um arquivo através de janelas mapeadas em memória ({@link FileChannel#map}). Os bytes vêm
+ * direto do page cache, sem a cópia intermediária feita pelas leituras de um {@code FileInputStream}.
+ * <p>
+ * As janelas são liberadas pelo coletor de lixo; em sistemas que bloqueiam a exclusão de arquivos
+ * mapeados, o arquivo pode permanecer em disco até essa liberação.
+ */
+public class ArquivoMapeadoInputStream extends InputStream {
+
+    private static final long TAMANHO_JANELA = 256L * 1024 * 1024;
+
+    private final FileChannel canal;
+    private final long tamanho;
+    private MappedByteBuffer janela;
+    private long inicioJanela;
+
+    public ArquivoMapeadoInputStream(Path arquivo) throws IOException {
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        this.tamanho = canal.size();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!prepararJanela()) {
+            return -1;
+        }
+        return janela.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!prepararJanela()) {
+            return -1;
+        }
+
+        int lidos = Math.min(len, janela.remaining());
+        janela.get(b, off, lidos);
+        return lidos;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long restante = tamanho - posicaoAtual();
+        long pulados = Math.max(0, Math.min(n, restante));
+        if (pulados > 0) {
+            long destino = posicaoAtual() + pulados;
+            janela = null;
+            inicioJanela = destino;
+        }
+        return pulados;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, tamanho - posicaoAtual());
+    }
+
+    @Override
+    public void close() throws IOException {
+        janela = null;
+        canal.close();
+    }
+
+    private long posicaoAtual() {
+        return janela == null ? inicioJanela : inicioJanela + janela.position();
+    }
+
+    private boolean prepararJanela() throws IOException {
+        if (janela != null && janela.hasRemaining()) {
+            return true;
+        }
+
+        long proximaPosicao = posicaoAtual();
+        if (proximaPosicao >= tamanho) {
+            return false;
+        }
+
+        inicioJanela = proximaPosicao;
+        janela = canal.map(FileChannel.MapMode.READ_ONLY, proximaPosicao, Math.min(TAMANHO_JANELA, tamanho - proximaPosicao));
+        return true;
+    }
+}
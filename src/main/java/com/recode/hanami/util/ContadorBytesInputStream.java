@@ -0,0 +1,51 @@
+package com.recode.hanami.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Conta os bytes lidos do fluxo decorado. O contador pode ser consultado de outra thread.
+ */
+public class ContadorBytesInputStream extends FilterInputStream {
+
+    private volatile long bytesLidos;
+
+    public ContadorBytesInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int lido = super.read();
+        if (lido != -1) {
+            bytesLidos++;
+        }
+        return lido;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int lidos = super.read(b, off, len);
+        if (lidos > 0) {
+            bytesLidos += lidos;
+        }
+        return lidos;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long pulados = super.skip(n);
+        bytesLidos += pulados;
+        return pulados;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public long getBytesLidos() {
+        return bytesLidos;
+    }
+}
@@ -0,0 +1,52 @@
+package com.recode.hanami.util;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Identifica pelo conteúdo (magic bytes) se um upload está compactado em gzip ou zstd e, nesse
+ * caso, descompacta em fluxo, sem gravar o arquivo descompactado.
+ */
+public class DescompressaoUtil {
+
+    private static final byte[] ASSINATURA_GZIP = {(byte) 0x1F, (byte) 0x8B};
+    private static final byte[] ASSINATURA_ZSTD = {(byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD};
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private DescompressaoUtil() {
+    }
+
+    /**
+     * Devolve um fluxo com o conteúdo descompactado, ou com os mesmos bytes quando o conteúdo
+     * não está compactado. Fechar o fluxo devolvido fecha também o original.
+     */
+    public static InputStream descompactarSeNecessario(InputStream inputStream) throws IOException {
+        PushbackInputStream fluxo = new PushbackInputStream(inputStream, ASSINATURA_ZSTD.length);
+        byte[] inicio = fluxo.readNBytes(ASSINATURA_ZSTD.length);
+        fluxo.unread(inicio);
+
+        if (comecaCom(inicio, ASSINATURA_GZIP)) {
+            return new GZIPInputStream(fluxo, TAMANHO_BUFFER);
+        }
+        if (comecaCom(inicio, ASSINATURA_ZSTD)) {
+            return new ZstdInputStream(fluxo);
+        }
+        return fluxo;
+    }
+
+    private static boolean comecaCom(byte[] conteudo, byte[] assinatura) {
+        if (conteudo.length < assinatura.length) {
+            return false;
+        }
+        for (int i = 0; i < assinatura.length; i++) {
+            if (conteudo[i] != assinatura[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
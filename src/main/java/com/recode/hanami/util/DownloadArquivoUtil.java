@@ -1,9 +1,15 @@
 package com.recode.hanami.util;
 
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public final class DownloadArquivoUtil {
 
     private DownloadArquivoUtil() {
@@ -22,6 +28,21 @@ public final class DownloadArquivoUtil {
                 .body(data);
     }
 
+    /**
+     * Resposta que copia o arquivo do disco para a saída, sem carregá-lo em memória.
+     */
+    public static ResponseEntity<Resource> buildResponse(Path file, String filename, MediaType mediaType) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(mediaType);
+        headers.setContentDispositionFormData("attachment", filename);
+        headers.setContentLength(Files.size(file));
+
+        return ResponseEntity
+                .ok()
+                .headers(headers)
+                .body(new FileSystemResource(file));
+    }
+
     public static ResponseEntity<byte[]> buildDownloadResponse(byte[] data, String format) {
         MediaType mediaType = resolveMediaType(format);
         String filename = resolveFilename(format);
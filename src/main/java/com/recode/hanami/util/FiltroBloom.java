@@ -0,0 +1,116 @@
+package com.recode.hanami.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para textos, dimensionado pela capacidade esperada e pela taxa de falsos
+ * positivos desejada. {@link #podeConter} nunca devolve {@code false} para um valor adicionado;
+ * pode devolver {@code true} para um valor nunca adicionado, com a probabilidade configurada
+ * enquanto a capacidade não for ultrapassada.
+ * <p>
+ * Seguro para uso concorrente: os bits são ligados com operações atômicas.
+ */
+public final class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long quantidadeBits;
+    private final int quantidadeHashes;
+    private final long capacidade;
+    private final AtomicLong elementos = new AtomicLong();
+
+    public FiltroBloom(long capacidade, double taxaFalsosPositivos) {
+        if (capacidade <= 0 || taxaFalsosPositivos <= 0 || taxaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("Capacidade e taxa de falsos positivos inválidas para o filtro de Bloom");
+        }
+
+        long bitsIdeais = (long) Math.ceil(-capacidade * Math.log(taxaFalsosPositivos) / (Math.log(2) * Math.log(2)));
+        int palavras = (int) Math.min(Integer.MAX_VALUE - 8, (bitsIdeais + 63) / 64);
+
+        this.bits = new AtomicLongArray(palavras);
+        this.quantidadeBits = (long) palavras * 64;
+        this.quantidadeHashes = Math.max(1, (int) Math.round((double) quantidadeBits / capacidade * Math.log(2)));
+        this.capacidade = capacidade;
+    }
+
+    public void adicionar(String valor) {
+        long hash = hash(valor);
+        long h1 = hash;
+        long h2 = misturar(hash ^ 0x9E3779B97F4A7C15L) | 1;
+
+        for (int i = 0; i < quantidadeHashes; i++) {
+            long indice = Math.floorMod(h1 + i * h2, quantidadeBits);
+            int palavra = (int) (indice >>> 6);
+            long mascara = 1L << indice;
+
+            long atual = bits.get(palavra);
+            while ((atual & mascara) == 0 && !bits.compareAndSet(palavra, atual, atual | mascara)) {
+                atual = bits.get(palavra);
+            }
+        }
+        elementos.incrementAndGet();
+    }
+
+    public boolean podeConter(String valor) {
+        long hash = hash(valor);
+        long h1 = hash;
+        long h2 = misturar(hash ^ 0x9E3779B97F4A7C15L) | 1;
+
+        for (int i = 0; i < quantidadeHashes; i++) {
+            long indice = Math.floorMod(h1 + i * h2, quantidadeBits);
+            if ((bits.get((int) (indice >>> 6)) & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Taxa de falsos positivos esperada para a quantidade de adições feitas até agora.
+     */
+    public double getTaxaFalsosPositivosEstimada() {
+        double expoente = -quantidadeHashes * (double) elementos.get() / quantidadeBits;
+        return Math.pow(1 - Math.exp(expoente), quantidadeHashes);
+    }
+
+    public long getTamanhoBytes() {
+        return quantidadeBits / 8;
+    }
+
+    public int getQuantidadeHashes() {
+        return quantidadeHashes;
+    }
+
+    public long getCapacidade() {
+        return capacidade;
+    }
+
+    /**
+     * Quantidade de adições, incluindo valores repetidos.
+     */
+    public long getElementos() {
+        return elementos.get();
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre os caracteres, seguido do finalizador do MurmurHash3 para
+     * espalhar os bits.
+     */
+    private static long hash(String valor) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < valor.length(); i++) {
+            hash ^= valor.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return misturar(hash);
+    }
+
+    private static long misturar(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xFF51AFD7ED558CCDL;
+        valor ^= valor >>> 33;
+        valor *= 0xC4CEB9FE1A85EC53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
@@ -4,10 +4,13 @@ import com.recode.hanami.exception.ArquivoInvalidoException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @Component
 public class UploadArquivoValidator {
 
-    private static final String CSV_EXTENSION = ".csv";
+    // O formato (e a compressão) é identificado pelo conteúdo; a extensão só filtra o tipo de arquivo
+    private static final List<String> EXTENSOES_ACEITAS = List.of(".csv", ".csv.gz", ".csv.zst", ".arrow", ".feather");
 
     public void validate(MultipartFile file) {
         if (file == null || file.isEmpty()) {
@@ -15,14 +18,29 @@ public class UploadArquivoValidator {
         }
 
         if (!hasValidExtension(file)) {
-            throw new ArquivoInvalidoException("O arquivo deve ter a extensão .csv");
+            throw new ArquivoInvalidoException("O arquivo deve ter a extensão .csv, .csv.gz, .csv.zst, .arrow ou .feather");
         }
     }
 
-    private boolean hasValidExtension(MultipartFile file) {
-        if (file.getOriginalFilename() == null) {
+    public void validateZip(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new ArquivoInvalidoException("Nenhum arquivo foi enviado ou o arquivo está vazio.");
+        }
+
+        if (file.getOriginalFilename() == null || !file.getOriginalFilename().toLowerCase().endsWith(".zip")) {
+            throw new ArquivoInvalidoException("O arquivo deve ter a extensão .zip");
+        }
+    }
+
+    public boolean isNomeCsvValido(String nomeArquivo) {
+        if (nomeArquivo == null) {
             return false;
         }
-        return file.getOriginalFilename().toLowerCase().endsWith(CSV_EXTENSION);
+        String nome = nomeArquivo.toLowerCase();
+        return EXTENSOES_ACEITAS.stream().anyMatch(nome::endsWith);
+    }
+
+    private boolean hasValidExtension(MultipartFile file) {
+        return isNomeCsvValido(file.getOriginalFilename());
     }
 }
@@ -0,0 +1,156 @@
+package com.recode.hanami.benchmark;
+
+import com.recode.hanami.ApiVendasApplication;
+import com.recode.hanami.repository.VendaRepository;
+import com.recode.hanami.service.ArmazemColunarVendas;
+import com.recode.hanami.service.CargaNativaService;
+import com.recode.hanami.service.ProgressoImportacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relatórios por estado e de perfil dos clientes lidos do banco ({@link VendaRepository}, H2 em
+ * memória) e do {@link ArmazemColunarVendas}, com {@code vendas} vendas geradas por
+ * {@link GeradorCsvVendas} e gravadas pela carga nativa. O resultado é o tempo por relatório:
+ * {@code estado} é a totalização de um estado e {@code perfilClientes} são as quatro contagens
+ * do perfil dos clientes.
+ * <p>
+ * Na preparação é mostrada a memória do armazém: o tamanho dos arrays (o gauge
+ * {@code hanami.armazem.colunar.tamanho}) e o heap ocupado depois de um GC, com dicionários e
+ * índice de IDs.
+ * <p>
+ * {@code mvn -P benchmark test-compile exec:exec -Dbenchmark.args="ArmazemColunarBenchmark -p vendas=500000"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ArmazemColunarBenchmark {
+
+    @Param({"100000"})
+    private int vendas;
+
+    @Param({"banco", "armazem"})
+    private String fonte;
+
+    private ConfigurableApplicationContext contexto;
+    private VendaRepository vendaRepository;
+    private ArmazemColunarVendas armazem;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(ApiVendasApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:armazem_colunar;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--hanami.importacao.carga-nativa.habilitada=true",
+                        "--hanami.relatorios.armazem-colunar.habilitado=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.com.recode.hanami=WARN",
+                        "--logging.file.name=target/benchmark.log");
+        vendaRepository = contexto.getBean(VendaRepository.class);
+        importarVendas();
+
+        // O armazém do contexto fica desligado; este é carregado depois da importação. A memória é
+        // medida com uma segunda cópia, depois que a primeira carga estabilizou o heap do H2
+        armazem = carregarArmazem(new SimpleMeterRegistry());
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        long heapAntes = heapAposGc();
+        ArmazemColunarVendas copia = carregarArmazem(registro);
+        long heapDepois = heapAposGc();
+        System.out.printf(Locale.ROOT, "armazém: %d vendas, arrays %.1f MB, heap %.1f MB%n", vendas,
+                registro.get("hanami.armazem.colunar.tamanho").gauge().value() / 1e6, (heapDepois - heapAntes) / 1e6);
+        Reference.reachabilityFence(copia);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void estado(Blackhole blackhole) {
+        blackhole.consume(fonte.equals("armazem")
+                ? armazem.totalizarPorEstado("sp")
+                : vendaRepository.totalizarPorEstado("sp"));
+    }
+
+    @Benchmark
+    public void perfilClientes(Blackhole blackhole) {
+        if (fonte.equals("armazem")) {
+            blackhole.consume(armazem.contarClientesComVendas());
+            blackhole.consume(armazem.contarClientesPorIdade());
+            blackhole.consume(armazem.contarClientesPorGenero());
+            blackhole.consume(armazem.contarClientesPorCidade());
+        } else {
+            blackhole.consume(vendaRepository.contarClientesComVendas());
+            blackhole.consume(vendaRepository.contarClientesPorIdade());
+            blackhole.consume(vendaRepository.contarClientesPorGenero());
+            blackhole.consume(vendaRepository.contarClientesPorCidade());
+        }
+    }
+
+    private void importarVendas() {
+        CargaNativaService cargaNativaService = contexto.getBean(CargaNativaService.class);
+        byte[] csv = GeradorCsvVendas.gerar(vendas, 42).getBytes(StandardCharsets.UTF_8);
+        new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class)).executeWithoutResult(status ->
+                cargaNativaService.carregar(new ByteArrayInputStream(csv), ProgressoImportacao.NENHUM));
+    }
+
+    private ArmazemColunarVendas carregarArmazem(SimpleMeterRegistry registro) {
+        ArmazemColunarVendas carregado = new ArmazemColunarVendas(contexto.getBean(JdbcTemplate.class), registro, true);
+        carregado.afterSingletonsInstantiated();
+        return carregado;
+    }
+
+    /**
+     * Repete o GC até o heap parar de diminuir: objetos liberados por referências fracas e
+     * cleaners num GC só são recolhidos no seguinte.
+     */
+    private static long heapAposGc() {
+        long minimo = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long usado = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            if (usado >= minimo) {
+                break;
+            }
+            minimo = usado;
+        }
+        return minimo;
+    }
+}
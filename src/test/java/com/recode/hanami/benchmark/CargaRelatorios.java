@@ -0,0 +1,249 @@
+package com.recode.hanami.benchmark;
+
+import com.recode.hanami.ApiVendasApplication;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Teste de carga dos relatórios com threads de plataforma e threads virtuais
+ * ({@code spring.threads.virtual.enabled}). Para cada modo a aplicação é iniciada em outra JVM,
+ * com H2 em memória, recebe {@code vendas} vendas geradas por {@link GeradorCsvVendas} e,
+ * depois do aquecimento, é consultada por clientes em laço fechado, cada um repetindo requisições
+ * aos {@link #RELATORIOS} em rodízio por {@code segundos} segundos, em cada nível de concorrência.
+ * Para cada rodada são mostradas as respostas 200 por segundo, p50 e p99 delas, p99 e máximo de
+ * todas e a contagem por status (-1 é tempo esgotado no cliente). Ao fim de cada modo são mostradas
+ * as threads vivas e o heap usado, lidos do actuator.
+ * <p>
+ * {@code mvn -P benchmark test-compile exec:exec -Dbenchmark.main=com.recode.hanami.benchmark.CargaRelatorios
+ * -Dbenchmark.args="concorrencias=8,32,128 segundos=60"}
+ * <p>
+ * Opções ({@code chave=valor}): {@code modos} (plataforma,virtual), {@code vendas} (50000),
+ * {@code concorrencias} (8,32,128), {@code segundos} (60), {@code aquecimento} (20),
+ * {@code cpus} (processadores da JVM da aplicação, 0 usa todos). Argumentos iniciados por
+ * {@code --} vão para a aplicação, por exemplo {@code --hanami.admissao.habilitada=false}. O log
+ * de cada modo fica em {@code target/carga-relatorios-<modo>.log}.
+ */
+public class CargaRelatorios {
+
+    static final List<String> RELATORIOS = List.of(
+            "/hanami/reports/financial-metrics",
+            "/hanami/reports/sales-summary",
+            "/hanami/reports/regional-performance",
+            "/hanami/reports/customer-profile",
+            "/hanami/reports/product-analysis?sort_by=total",
+            "/hanami/reports/download?format=json");
+
+    private static final Duration TEMPO_MAXIMO_REQUISICAO = Duration.ofSeconds(60);
+    private static final Duration TEMPO_MAXIMO_INICIALIZACAO = Duration.ofMinutes(3);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = new LinkedHashMap<>(Map.of(
+                "modos", "plataforma,virtual", "vendas", "50000", "concorrencias", "8,32,128",
+                "segundos", "60", "aquecimento", "20", "cpus", "0"));
+        List<String> propriedadesAplicacao = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                propriedadesAplicacao.add(arg);
+            } else if (arg.contains("=") && opcoes.containsKey(arg.substring(0, arg.indexOf('=')))) {
+                opcoes.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                throw new IllegalArgumentException("Opção desconhecida: " + arg + "; opções: " + opcoes.keySet());
+            }
+        }
+
+        byte[] csv = GeradorCsvVendas.gerar(Integer.parseInt(opcoes.get("vendas")), 42)
+                .getBytes(StandardCharsets.UTF_8);
+        HttpClient cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        System.out.println("opções: " + opcoes + " " + propriedadesAplicacao);
+        for (String modo : opcoes.get("modos").split(",")) {
+            Aplicacao aplicacao = iniciarAplicacao(modo, Integer.parseInt(opcoes.get("cpus")), propriedadesAplicacao);
+            try {
+                aguardarAplicacao(aplicacao, cliente);
+                String base = aplicacao.base();
+                enviarVendas(cliente, base, csv);
+
+                executarRodada(cliente, base, 4, Integer.parseInt(opcoes.get("aquecimento")));
+                for (String concorrencia : opcoes.get("concorrencias").split(",")) {
+                    Rodada rodada = executarRodada(cliente, base, Integer.parseInt(concorrencia),
+                            Integer.parseInt(opcoes.get("segundos")));
+                    System.out.println(modo + " " + rodada);
+                }
+                System.out.printf(Locale.ROOT, "%s threads.live=%.0f heap=%.0fMB%n", modo,
+                        metrica(cliente, base, "jvm.threads.live"),
+                        metrica(cliente, base, "jvm.memory.used?tag=area:heap") / 1e6);
+            } finally {
+                aplicacao.processo().destroy();
+                aplicacao.processo().waitFor();
+            }
+        }
+    }
+
+    private record Aplicacao(Process processo, String base) { }
+
+    private static Aplicacao iniciarAplicacao(String modo, int cpus, List<String> propriedades) throws IOException {
+        if (!modo.equals("plataforma") && !modo.equals("virtual")) {
+            throw new IllegalArgumentException("Modo desconhecido: " + modo);
+        }
+        int porta;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            porta = socket.getLocalPort();
+        }
+
+        List<String> comando = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "--add-opens=java.base/java.nio=ALL-UNNAMED",
+                "-Dspring.devtools.restart.enabled=false"));
+        if (cpus > 0) {
+            comando.add("-XX:ActiveProcessorCount=" + cpus);
+        }
+        comando.addAll(List.of(
+                "-cp", System.getProperty("java.class.path"),
+                ApiVendasApplication.class.getName(),
+                "--server.port=" + porta,
+                "--spring.threads.virtual.enabled=" + modo.equals("virtual"),
+                "--spring.datasource.url=jdbc:h2:mem:carga_relatorios;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false"));
+        comando.addAll(propriedades);
+
+        Path log = Path.of("target", "carga-relatorios-" + modo + ".log");
+        Files.createDirectories(log.getParent());
+        Process processo = new ProcessBuilder(comando).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        System.out.println(modo + ": aplicação na porta " + porta + ", log em " + log);
+        return new Aplicacao(processo, "http://localhost:" + porta);
+    }
+
+    private static void aguardarAplicacao(Aplicacao aplicacao, HttpClient cliente) throws Exception {
+        long limite = System.nanoTime() + TEMPO_MAXIMO_INICIALIZACAO.toNanos();
+        while (System.nanoTime() < limite) {
+            if (!aplicacao.processo().isAlive()) {
+                throw new IllegalStateException("A aplicação terminou durante a inicialização; veja o log");
+            }
+            try {
+                HttpResponse<Void> resposta = cliente.send(
+                        HttpRequest.newBuilder(URI.create(aplicacao.base() + "/actuator/health")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (resposta.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // ainda iniciando
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("A aplicação não respondeu em " + TEMPO_MAXIMO_INICIALIZACAO);
+    }
+
+    private static void enviarVendas(HttpClient cliente, String base, byte[] csv) throws Exception {
+        String fronteira = "carga-" + System.nanoTime();
+        byte[] inicio = ("--" + fronteira + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"vendas.csv\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] fim = ("\r\n--" + fronteira + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        HttpResponse<String> resposta = cliente.send(HttpRequest.newBuilder(URI.create(base + "/hanami/upload-file"))
+                        .header("Content-Type", "multipart/form-data; boundary=" + fronteira)
+                        .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(inicio, csv, fim)))
+                        .timeout(Duration.ofMinutes(10))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (resposta.statusCode() != 200) {
+            throw new IllegalStateException("Importação das vendas falhou: " + resposta.statusCode() + " " + resposta.body());
+        }
+    }
+
+    /**
+     * {@code concorrencia} clientes em laço fechado: cada um só envia a próxima requisição depois
+     * de receber a resposta da anterior.
+     */
+    private static Rodada executarRodada(HttpClient cliente, String base, int concorrencia, int segundos)
+            throws InterruptedException {
+        long fim = System.nanoTime() + segundos * 1_000_000_000L;
+        ConcurrentLinkedQueue<long[]> medicoes = new ConcurrentLinkedQueue<>();
+        AtomicInteger proximo = new AtomicInteger();
+
+        long inicio = System.nanoTime();
+        List<Thread> clientes = new ArrayList<>();
+        for (int i = 0; i < concorrencia; i++) {
+            clientes.add(Thread.ofPlatform().start(() -> {
+                while (System.nanoTime() < fim) {
+                    String relatorio = RELATORIOS.get(Math.floorMod(proximo.getAndIncrement(), RELATORIOS.size()));
+                    long envio = System.nanoTime();
+                    int status;
+                    try {
+                        status = cliente.send(HttpRequest.newBuilder(URI.create(base + relatorio))
+                                        .timeout(TEMPO_MAXIMO_REQUISICAO).build(),
+                                HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException e) {
+                        status = -1;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    medicoes.add(new long[]{status, System.nanoTime() - envio});
+                }
+            }));
+        }
+        for (Thread thread : clientes) {
+            thread.join();
+        }
+        return new Rodada(concorrencia, (System.nanoTime() - inicio) / 1e9, List.copyOf(medicoes));
+    }
+
+    private record Rodada(int concorrencia, double segundos, List<long[]> medicoes) {
+
+        @Override
+        public String toString() {
+            long[] ok = medicoes.stream().filter(medicao -> medicao[0] == 200).mapToLong(medicao -> medicao[1]).sorted().toArray();
+            long[] todas = medicoes.stream().mapToLong(medicao -> medicao[1]).sorted().toArray();
+            Map<Long, Integer> porStatus = new TreeMap<>();
+            medicoes.forEach(medicao -> porStatus.merge(medicao[0], 1, Integer::sum));
+            return String.format(Locale.ROOT,
+                    "conc=%d %.1fs total=%d ok/s=%.1f p50=%.0fms p99=%.0fms p99todas=%.0fms max=%.0fms status=%s",
+                    concorrencia, segundos, todas.length, ok.length / segundos, percentil(ok, .5), percentil(ok, .99),
+                    percentil(todas, .99), todas.length == 0 ? 0 : todas[todas.length - 1] / 1e6, porStatus);
+        }
+    }
+
+    static double percentil(long[] ordenados, double quantil) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        int posicao = (int) Math.ceil(quantil * ordenados.length) - 1;
+        return ordenados[Math.max(0, Math.min(ordenados.length - 1, posicao))] / 1e6;
+    }
+
+    private static final Pattern VALOR_METRICA = Pattern.compile("\"value\"\\s*:\\s*([0-9.Ee+-]+)");
+
+    private static double metrica(HttpClient cliente, String base, String nome) throws Exception {
+        String corpo = cliente.send(HttpRequest.newBuilder(URI.create(base + "/actuator/metrics/" + nome)).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher valor = VALOR_METRICA.matcher(corpo);
+        return valor.find() ? Double.parseDouble(valor.group(1)) : Double.NaN;
+    }
+}
@@ -0,0 +1,44 @@
+package com.recode.hanami.benchmark;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * CSV com o layout completo de vendas e valores no formato dos arquivos reais: IDs sequenciais,
+ * poucos clientes, produtos e vendedores repetidos, decimais de duas casas.
+ */
+final class GeradorCsvVendas {
+
+    private GeradorCsvVendas() {
+    }
+
+    static String gerar(int linhas, long semente) {
+        List<String> canais = List.of("online", "loja", "marketplace");
+        List<String> pagamentos = List.of("pix", "boleto", "cartao de credito", "cartao de debito");
+        List<String> regioes = List.of("norte", "nordeste", "sudeste", "sul", "centro-oeste");
+        List<String> estados = List.of("SP", "RJ", "MG", "RS", "BA", "PE", "PR");
+        Random sorteio = new Random(semente);
+
+        StringBuilder csv = new StringBuilder(linhas * 170);
+        csv.append("id_transacao,data_venda,valor_final,subtotal,desconto_percent,canal_venda,forma_pagamento,")
+                .append("cliente_id,nome_cliente,idade_cliente,genero_cliente,cidade_cliente,estado_cliente,")
+                .append("renda_estimada,produto_id,nome_produto,categoria,marca,preco_unitario,quantidade,")
+                .append("margem_lucro,regiao,status_entrega,tempo_entrega_dias,vendedor_id\n");
+        for (int i = 0; i < linhas; i++) {
+            int cliente = sorteio.nextInt(500);
+            int produto = sorteio.nextInt(200);
+            double subtotal = 10 + sorteio.nextInt(100_000) / 100.0;
+            double desconto = sorteio.nextInt(20) / 100.0;
+            csv.append(String.format(Locale.ROOT, "T%08d,2024-%02d-%02d,%.2f,%.2f,%.2f,%s,%s,C%d,Cliente %d,%d,%s,Cidade %d,%s,%.1f,"
+                            + "P%d,Produto %d,cat%d,marca%d,%.1f,%d,%.2f,%s,entregue,%d,V%d%n",
+                    i, 1 + sorteio.nextInt(12), 1 + sorteio.nextInt(28), subtotal * (1 - desconto), subtotal, desconto,
+                    canais.get(sorteio.nextInt(canais.size())), pagamentos.get(sorteio.nextInt(pagamentos.size())),
+                    cliente, cliente, 18 + cliente % 60, cliente % 2 == 0 ? "F" : "M", cliente % 40,
+                    estados.get(cliente % estados.size()), 1000 + cliente * 7.5, produto, produto, produto % 10,
+                    produto % 5, 10 + produto * 2.5, 1 + sorteio.nextInt(5), 0.1 + (produto % 5) / 10.0,
+                    regioes.get(sorteio.nextInt(regioes.size())), 1 + sorteio.nextInt(15), sorteio.nextInt(50)));
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.recode.hanami.benchmark;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+import com.recode.hanami.service.CsvService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura do CSV de vendas pelos dois motores ({@code hanami.importacao.motor-csv}), sem banco:
+ * um arquivo de {@link #LINHAS} linhas em memória, no formato dos arquivos de exemplo, convertido
+ * em {@link DadosArquivoDTO}. O resultado é em linhas por segundo; com {@code -prof gc} o JMH
+ * mostra também os bytes alocados por linha ({@code gc.alloc.rate.norm}).
+ * <p>
+ * {@code mvn -P benchmark test-compile exec:exec -Dbenchmark.args="LeituraCsvBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeituraCsvBenchmark {
+
+    static final int LINHAS = 50_000;
+
+    @Param({CsvService.MOTOR_JACKSON, CsvService.MOTOR_TOKENIZADOR})
+    private String motor;
+
+    private CsvService csvService;
+    private byte[] arquivo;
+
+    @Setup
+    public void preparar() {
+        csvService = new CsvService(motor);
+        arquivo = GeradorCsvVendas.gerar(LINHAS, 42).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINHAS)
+    public void lerArquivo(Blackhole blackhole) {
+        csvService.processarEmLotes(new ByteArrayInputStream(arquivo), 1000, blackhole::consume);
+    }
+}
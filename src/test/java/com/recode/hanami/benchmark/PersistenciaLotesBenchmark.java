@@ -0,0 +1,203 @@
+package com.recode.hanami.benchmark;
+
+import com.recode.hanami.ApiVendasApplication;
+import com.recode.hanami.dto.DadosArquivoDTO;
+import com.recode.hanami.entities.Cliente;
+import com.recode.hanami.entities.Produto;
+import com.recode.hanami.entities.Venda;
+import com.recode.hanami.entities.Vendedor;
+import com.recode.hanami.repository.ClienteRepository;
+import com.recode.hanami.repository.ProdutoRepository;
+import com.recode.hanami.repository.VendaRepository;
+import com.recode.hanami.repository.VendedorRepository;
+import com.recode.hanami.service.CacheDimensoes;
+import com.recode.hanami.service.CsvService;
+import com.recode.hanami.service.ProcessamentoVendasService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gravação de um arquivo de {@link #LINHAS} vendas novas pelo ORM, com H2 em memória:
+ * {@code save-por-linha} chama {@code save()} nos quatro repositórios a cada linha, como antes
+ * do {@code PersistenciaEmLoteService}; {@code em-lote} usa o caminho atual
+ * ({@link ProcessamentoVendasService#salvarLote}), com leitura das existentes por lote e batch
+ * JDBC. O cache compartilhado de dimensões fica desligado, para medir só a gravação. O caminho
+ * em lote também atualiza o resumo dos relatórios, o que a referência não faz.
+ * <p>
+ * Cada execução grava um arquivo com IDs de venda novos; clientes, produtos e vendedores se
+ * repetem entre os arquivos, como em importações consecutivas. Além do tempo por arquivo, o JMH
+ * mostra {@code comandos}, os comandos preparados pelo Hibernate (um batch JDBC conta uma vez),
+ * somados nas iterações medidas.
+ * <p>
+ * {@code mvn -P benchmark test-compile exec:exec -Dbenchmark.args="PersistenciaLotesBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistenciaLotesBenchmark {
+
+    static final int LINHAS = 20_000;
+
+    @Param({"save-por-linha", "em-lote"})
+    private String estrategia;
+
+    private ConfigurableApplicationContext contexto;
+    private ProcessamentoVendasService processamentoVendasService;
+    private TransactionTemplate transacao;
+    private EntityManager entityManager;
+    private ClienteRepository clienteRepository;
+    private ProdutoRepository produtoRepository;
+    private VendedorRepository vendedorRepository;
+    private VendaRepository vendaRepository;
+    private Statistics estatisticas;
+    private int tamanhoLote;
+
+    private String csv;
+    private int arquivo;
+    private List<DadosArquivoDTO> registros;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(ApiVendasApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:persistencia_lotes;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--spring.devtools.restart.enabled=false",
+                        "--hanami.importacao.cache-dimensoes.tamanho-maximo=0",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.com.recode.hanami=WARN",
+                        "--logging.file.name=target/benchmark.log");
+        processamentoVendasService = contexto.getBean(ProcessamentoVendasService.class);
+        transacao = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        entityManager = contexto.getBean(EntityManager.class);
+        clienteRepository = contexto.getBean(ClienteRepository.class);
+        produtoRepository = contexto.getBean(ProdutoRepository.class);
+        vendedorRepository = contexto.getBean(VendedorRepository.class);
+        vendaRepository = contexto.getBean(VendaRepository.class);
+        estatisticas = contexto.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        tamanhoLote = contexto.getEnvironment().getProperty("hanami.importacao.tamanho-lote", Integer.class, 1000);
+        csv = GeradorCsvVendas.gerar(LINHAS, 42);
+    }
+
+    /**
+     * Um arquivo novo por execução: os IDs de venda recebem o número do arquivo como prefixo.
+     */
+    @Setup(Level.Iteration)
+    public void prepararArquivo() {
+        String comIdsNovos = csv.replace("\nT", "\nA" + (++arquivo) + "-T");
+        registros = new ArrayList<>(LINHAS);
+        new CsvService(CsvService.MOTOR_JACKSON)
+                .processarEmLotes(new ByteArrayInputStream(comIdsNovos.getBytes(StandardCharsets.UTF_8)), LINHAS, registros::addAll);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Comandos {
+        public long comandos;
+    }
+
+    @Benchmark
+    public void gravarArquivo(Comandos contador) {
+        long antes = estatisticas.getPrepareStatementCount();
+        transacao.executeWithoutResult(status -> {
+            CacheDimensoes cache = processamentoVendasService.iniciarCacheDimensoes();
+            for (int inicio = 0; inicio < registros.size(); inicio += tamanhoLote) {
+                List<DadosArquivoDTO> lote = registros.subList(inicio, Math.min(inicio + tamanhoLote, registros.size()));
+                if (estrategia.equals("em-lote")) {
+                    processamentoVendasService.salvarLote(lote, cache);
+                } else {
+                    lote.forEach(this::salvarLinha);
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        contador.comandos += estatisticas.getPrepareStatementCount() - antes;
+    }
+
+    /**
+     * A gravação por linha anterior ao {@code PersistenciaEmLoteService}.
+     */
+    private void salvarLinha(DadosArquivoDTO dto) {
+        Cliente cliente = new Cliente();
+        cliente.setId(dto.clienteId());
+        cliente.setNomeCliente(dto.nomeCliente());
+        cliente.setIdadeCliente(dto.idadeCliente());
+        cliente.setGeneroCliente(dto.generoCliente());
+        cliente.setCidadeCliente(dto.cidadeCliente());
+        cliente.setEstadoCliente(dto.estadoCliente());
+        cliente.setRendaEstimada(dto.rendaEstimada());
+        clienteRepository.save(cliente);
+
+        Produto produto = new Produto();
+        produto.setId(dto.produtoId());
+        produto.setNomeProduto(dto.nomeProduto());
+        produto.setCategoria(dto.categoria());
+        produto.setMarca(dto.marca());
+        produto.setMargemLucro(dto.margemLucro());
+        produto.setPrecoUnitario(dto.precoUnitario());
+        produtoRepository.save(produto);
+
+        Vendedor vendedor = new Vendedor();
+        vendedor.setId(dto.vendedorId());
+        vendedorRepository.save(vendedor);
+
+        Venda venda = new Venda();
+        venda.setId(dto.idTransacao());
+        venda.setDataVenda(dto.dataVenda());
+        venda.setValorFinal(dto.valorFinal());
+        venda.setSubtotal(dto.subtotal());
+        venda.setDescontoPercent(dto.descontoPercent());
+        venda.setQuantidade(dto.quantidade());
+        venda.setCanalVenda(dto.canalVenda());
+        venda.setFormaPagamento(dto.formaPagamento());
+        venda.setRegiao(dto.regiao());
+        venda.setStatusEntrega(dto.statusEntrega());
+        venda.setTempoEntregaDias(dto.tempoEntregaDias());
+        venda.setCliente(cliente);
+        venda.setProduto(produto);
+        venda.setVendedor(vendedor);
+        vendaRepository.save(venda);
+    }
+}
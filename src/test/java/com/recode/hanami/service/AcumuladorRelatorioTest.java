@@ -0,0 +1,132 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ContagemGrupoDTO;
+import com.recode.hanami.dto.TotaisGrupoDTO;
+import com.recode.hanami.dto.TotaisRelatorioDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AcumuladorRelatorioTest {
+
+    private static final int[] TAMANHOS_BLOCO = {1, 7, 64, 1000, 4096, 50_000};
+    private static final int[] THREADS = {1, 2, 3, 8};
+
+    /**
+     * Para cada tamanho de bloco, a acumulação paralela com qualquer número de threads produz os
+     * mesmos bits que a sequencial em todas as somas de ponto flutuante.
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {1, 42, 20240601})
+    void paraleloIdenticoAoSequencialBitABit(long semente) {
+        List<TotaisRelatorioDTO> linhas = linhasAleatorias(new Random(semente), 30_000);
+
+        for (int tamanhoBloco : TAMANHOS_BLOCO) {
+            List<String> sequencial = impressao(AcumuladorRelatorio.acumularEmBlocos(linhas, tamanhoBloco, null));
+            for (int threads : THREADS) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    List<String> paralelo = impressao(AcumuladorRelatorio.acumularEmBlocos(linhas, tamanhoBloco, pool));
+                    assertThat(paralelo).as("bloco %d, %d threads", tamanhoBloco, threads).isEqualTo(sequencial);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Com um único bloco, o resultado é o de acumular as linhas uma a uma; contagens e
+     * quantidades não dependem do tamanho do bloco.
+     */
+    @Test
+    void blocoUnicoIgualAAcumulacaoLinhaALinha() {
+        List<TotaisRelatorioDTO> linhas = linhasAleatorias(new Random(7), 5_000);
+        AcumuladorRelatorio linhaALinha = new AcumuladorRelatorio();
+        linhas.forEach(linhaALinha::acumular);
+
+        assertThat(impressao(AcumuladorRelatorio.acumularEmBlocos(linhas, linhas.size(), null)))
+                .isEqualTo(impressao(linhaALinha));
+
+        AcumuladorRelatorio emBlocos = AcumuladorRelatorio.acumularEmBlocos(linhas, 7, null);
+        assertThat(emBlocos.totaisVendas().transacoes()).isEqualTo(linhaALinha.totaisVendas().transacoes());
+        assertThat(ordenadas(emBlocos.contagemCanais())).isEqualTo(ordenadas(linhaALinha.contagemCanais()));
+        assertThat(ordenadas(emBlocos.contagemFormasPagamento())).isEqualTo(ordenadas(linhaALinha.contagemFormasPagamento()));
+        assertThat(emBlocos.totaisPorProduto().stream().map(TotaisGrupoDTO::quantidade).toList())
+                .isEqualTo(linhaALinha.totaisPorProduto().stream().map(TotaisGrupoDTO::quantidade).toList());
+    }
+
+    @Test
+    void entradaVazia() {
+        AcumuladorRelatorio vazio = AcumuladorRelatorio.acumularEmBlocos(List.of(), 64, ForkJoinPool.commonPool());
+
+        assertThat(vazio.totaisVendas().transacoes()).isZero();
+        assertThat(vazio.totaisFinanceiros().receita()).isZero();
+        assertThat(vazio.totaisPorProduto()).isEmpty();
+        assertThat(vazio.contagemCanais()).isEmpty();
+    }
+
+    /**
+     * Valores de magnitudes muito diferentes, para que a ordem das somas altere o arredondamento;
+     * inclui vendas sem produto e sem região.
+     */
+    private static List<TotaisRelatorioDTO> linhasAleatorias(Random aleatorio, int quantidade) {
+        String[] regioes = {"Norte", "Nordeste", "Sul", "Sudeste", "Centro-Oeste", "", null};
+        String[] formas = {"Pix", "Boleto", "Cartão de Crédito", "Cartão de Débito"};
+        String[] canais = {"Loja Física", "Ecommerce", "Marketplace"};
+
+        List<TotaisRelatorioDTO> linhas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            int produto = aleatorio.nextInt(200);
+            boolean semProduto = aleatorio.nextInt(50) == 0;
+            double receita = Math.pow(10, aleatorio.nextInt(9) - 2) * aleatorio.nextDouble();
+            linhas.add(new TotaisRelatorioDTO(
+                    semProduto ? null : "P" + produto,
+                    semProduto ? null : "Produto " + produto,
+                    regioes[aleatorio.nextInt(regioes.length)],
+                    formas[aleatorio.nextInt(formas.length)],
+                    canais[aleatorio.nextInt(canais.length)],
+                    1 + aleatorio.nextInt(20),
+                    receita,
+                    receita * aleatorio.nextDouble(),
+                    1 + aleatorio.nextInt(100)));
+        }
+        return linhas;
+    }
+
+    /**
+     * Todos os valores do acumulador, com as somas de ponto flutuante pelos bits.
+     */
+    private static List<String> impressao(AcumuladorRelatorio acumulador) {
+        List<String> valores = new ArrayList<>();
+        valores.add("transacoes=" + acumulador.totaisVendas().transacoes());
+        valores.add("receita=" + bits(acumulador.totaisVendas().receita()));
+        valores.add("receitaFinanceira=" + bits(acumulador.totaisFinanceiros().receita()));
+        valores.add("custo=" + bits(acumulador.totaisFinanceiros().custo()));
+        ordenadas(acumulador.contagemFormasPagamento()).forEach(c -> valores.add("forma " + c.grupo() + "=" + c.contagem()));
+        ordenadas(acumulador.contagemCanais()).forEach(c -> valores.add("canal " + c.grupo() + "=" + c.contagem()));
+        acumulador.totaisPorProduto().forEach(t -> valores.add("produto " + grupo(t)));
+        acumulador.totaisPorRegiao().forEach(t -> valores.add("regiao " + grupo(t)));
+        return valores;
+    }
+
+    private static String grupo(TotaisGrupoDTO totais) {
+        return totais.grupo() + "=" + totais.transacoes() + "/" + bits(totais.receita()) + "/" + totais.quantidade();
+    }
+
+    private static String bits(double valor) {
+        return Long.toHexString(Double.doubleToRawLongBits(valor));
+    }
+
+    private static List<ContagemGrupoDTO> ordenadas(List<ContagemGrupoDTO> contagens) {
+        return contagens.stream().sorted(Comparator.comparing(ContagemGrupoDTO::grupo)).toList();
+    }
+}
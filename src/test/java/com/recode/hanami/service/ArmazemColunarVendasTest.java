@@ -0,0 +1,266 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ContagemGrupoDTO;
+import com.recode.hanami.dto.TotaisGrupoDTO;
+import com.recode.hanami.entities.Cliente;
+import com.recode.hanami.entities.Venda;
+import com.recode.hanami.repository.VendaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:armazem_colunar_test;DB_CLOSE_DELAY=-1",
+        "hanami.relatorios.armazem-colunar.habilitado=true",
+        "hanami.importacao.carga-nativa.habilitada=true",
+        "hanami.importacao.carga-nativa.tamanho-minimo=9223372036854775807"
+})
+@ActiveProfiles("test")
+class ArmazemColunarVendasTest {
+
+    private static final String CABECALHO = "id_transacao,data_venda,valor_final,subtotal,desconto_percent,canal_venda,"
+            + "forma_pagamento,cliente_id,nome_cliente,idade_cliente,genero_cliente,cidade_cliente,estado_cliente,"
+            + "renda_estimada,produto_id,nome_produto,categoria,marca,preco_unitario,quantidade,margem_lucro,regiao,"
+            + "status_entrega,tempo_entrega_dias,vendedor_id\n";
+
+    private static final List<String> CIDADES = List.of("São Paulo", "sao paulo", "Campinas", "Rio de Janeiro", "Niterói");
+    private static final List<String> ESTADOS = List.of("SP", "sp", "SP", "RJ", "rj");
+    private static final List<String> GENEROS = List.of("F", "M", "f", "Outro");
+
+    @Autowired
+    private ArmazemColunarVendas armazemColunarVendas;
+
+    @Autowired
+    private ImportacaoVendasService importacaoVendasService;
+
+    @Autowired
+    private CargaNativaService cargaNativaService;
+
+    @Autowired
+    private VendaRepository vendaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void encerrarTransacao() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Importações pelo ORM e pela carga nativa em modo upsert, com vendas e clientes reimportados
+     * com outros atributos: depois de cada uma, o armazém e um armazém recarregado do banco dão o
+     * mesmo resultado das consultas do {@link VendaRepository}.
+     */
+    @Test
+    void armazemIgualAsConsultasDoBancoAposImportacoesOrmEUpsert() {
+        assertThat(armazemColunarVendas.isDisponivel()).isTrue();
+
+        importacaoVendasService.importar(csv(1, 60, 0), ProgressoImportacao.NENHUM);
+        compararComBanco(armazemColunarVendas);
+
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        transacao.executeWithoutResult(status -> cargaNativaService.carregar(csv(40, 100, 1), ProgressoImportacao.NENHUM));
+        compararComBanco(armazemColunarVendas);
+
+        importacaoVendasService.importar(csv(20, 70, 2), ProgressoImportacao.NENHUM);
+        compararComBanco(armazemColunarVendas);
+
+        ArmazemColunarVendas recarregado = new ArmazemColunarVendas(jdbcTemplate, new SimpleMeterRegistry(), true);
+        recarregado.afterSingletonsInstantiated();
+        compararComBanco(recarregado);
+    }
+
+    /**
+     * Com o collation padrão do MySQL, valores que diferem só em maiúsculas ou acentos formam um
+     * grupo, com o nome do primeiro valor visto. O banco é um H2 à parte, apresentado como MySQL.
+     */
+    @Test
+    void noMysqlAgrupaPeloCollationDaColuna() {
+        JdbcTemplate mysql = spy(new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:armazem_colunar_mysql;DB_CLOSE_DELAY=-1", "sa", "")));
+        doReturn("MySQL").when(mysql).execute(any(ConnectionCallback.class));
+        doReturn("utf8mb4_0900_ai_ci").when(mysql).queryForObject(anyString(), eq(String.class), any(), any());
+        mysql.execute("CREATE TABLE clientes (cliente_id VARCHAR(20) PRIMARY KEY, idade_cliente INT,"
+                + " genero_cliente VARCHAR(10), cidade_cliente VARCHAR(40), estado_cliente VARCHAR(2))");
+        mysql.execute("CREATE TABLE vendas (id_transacao VARCHAR(20) PRIMARY KEY, cliente_id VARCHAR(20),"
+                + " valor_final DOUBLE, quantidade INT, data_venda DATE, tempo_entrega_dias INT, regiao VARCHAR(20),"
+                + " canal_venda VARCHAR(20), forma_pagamento VARCHAR(20))");
+        ArmazemColunarVendas armazem = new ArmazemColunarVendas(mysql, new SimpleMeterRegistry(), true);
+        armazem.afterSingletonsInstantiated();
+
+        List<Cliente> clientes = List.of(
+                cliente("c1", "São Paulo", "SP", "F"),
+                cliente("c2", "sao paulo", "sp", "f"),
+                cliente("c3", "SAO PAULO", "Sp", "F"),
+                cliente("c4", "Niterói", "RJ", "M"));
+        List<Venda> vendas = new ArrayList<>();
+        for (int i = 0; i < clientes.size(); i++) {
+            Cliente cliente = clientes.get(i);
+            vendas.add(venda("t" + i, cliente, 10.0 * (i + 1)));
+            mysql.update("INSERT INTO clientes VALUES (?, ?, ?, ?, ?)", cliente.getId(), cliente.getIdadeCliente(),
+                    cliente.getGeneroCliente(), cliente.getCidadeCliente(), cliente.getEstadoCliente());
+            mysql.update("INSERT INTO vendas (id_transacao, cliente_id, valor_final, quantidade, data_venda)"
+                    + " VALUES (?, ?, ?, 2, DATE '2024-03-15')", "t" + i, cliente.getId(), 10.0 * (i + 1));
+        }
+
+        confirmar(() -> {
+            armazem.registrarClientes(clientes);
+            armazem.registrarVendas(vendas);
+        });
+
+        assertThat(armazem.contarClientesPorCidade()).containsExactlyInAnyOrder(
+                new ContagemGrupoDTO("São Paulo", 3), new ContagemGrupoDTO("Niterói", 1));
+        assertThat(armazem.contarClientesPorGenero()).containsExactlyInAnyOrder(
+                new ContagemGrupoDTO("F", 3), new ContagemGrupoDTO("M", 1));
+        assertThat(armazem.totalizarPorEstado("sp")).containsExactly(new TotaisGrupoDTO("SP", 3, 60.0, 6));
+        assertThat(armazem.totalizarPorEstado("rj")).containsExactly(new TotaisGrupoDTO("RJ", 1, 40.0, 2));
+    }
+
+    /**
+     * Duas transações sobrescrevem a mesma venda e o {@code afterCommit} da que confirmou
+     * primeiro roda por último: o armazém fica com o valor confirmado por último, como o banco.
+     */
+    @Test
+    void valoresVemDoBancoQualquerQueSejaAOrdemDosAfterCommit() {
+        importacaoVendasService.importar(csv(200, 201, 0), ProgressoImportacao.NENHUM);
+        Venda venda = vendaRepository.findById("t200").orElseThrow();
+
+        List<TransactionSynchronization> primeira = registrarSemConfirmar(venda);
+        jdbcTemplate.update("UPDATE vendas SET valor_final = 111 WHERE id_transacao = 't200'");
+        List<TransactionSynchronization> segunda = registrarSemConfirmar(venda);
+        jdbcTemplate.update("UPDATE vendas SET valor_final = 222 WHERE id_transacao = 't200'");
+
+        segunda.forEach(TransactionSynchronization::afterCommit);
+        primeira.forEach(TransactionSynchronization::afterCommit);
+
+        compararComBanco(armazemColunarVendas);
+    }
+
+    @Test
+    void chaveDeAgrupamentoSegueOCollation() {
+        Function<String, Object> semAcentos = Banco.chaveComparacao("utf8mb4_0900_ai_ci");
+        assertThat(semAcentos.apply("São Paulo"))
+                .isEqualTo(semAcentos.apply("sao paulo"))
+                .isEqualTo(semAcentos.apply("SAO PAULO"))
+                .isEqualTo(semAcentos.apply("São Paulo"))
+                .isNotEqualTo(semAcentos.apply("Santo André"));
+
+        Function<String, Object> comAcentos = Banco.chaveComparacao("utf8mb4_0900_as_ci");
+        assertThat(comAcentos.apply("São Paulo")).isEqualTo(comAcentos.apply("SÃO PAULO"));
+        assertThat(comAcentos.apply("São Paulo")).isNotEqualTo(comAcentos.apply("Sao Paulo"));
+
+        Function<String, Object> exata = Banco.chaveComparacao("utf8mb4_bin");
+        assertThat(exata.apply("sp")).isNotEqualTo(exata.apply("SP"));
+        assertThat(Banco.chaveComparacao("utf8mb4_0900_as_cs").apply("sp")).isEqualTo("sp");
+    }
+
+    private static void confirmar(Runnable gravacao) {
+        TransactionSynchronizationManager.initSynchronization();
+        gravacao.run();
+        List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        sincronizacoes.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private List<TransactionSynchronization> registrarSemConfirmar(Venda venda) {
+        TransactionSynchronizationManager.initSynchronization();
+        armazemColunarVendas.registrarVendas(List.of(venda));
+        List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        return sincronizacoes;
+    }
+
+    private void compararComBanco(ArmazemColunarVendas armazem) {
+        assertThat(armazem.contarClientesComVendas()).isEqualTo(vendaRepository.contarClientesComVendas());
+        assertThat(armazem.contarClientesPorGenero())
+                .containsExactlyInAnyOrderElementsOf(vendaRepository.contarClientesPorGenero());
+        assertThat(armazem.contarClientesPorCidade())
+                .containsExactlyInAnyOrderElementsOf(vendaRepository.contarClientesPorCidade());
+        assertThat(armazem.contarClientesPorIdade())
+                .containsExactlyInAnyOrderElementsOf(vendaRepository.contarClientesPorIdade());
+
+        for (String estado : List.of("sp", "SP", "rj", "mg")) {
+            List<TotaisGrupoDTO> esperados = vendaRepository.totalizarPorEstado(estado);
+            List<TotaisGrupoDTO> obtidos = armazem.totalizarPorEstado(estado);
+            assertThat(obtidos).as(estado).hasSameSizeAs(esperados);
+            for (int i = 0; i < esperados.size(); i++) {
+                assertThat(obtidos.get(i).grupo()).isEqualTo(esperados.get(i).grupo());
+                assertThat(obtidos.get(i).transacoes()).isEqualTo(esperados.get(i).transacoes());
+                assertThat(obtidos.get(i).quantidade()).isEqualTo(esperados.get(i).quantidade());
+                assertThat(obtidos.get(i).receita()).isCloseTo(esperados.get(i).receita(), within(1e-6));
+            }
+        }
+    }
+
+    /**
+     * Vendas {@code t<inicio>} a {@code t<fim - 1>}; a {@code rodada} muda o cliente de cada venda
+     * e os atributos de cada cliente, para que as reimportações troquem grupos.
+     */
+    private static InputStream csv(int inicio, int fim, int rodada) {
+        StringBuilder csv = new StringBuilder(CABECALHO);
+        for (int venda = inicio; venda < fim; venda++) {
+            int cliente = (venda + rodada) % 25;
+            int atributo = cliente + rodada;
+            csv.append("t").append(venda).append(",2024-03-15,").append(10.0 + venda * 1.5 + rodada)
+                    .append(",120.0,0.1,online,pix,C").append(cliente).append(",Cliente,").append(20 + atributo % 7)
+                    .append(',').append(GENEROS.get(atributo % GENEROS.size()))
+                    .append(',').append(CIDADES.get(atributo % CIDADES.size()))
+                    .append(',').append(ESTADOS.get(atributo % ESTADOS.size()))
+                    .append(",1000.0,P1,Produto,cat,marca,50.0,").append(1 + venda % 3)
+                    .append(",0.25,sul,entregue,5,V1\n");
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cliente cliente(String id, String cidade, String estado, String genero) {
+        Cliente cliente = new Cliente();
+        cliente.setId(id);
+        cliente.setIdadeCliente(30);
+        cliente.setCidadeCliente(cidade);
+        cliente.setEstadoCliente(estado);
+        cliente.setGeneroCliente(genero);
+        return cliente;
+    }
+
+    private static Venda venda(String id, Cliente cliente, double valorFinal) {
+        Venda venda = new Venda();
+        venda.setId(id);
+        venda.setCliente(cliente);
+        venda.setValorFinal(valorFinal);
+        venda.setQuantidade(2);
+        venda.setDataVenda(LocalDate.of(2024, 3, 15));
+        return venda;
+    }
+}
@@ -0,0 +1,178 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:arrow_test;DB_CLOSE_DELAY=-1",
+        "hanami.exportacao.arrow.tamanho-lote=4"
+})
+@ActiveProfiles("test")
+class ArrowServiceTest {
+
+    @Autowired
+    private ArrowService arrowService;
+
+    @Autowired
+    private ProcessamentoVendasService processamentoVendasService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path diretorio;
+
+    @BeforeEach
+    void limpar() {
+        jdbcTemplate.update("DELETE FROM resumo_vendas");
+        jdbcTemplate.update("DELETE FROM vendas");
+    }
+
+    /**
+     * As vendas exportadas, em lotes de 4 linhas e compactadas em zstd, voltam do arquivo com os
+     * mesmos valores de todas as colunas, inclusive nulos gravados como padrão.
+     */
+    @Test
+    void vendasExportadasSaoReimportadasIguais() throws Exception {
+        List<DadosArquivoDTO> gravados = new ArrayList<>();
+        for (int venda = 1; venda <= 10; venda++) {
+            gravados.add(registro(venda));
+        }
+        processamentoVendasService.salvarDadosDoArquivo(gravados);
+
+        Path arquivo = diretorio.resolve("vendas.arrow");
+        try (OutputStream saida = Files.newOutputStream(arquivo)) {
+            assertThat(arrowService.exportarVendas(saida)).isEqualTo(10);
+        }
+        assertThat(arrowService.isArrow(arquivo)).isTrue();
+
+        List<Integer> tamanhosLotes = new ArrayList<>();
+        List<DadosArquivoDTO> lidos = new ArrayList<>();
+        int total = arrowService.processarEmLotes(arquivo, 3, lote -> {
+            tamanhosLotes.add(lote.size());
+            lidos.addAll(lote);
+        });
+
+        assertThat(total).isEqualTo(10);
+        // Lotes de 4 linhas no arquivo, entregues em partes de até 3
+        assertThat(tamanhosLotes).containsExactly(3, 1, 3, 1, 2);
+        assertThat(lidos)
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(gravados);
+    }
+
+    /**
+     * Formato de fluxo com colunas de texto codificadas em dicionário e só parte das colunas: as
+     * codificadas são decodificadas e as ausentes são lidas como nulas, como no CSV.
+     */
+    @Test
+    void fluxoComColunasEmDicionarioEColunasAusentes() throws Exception {
+        Path arquivo = diretorio.resolve("vendas.arrows");
+        gravarFluxoComDicionario(arquivo, List.of("t1", "t2", "t3"), List.of(0, 1, 0));
+
+        assertThat(arrowService.isArrow(arquivo)).isTrue();
+        List<DadosArquivoDTO> lidos = new ArrayList<>();
+        int total = arrowService.processarEmLotes(arquivo, 10, lidos::addAll);
+
+        assertThat(total).isEqualTo(3);
+        lidos.sort(Comparator.comparing(DadosArquivoDTO::idTransacao));
+        assertThat(lidos).extracting(DadosArquivoDTO::canalVenda).containsExactly("online", "loja", "online");
+        assertThat(lidos).extracting(DadosArquivoDTO::valorFinal).containsExactly(10.5, 21.0, 31.5);
+        assertThat(lidos).extracting(DadosArquivoDTO::quantidade).containsExactly(1, 2, 3);
+        assertThat(lidos).extracting(DadosArquivoDTO::dataVenda).containsOnly(LocalDate.of(2024, 3, 15));
+        assertThat(lidos.get(0)).usingRecursiveComparison().isEqualTo(new DadosArquivoDTO("t1",
+                LocalDate.of(2024, 3, 15), 10.5, null, null, "online", null, null, null, null, null, null, null, null,
+                null, null, null, null, null, 1, null, null, null, null, null));
+    }
+
+    private static void gravarFluxoComDicionario(Path arquivo, List<String> ids, List<Integer> canais) throws Exception {
+        DictionaryEncoding codificacao = new DictionaryEncoding(1L, false, null);
+        Field canal = new Field("canal_venda", new FieldType(true, new ArrowType.Int(32, true), codificacao), null);
+        Schema esquema = new Schema(List.of(
+                Field.nullable("id_transacao", ArrowType.Utf8.INSTANCE),
+                Field.nullable("data_venda", new ArrowType.Date(DateUnit.DAY)),
+                Field.nullable("valor_final", new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)),
+                Field.nullable("quantidade", new ArrowType.Int(32, true)),
+                canal));
+
+        try (BufferAllocator alocador = new RootAllocator();
+             VarCharVector valoresCanal = new VarCharVector("canais", alocador);
+             VectorSchemaRoot lote = VectorSchemaRoot.create(esquema, alocador);
+             OutputStream saida = Files.newOutputStream(arquivo)) {
+            valoresCanal.allocateNew();
+            valoresCanal.setSafe(0, "online".getBytes(StandardCharsets.UTF_8));
+            valoresCanal.setSafe(1, "loja".getBytes(StandardCharsets.UTF_8));
+            valoresCanal.setValueCount(2);
+            DictionaryProvider.MapDictionaryProvider dicionarios = new DictionaryProvider.MapDictionaryProvider();
+            dicionarios.put(new Dictionary(valoresCanal, codificacao));
+
+            lote.allocateNew();
+            VarCharVector id = (VarCharVector) lote.getVector("id_transacao");
+            DateDayVector data = (DateDayVector) lote.getVector("data_venda");
+            Float8Vector valor = (Float8Vector) lote.getVector("valor_final");
+            IntVector quantidade = (IntVector) lote.getVector("quantidade");
+            IntVector codigoCanal = (IntVector) lote.getVector("canal_venda");
+            for (int linha = 0; linha < ids.size(); linha++) {
+                id.setSafe(linha, ids.get(linha).getBytes(StandardCharsets.UTF_8));
+                data.setSafe(linha, (int) LocalDate.of(2024, 3, 15).toEpochDay());
+                valor.setSafe(linha, 10.5 * (linha + 1));
+                quantidade.setSafe(linha, linha + 1);
+                codigoCanal.setSafe(linha, canais.get(linha));
+            }
+            lote.setRowCount(ids.size());
+
+            try (ArrowStreamWriter escritor = new ArrowStreamWriter(lote, dicionarios, saida)) {
+                escritor.start();
+                escritor.writeBatch();
+                escritor.end();
+            }
+        }
+    }
+
+    /**
+     * Cliente e produto têm os mesmos atributos em todas as vendas deles, como ficam no banco.
+     */
+    private static DadosArquivoDTO registro(int venda) {
+        int cliente = venda % 3;
+        int produto = venda % 2;
+        return new DadosArquivoDTO("t" + venda, LocalDate.of(2024, 3, venda), 100.0 + venda, 120.0, 0.1,
+                venda % 2 == 0 ? "online" : "loja", "pix", "c" + cliente, "cliente " + cliente, 20 + cliente,
+                cliente == 0 ? "m" : "f", "campinas", "sp", 1000.0 * cliente, "p" + produto, "produto " + produto,
+                "cat", "marca", 50.0 + produto, venda, 0.25, "sul", venda % 4 == 0 ? null : "entregue", venda,
+                "v" + (venda % 2));
+    }
+}
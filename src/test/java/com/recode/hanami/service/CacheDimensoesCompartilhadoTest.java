@@ -0,0 +1,99 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.entities.Cliente;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheDimensoesCompartilhadoTest {
+
+    private static final List<String> ATRIBUTOS_A = List.of("cliente", "campinas");
+    private static final List<String> ATRIBUTOS_B = List.of("cliente", "santos");
+
+    private final CacheDimensoesCompartilhado compartilhado = new CacheDimensoesCompartilhado(100);
+
+    @AfterEach
+    void encerrarTransacao() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * A importação A confirma o cliente X com os atributos A, depois B o sobrescreve com os
+     * atributos B. O cache compartilhado fica com B, e A deixa de considerar X já gravado.
+     */
+    @Test
+    void lotesSaoPublicadosNaOrdemDosCommitsEDescartamEntradasSobrescritas() {
+        CacheDimensoes importacaoA = new CacheDimensoes(true);
+        CacheDimensoes importacaoB = new CacheDimensoes(true);
+        List<TransactionSynchronization> fimImportacoes = acompanhar(importacaoA, importacaoB);
+
+        confirmarLote(importacaoA, "x", ATRIBUTOS_A);
+        assertThat(compartilhado.contem(Cliente.class, "x", ATRIBUTOS_A)).isTrue();
+
+        confirmarLote(importacaoB, "x", ATRIBUTOS_B);
+        assertThat(compartilhado.contem(Cliente.class, "x", ATRIBUTOS_B)).isTrue();
+        assertThat(compartilhado.contem(Cliente.class, "x", ATRIBUTOS_A)).isFalse();
+        assertThat(importacaoA.contem(Cliente.class, "x", ATRIBUTOS_A)).isFalse();
+        assertThat(importacaoB.contem(Cliente.class, "x", ATRIBUTOS_B)).isTrue();
+
+        // Os mesmos atributos não invalidam o que a outra importação já gravou
+        confirmarLote(importacaoA, "y", ATRIBUTOS_A);
+        confirmarLote(importacaoB, "y", ATRIBUTOS_A);
+        assertThat(importacaoA.contem(Cliente.class, "y", ATRIBUTOS_A)).isTrue();
+
+        // Terminada a importação A, seu cache não é mais acompanhado
+        fimImportacoes.forEach(sincronizacao -> sincronizacao.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        confirmarLote(importacaoB, "y", ATRIBUTOS_B);
+        assertThat(importacaoA.contem(Cliente.class, "y", ATRIBUTOS_A)).isTrue();
+    }
+
+    /**
+     * Uma importação sem dimensões separadas também invalida, no commit, as entradas das
+     * importações com dimensões separadas em andamento.
+     */
+    @Test
+    void importacaoInteiraConfirmadaDescartaEntradasSobrescritas() {
+        CacheDimensoes separada = new CacheDimensoes(true);
+        acompanhar(separada);
+        confirmarLote(separada, "x", ATRIBUTOS_A);
+
+        CacheDimensoes inteira = new CacheDimensoes();
+        inteira.registrar(Cliente.class, "x", ATRIBUTOS_B);
+        compartilhado.publicarAposCommit(inteira);
+
+        assertThat(separada.contem(Cliente.class, "x", ATRIBUTOS_A)).isFalse();
+        assertThat(compartilhado.contem(Cliente.class, "x", ATRIBUTOS_B)).isTrue();
+    }
+
+    private List<TransactionSynchronization> acompanhar(CacheDimensoes... importacoes) {
+        TransactionSynchronizationManager.initSynchronization();
+        for (CacheDimensoes importacao : importacoes) {
+            compartilhado.acompanhar(importacao);
+        }
+        List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        return sincronizacoes;
+    }
+
+    /**
+     * A transação curta das dimensões de um lote: grava o cliente e publica no commit.
+     */
+    private void confirmarLote(CacheDimensoes importacao, String id, List<String> atributos) {
+        CacheDimensoes gravadas = new CacheDimensoes();
+        importacao.registrar(Cliente.class, id, atributos);
+        gravadas.registrar(Cliente.class, id, atributos);
+
+        TransactionSynchronizationManager.initSynchronization();
+        compartilhado.publicarLoteAposCommit(importacao, gravadas);
+        List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        sincronizacoes.forEach(TransactionSynchronization::afterCommit);
+    }
+}
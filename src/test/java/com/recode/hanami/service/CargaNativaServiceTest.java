@@ -0,0 +1,198 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carga_nativa_test;DB_CLOSE_DELAY=-1",
+        "hanami.importacao.modo-gravacao=upsert"
+})
+@ActiveProfiles("test")
+class CargaNativaServiceTest {
+
+    private static final String CABECALHO = "id_transacao,data_venda,valor_final,subtotal,desconto_percent,canal_venda,"
+            + "forma_pagamento,cliente_id,nome_cliente,idade_cliente,genero_cliente,cidade_cliente,estado_cliente,"
+            + "renda_estimada,produto_id,nome_produto,categoria,marca,preco_unitario,quantidade,margem_lucro,regiao,"
+            + "status_entrega,tempo_entrega_dias,vendedor_id\n";
+
+    private static final Set<String> VENDAS_ATUALIZADAS = ConcurrentHashMap.newKeySet();
+
+    @TempDir
+    Path diretorio;
+
+    @Autowired
+    private ImportacaoVendasService importacaoVendasService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate.update("DELETE FROM resumo_vendas");
+        jdbcTemplate.update("DELETE FROM vendas");
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS vendas_reescritas BEFORE UPDATE ON vendas FOR EACH ROW CALL '"
+                + ContadorAtualizacoes.class.getName() + "'");
+        VENDAS_ATUALIZADAS.clear();
+    }
+
+    @AfterEach
+    void removerTrigger() {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS vendas_reescritas");
+    }
+
+    /**
+     * O segundo arquivo repete cinco vendas do primeiro, duas com valor novo, e traz três novas,
+     * uma delas duas vezes. Só as duas alteradas são reescritas; a repetida fica com a última
+     * ocorrência e é contada uma vez.
+     */
+    @Test
+    void reimportacaoSobrepostaContaERegravaSoAsAlteradas() throws IOException {
+        StringBuilder primeiro = new StringBuilder(CABECALHO);
+        for (int venda = 1; venda <= 10; venda++) {
+            primeiro.append(linha(venda, 100.0 + venda));
+        }
+        ImportacaoResponseDTO carga = importar("primeiro.csv", primeiro);
+
+        assertThat(carga.linhasProcessadas()).isEqualTo(10);
+        assertThat(List.of(carga.vendasInseridas(), carga.vendasAtualizadas(), carga.vendasInalteradas()))
+                .containsExactly(10, 0, 0);
+
+        StringBuilder segundo = new StringBuilder(CABECALHO)
+                .append(linha(6, 999.0))
+                .append(linha(7, 777.0))
+                .append(linha(8, 108.0))
+                .append(linha(9, 109.0))
+                .append(linha(10, 110.0))
+                .append(linha(11, 111.0))
+                .append(linha(12, 112.0))
+                .append(linha(13, 1.0))
+                .append(linha(13, 113.0));
+        VENDAS_ATUALIZADAS.clear();
+        ImportacaoResponseDTO reimportacao = importar("segundo.csv", segundo);
+
+        assertThat(reimportacao.linhasProcessadas()).isEqualTo(9);
+        assertThat(List.of(reimportacao.vendasInseridas(), reimportacao.vendasAtualizadas(), reimportacao.vendasInalteradas()))
+                .containsExactly(3, 2, 3);
+        assertThat(VENDAS_ATUALIZADAS).containsExactlyInAnyOrder("t6", "t7");
+
+        Map<String, Double> valores = jdbcTemplate.query("SELECT id_transacao, valor_final FROM vendas", resultado -> {
+            Map<String, Double> porId = new HashMap<>();
+            while (resultado.next()) {
+                porId.put(resultado.getString(1), resultado.getDouble(2));
+            }
+            return porId;
+        });
+        assertThat(valores).hasSize(13);
+        assertThat(valores).containsEntry("t1", 101.0)
+                .containsEntry("t6", 999.0)
+                .containsEntry("t7", 777.0)
+                .containsEntry("t8", 108.0)
+                .containsEntry("t13", 113.0);
+    }
+
+    @Test
+    void arquivoIdenticoForcadoNaoReescreveNada() throws IOException {
+        StringBuilder csv = new StringBuilder(CABECALHO);
+        for (int venda = 1; venda <= 5; venda++) {
+            csv.append(linha(venda, 50.0 + venda));
+        }
+        importar("vendas.csv", csv);
+        VENDAS_ATUALIZADAS.clear();
+
+        ImportacaoResponseDTO repetida = importar("vendas.csv", csv);
+
+        assertThat(List.of(repetida.vendasInseridas(), repetida.vendasAtualizadas(), repetida.vendasInalteradas()))
+                .containsExactly(0, 0, 5);
+        assertThat(VENDAS_ATUALIZADAS).isEmpty();
+    }
+
+    /**
+     * Sem streaming ({@code hanami.importacao.streaming=false}) o upload também passa pela carga nativa.
+     */
+    @Test
+    void importacaoEmListaUsaCargaNativa() {
+        StringBuilder primeiro = new StringBuilder(CABECALHO)
+                .append(linha(1, 71.0))
+                .append(linha(2, 72.0))
+                .append(linha(3, 73.0));
+        importacaoVendasService.importarEmLista(arquivoMultipart("primeiro.csv", primeiro), true);
+
+        StringBuilder segundo = new StringBuilder(CABECALHO)
+                .append(linha(1, 99.0))
+                .append(linha(2, 72.0))
+                .append(linha(3, 73.0))
+                .append(linha(4, 74.0));
+        ImportacaoResponseDTO resposta = importacaoVendasService.importarEmLista(arquivoMultipart("segundo.csv", segundo), true);
+
+        assertThat(List.of(resposta.vendasInseridas(), resposta.vendasAtualizadas(), resposta.vendasInalteradas()))
+                .containsExactly(1, 1, 2);
+        assertThat(VENDAS_ATUALIZADAS).containsExactly("t1");
+    }
+
+    private static MockMultipartFile arquivoMultipart(String nome, CharSequence csv) {
+        return new MockMultipartFile("file", nome, "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ImportacaoResponseDTO importar(String nome, CharSequence csv) throws IOException {
+        Path arquivo = diretorio.resolve(nome);
+        Files.writeString(arquivo, csv, StandardCharsets.UTF_8);
+        return importacaoVendasService.importarArquivo(arquivo, nome, true, ProgressoImportacao.NENHUM);
+    }
+
+    private static String linha(int venda, double valorFinal) {
+        return "t" + venda + ",2024-03-15," + valorFinal + ",120.0,0.1,online,pix,C" + (venda % 3)
+                + ",Cliente,30,F,Cidade,SP,1000.0,P" + (venda % 4) + ",Produto,cat,marca,50.0,2,0.25,sul,entregue,5,V1\n";
+    }
+
+    /**
+     * Registra o ID de cada venda atualizada, para verificar quais linhas foram reescritas.
+     */
+    public static class ContadorAtualizacoes implements Trigger {
+
+        private int colunaId;
+
+        @Override
+        public void init(Connection conexao, String esquema, String trigger, String tabela, boolean antes, int tipo)
+                throws SQLException {
+            try (PreparedStatement consulta = conexao.prepareStatement("SELECT ORDINAL_POSITION FROM INFORMATION_SCHEMA.COLUMNS"
+                    + " WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND COLUMN_NAME = 'ID_TRANSACAO'")) {
+                consulta.setString(1, esquema);
+                consulta.setString(2, tabela);
+                try (ResultSet resultado = consulta.executeQuery()) {
+                    resultado.next();
+                    colunaId = resultado.getInt(1) - 1;
+                }
+            }
+        }
+
+        @Override
+        public void fire(Connection conexao, Object[] anterior, Object[] novo) {
+            VENDAS_ATUALIZADAS.add((String) anterior[colunaId]);
+        }
+    }
+}
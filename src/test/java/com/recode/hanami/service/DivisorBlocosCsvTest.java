@@ -0,0 +1,123 @@
+package com.recode.hanami.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DivisorBlocosCsvTest {
+
+    private static final String CSV = "cabecalho,a,b\n"
+            + "1,\"sem quebra\",x\n"
+            + "2,\"quebra\ndentro das\naspas\",y\n"
+            + "3,\"aspas \"\"escapadas\"\"\n e quebra\",z\r\n"
+            + "4,\"\n\n\n\",w\n"
+            + "5,simples,v";
+
+    private static final List<String> REGISTROS = List.of(
+            "1,\"sem quebra\",x\n",
+            "2,\"quebra\ndentro das\naspas\",y\n",
+            "3,\"aspas \"\"escapadas\"\"\n e quebra\",z\r\n",
+            "4,\"\n\n\n\",w\n",
+            "5,simples,v");
+
+    /**
+     * Com qualquer tamanho de bloco, inclusive menor que um registro, os cortes caem só em quebras
+     * de linha fora de aspas e os blocos juntos reproduzem o arquivo.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 7, 16, 23, 40, 1024})
+    void cortaSoForaDeAspas(int tamanhoBloco) throws IOException {
+        DivisorBlocosCsv divisor = new DivisorBlocosCsv(umByteDeCadaVez(CSV), tamanhoBloco);
+
+        assertThat(texto(divisor.proximoBloco(true))).isEqualTo("cabecalho,a,b\n");
+
+        ByteArrayOutputStream lidos = new ByteArrayOutputStream();
+        List<String> registros = new ArrayList<>();
+        byte[] bloco;
+        while ((bloco = divisor.proximoBloco(false)) != null) {
+            lidos.write(bloco);
+            int[] limites = DivisorBlocosCsv.limitesRegistros(bloco);
+            for (int i = 0; i < limites.length - 1; i++) {
+                registros.add(new String(bloco, limites[i], limites[i + 1] - limites[i], StandardCharsets.UTF_8));
+            }
+        }
+
+        assertThat(lidos.toString(StandardCharsets.UTF_8)).isEqualTo(CSV.substring("cabecalho,a,b\n".length()));
+        assertThat(registros).isEqualTo(REGISTROS);
+    }
+
+    @Test
+    void blocoCresceAteConterORegistroInteiro() throws IOException {
+        String longo = "1,\"" + "x\n".repeat(100) + "\",fim\n";
+        DivisorBlocosCsv divisor = new DivisorBlocosCsv(new ByteArrayInputStream(bytes(longo + "2,a,b\n")), 8);
+
+        byte[] bloco = divisor.proximoBloco(false);
+
+        assertThat(texto(bloco)).startsWith(longo);
+        assertThat(DivisorBlocosCsv.limitesRegistros(bloco)).startsWith(0, longo.length());
+    }
+
+    /**
+     * Os blocos com quebras de linha dentro de aspas são convertidos pelos dois motores sem
+     * perder nem partir registros.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {CsvService.MOTOR_JACKSON, CsvService.MOTOR_TOKENIZADOR})
+    void blocosComQuebraEntreAspasSaoConvertidosInteiros(String motor) throws IOException {
+        String cabecalho = String.join(",", TokenizadorCsvVendas.COLUNAS) + "\n";
+        StringBuilder csv = new StringBuilder(cabecalho);
+        for (int i = 0; i < 20; i++) {
+            List<String> valores = new ArrayList<>();
+            for (String coluna : TokenizadorCsvVendas.COLUNAS) {
+                valores.add(switch (coluna) {
+                    case "id_transacao" -> "T" + i;
+                    case "nome_cliente" -> "\"Nome\ncom " + i + "\nquebras\"";
+                    case "data_venda" -> "2024-01-05";
+                    default -> "1";
+                });
+            }
+            csv.append(String.join(",", valores)).append('\n');
+        }
+
+        CsvService csvService = new CsvService(motor);
+        DivisorBlocosCsv divisor = new DivisorBlocosCsv(new ByteArrayInputStream(bytes(csv.toString())), 64);
+        CsvService.ConversorBlocos conversor = csvService.criarConversorBlocos(divisor.proximoBloco(true));
+
+        List<String> nomes = new ArrayList<>();
+        byte[] bloco;
+        while ((bloco = divisor.proximoBloco(false)) != null) {
+            conversor.converter(bloco).forEach(dados -> nomes.add(dados.nomeCliente()));
+        }
+
+        assertThat(nomes).hasSize(20);
+        assertThat(nomes.get(7)).isEqualTo("nome\ncom 7\nquebras");
+    }
+
+    private static InputStream umByteDeCadaVez(String texto) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes(texto))) {
+            @Override
+            public int read(byte[] destino, int inicio, int tamanho) throws IOException {
+                return super.read(destino, inicio, Math.min(tamanho, 1));
+            }
+        };
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String texto(byte[] bloco) {
+        return new String(bloco, StandardCharsets.UTF_8);
+    }
+}
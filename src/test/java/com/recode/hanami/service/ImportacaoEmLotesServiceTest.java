@@ -0,0 +1,118 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importacao_lotes_test;DB_CLOSE_DELAY=-1",
+        "hanami.importacao.modo-transacao=lotes",
+        "hanami.importacao.lotes.tamanho-commit=10"
+})
+@ActiveProfiles("test")
+class ImportacaoEmLotesServiceTest {
+
+    private static final String CABECALHO = "id_transacao,data_venda,valor_final,subtotal,desconto_percent,canal_venda,"
+            + "forma_pagamento,cliente_id,nome_cliente,idade_cliente,genero_cliente,cidade_cliente,estado_cliente,"
+            + "renda_estimada,produto_id,nome_produto,categoria,marca,preco_unitario,quantidade,margem_lucro,regiao,"
+            + "status_entrega,tempo_entrega_dias,vendedor_id\n";
+
+    @Autowired
+    private ImportacaoVendasService importacaoVendasService;
+
+    @Autowired
+    private RejeicoesImportacaoService rejeicoesImportacaoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void limpar() {
+        jdbcTemplate.update("DELETE FROM resumo_vendas");
+        jdbcTemplate.update("DELETE FROM vendas");
+    }
+
+    /**
+     * Linhas que só falham no banco (estado maior que a coluna) no início, no meio e no fim do
+     * primeiro bloco, e uma no segundo: a bisseção grava todas as demais e rejeita exatamente
+     * essas, com o conteúdo original e o motivo.
+     */
+    @Test
+    void linhasRecusadasPeloBancoSaoIsoladasERejeitadas() throws Exception {
+        Set<Integer> invalidas = Set.of(1, 5, 10, 17);
+        StringBuilder csv = new StringBuilder(CABECALHO);
+        for (int venda = 1; venda <= 20; venda++) {
+            csv.append(linha(venda, invalidas.contains(venda) ? "spx" : "sp"));
+        }
+
+        ImportacaoResponseDTO resposta = importacaoVendasService.importar(conteudo(csv), ProgressoImportacao.NENHUM);
+
+        assertThat(resposta.status()).isEqualTo("sucesso_parcial");
+        assertThat(resposta.linhasProcessadas()).isEqualTo(20);
+        assertThat(resposta.linhasAceitas()).isEqualTo(16);
+        assertThat(resposta.linhasRejeitadas()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vendas", Integer.class)).isEqualTo(16);
+        assertThat(jdbcTemplate.queryForList("SELECT id_transacao FROM vendas", String.class))
+                .doesNotContain("t1", "t5", "t10", "t17");
+
+        String idRejeicoes = resposta.arquivoRejeicoes().substring(resposta.arquivoRejeicoes().lastIndexOf('/') + 1);
+        List<String> rejeitadas = Files.readAllLines(rejeicoesImportacaoService.localizar(idRejeicoes), StandardCharsets.UTF_8);
+        assertThat(rejeitadas).hasSize(5);
+        assertThat(rejeitadas.get(0)).isEqualTo("linha,motivo,conteudo");
+        // A linha 1 do arquivo é o cabeçalho
+        assertThat(rejeitadas.subList(1, 5)).extracting(rejeitada -> rejeitada.substring(0, rejeitada.indexOf(',')))
+                .containsExactly("2", "6", "11", "18");
+        for (int i = 1; i < rejeitadas.size(); i++) {
+            assertThat(rejeitadas.get(i).toUpperCase()).contains("ESTADO_CLIENTE");
+            assertThat(rejeitadas.get(i)).contains(",spx,");
+        }
+        assertThat(rejeitadas.get(1)).endsWith(",\"" + linha(1, "spx").strip() + "\"");
+    }
+
+    /**
+     * Um erro que não é dos dados (aqui, a tabela de vendas ausente) interrompe a importação em
+     * vez de rejeitar linha por linha.
+     */
+    @Test
+    void erroForaDosDadosInterrompeAImportacao() {
+        StringBuilder csv = new StringBuilder(CABECALHO);
+        for (int venda = 1; venda <= 10; venda++) {
+            csv.append(linha(venda, "sp"));
+        }
+
+        jdbcTemplate.execute("ALTER TABLE vendas RENAME TO vendas_indisponivel");
+        try {
+            assertThatThrownBy(() -> importacaoVendasService.importar(conteudo(csv), ProgressoImportacao.NENHUM))
+                    .hasMessageContaining("VENDAS");
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE vendas_indisponivel RENAME TO vendas");
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vendas", Integer.class)).isZero();
+    }
+
+    private static InputStream conteudo(StringBuilder csv) {
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Cada venda tem seu próprio cliente, para que o estado inválido de uma não afete as outras.
+     */
+    private static String linha(int venda, String estado) {
+        return "t" + venda + ",2024-03-15," + (100.0 + venda) + ",120.0,0.1,online,pix,c" + venda
+                + ",Cliente,30,F,Cidade," + estado + ",1000.0,P1,Produto,cat,marca,50.0,2,0.25,sul,entregue,5,V1\n";
+    }
+}
@@ -0,0 +1,78 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importacao_vendas_test;DB_CLOSE_DELAY=-1",
+        "hanami.importacao.streaming=false"
+})
+@ActiveProfiles("test")
+class ImportacaoVendasServiceTest {
+
+    private static final String CABECALHO = "id_transacao,data_venda,valor_final,subtotal,desconto_percent,canal_venda,"
+            + "forma_pagamento,cliente_id,nome_cliente,idade_cliente,genero_cliente,cidade_cliente,estado_cliente,"
+            + "renda_estimada,produto_id,nome_produto,categoria,marca,preco_unitario,quantidade,margem_lucro,regiao,"
+            + "status_entrega,tempo_entrega_dias,vendedor_id\n";
+
+    @Autowired
+    private ImportacaoVendasService importacaoVendasService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void limpar() {
+        jdbcTemplate.update("DELETE FROM arquivos_importados");
+        jdbcTemplate.update("DELETE FROM resumo_vendas");
+        jdbcTemplate.update("DELETE FROM vendas");
+    }
+
+    /**
+     * Sem streaming, o arquivo também é registrado pelo hash: o reenvio devolve o resultado
+     * anterior sem gravar, e {@code force} o importa de novo.
+     */
+    @Test
+    void importacaoEmListaRegistraOArquivoERespeitaForce() {
+        StringBuilder csv = new StringBuilder(CABECALHO);
+        for (int venda = 1; venda <= 4; venda++) {
+            csv.append(linha(venda, 100.0 + venda));
+        }
+        MockMultipartFile arquivo = new MockMultipartFile("file", "vendas.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        ImportacaoResponseDTO primeira = importacaoVendasService.importarEmLista(arquivo, false);
+        assertThat(primeira.linhasProcessadas()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM arquivos_importados WHERE nome_arquivo = 'vendas.csv'",
+                Integer.class)).isEqualTo(1);
+
+        jdbcTemplate.update("UPDATE vendas SET valor_final = 0 WHERE id_transacao = 't1'");
+
+        ImportacaoResponseDTO reenvio = importacaoVendasService.importarEmLista(arquivo, false);
+        assertThat(reenvio).isEqualTo(primeira);
+        assertThat(valorFinal("t1")).isEqualTo(0.0);
+
+        ImportacaoResponseDTO forcada = importacaoVendasService.importarEmLista(arquivo, true);
+        assertThat(forcada.linhasProcessadas()).isEqualTo(4);
+        assertThat(valorFinal("t1")).isEqualTo(101.0);
+    }
+
+    private double valorFinal(String idTransacao) {
+        return jdbcTemplate.queryForObject("SELECT valor_final FROM vendas WHERE id_transacao = ?", Double.class, idTransacao);
+    }
+
+    private static String linha(int venda, double valorFinal) {
+        return "t" + venda + ",2024-03-15," + valorFinal + ",120.0,0.1,online,pix,C" + (venda % 3)
+                + ",Cliente,30,F,Cidade,SP,1000.0,P" + (venda % 4) + ",Produto,cat,marca,50.0,2,0.25,sul,entregue,5,V1\n";
+    }
+}
@@ -0,0 +1,89 @@
+package com.recode.hanami.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndiceVendasServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void encerrarTransacao() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacao -> sincronizacao.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * A leitura da tabela durante a reconstrução não enxerga as vendas de uma transação ainda
+     * aberta (aqui, a tabela está vazia); mesmo assim, outra importação não pode ver esses IDs
+     * como certamente novos enquanto a transação não termina.
+     */
+    @Test
+    void idsDeTransacaoAbertaSobrevivemAReconstrucao() throws Exception {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+        when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vendas", Long.class)).thenReturn(0L);
+        IndiceVendasService indice = new IndiceVendasService(jdbcTemplate, meterRegistry, true, 4, 0.01, false);
+        indice.iniciar();
+        aguardarCapacidade(4);
+
+        TransactionSynchronizationManager.initSynchronization();
+        List<String> ids = IntStream.rangeClosed(1, 5).mapToObj(i -> "TRX" + i).toList();
+        indice.registrar(ids);
+        // Cinco IDs passam da capacidade 4 e disparam a reconstrução, com capacidade para o dobro
+        aguardarCapacidade(10);
+
+        List<Boolean> vistosPorOutraImportacao = CompletableFuture
+                .supplyAsync(() -> ids.stream().map(indice::podeExistir).toList())
+                .get();
+        assertThat(vistosPorOutraImportacao).containsOnly(true);
+        assertThat(ids.stream().map(indice::podeExistir)).containsOnly(true);
+    }
+
+    /**
+     * Com o collation padrão do MySQL, um ID que difere de um gravado só em maiúsculas ou acentos
+     * é a mesma venda e não pode ser dado como certamente novo.
+     */
+    @Test
+    void noMysqlIdsIguaisPeloCollationPodemExistir() throws Exception {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class), any(), any())).thenReturn("utf8mb4_0900_ai_ci");
+        when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vendas", Long.class)).thenReturn(0L);
+        IndiceVendasService indice = new IndiceVendasService(jdbcTemplate, meterRegistry, true, 1000, 0.01, false);
+        indice.iniciar();
+        aguardarCapacidade(1000);
+
+        indice.registrar(List.of("venda-joão-1"));
+
+        assertThat(indice.podeExistir("VENDA-JOAO-1")).isTrue();
+        assertThat(indice.podeExistir("Venda-João-1")).isTrue();
+        assertThat(indice.podeExistir("venda-joão-2")).isFalse();
+    }
+
+    private void aguardarCapacidade(double capacidade) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("hanami.indice.vendas.capacidade").gauge().value() != capacidade) {
+            assertThat(System.currentTimeMillis()).as("reconstrução do índice").isLessThan(limite);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.recode.hanami.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NdjsonServiceTest {
+
+    @TempDir
+    Path diretorio;
+
+    /**
+     * Cada linha chega em uma escrita separada, e a leitura fica sem dados entre elas: os
+     * registros ainda assim são entregues em lotes cheios, não um a um.
+     */
+    @Test
+    void produtorConstanteGeraLotesCheios() throws Exception {
+        NdjsonService service = new NdjsonService(10_000);
+        List<Integer> lotes = new CopyOnWriteArrayList<>();
+
+        try (PipedOutputStream produtor = new PipedOutputStream();
+             PipedInputStream fluxo = new PipedInputStream(produtor, 64 * 1024);
+             ArquivoRejeicoes rejeicoes = new ArquivoRejeicoes("teste", diretorio.resolve("rejeicoes.csv"))) {
+            CompletableFuture<Integer> leitura = CompletableFuture.supplyAsync(() ->
+                    service.processarEmLotes(fluxo, 10, lote -> lotes.add(lote.size()), rejeicoes));
+
+            for (int i = 1; i <= 20; i++) {
+                enviar(produtor, i);
+                Thread.sleep(5);
+            }
+            produtor.close();
+
+            assertThat(leitura.get(10, TimeUnit.SECONDS)).isEqualTo(20);
+        }
+        assertThat(lotes).containsExactly(10, 10);
+    }
+
+    /**
+     * Com o produtor parado e a conexão aberta, o lote incompleto é entregue quando o primeiro
+     * registro dele completa a espera.
+     */
+    @Test
+    void produtorOciosoTemLoteEntregueAposEspera() throws Exception {
+        NdjsonService service = new NdjsonService(100);
+        List<Integer> lotes = new CopyOnWriteArrayList<>();
+
+        try (PipedOutputStream produtor = new PipedOutputStream();
+             PipedInputStream fluxo = new PipedInputStream(produtor, 64 * 1024);
+             ArquivoRejeicoes rejeicoes = new ArquivoRejeicoes("teste", diretorio.resolve("rejeicoes.csv"))) {
+            CompletableFuture<Integer> leitura = CompletableFuture.supplyAsync(() ->
+                    service.processarEmLotes(fluxo, 1000, lote -> lotes.add(lote.size()), rejeicoes));
+
+            for (int i = 1; i <= 3; i++) {
+                enviar(produtor, i);
+            }
+            long limite = System.currentTimeMillis() + 5_000;
+            while (lotes.isEmpty() && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertThat(lotes).as("lote entregue com a conexão aberta").containsExactly(3);
+
+            enviar(produtor, 4);
+            produtor.close();
+            assertThat(leitura.get(10, TimeUnit.SECONDS)).isEqualTo(4);
+        }
+        assertThat(lotes).containsExactly(3, 1);
+    }
+
+    private static void enviar(PipedOutputStream produtor, int numero) throws IOException {
+        String linha = "{\"id_transacao\":\"TRX" + numero + "\",\"cliente_id\":\"CLI1\",\"quantidade\":1}\n";
+        produtor.write(linha.getBytes(StandardCharsets.UTF_8));
+        produtor.flush();
+    }
+}
@@ -0,0 +1,64 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.entities.Cliente;
+import com.recode.hanami.repository.ClienteRepository;
+import com.recode.hanami.repository.ProdutoRepository;
+import com.recode.hanami.repository.VendaRepository;
+import com.recode.hanami.repository.VendedorRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PersistenciaEmLoteServiceTest {
+
+    /**
+     * Com o collation padrão do MySQL, o cliente devolvido pela consulta para um ID que difere
+     * só em maiúsculas e acentos é atualizado; inserir outro violaria a chave primária.
+     */
+    @Test
+    void noMysqlAtualizaALinhaCujoIdDifereSoEmMaiusculasOuAcentos() {
+        JdbcTemplate mysql = mock(JdbcTemplate.class);
+        when(mysql.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        when(mysql.queryForObject(anyString(), eq(String.class), any(), any())).thenReturn("utf8mb4_0900_ai_ci");
+
+        Cliente gravado = cliente("joão-1", "campinas");
+        ClienteRepository clienteRepository = mock(ClienteRepository.class);
+        when(clienteRepository.findAllById(any())).thenReturn(List.of(gravado));
+        EntityManager entityManager = mock(EntityManager.class);
+
+        PersistenciaEmLoteService servico = new PersistenciaEmLoteService(clienteRepository,
+                mock(ProdutoRepository.class), mock(VendedorRepository.class), mock(VendaRepository.class),
+                new CacheDimensoesCompartilhado(100), mock(IndiceVendasService.class), mock(ResumoVendasService.class),
+                mock(ArmazemColunarVendas.class), entityManager, mock(PlatformTransactionManager.class), mysql);
+
+        Cliente reimportado = cliente("JOAO-1", "santos");
+        Cliente novo = cliente("joao-2", "santos");
+        servico.gravar(List.of(reimportado, novo), List.of(), List.of(), List.of(), new CacheDimensoes());
+
+        assertThat(gravado.getCidadeCliente()).isEqualTo("santos");
+        verify(entityManager, never()).persist(reimportado);
+        verify(entityManager).persist(novo);
+    }
+
+    private static Cliente cliente(String id, String cidade) {
+        Cliente cliente = new Cliente();
+        cliente.setId(id);
+        cliente.setIdadeCliente(30);
+        cliente.setCidadeCliente(cidade);
+        cliente.setEstadoCliente("sp");
+        return cliente;
+    }
+}
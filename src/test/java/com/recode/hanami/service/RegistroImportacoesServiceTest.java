@@ -0,0 +1,100 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.ImportacaoResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:registro_importacoes_test;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class RegistroImportacoesServiceTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @Autowired
+    private RegistroImportacoesService registroImportacoesService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void limpar() {
+        jdbcTemplate.update("DELETE FROM arquivos_importados");
+    }
+
+    @Test
+    void resultadoDevolvidoDeNovoComContagensERejeicoes() {
+        ImportacaoResponseDTO resultado = new ImportacaoResponseDTO("sucesso_parcial", 100, 98, 2,
+                "/hanami/import-rejects/3f2b8c1e-5d4a-4e6f-9a7b-1c2d3e4f5a6b", 60, 30, 8);
+
+        registroImportacoesService.registrar(HASH, "vendas.csv", 4096, resultado);
+
+        assertThat(registroImportacoesService.buscarImportacao(HASH)).contains(resultado);
+    }
+
+    @Test
+    void novoRegistroDoMesmoHashSubstituiOAnterior() {
+        registroImportacoesService.registrar(HASH, "vendas.csv", 4096,
+                new ImportacaoResponseDTO("sucesso", 100, null, null, null, 100, 0, 0));
+        ImportacaoResponseDTO forcada = new ImportacaoResponseDTO("sucesso", 100, null, null, null, 0, 0, 100);
+
+        registroImportacoesService.registrar(HASH, "vendas.csv", 4096, forcada);
+
+        assertThat(registroImportacoesService.buscarImportacao(HASH)).contains(forcada);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM arquivos_importados", Integer.class)).isEqualTo(1);
+    }
+
+    /**
+     * Duas importações do mesmo arquivo terminam juntas: as duas transações gravam o hash sem
+     * consulta prévia, e nenhuma falha por violação de chave.
+     */
+    @Test
+    void registrosSimultaneosDoMesmoHashNaoFalham() throws Exception {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        CyclicBarrier largada = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> importacoes = new ArrayList<>();
+            for (int i = 1; i <= 2; i++) {
+                int linhas = i;
+                importacoes.add(executor.submit(() -> transacao.executeWithoutResult(status -> {
+                    try {
+                        largada.await(5, TimeUnit.SECONDS);
+                        registroImportacoesService.registrar(HASH, "vendas.csv", 4096,
+                                new ImportacaoResponseDTO("sucesso", linhas));
+                        // O commit demora, como o de uma importação grande
+                        Thread.sleep(200);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })));
+            }
+            for (Future<?> importacao : importacoes) {
+                importacao.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(registroImportacoesService.buscarImportacao(HASH)).isPresent();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM arquivos_importados", Integer.class)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,147 @@
+package com.recode.hanami.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:resumo_vendas_test;DB_CLOSE_DELAY=-1",
+        "hanami.importacao.carga-nativa.habilitada=true",
+        "hanami.importacao.carga-nativa.tamanho-minimo=9223372036854775807"
+})
+@ActiveProfiles("test")
+class ResumoVendasServiceTest {
+
+    private static final String CABECALHO = "id_transacao,data_venda,valor_final,subtotal,desconto_percent,canal_venda,"
+            + "forma_pagamento,cliente_id,nome_cliente,idade_cliente,genero_cliente,cidade_cliente,estado_cliente,"
+            + "renda_estimada,produto_id,nome_produto,categoria,marca,preco_unitario,quantidade,margem_lucro,regiao,"
+            + "status_entrega,tempo_entrega_dias,vendedor_id\n";
+
+    private static final List<String> REGIOES = List.of("norte", "sul", "sudeste", "nordeste", "centro-oeste");
+    private static final int VENDAS = 200;
+    private static final int RODADAS = 8;
+
+    @Autowired
+    private ImportacaoVendasService importacaoVendasService;
+
+    @Autowired
+    private CargaNativaService cargaNativaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void limpar() {
+        jdbcTemplate.update("DELETE FROM resumo_vendas");
+        jdbcTemplate.update("DELETE FROM vendas");
+    }
+
+    @Test
+    void sobrescritasSimultaneasPeloOrmMantemResumoIgualAsVendas() throws Exception {
+        sobrescreverEmParalelo(conteudo -> importacaoVendasService.importar(conteudo, ProgressoImportacao.NENHUM));
+    }
+
+    @Test
+    void sobrescritasSimultaneasPelaCargaNativaMantemResumoIgualAsVendas() throws Exception {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        sobrescreverEmParalelo(conteudo -> transacao.executeWithoutResult(
+                status -> cargaNativaService.carregar(conteudo, ProgressoImportacao.NENHUM)));
+    }
+
+    /**
+     * Duas importações por rodada sobrescrevem as mesmas vendas ao mesmo tempo, com região,
+     * canal e valor diferentes, partindo juntas de uma barreira.
+     */
+    private void sobrescreverEmParalelo(Consumer<InputStream> importar) throws Exception {
+        importar.accept(csv(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int rodada = 1; rodada <= RODADAS; rodada++) {
+                CyclicBarrier largada = new CyclicBarrier(2);
+                int primeira = rodada * 2;
+                List<Future<?>> importacoes = List.of(primeira, primeira + 1).stream()
+                        .<Future<?>>map(versao -> executor.submit(() -> {
+                            largada.await();
+                            importar.accept(csv(versao));
+                            return null;
+                        }))
+                        .toList();
+                for (Future<?> importacao : importacoes) {
+                    importacao.get();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vendas", Long.class)).isEqualTo(VENDAS);
+        assertResumoIgualAsVendas();
+    }
+
+    private void assertResumoIgualAsVendas() {
+        Map<List<Object>, double[]> esperado = totais("""
+                SELECT data_venda, regiao, canal_venda, forma_pagamento, produto_id,
+                    COUNT(*), COALESCE(SUM(valor_final), 0), COALESCE(SUM(quantidade), 0)
+                FROM vendas GROUP BY data_venda, regiao, canal_venda, forma_pagamento, produto_id""");
+        Map<List<Object>, double[]> resumo = totais("""
+                SELECT data_venda, regiao, canal_venda, forma_pagamento, produto_id, transacoes, receita, quantidade
+                FROM resumo_vendas""");
+
+        assertThat(resumo.keySet()).isEqualTo(esperado.keySet());
+        esperado.forEach((chave, valores) -> {
+            double[] obtidos = resumo.get(chave);
+            assertThat(obtidos[0]).as("transações de %s", chave).isEqualTo(valores[0]);
+            assertThat(obtidos[1]).as("receita de %s", chave).isCloseTo(valores[1], within(1e-6));
+            assertThat(obtidos[2]).as("quantidade de %s", chave).isEqualTo(valores[2]);
+        });
+    }
+
+    private Map<List<Object>, double[]> totais(String sql) {
+        Map<List<Object>, double[]> totais = new HashMap<>();
+        jdbcTemplate.query(sql, resultado -> {
+            List<Object> chave = List.of(resultado.getDate(1).toLocalDate(), resultado.getString(2),
+                    resultado.getString(3), resultado.getString(4), resultado.getString(5));
+            totais.put(chave, new double[]{resultado.getLong(6), resultado.getDouble(7), resultado.getLong(8)});
+        });
+        return totais;
+    }
+
+    private InputStream csv(int versao) {
+        StringBuilder csv = new StringBuilder(CABECALHO);
+        for (int venda = 0; venda < VENDAS; venda++) {
+            int variacao = venda + versao;
+            csv.append("T").append(venda)
+                    .append(",2024-0").append(1 + variacao % 9).append("-15,")
+                    .append(10 + versao).append('.').append(venda % 100).append(",100.0,0.1,")
+                    .append(variacao % 2 == 0 ? "online" : "loja").append(",pix,C").append(venda % 20)
+                    .append(",Cliente,30,F,Cidade,SP,1000.0,P").append(variacao % 7)
+                    .append(",Produto,cat,marca,50.0,").append(1 + versao % 3).append(",0.25,")
+                    .append(REGIOES.get(variacao % REGIOES.size())).append(",entregue,5,V1\n");
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
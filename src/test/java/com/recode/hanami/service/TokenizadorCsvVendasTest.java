@@ -0,0 +1,232 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.DadosArquivoDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Compara o {@link TokenizadorCsvVendas} com a leitura via Jackson: para o mesmo arquivo os dois
+ * motores devem produzir os mesmos {@link DadosArquivoDTO}, ou falhar os dois.
+ */
+class TokenizadorCsvVendasTest {
+
+    private static final String CABECALHO = String.join(",", TokenizadorCsvVendas.COLUNAS);
+
+    private final CsvService jackson = new CsvService(CsvService.MOTOR_JACKSON);
+    private final CsvService tokenizador = new CsvService(CsvService.MOTOR_TOKENIZADOR);
+
+    @Test
+    void camposSimplesIguaisAosDoJackson() {
+        List<DadosArquivoDTO> registros = assertMesmoResultado(CABECALHO + "\n"
+                + linha("T1", "2024-04-24", "56.18", "Online", "C1", "São Paulo") + "\n"
+                + linha("T2", "2024-09-15", "66.5", "loja", "C2", "Curitiba") + "\n");
+
+        assertThat(registros).hasSize(2);
+        assertThat(registros.get(0).valorFinal()).isEqualTo(56.18);
+        assertThat(registros.get(0).cidadeCliente()).isEqualTo("são paulo");
+    }
+
+    @Test
+    void camposEntreAspasComAspasEscapadasEQuebrasDeLinha() {
+        List<DadosArquivoDTO> registros = assertMesmoResultado(CABECALHO + "\n"
+                + linha("T1", "2024-01-05", "10.0", "\"online\"", "C1", "\"Cidade, com vírgula\"") + "\n"
+                + linha("T2", "2024-01-06", "11.0", "\"diz \"\"oi\"\"\"", "C2", "\"linha 1\nlinha 2\r\nlinha 3\"") + "\r\n"
+                + linha("T3", "2024-01-07", "12.0", "\"\"", "C3", "\"\"\"\"") + "\n");
+
+        assertThat(registros).hasSize(3);
+        assertThat(registros.get(0).cidadeCliente()).isEqualTo("cidade, com vírgula");
+        assertThat(registros.get(1).canalVenda()).isEqualTo("diz \"oi\"");
+        assertThat(registros.get(1).cidadeCliente()).isEqualTo("linha 1\nlinha 2\r\nlinha 3");
+        assertThat(registros.get(2).cidadeCliente()).isEqualTo("\"");
+    }
+
+    @Test
+    void bomCrlfColunasReordenadasEColunaDesconhecida() {
+        List<String> colunas = new ArrayList<>(List.of(TokenizadorCsvVendas.COLUNAS));
+        Collections.reverse(colunas);
+        colunas.add(3, "coluna_extra");
+        StringBuilder csv = new StringBuilder("﻿").append(String.join(",", colunas)).append("\r\n");
+        for (int i = 0; i < 3; i++) {
+            List<String> valores = new ArrayList<>();
+            for (String coluna : colunas) {
+                valores.add(valorPadrao(coluna, i));
+            }
+            csv.append(String.join(",", valores)).append("\r\n");
+        }
+
+        assertThat(assertMesmoResultado(csv.toString())).hasSize(3);
+    }
+
+    @Test
+    void linhasCurtasVirgulaSobrandoELinhasVazias() {
+        List<DadosArquivoDTO> registros = assertMesmoResultado(CABECALHO + "\n"
+                + "T1,2024-01-05,10.0\n"
+                + linha("T2", "2024-01-06", "11.0", "loja", "C2", "Recife") + ",\n"
+                + "\n"
+                + linha("T3", "2024-01-07", "12.0", "loja", "C3", "Natal"));
+
+        assertThat(registros).extracting(DadosArquivoDTO::idTransacao).contains("t1", "t2", "t3");
+        assertThat(registros.get(0).quantidade()).isZero();
+    }
+
+    /**
+     * O tokenizador lê dias até 28 direto dos bytes e deixa os demais para o formatter, que
+     * ajusta datas como 30/02 para o último dia do mês, como o Jackson.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"2024-01-01", "2024-02-28", "2024-02-29", "2023-02-29", "2024-02-30", "2024-02-31",
+            "2024-04-31", "2024-12-31", "0001-01-01", "9999-12-28", " 2024-03-05 ", ""})
+    void datasIguaisAsDoJackson(String data) {
+        assertMesmoResultado(CABECALHO + "\n" + linha("T1", data, "1.0", "loja", "C1", "Natal") + "\n");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2024-13-01", "2024-00-10", "2024-01-32", "2024-1-05", "05/01/2024", "2024-01-0x"})
+    void datasInvalidasFalhamNosDoisMotores(String data) {
+        assertMesmaFalha(CABECALHO + "\n" + linha("T1", data, "1.0", "loja", "C1", "Natal") + "\n");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-0", "-0.0", "0.1", "0.30000000000000004", "123456789012345", "1234567890123456",
+            "12345678901234567890", "9007199254740993", "0.000000000000000000001", "1e3", "1E-5", "-2.5e+10",
+            ".5", "5.", "-.5", "+1.5", "007.50", "1.7976931348623157E308", "4.9E-324", "NaN", "Infinity", "-INF",
+            " 3.5 ", ""})
+    void decimaisIguaisAosDoJackson(String valor) {
+        assertMesmoResultado(CABECALHO + "\n" + linha("T1", "2024-01-05", valor, "loja", "C1", "Natal") + "\n");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1,5", "abc", "1.2.3", "--1", "0x10", "1e"})
+    void decimaisInvalidosFalhamNosDoisMotores(String valor) {
+        String campo = valor.contains(",") ? "\"" + valor + "\"" : valor;
+        assertMesmaFalha(CABECALHO + "\n" + linha("T1", "2024-01-05", campo, "loja", "C1", "Natal") + "\n");
+    }
+
+    @Test
+    void cabecalhoSemColunaDoLayoutFalhaComAMesmaMensagem() {
+        String csv = CABECALHO.replace(",regiao", "").replace(",marca", "") + "\n" + "T1,2024-01-05\n";
+
+        Throwable erroJackson = catchThrowable(() -> ler(jackson, csv));
+        Throwable erroTokenizador = catchThrowable(() -> ler(tokenizador, csv));
+        assertThat(erroTokenizador).isExactlyInstanceOf(erroJackson.getClass())
+                .hasMessageStartingWith("Erro de leitura do arquivo: Missing 2 header columns: [\"marca\",\"regiao\"]");
+        assertThat(erroJackson).hasMessageStartingWith(erroTokenizador.getMessage());
+    }
+
+    @Test
+    void colunaDoLayoutRepetidaFalhaNosDoisMotores() {
+        assertMesmaFalha(CABECALHO + ",regiao\n" + linha("T1", "2024-01-05", "1.0", "loja", "C1", "Natal") + ",sul\n");
+    }
+
+    @Test
+    void camposAMaisFalhamNosDoisMotores() {
+        assertMesmaFalha(CABECALHO + "\n" + linha("T1", "2024-01-05", "1.0", "loja", "C1", "Natal") + ",a,b\n");
+    }
+
+    @Test
+    void aspasNaoFechadasFalhamNosDoisMotores() {
+        assertMesmaFalha(CABECALHO + "\n" + linha("T1", "2024-01-05", "1.0", "\"loja", "C1", "Natal") + "\n");
+    }
+
+    /**
+     * Linhas geradas com valores sorteados entre formatos comuns e de borda.
+     */
+    @Test
+    void linhasSorteadasIguaisAsDoJackson() {
+        Random sorteio = new Random(42);
+        String[] decimais = {"0", "1", "19.99", "0.05", "-3.25", "1234567.891", "1e2", ".75", "100.", "", " 7.5",
+                "0.30000000000000004", "99999999999999.99", "1.0000000000000002"};
+        String[] inteiros = {"0", "1", "42", "-7", "+3", "007", "2147483647", "-2147483648", "", " 12 "};
+        String[] textos = {"a", "Online", "\"com, vírgula\"", "\"com \"\"aspas\"\"\"", "\"multi\nlinha\"", "  espaços  ",
+                "", "ÁÉÍÓÚ", "x".repeat(60)};
+
+        StringBuilder csv = new StringBuilder(CABECALHO).append('\n');
+        for (int i = 0; i < 5_000; i++) {
+            List<String> valores = new ArrayList<>();
+            for (String coluna : TokenizadorCsvVendas.COLUNAS) {
+                String[] opcoes = switch (tipo(coluna)) {
+                    case "decimal" -> decimais;
+                    case "inteiro" -> inteiros;
+                    default -> textos;
+                };
+                valores.add(coluna.equals("data_venda")
+                        ? String.format("2024-%02d-%02d", 1 + sorteio.nextInt(12), 1 + sorteio.nextInt(28))
+                        : opcoes[sorteio.nextInt(opcoes.length)]);
+            }
+            csv.append(String.join(",", valores)).append(sorteio.nextBoolean() ? "\n" : "\r\n");
+        }
+
+        assertThat(assertMesmoResultado(csv.toString())).hasSize(5_000);
+    }
+
+    private List<DadosArquivoDTO> assertMesmoResultado(String csv) {
+        List<DadosArquivoDTO> esperado = ler(jackson, csv);
+        List<DadosArquivoDTO> obtido = ler(tokenizador, csv);
+        assertThat(obtido).isEqualTo(esperado);
+        return obtido;
+    }
+
+    private void assertMesmaFalha(String csv) {
+        Throwable erroJackson = catchThrowable(() -> ler(jackson, csv));
+        Throwable erroTokenizador = catchThrowable(() -> ler(tokenizador, csv));
+        assertThat(erroJackson).as("falha do Jackson").isNotNull();
+        assertThat(erroTokenizador).as("falha do tokenizador").isNotNull();
+        assertThat(erroTokenizador.getClass()).isEqualTo(erroJackson.getClass());
+    }
+
+    private static List<DadosArquivoDTO> ler(CsvService csvService, String csv) {
+        List<DadosArquivoDTO> registros = new ArrayList<>();
+        csvService.processarEmLotes(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 100, registros::addAll);
+        return registros;
+    }
+
+    /**
+     * Linha no layout de {@link TokenizadorCsvVendas#COLUNAS} com os campos variáveis informados;
+     * os textos devem vir já entre aspas quando necessário.
+     */
+    private static String linha(String id, String data, String valorFinal, String canal, String cliente, String cidade) {
+        List<String> valores = new ArrayList<>();
+        for (String coluna : TokenizadorCsvVendas.COLUNAS) {
+            valores.add(switch (coluna) {
+                case "id_transacao" -> id;
+                case "data_venda" -> data;
+                case "valor_final" -> valorFinal;
+                case "canal_venda" -> canal;
+                case "cliente_id" -> cliente;
+                case "cidade_cliente" -> cidade;
+                default -> valorPadrao(coluna, 0);
+            });
+        }
+        return String.join(",", valores);
+    }
+
+    private static String valorPadrao(String coluna, int indice) {
+        return switch (tipo(coluna)) {
+            case "decimal" -> (indice + 1) + ".25";
+            case "inteiro" -> Integer.toString(indice + 2);
+            case "data" -> LocalDate.of(2024, 3, 1 + indice).toString();
+            default -> coluna + indice;
+        };
+    }
+
+    private static String tipo(String coluna) {
+        return switch (coluna) {
+            case "data_venda" -> "data";
+            case "valor_final", "subtotal", "desconto_percent", "renda_estimada", "preco_unitario", "margem_lucro" -> "decimal";
+            case "idade_cliente", "quantidade", "tempo_entrega_dias" -> "inteiro";
+            default -> "texto";
+        };
+    }
+}
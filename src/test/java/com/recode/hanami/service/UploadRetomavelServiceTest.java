@@ -0,0 +1,105 @@
+package com.recode.hanami.service;
+
+import com.recode.hanami.dto.UploadRetomavelDTO;
+import com.recode.hanami.exception.RecursoNaoEncontradoException;
+import com.recode.hanami.validation.UploadArquivoValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadRetomavelServiceTest {
+
+    @TempDir
+    Path spool;
+
+    private UploadRetomavelService criarServico() {
+        return new UploadRetomavelService(null, null, new UploadArquivoValidator(), spool, 1_000_000, 1);
+    }
+
+    @Test
+    void sessaoComParteRecebidaExpiraSemNovosEnvios() throws IOException {
+        UploadRetomavelService servico = criarServico();
+        UploadRetomavelDTO upload = servico.criar("vendas.csv", 100);
+        servico.receberParte(upload.idUpload(), "bytes 0-9/100", corpo("0123456789"));
+
+        envelhecer(upload.idUpload(), 2);
+        servico.criar("outro.csv", 100);
+
+        assertThatThrownBy(() -> servico.consultar(upload.idUpload())).isInstanceOf(RecursoNaoEncontradoException.class);
+        try (Stream<Path> arquivos = Files.list(spool.resolve("uploads"))) {
+            assertThat(arquivos).noneMatch(arquivo -> arquivo.getFileName().toString().contains(upload.idUpload()));
+        }
+    }
+
+    @Test
+    void sessaoRecenteNaoExpira() {
+        UploadRetomavelService servico = criarServico();
+        UploadRetomavelDTO upload = servico.criar("vendas.csv", 100);
+        servico.receberParte(upload.idUpload(), null, corpo("0123456789"));
+
+        servico.criar("outro.csv", 100);
+
+        assertThat(servico.consultar(upload.idUpload()).bytesRecebidos()).isEqualTo(10L);
+    }
+
+    @Test
+    void sessaoRecebendoParteNaoExpiraDuranteOEnvio() throws Exception {
+        UploadRetomavelService servico = criarServico();
+        UploadRetomavelDTO upload = servico.criar("vendas.csv", 100);
+        CountDownLatch lendo = new CountDownLatch(1);
+        CountDownLatch liberarEnvio = new CountDownLatch(1);
+        InputStream envioLento = new InputStream() {
+            @Override
+            public int read() {
+                return -1;
+            }
+
+            @Override
+            public int read(byte[] destino, int inicio, int tamanho) {
+                lendo.countDown();
+                try {
+                    liberarEnvio.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return -1;
+            }
+        };
+
+        CompletableFuture<UploadRetomavelDTO> envio =
+                CompletableFuture.supplyAsync(() -> servico.receberParte(upload.idUpload(), null, envioLento));
+        assertThat(lendo.await(10, TimeUnit.SECONDS)).isTrue();
+        envelhecer(upload.idUpload(), 2);
+        servico.criar("outro.csv", 100);
+        liberarEnvio.countDown();
+
+        assertThat(envio.get(10, TimeUnit.SECONDS).idUpload()).isEqualTo(upload.idUpload());
+        assertThat(servico.consultar(upload.idUpload()).idUpload()).isEqualTo(upload.idUpload());
+    }
+
+    private void envelhecer(String idUpload, long horas) throws IOException {
+        FileTime antigo = FileTime.from(Instant.now().minus(horas, ChronoUnit.HOURS));
+        Files.setLastModifiedTime(spool.resolve("uploads/upload-" + idUpload + ".parte"), antigo);
+        Files.setLastModifiedTime(spool.resolve("uploads/upload-" + idUpload + ".properties"), antigo);
+    }
+
+    private static InputStream corpo(String conteudo) {
+        return new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+}
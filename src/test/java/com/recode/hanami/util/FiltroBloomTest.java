@@ -0,0 +1,91 @@
+package com.recode.hanami.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class FiltroBloomTest {
+
+    private static final int CAPACIDADE = 100_000;
+
+    @Test
+    void valorAdicionadoSempreEncontrado() {
+        FiltroBloom filtro = new FiltroBloom(CAPACIDADE, 0.01);
+        for (int i = 0; i < CAPACIDADE; i++) {
+            filtro.adicionar(id(i));
+        }
+
+        for (int i = 0; i < CAPACIDADE; i++) {
+            assertThat(filtro.podeConter(id(i))).as(id(i)).isTrue();
+        }
+        assertThat(filtro.getElementos()).isEqualTo(CAPACIDADE);
+    }
+
+    /**
+     * Com a capacidade ocupada, a proporção de valores nunca adicionados apontados como presentes
+     * fica perto da taxa configurada e da estimada pelo próprio filtro.
+     */
+    @ParameterizedTest
+    @ValueSource(doubles = {0.1, 0.01, 0.001})
+    void taxaDeFalsosPositivosDentroDoConfigurado(double taxa) {
+        FiltroBloom filtro = new FiltroBloom(CAPACIDADE, taxa);
+        for (int i = 0; i < CAPACIDADE; i++) {
+            filtro.adicionar(id(i));
+        }
+
+        int consultas = 1_000_000;
+        int falsosPositivos = 0;
+        for (int i = 0; i < consultas; i++) {
+            if (filtro.podeConter("nunca-adicionado-" + i)) {
+                falsosPositivos++;
+            }
+        }
+
+        double observada = (double) falsosPositivos / consultas;
+        assertThat(observada).isLessThanOrEqualTo(taxa * 1.3);
+        assertThat(observada).isCloseTo(filtro.getTaxaFalsosPositivosEstimada(), within(taxa * 0.3));
+    }
+
+    @Test
+    void adicoesConcorrentesNaoPerdemBits() throws InterruptedException {
+        FiltroBloom filtro = new FiltroBloom(CAPACIDADE, 0.01);
+        int threads = 4;
+        List<Thread> trabalhadores = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int primeiro = t;
+            Thread trabalhador = new Thread(() -> {
+                for (int i = primeiro; i < CAPACIDADE; i += threads) {
+                    filtro.adicionar(id(i));
+                }
+            });
+            trabalhadores.add(trabalhador);
+            trabalhador.start();
+        }
+        for (Thread trabalhador : trabalhadores) {
+            trabalhador.join();
+        }
+
+        for (int i = 0; i < CAPACIDADE; i++) {
+            assertThat(filtro.podeConter(id(i))).as(id(i)).isTrue();
+        }
+        assertThat(filtro.getElementos()).isEqualTo(CAPACIDADE);
+    }
+
+    @Test
+    void rejeitaParametrosInvalidos() {
+        assertThatThrownBy(() -> new FiltroBloom(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new FiltroBloom(1000, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new FiltroBloom(1000, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String id(int i) {
+        return "TRX" + String.format("%08d", i);
+    }
+}